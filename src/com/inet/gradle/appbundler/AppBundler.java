@@ -18,6 +18,7 @@ package com.inet.gradle.appbundler;
 
 import org.gradle.api.Project;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 
 import com.inet.gradle.setup.abstracts.AbstractSetupBuilder;
@@ -32,6 +33,10 @@ public class AppBundler extends AbstractSetupBuilder implements SetupSources {
 
     private String jnlpLauncherName;
 
+    private boolean incremental;
+
+    private boolean compactInfoPlist;
+
     /**
      * Create a new instance.
      * @param project current project
@@ -68,4 +73,40 @@ public class AppBundler extends AbstractSetupBuilder implements SetupSources {
     public void setJnlpLauncherName(String jnlpLauncher) {
         this.jnlpLauncherName = jnlpLauncher;
     }
+
+    /**
+     * If an existing app bundle is updated instead of recreated.
+     * @return true, if incremental
+     */
+    @Internal
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Keep an existing app bundle in the destination directory and copy only the files that have changed in size or
+     * modification time. Files that are no longer part of the bundle are removed.
+     * @param incremental true, for an incremental bundle assembly
+     */
+    public void setIncremental( boolean incremental ) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * If the Info.plist of the bundle is written in the binary format.
+     * @return true, if binary
+     */
+    @Input
+    public boolean isCompactInfoPlist() {
+        return compactInfoPlist;
+    }
+
+    /**
+     * Write the Info.plist of the bundle in the compact binary format (bplist00) instead of xml. macOS reads both
+     * formats, the binary format is smaller and faster to parse.
+     * @param compactInfoPlist true, for a binary Info.plist
+     */
+    public void setCompactInfoPlist( boolean compactInfoPlist ) {
+        this.compactInfoPlist = compactInfoPlist;
+    }
 }
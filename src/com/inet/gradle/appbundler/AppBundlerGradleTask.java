@@ -19,12 +19,11 @@ package com.inet.gradle.appbundler;
 import java.io.File;
 
 import org.gradle.api.Action;
-import org.gradle.api.GradleException;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.Optional;
-import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.util.ConfigureUtil;
 
 import com.inet.gradle.setup.abstracts.AbstractTask;
@@ -44,6 +43,9 @@ public class AppBundlerGradleTask extends AbstractTask {
      */
     public AppBundlerGradleTask() {
         super( "app", AppBundler.class );
+        /*// if gradleVersion >= 7.4
+        notCompatibleWithConfigurationCache( "The code signing and notarization run external tools with the project configuration." );
+        */// endif
     }
 
     /**
@@ -57,26 +59,22 @@ public class AppBundlerGradleTask extends AbstractTask {
     }
 
     /**
-     * {@inheritDoc}
+     * The resulting application is a directory.
+     * @return the application
      */
+    @OutputDirectory
     @Override
-    public void build() {
-        ProjectInternal project = (ProjectInternal)getProject();
-        new AppBundlerBuilder( this, getAppBuilder(), project.getFileResolver() ).build();
+    public File getSetupFile() {
+        return super.getSetupFile();
     }
 
     /**
-     * The action called from Gradle
-     * Will not add an artifact since it would be a directory. 
+     * {@inheritDoc}
      */
-    @TaskAction
-    public void action() {
-        build();
-        File setupFile = getSetupFile();
-        if( !setupFile.exists() ) {
-            throw new GradleException( "Setup file was not created: " + setupFile );
-        }
-    }    
+    @Override
+    public void build() {
+        new AppBundlerBuilder( this, getAppBuilder(), getFileResolver() ).build();
+    }
 
     /**
      * Set the needed information for signing the setup.
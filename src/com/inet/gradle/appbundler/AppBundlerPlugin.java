@@ -37,6 +37,10 @@ public class AppBundlerPlugin implements Plugin<Project> {
         project.apply( plugin );
 
         project.getExtensions().create( "appBundler", AppBundler.class, project );
+        /*// if gradleVersion < 4.9
         project.getTasks().create( "bundleApp", AppBundlerGradleTask.class );
+        */// else
+        project.getTasks().register( "bundleApp", AppBundlerGradleTask.class );
+        //// endif
     }
 }
@@ -37,7 +37,7 @@ public class OSXNotarize<T extends AbstractTask, S extends AbstractSetupBuilder>
      * @param notarizeFile the file to notarize
      */
     public void run( File notarizeFile ) {
-        task.getProject().getLogger().info( "Notarizing the given file: " + notarizeFile.getAbsolutePath() );
+        task.getLogger().info( "Notarizing the given file: " + notarizeFile.getAbsolutePath() );
 
         checkForRunningNotarizationProcess();
         
@@ -47,7 +47,7 @@ public class OSXNotarize<T extends AbstractTask, S extends AbstractSetupBuilder>
             throw new IllegalStateException( "The notarization process has returned with an unexpected error." );
         }
 
-        task.getProject().getLogger().info( "The RequestUUID for notarization is: " + UUID );
+        task.getLogger().info( "The RequestUUID for notarization is: " + UUID );
 
         // This will hang and wait until notarization is done
         if( !waitForNotarization( UUID ) ) {
@@ -216,7 +216,7 @@ public class OSXNotarize<T extends AbstractTask, S extends AbstractSetupBuilder>
         ByteArrayOutputStream error = new ByteArrayOutputStream();
         String output = exec( true, error, command.toArray( new String[command.size()] ) );
         if( isDebugOutput() ) {
-            task.getProject().getLogger().debug( output );
+            task.getLogger().debug( output );
         }
 
         try {
@@ -232,23 +232,23 @@ public class OSXNotarize<T extends AbstractTask, S extends AbstractSetupBuilder>
             return (String)plist.computeIfPresent( "notarization-upload", ( String key, Object value ) -> ((Map<String, String>)value).get( "RequestUUID" ) );
 
         } catch( ClassCastException | XmlParseException e ) {
-            task.getProject().getLogger().error( "An error occured while checking the noraization response." );
+            task.getLogger().error( "An error occured while checking the noraization response." );
             if ( !isDebugOutput() ) {
                 // Debug in addition
-                task.getProject().getLogger().error( "Debug output START:" );
-                task.getProject().getLogger().error( output );
-                task.getProject().getLogger().error( "Debug output END" );
+                task.getLogger().error( "Debug output START:" );
+                task.getLogger().error( output );
+                task.getLogger().error( "Debug output END" );
             }
 
-            task.getProject().getLogger().debug( "The Error stream produced:" );
-            task.getProject().getLogger().debug( error.toString() );
+            task.getLogger().debug( "The Error stream produced:" );
+            task.getLogger().debug( error.toString() );
             
             ByteArrayOutputStream bos = new ByteArrayOutputStream();
             PrintStream stream = new PrintStream( bos );
             e.printStackTrace( stream  );
-            task.getProject().getLogger().debug( "This is the exception it produced:" );
-            task.getProject().getLogger().debug( bos.toString() );
-            task.getProject().getLogger().debug( "End of Output." );
+            task.getLogger().debug( "This is the exception it produced:" );
+            task.getLogger().debug( bos.toString() );
+            task.getLogger().debug( "End of Output." );
         }
 
         return null;
@@ -261,10 +261,10 @@ public class OSXNotarize<T extends AbstractTask, S extends AbstractSetupBuilder>
      */
     private void waitWithStatus( String status ) throws InterruptedException {
         if ( status != null ) {
-            task.getProject().getLogger().info( "Status was: '" + status + "'." );
+            task.getLogger().info( "Status was: '" + status + "'." );
         }
 
-        task.getProject().getLogger().info( "Will wait a minute now." );
+        task.getLogger().info( "Will wait a minute now." );
         Thread.sleep( 1000 * 60 );
     }
 
@@ -294,7 +294,7 @@ public class OSXNotarize<T extends AbstractTask, S extends AbstractSetupBuilder>
                 addDefaultOptionsToXCRunCommand( command );
 
                 output = exec( true, error, command.toArray( new String[command.size()] ) );
-                task.getProject().getLogger().debug( output );
+                task.getLogger().debug( output );
 
                 Map<String, Object> plist = Plist.fromXml( output );
                 Map<String, Object> info = (Map<String, Object>)plist.get( "notarization-info" );
@@ -317,8 +317,8 @@ public class OSXNotarize<T extends AbstractTask, S extends AbstractSetupBuilder>
                     // This is what we have been waiting for!
                     return true;
                 } else if( status.equalsIgnoreCase( "invalid" ) ) {
-                    task.getProject().getLogger().error( "The response status was 'invalid'. Please check the online logfile for problems:" );
-                    task.getProject().getLogger().error( info.get( "LogFileURL" ).toString() );
+                    task.getLogger().error( "The response status was 'invalid'. Please check the online logfile for problems:" );
+                    task.getLogger().error( info.get( "LogFileURL" ).toString() );
                     return false;
                 }
 
@@ -358,7 +358,7 @@ public class OSXNotarize<T extends AbstractTask, S extends AbstractSetupBuilder>
     
                 String output = exec( command.toArray( new String[command.size()] ) );
                 if ( debugOutput ) {
-                    task.getProject().getLogger().info( "Response: `" + output + "`" );
+                    task.getLogger().info( "Response: `" + output + "`" );
                 }
 
                 Integer lineCount = Integer.valueOf( output );
@@ -367,7 +367,7 @@ public class OSXNotarize<T extends AbstractTask, S extends AbstractSetupBuilder>
                 }
     
                 // Else continue;
-                task.getProject().getLogger().info( "There was another process notarizing. Will wait a minute now." );
+                task.getLogger().info( "There was another process notarizing. Will wait a minute now." );
                 Thread.sleep( 1000 * 60 );
 
             } catch( NumberFormatException | InterruptedException e ) {
@@ -391,7 +391,7 @@ public class OSXNotarize<T extends AbstractTask, S extends AbstractSetupBuilder>
 
         String output = exec( false, command.toArray( new String[command.size()] ) );
         if( isDebugOutput() ) {
-            task.getProject().getLogger().debug( output );
+            task.getLogger().debug( output );
         }
     }
 }
@@ -0,0 +1,685 @@
+package com.inet.gradle.appbundler.utils.xmlwise;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary plist handling (bplist00), the compact counterpart of the xml format in {@link Plist}.
+ * <p>
+ * The same java types are used as with the xml plist. Equal strings, numbers, dates and data
+ * are written only once to the object table and referenced multiple times.
+ * <p>
+ * The writer streams the objects directly to the output. The reader works on a
+ * <code>ByteBuffer</code>, files are memory mapped.
+ */
+public final class BinaryPlist
+{
+    /**
+     * The magic bytes at the start of every binary plist.
+     */
+    static final byte[] MAGIC = "bplist00".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Seconds between 1970-01-01 and the plist epoch 2001-01-01.
+     */
+    private static final long EPOCH_OFFSET = 978307200L;
+
+    private static final int TRAILER_SIZE = 32;
+
+    private BinaryPlist() {}
+
+    /**
+     * Check if the data starts with the binary plist magic.
+     *
+     * @param buffer the data, the position is not changed.
+     * @return true, if it is a binary plist.
+     */
+    public static boolean isBinary(ByteBuffer buffer)
+    {
+        if (buffer.remaining() < MAGIC.length) return false;
+        for (int i = 0; i < MAGIC.length; i++)
+        {
+            if (buffer.get(buffer.position() + i) != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check if the file is a binary plist.
+     *
+     * @param file the file to check.
+     * @return true, if it is a binary plist.
+     * @throws IOException if the file can not be read.
+     */
+    public static boolean isBinary(File file) throws IOException
+    {
+        byte[] header = new byte[MAGIC.length];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+        {
+            if (raf.length() < MAGIC.length) return false;
+            raf.readFully(header);
+        }
+        return isBinary(ByteBuffer.wrap(header));
+    }
+
+    /**
+     * Write an object as binary plist.
+     *
+     * @param data the object to write, must be Integer, Double, String, Date, Boolean, byte[], Map or List.
+     * @param out the target stream, will not be closed.
+     * @throws IOException if there was an IO error.
+     */
+    public static void write(Object data, OutputStream out) throws IOException
+    {
+        new Writer().write(data, out);
+    }
+
+    /**
+     * Write an object as binary plist to a file.
+     *
+     * @param data the object to write.
+     * @param file the target file.
+     * @throws IOException if there was an IO error.
+     */
+    public static void store(Object data, File file) throws IOException
+    {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file)))
+        {
+            write(data, out);
+        }
+    }
+
+    /**
+     * Write an object as binary plist into a byte array.
+     *
+     * @param data the object to write.
+     * @return the binary plist.
+     */
+    public static byte[] toBytes(Object data)
+    {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        try
+        {
+            write(data, out);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e); // can not occur
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Read a binary plist file. The file is memory mapped.
+     *
+     * @param file the file to read.
+     * @return the top object.
+     * @throws XmlParseException if the data are not a valid binary plist.
+     * @throws IOException if the file can not be read.
+     */
+    public static Object load(File file) throws XmlParseException, IOException
+    {
+        try (FileChannel channel = new RandomAccessFile(file, "r").getChannel())
+        {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Read a binary plist from a byte array.
+     *
+     * @param data the binary plist.
+     * @return the top object.
+     * @throws XmlParseException if the data are not a valid binary plist.
+     */
+    public static Object fromBytes(byte[] data) throws XmlParseException
+    {
+        return read(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Read a binary plist from a buffer. The buffer content from its position to its limit is used.
+     *
+     * @param buffer the binary plist.
+     * @return the top object.
+     * @throws XmlParseException if the data are not a valid binary plist.
+     */
+    public static Object read(ByteBuffer buffer) throws XmlParseException
+    {
+        try
+        {
+            return new Reader(buffer.slice()).read();
+        }
+        catch (XmlParseException e)
+        {
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            throw new XmlParseException("Invalid binary plist", e);
+        }
+    }
+
+    /**
+     * Streaming writer with object table deduplication.
+     */
+    private static final class Writer
+    {
+        private final List<Object> m_objects = new ArrayList<Object>();
+        private final List<int[]> m_refs = new ArrayList<int[]>();
+        private final Map<Object, Integer> m_unique = new HashMap<Object, Integer>();
+        private int m_refSize;
+
+        /**
+         * Write the plist.
+         *
+         * @param data the top object.
+         * @param stream the target.
+         * @throws IOException if there was an IO error.
+         */
+        void write(Object data, OutputStream stream) throws IOException
+        {
+            flatten(data);
+            int count = m_objects.size();
+            m_refSize = sizeFor(count);
+
+            DataOutputStream out = new DataOutputStream(stream);
+            out.write(MAGIC);
+            long[] offsets = new long[count];
+            for (int i = 0; i < count; i++)
+            {
+                offsets[i] = out.size();
+                writeObject(out, m_objects.get(i), m_refs.get(i));
+            }
+            long offsetTable = out.size();
+            int offsetSize = sizeFor(offsetTable);
+            for (long offset : offsets)
+            {
+                writeSized(out, offset, offsetSize);
+            }
+
+            // trailer
+            out.write(new byte[6]);
+            out.writeByte(offsetSize);
+            out.writeByte(m_refSize);
+            out.writeLong(count);
+            out.writeLong(0);
+            out.writeLong(offsetTable);
+            out.flush();
+        }
+
+        /**
+         * Assign an object id to every object in the tree. Equal simple values share one id.
+         *
+         * @param o the object.
+         * @return the id of the object.
+         */
+        @SuppressWarnings( "rawtypes" )
+        private int flatten(Object o)
+        {
+            if (o == null) throw new RuntimeException("Cannot use null in plist.");
+            if (o instanceof Map)
+            {
+                int id = add(o);
+                Map map = (Map) o;
+                int[] refs = new int[map.size() * 2];
+                int i = 0;
+                for (Object entry : map.entrySet())
+                {
+                    Map.Entry e = (Map.Entry) entry;
+                    refs[i] = flatten(e.getKey().toString());
+                    refs[i + map.size()] = flatten(e.getValue());
+                    i++;
+                }
+                m_refs.set(id, refs);
+                return id;
+            }
+            if (o instanceof List)
+            {
+                int id = add(o);
+                List list = (List) o;
+                int[] refs = new int[list.size()];
+                for (int i = 0; i < refs.length; i++)
+                {
+                    refs[i] = flatten(list.get(i));
+                }
+                m_refs.set(id, refs);
+                return id;
+            }
+            Object key = o instanceof byte[] ? ByteBuffer.wrap((byte[]) o) : o;
+            Integer id = m_unique.get(key);
+            if (id == null)
+            {
+                id = add(o);
+                m_unique.put(key, id);
+            }
+            return id;
+        }
+
+        /**
+         * Add an object to the object table.
+         *
+         * @param o the object.
+         * @return the new id.
+         */
+        private int add(Object o)
+        {
+            m_objects.add(o);
+            m_refs.add(null);
+            return m_objects.size() - 1;
+        }
+
+        /**
+         * Write a single object of the object table.
+         *
+         * @param out the target.
+         * @param o the object.
+         * @param refs the object references of a dict or array, else null.
+         * @throws IOException if there was an IO error.
+         */
+        private void writeObject(DataOutputStream out, Object o, int[] refs) throws IOException
+        {
+            if (o instanceof Boolean)
+            {
+                out.writeByte(((Boolean) o).booleanValue() ? 0x09 : 0x08);
+            }
+            else if (o instanceof Float || o instanceof Double)
+            {
+                out.writeByte(0x23);
+                out.writeDouble(((Number) o).doubleValue());
+            }
+            else if (o instanceof Number)
+            {
+                writeInt(out, ((Number) o).longValue());
+            }
+            else if (o instanceof Date)
+            {
+                out.writeByte(0x33);
+                out.writeDouble(((Date) o).getTime() / 1000.0 - EPOCH_OFFSET);
+            }
+            else if (o instanceof byte[])
+            {
+                byte[] bytes = (byte[]) o;
+                writeHeader(out, 0x40, bytes.length);
+                out.write(bytes);
+            }
+            else if (o instanceof String)
+            {
+                String str = (String) o;
+                if (isAscii(str))
+                {
+                    writeHeader(out, 0x50, str.length());
+                    out.write(str.getBytes(StandardCharsets.US_ASCII));
+                }
+                else
+                {
+                    writeHeader(out, 0x60, str.length());
+                    out.write(str.getBytes(StandardCharsets.UTF_16BE));
+                }
+            }
+            else if (o instanceof Map)
+            {
+                writeHeader(out, 0xD0, refs.length / 2);
+                writeRefs(out, refs);
+            }
+            else if (o instanceof List)
+            {
+                writeHeader(out, 0xA0, refs.length);
+                writeRefs(out, refs);
+            }
+            else
+            {
+                throw new RuntimeException("Cannot use " + o.getClass() + " in plist.");
+            }
+        }
+
+        /**
+         * Write object references.
+         *
+         * @param out the target.
+         * @param refs the object ids.
+         * @throws IOException if there was an IO error.
+         */
+        private void writeRefs(DataOutputStream out, int[] refs) throws IOException
+        {
+            for (int ref : refs)
+            {
+                writeSized(out, ref, m_refSize);
+            }
+        }
+
+        /**
+         * Write a marker with a count. Counts of 15 and more are followed by an integer object.
+         *
+         * @param out the target.
+         * @param type the type marker in the high nibble.
+         * @param count the count.
+         * @throws IOException if there was an IO error.
+         */
+        private static void writeHeader(DataOutputStream out, int type, int count) throws IOException
+        {
+            if (count < 15)
+            {
+                out.writeByte(type | count);
+            }
+            else
+            {
+                out.writeByte(type | 0x0F);
+                writeInt(out, count);
+            }
+        }
+
+        /**
+         * Write an integer object with the smallest possible size. Negative values need 8 bytes.
+         *
+         * @param out the target.
+         * @param value the value.
+         * @throws IOException if there was an IO error.
+         */
+        private static void writeInt(DataOutputStream out, long value) throws IOException
+        {
+            if (value < 0 || value > 0xFFFFFFFFL)
+            {
+                out.writeByte(0x13);
+                out.writeLong(value);
+            }
+            else
+            {
+                int size = sizeFor(value);
+                out.writeByte(0x10 | Integer.numberOfTrailingZeros(size));
+                writeSized(out, value, size);
+            }
+        }
+
+        /**
+         * Write an unsigned big endian value.
+         *
+         * @param out the target.
+         * @param value the value.
+         * @param size the count of bytes.
+         * @throws IOException if there was an IO error.
+         */
+        private static void writeSized(DataOutputStream out, long value, int size) throws IOException
+        {
+            for (int i = size - 1; i >= 0; i--)
+            {
+                out.writeByte((int) (value >>> (i * 8)));
+            }
+        }
+
+        /**
+         * The needed bytes for an unsigned value: 1, 2, 4 or 8.
+         *
+         * @param value the value.
+         * @return the byte count.
+         */
+        private static int sizeFor(long value)
+        {
+            if (value <= 0xFFL) return 1;
+            if (value <= 0xFFFFL) return 2;
+            if (value <= 0xFFFFFFFFL) return 4;
+            return 8;
+        }
+
+        /**
+         * Check if a string can be written as ASCII.
+         *
+         * @param str the string.
+         * @return true, if only ASCII characters.
+         */
+        private static boolean isAscii(String str)
+        {
+            for (int i = 0; i < str.length(); i++)
+            {
+                if (str.charAt(i) > 0x7F) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reader on a buffer with random access to the object table.
+     */
+    private static final class Reader
+    {
+        private final ByteBuffer m_buffer;
+        private final int m_offsetSize;
+        private final int m_refSize;
+        private final int m_count;
+        private final int m_top;
+        private final int m_offsetTable;
+        private int m_depth;
+
+        /**
+         * Create a reader and parse the trailer.
+         *
+         * @param buffer the plist data.
+         * @throws XmlParseException if it is not a binary plist.
+         */
+        Reader(ByteBuffer buffer) throws XmlParseException
+        {
+            m_buffer = buffer;
+            int length = buffer.limit();
+            if (!isBinary(buffer) || length < MAGIC.length + TRAILER_SIZE)
+                throw new XmlParseException("Not a binary plist.");
+            int trailer = length - TRAILER_SIZE;
+            m_offsetSize = buffer.get(trailer + 6) & 0xFF;
+            m_refSize = buffer.get(trailer + 7) & 0xFF;
+            m_count = toInt(buffer.getLong(trailer + 8));
+            m_top = toInt(buffer.getLong(trailer + 16));
+            m_offsetTable = toInt(buffer.getLong(trailer + 24));
+            if (m_top >= m_count || m_offsetTable + (long) m_count * m_offsetSize > trailer)
+                throw new XmlParseException("Invalid binary plist trailer.");
+        }
+
+        /**
+         * Read the top object.
+         *
+         * @return the object.
+         * @throws XmlParseException if the data are invalid.
+         */
+        Object read() throws XmlParseException
+        {
+            return readObject(m_top);
+        }
+
+        /**
+         * Read an object from the object table.
+         *
+         * @param ref the object id.
+         * @return the object.
+         * @throws XmlParseException if the data are invalid.
+         */
+        private Object readObject(int ref) throws XmlParseException
+        {
+            if (ref < 0 || ref >= m_count) throw new XmlParseException("Invalid object reference: " + ref);
+            if (++m_depth > 512) throw new XmlParseException("Plist is nested too deep.");
+            try
+            {
+                int offset = toInt(readSized(m_offsetTable + ref * m_offsetSize, m_offsetSize));
+                int marker = m_buffer.get(offset) & 0xFF;
+                int info = marker & 0x0F;
+                switch (marker >> 4)
+                {
+                    case 0x0:
+                        if (marker == 0x08) return Boolean.FALSE;
+                        if (marker == 0x09) return Boolean.TRUE;
+                        break;
+                    case 0x1:
+                        return toNumber(readInt(offset));
+                    case 0x2:
+                        if (info == 2) return Double.valueOf(m_buffer.getFloat(offset + 1));
+                        if (info == 3) return Double.valueOf(m_buffer.getDouble(offset + 1));
+                        break;
+                    case 0x3:
+                        if (marker == 0x33)
+                        {
+                            double seconds = m_buffer.getDouble(offset + 1);
+                            return new Date(Math.round((seconds + EPOCH_OFFSET) * 1000));
+                        }
+                        break;
+                    case 0x4:
+                    {
+                        int[] start = readCount(offset, info);
+                        byte[] bytes = new byte[start[1]];
+                        ByteBuffer dup = m_buffer.duplicate();
+                        dup.position(start[0]);
+                        dup.get(bytes);
+                        return bytes;
+                    }
+                    case 0x5:
+                    {
+                        int[] start = readCount(offset, info);
+                        return readString(start[0], start[1], StandardCharsets.US_ASCII);
+                    }
+                    case 0x6:
+                    {
+                        int[] start = readCount(offset, info);
+                        return readString(start[0], start[1] * 2, StandardCharsets.UTF_16BE);
+                    }
+                    case 0xA:
+                    {
+                        int[] start = readCount(offset, info);
+                        List<Object> list = new ArrayList<Object>(start[1]);
+                        for (int i = 0; i < start[1]; i++)
+                        {
+                            list.add(readObject(readRef(start[0], i)));
+                        }
+                        return list;
+                    }
+                    case 0xD:
+                    {
+                        int[] start = readCount(offset, info);
+                        Map<String, Object> dict = new LinkedHashMap<String, Object>();
+                        for (int i = 0; i < start[1]; i++)
+                        {
+                            Object key = readObject(readRef(start[0], i));
+                            Object value = readObject(readRef(start[0], i + start[1]));
+                            dict.put(key.toString(), value);
+                        }
+                        return dict;
+                    }
+                }
+                throw new XmlParseException("Unsupported binary plist marker: 0x" + Integer.toHexString(marker));
+            }
+            finally
+            {
+                m_depth--;
+            }
+        }
+
+        /**
+         * Read the count of an object. Counts of 15 and more are stored as following integer object.
+         *
+         * @param offset the offset of the object marker.
+         * @param info the low nibble of the marker.
+         * @return the offset of the content and the count.
+         * @throws XmlParseException if the data are invalid.
+         */
+        private int[] readCount(int offset, int info) throws XmlParseException
+        {
+            if (info != 0x0F) return new int[] { offset + 1, info };
+            int marker = m_buffer.get(offset + 1) & 0xFF;
+            if ((marker >> 4) != 0x1) throw new XmlParseException("Expected integer count at " + offset);
+            int size = 1 << (marker & 0x0F);
+            return new int[] { offset + 2 + size, toInt(readInt(offset + 1)) };
+        }
+
+        /**
+         * Read an integer object.
+         *
+         * @param offset the offset of the marker.
+         * @return the value.
+         */
+        private long readInt(int offset)
+        {
+            int size = 1 << (m_buffer.get(offset) & 0x0F);
+            if (size == 16) return m_buffer.getLong(offset + 9); // 128 bit, only the low part is used
+            if (size == 8) return m_buffer.getLong(offset + 1);
+            return readSized(offset + 1, size);
+        }
+
+        /**
+         * Read a string.
+         *
+         * @param offset the start of the string.
+         * @param length the length in bytes.
+         * @param charset the encoding.
+         * @return the string.
+         */
+        private String readString(int offset, int length, java.nio.charset.Charset charset)
+        {
+            ByteBuffer dup = m_buffer.duplicate();
+            dup.position(offset);
+            dup.limit(offset + length);
+            return charset.decode(dup).toString();
+        }
+
+        /**
+         * Read an object reference of a dict or array.
+         *
+         * @param start the start of the references.
+         * @param index the index of the reference.
+         * @return the object id.
+         */
+        private int readRef(int start, int index)
+        {
+            return toInt(readSized(start + index * m_refSize, m_refSize));
+        }
+
+        /**
+         * Read an unsigned big endian value.
+         *
+         * @param offset the offset.
+         * @param size the count of bytes.
+         * @return the value.
+         */
+        private long readSized(int offset, int size)
+        {
+            long value = 0;
+            for (int i = 0; i < size; i++)
+            {
+                value = (value << 8) | (m_buffer.get(offset + i) & 0xFF);
+            }
+            return value;
+        }
+
+        /**
+         * Convert to an Integer if it fits, like the xml parser.
+         *
+         * @param value the value.
+         * @return Integer or Long.
+         */
+        private static Number toNumber(long value)
+        {
+            if ((int) value == value) return Integer.valueOf((int) value);
+            return Long.valueOf(value);
+        }
+
+        /**
+         * Convert a table value to an int offset.
+         *
+         * @param value the value.
+         * @return the int value.
+         */
+        private static int toInt(long value)
+        {
+            if (value < 0 || value > Integer.MAX_VALUE) throw new IllegalArgumentException("Value out of range: " + value);
+            return (int) value;
+        }
+    }
+}
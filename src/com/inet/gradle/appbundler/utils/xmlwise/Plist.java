@@ -6,6 +6,13 @@ import java.text.SimpleDateFormat;
 import java.io.File;
 import java.io.IOException;
 import java.io.FileOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.Closeable;
 
 /**
@@ -66,9 +73,6 @@ public final class Plist
         FALSE,
     }
 
-    private static final String BASE64_STRING
-            = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
-    private static final char[] BASE64_CHARS = BASE64_STRING.toCharArray();
     private final DateFormat m_dateFormat;
     private final Map<Class<?>, ElementType> m_simpleTypes;
 
@@ -93,13 +97,16 @@ public final class Plist
      */
     public static String toPlist(Object o)
     {
-        StringBuilder builder = new StringBuilder(
-                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
-                "<!DOCTYPE plist PUBLIC \"-//Apple//DTD PLIST 1.0//EN\" " +
-                "\"http://www.apple.com/DTDs/PropertyList-1.0.dtd\">\n" +
-                "<plist version=\"1.0\">");
-        builder.append(PLIST.objectToXml(o).toXml());
-        return builder.append("</plist>").toString();
+        StringWriter writer = new StringWriter();
+        try
+        {
+            StaxPlist.write(o, writer);
+        }
+        catch (XmlParseException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return writer.toString();
     }
 
     /**
@@ -147,11 +154,15 @@ public final class Plist
      */
     public static void storeObject(Object data, File file) throws IOException
     {
-        FileOutputStream stream = null;
+        OutputStream stream = null;
         try
         {
-            stream = new FileOutputStream(file);
-            stream.write(toPlist(data).getBytes());
+            stream = new BufferedOutputStream(new FileOutputStream(file));
+            StaxPlist.write(data, stream);
+        }
+        catch (XmlParseException e)
+        {
+            throw new IOException(e);
         }
         finally
         {
@@ -159,6 +170,41 @@ public final class Plist
         }
     }
 
+    /**
+     * Store an object as binary plist (bplist00) using the default mapping.
+     *
+     * @param data the nested data to store as a plist.
+     * @param file the destination File to store the data to.
+     * @throws IOException if there was an IO error saving the file.
+     */
+    public static void storeBinary(Object data, File file) throws IOException
+    {
+        BinaryPlist.store(data, file);
+    }
+
+    /**
+     * Convert an object to a binary plist (bplist00) using the default mapping.
+     *
+     * @param data the nested data to convert.
+     * @return the binary plist.
+     */
+    public static byte[] toBinary(Object data)
+    {
+        return BinaryPlist.toBytes(data);
+    }
+
+    /**
+     * Create an object from a binary plist (bplist00) using the default mapping.
+     *
+     * @param data the binary plist.
+     * @return the resulting object as read from the plist data.
+     * @throws XmlParseException if the data are not a valid binary plist.
+     */
+    public static Object objectFromBinary(byte[] data) throws XmlParseException
+    {
+        return BinaryPlist.fromBytes(data);
+    }
+
     /**
      * Utility method to close a closeable.
      *
@@ -185,7 +231,7 @@ public final class Plist
      */
     public static Map<String, Object> fromXml(String xml) throws XmlParseException
     {
-        return fromXmlElement(Xmlwise.createXml(xml));
+        return toMap(StaxPlist.read(new StringReader(xml)));
     }
 
     /**
@@ -221,12 +267,13 @@ public final class Plist
      */
     public static Object objectFromXml(String xml) throws XmlParseException
     {
-        return objectFromXmlElement(Xmlwise.createXml(xml));
+        return StaxPlist.read(new StringReader(xml));
     }
 
 
     /**
-     * Create a nested {@code map<String, Object>} from a plist xml file using the default mapping.
+     * Create a nested {@code map<String, Object>} from a plist file using the default mapping.
+     * Binary plists are detected and read directly.
      *
      * @param file the File containing the the plist xml.
      * @return the resulting map as read from the plist data.
@@ -235,11 +282,12 @@ public final class Plist
      */
     public static Map<String, Object> load(File file) throws XmlParseException, IOException
     {
-        return fromXmlElement(Xmlwise.loadXml(file));
+        return toMap(loadObject(file));
     }
 
     /**
-     * Create an object from a plist xml file using the default mapping.
+     * Create an object from a plist file using the default mapping.
+     * Binary plists are detected and read directly.
      *
      * @param file the File containing the the plist xml.
      * @return the resulting object as read from the plist data.
@@ -248,7 +296,31 @@ public final class Plist
      */
     public static Object loadObject(File file) throws XmlParseException, IOException
     {
-        return objectFromXmlElement(Xmlwise.loadXml(file));
+        if (BinaryPlist.isBinary(file)) return BinaryPlist.load(file);
+        InputStream stream = null;
+        try
+        {
+            stream = new BufferedInputStream(new FileInputStream(file));
+            return StaxPlist.read(stream);
+        }
+        finally
+        {
+            silentlyClose(stream);
+        }
+    }
+
+    /**
+     * Check that the top element of a plist is a dict.
+     *
+     * @param o the top object.
+     * @return the dict.
+     * @throws XmlParseException if the top object is not a dict.
+     */
+    @SuppressWarnings( "unchecked" )
+    private static Map<String, Object> toMap(Object o) throws XmlParseException
+    {
+        if (!(o instanceof Map)) throw new XmlParseException("Expected single 'dict' child element.");
+        return (Map<String, Object>) o;
     }
 
     /**
@@ -525,18 +597,7 @@ public final class Plist
      */
     static String base64encode(byte[] bytes)
     {
-        StringBuilder builder = new StringBuilder(((bytes.length + 2)/ 3) * 4);
-        for (int i = 0; i < bytes.length; i += 3)
-        {
-            byte b0 = bytes[i];
-            byte b1 = i < bytes.length - 1 ? bytes[i + 1] : 0;
-            byte b2 = i < bytes.length - 2 ? bytes[i + 2] : 0;
-            builder.append(BASE64_CHARS[(b0 & 0xFF) >> 2]);
-            builder.append(BASE64_CHARS[((b0 & 0x03) << 4) | ((b1  & 0xF0) >> 4)]);
-            builder.append(i < bytes.length - 1 ? BASE64_CHARS[((b1 & 0x0F) << 2) | ((b2 & 0xC0) >> 6)] : "=");
-            builder.append(i < bytes.length - 2 ? BASE64_CHARS[b2 & 0x3F] : "=");
-        }
-        return builder.toString();
+        return Base64.getEncoder().encodeToString(bytes);
     }
 
     /**
@@ -547,43 +608,8 @@ public final class Plist
      */
     static byte[] base64decode(String base64)
     {
-        // Remove all whitespace.
-        base64 = base64.replaceAll("\\s", "");
-        int endTrim = 0;
-        if (base64.endsWith("==")) {
-            endTrim = 2;
-            base64 = base64.substring(0, base64.length() - 2) + "AA";
-        } else if (base64.endsWith("="))
-        {
-            endTrim = 1;
-            base64 = base64.substring(0, base64.length() - 1) + "A";
-        }
-        if (base64.length() % 4 != 0) throw new IllegalArgumentException("Illegal base64 string, length " + base64.length());
-        int length = (base64.length() / 4) * 3 - endTrim;
-        base64 = base64.replace('=', 'A');
-        byte[] result = new byte[length];
-        int stringLength = base64.length();
-        int index = 0;
-        for (int i = 0; i < stringLength; i += 4)
-        {
-            int i0 = BASE64_STRING.indexOf(base64.charAt(i));
-            int i1 = BASE64_STRING.indexOf(base64.charAt(i + 1));
-            int i2 = BASE64_STRING.indexOf(base64.charAt(i + 2));
-            int i3 = BASE64_STRING.indexOf(base64.charAt(i + 3));
-            byte b0 = (byte) ((i0 << 2) | (i1 >> 4));
-            byte b1 = (byte) ((i1 << 4) | (i2 >> 2));
-            byte b2 = (byte) ((i2 << 6) | i3);
-            result[index++] = b0;
-            if (index < length)
-            {
-                result[index++] = b1;
-                if (index < length)
-                {
-                    result[index++] = b2;
-                }
-            }
-        }
-        return result;
+        // The MIME decoder ignores the line breaks and indentation of the xml.
+        return Base64.getMimeDecoder().decode(base64);
     }
 
 
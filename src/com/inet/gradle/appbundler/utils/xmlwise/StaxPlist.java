@@ -0,0 +1,347 @@
+package com.inet.gradle.appbundler.utils.xmlwise;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Streaming xml plist handling with StAX.
+ * <p>
+ * The reader pulls the plist elements and builds the nested {@code Map<String, Object>} directly,
+ * without a DOM or <code>XmlElement</code> tree in between. The writer streams the elements to the
+ * target without an intermediate String. The type mapping is the same as in {@link Plist}.
+ */
+public final class StaxPlist
+{
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private static final String DOCTYPE = "<!DOCTYPE plist PUBLIC \"-//Apple//DTD PLIST 1.0//EN\" "
+            + "\"http://www.apple.com/DTDs/PropertyList-1.0.dtd\">";
+
+    private final DateFormat m_dateFormat;
+
+    /**
+     * Create a handler. The date format is not thread safe, a handler is used for a single document.
+     */
+    private StaxPlist()
+    {
+        m_dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        m_dateFormat.setTimeZone(TimeZone.getTimeZone("Z"));
+    }
+
+    /**
+     * Create the input factory. DTDs and external entities are never loaded.
+     *
+     * @return the factory.
+     */
+    private static XMLInputFactory createInputFactory()
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        return factory;
+    }
+
+    /**
+     * Read the top object of a plist.
+     *
+     * @param stream the xml plist data.
+     * @return the resulting object.
+     * @throws XmlParseException if the plist could not be properly parsed.
+     */
+    public static Object read(InputStream stream) throws XmlParseException
+    {
+        try
+        {
+            return new StaxPlist().readPlist(INPUT_FACTORY.createXMLStreamReader(stream));
+        }
+        catch (XMLStreamException e)
+        {
+            throw new XmlParseException(e);
+        }
+    }
+
+    /**
+     * Read the top object of a plist.
+     *
+     * @param reader the xml plist data.
+     * @return the resulting object.
+     * @throws XmlParseException if the plist could not be properly parsed.
+     */
+    public static Object read(Reader reader) throws XmlParseException
+    {
+        try
+        {
+            return new StaxPlist().readPlist(INPUT_FACTORY.createXMLStreamReader(reader));
+        }
+        catch (XMLStreamException e)
+        {
+            throw new XmlParseException(e);
+        }
+    }
+
+    /**
+     * Write an object as xml plist in UTF-8.
+     *
+     * @param o the object to write.
+     * @param stream the target, will not be closed.
+     * @throws XmlParseException if the xml could not be written.
+     */
+    public static void write(Object o, OutputStream stream) throws XmlParseException
+    {
+        try
+        {
+            XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(stream, "UTF-8");
+            new StaxPlist().writePlist(o, writer, "UTF-8");
+        }
+        catch (XMLStreamException e)
+        {
+            throw new XmlParseException(e);
+        }
+    }
+
+    /**
+     * Write an object as xml plist.
+     *
+     * @param o the object to write.
+     * @param target the target, will not be closed.
+     * @throws XmlParseException if the xml could not be written.
+     */
+    public static void write(Object o, Writer target) throws XmlParseException
+    {
+        try
+        {
+            new StaxPlist().writePlist(o, OUTPUT_FACTORY.createXMLStreamWriter(target), "UTF-8");
+        }
+        catch (XMLStreamException e)
+        {
+            throw new XmlParseException(e);
+        }
+    }
+
+    /**
+     * Read the plist element and its single child.
+     *
+     * @param reader the StAX reader.
+     * @return the resulting object.
+     * @throws XMLStreamException if the xml is invalid.
+     * @throws XmlParseException if the plist structure is invalid.
+     */
+    private Object readPlist(XMLStreamReader reader) throws XMLStreamException, XmlParseException
+    {
+        try
+        {
+            while (reader.next() != XMLStreamConstants.START_ELEMENT)
+            {
+                // skip the prolog: xml declaration, DOCTYPE, comments and whitespace
+            }
+            if (!"plist".equalsIgnoreCase(reader.getLocalName()))
+                throw new XmlParseException("Expected plist top element, was: " + reader.getLocalName());
+            if (reader.nextTag() != XMLStreamConstants.START_ELEMENT)
+                throw new XmlParseException("Expected single child element.");
+            Object result = readElement(reader);
+            if (reader.nextTag() != XMLStreamConstants.END_ELEMENT)
+                throw new XmlParseException("Expected single child element.");
+            return result;
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Read the current element. The reader must be on a START_ELEMENT and is on the matching
+     * END_ELEMENT afterwards.
+     *
+     * @param reader the StAX reader.
+     * @return the resulting object.
+     * @throws XMLStreamException if the xml is invalid.
+     * @throws XmlParseException if the plist structure is invalid.
+     */
+    private Object readElement(XMLStreamReader reader) throws XMLStreamException, XmlParseException
+    {
+        String name = reader.getLocalName();
+        try
+        {
+            switch (name)
+            {
+                case "integer":
+                {
+                    Long l = Long.valueOf(reader.getElementText().trim());
+                    if (l.intValue() == l) return Integer.valueOf(l.intValue());
+                    return l;
+                }
+                case "real":
+                    return Double.valueOf(reader.getElementText().trim());
+                case "string":
+                    return reader.getElementText();
+                case "date":
+                    return m_dateFormat.parse(reader.getElementText().trim());
+                case "data":
+                    return Base64.getMimeDecoder().decode(reader.getElementText());
+                case "true":
+                    reader.nextTag();
+                    return Boolean.TRUE;
+                case "false":
+                    reader.nextTag();
+                    return Boolean.FALSE;
+                case "array":
+                {
+                    List<Object> list = new ArrayList<Object>();
+                    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT)
+                    {
+                        list.add(readElement(reader));
+                    }
+                    return list;
+                }
+                case "dict":
+                {
+                    Map<String, Object> dict = new HashMap<String, Object>();
+                    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT)
+                    {
+                        if (!"key".equals(reader.getLocalName()))
+                            throw new XmlParseException("Expected key but was " + reader.getLocalName());
+                        String key = reader.getElementText();
+                        if (reader.nextTag() != XMLStreamConstants.START_ELEMENT)
+                            throw new XmlParseException("Missing value for key " + key);
+                        dict.put(key, readElement(reader));
+                    }
+                    return dict;
+                }
+                default:
+                    throw new XmlParseException("Unexpected type: " + name);
+            }
+        }
+        catch (XmlParseException | XMLStreamException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new XmlParseException("Failed to parse: " + name + " at " + reader.getLocation(), e);
+        }
+    }
+
+    /**
+     * Write the complete plist document.
+     *
+     * @param o the top object.
+     * @param writer the StAX writer.
+     * @param encoding the encoding for the xml declaration.
+     * @throws XMLStreamException if the xml could not be written.
+     */
+    private void writePlist(Object o, XMLStreamWriter writer, String encoding) throws XMLStreamException
+    {
+        writer.writeStartDocument(encoding, "1.0");
+        writer.writeCharacters("\n");
+        writer.writeDTD(DOCTYPE);
+        writer.writeCharacters("\n");
+        writer.writeStartElement("plist");
+        writer.writeAttribute("version", "1.0");
+        writeObject(o, writer);
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+        writer.close();
+    }
+
+    /**
+     * Write a single object.
+     *
+     * @param o the object, must be Integer, Double, String, Date, Boolean, byte[], Map or List.
+     * @param writer the StAX writer.
+     * @throws XMLStreamException if the xml could not be written.
+     */
+    @SuppressWarnings( "rawtypes" )
+    private void writeObject(Object o, XMLStreamWriter writer) throws XMLStreamException
+    {
+        if (o instanceof String)
+        {
+            writeValue(writer, "string", (String) o);
+        }
+        else if (o instanceof Boolean)
+        {
+            writer.writeEmptyElement(((Boolean) o).booleanValue() ? "true" : "false");
+        }
+        else if (o instanceof Float || o instanceof Double)
+        {
+            writeValue(writer, "real", o.toString());
+        }
+        else if (o instanceof Integer || o instanceof Long || o instanceof Short || o instanceof Byte)
+        {
+            writeValue(writer, "integer", o.toString());
+        }
+        else if (o instanceof Date)
+        {
+            writeValue(writer, "date", m_dateFormat.format((Date) o));
+        }
+        else if (o instanceof byte[])
+        {
+            writeValue(writer, "data", Base64.getEncoder().encodeToString((byte[]) o));
+        }
+        else if (o instanceof Map)
+        {
+            writer.writeStartElement("dict");
+            for (Object entry : ((Map) o).entrySet())
+            {
+                Map.Entry e = (Map.Entry) entry;
+                writeValue(writer, "key", e.getKey().toString());
+                writeObject(e.getValue(), writer);
+            }
+            writer.writeEndElement();
+        }
+        else if (o instanceof List)
+        {
+            writer.writeStartElement("array");
+            for (Object item : (List) o)
+            {
+                writeObject(item, writer);
+            }
+            writer.writeEndElement();
+        }
+        else
+        {
+            throw new RuntimeException("Cannot use " + (o == null ? null : o.getClass()) + " in plist.");
+        }
+    }
+
+    /**
+     * Write an element with text content.
+     *
+     * @param writer the StAX writer.
+     * @param name the element name.
+     * @param value the text.
+     * @throws XMLStreamException if the xml could not be written.
+     */
+    private static void writeValue(XMLStreamWriter writer, String name, String value) throws XMLStreamException
+    {
+        if (value.isEmpty())
+        {
+            writer.writeEmptyElement(name);
+            return;
+        }
+        writer.writeStartElement(name);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
+}
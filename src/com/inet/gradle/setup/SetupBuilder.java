@@ -22,6 +22,9 @@ import java.util.List;
 
 import org.gradle.api.Action;
 import org.gradle.api.Project;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
 import org.gradle.util.ConfigureUtil;
 
 import com.inet.gradle.setup.abstracts.AbstractSetupBuilder;
@@ -73,6 +76,7 @@ public class SetupBuilder extends AbstractSetupBuilder implements SetupSources {
      *
      * @return licenseFiles list of license files
      */
+    @Nested
     public List<LocalizedResource> getLicenseFiles() {
         return licenseFiles;
     }
@@ -111,6 +115,8 @@ public class SetupBuilder extends AbstractSetupBuilder implements SetupSources {
      *
      * @return the command or null
      */
+    @Nested
+    @Optional
     public DesktopStarter getRunAfter() {
         return runAfter;
     }
@@ -149,6 +155,8 @@ public class SetupBuilder extends AbstractSetupBuilder implements SetupSources {
      *
      * @return the command or null
      */
+    @Nested
+    @Optional
     public DesktopStarter getRunBeforeUninstall() {
         return runBeforeUninstall;
     }
@@ -208,6 +216,7 @@ public class SetupBuilder extends AbstractSetupBuilder implements SetupSources {
      *
      * @return the registered services
      */
+    @Nested
     public List<Service> getServices() {
         return services;
     }
@@ -238,6 +247,7 @@ public class SetupBuilder extends AbstractSetupBuilder implements SetupSources {
      *
      * @return the registered desktop starters, never null, can be empty.
      */
+    @Nested
     public List<DesktopStarter> getDesktopStarters() {
         return desktopStarters;
     }
@@ -247,6 +257,7 @@ public class SetupBuilder extends AbstractSetupBuilder implements SetupSources {
      *
      * @return the list
      */
+    @Input
     public List<String> getDeleteFiles() {
         return deleteFiles;
     }
@@ -268,6 +279,7 @@ public class SetupBuilder extends AbstractSetupBuilder implements SetupSources {
      *
      * @return the list
      */
+    @Input
     public List<String> getDeleteFolders() {
         return deleteFolders;
     }
@@ -284,6 +296,7 @@ public class SetupBuilder extends AbstractSetupBuilder implements SetupSources {
     /**
      * @return the defaultResourceLanguage
      */
+    @Input
     public String getDefaultResourceLanguage() {
         return defaultResourceLanguage;
     }
@@ -300,6 +313,7 @@ public class SetupBuilder extends AbstractSetupBuilder implements SetupSources {
      *
      * @return licenseFiles list of license files
      */
+    @Nested
     public List<LocalizedResource> getLongDescriptions() {
         return longDescription;
     }
@@ -328,6 +342,8 @@ public class SetupBuilder extends AbstractSetupBuilder implements SetupSources {
      *
      * @return the version or null
      */
+    @Input
+    @Optional
     public String getMinimumUpdateVersion() {
         return minUpdateVersion;
     }
@@ -337,6 +353,8 @@ public class SetupBuilder extends AbstractSetupBuilder implements SetupSources {
      *
      * @return the message or null
      */
+    @Input
+    @Optional
     public String getMinimumUpdateMessage() {
         return minUpdateMessage;
     }
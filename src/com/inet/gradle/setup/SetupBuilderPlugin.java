@@ -22,6 +22,7 @@ import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.plugins.BasePlugin;
 
+import com.inet.gradle.setup.abstracts.SetupPlan;
 import com.inet.gradle.setup.dmg.Dmg;
 import com.inet.gradle.setup.msi.Msi;
 import com.inet.gradle.setup.unix.deb.Deb;
@@ -43,10 +44,25 @@ public class SetupBuilderPlugin implements Plugin<Project> {
         //        project.getPluginManager().apply( BasePlugin.class ); // API since Gradle 2.3
 
         project.getExtensions().create( "setupBuilder", SetupBuilder.class, project );
+        /*// if gradleVersion < 4.9
         project.getTasks().create( "deb", Deb.class );
         project.getTasks().create( "dmg", Dmg.class );
         project.getTasks().create( "msi", Msi.class );
         project.getTasks().create( "rpm", Rpm.class );
+        project.getTasks().create( "debPlan", SetupPlan.class ).setSetupTask( (Deb)project.getTasks().getByName( "deb" ) );
+        project.getTasks().create( "msiPlan", SetupPlan.class ).setSetupTask( (Msi)project.getTasks().getByName( "msi" ) );
+        project.getTasks().create( "rpmPlan", SetupPlan.class ).setSetupTask( (Rpm)project.getTasks().getByName( "rpm" ) );
+        */// else
+        // the tasks are only created if they are part of the task graph or are accessed by the build script
+        project.getTasks().register( "deb", Deb.class );
+        project.getTasks().register( "dmg", Dmg.class );
+        project.getTasks().register( "msi", Msi.class );
+        project.getTasks().register( "rpm", Rpm.class );
+        // list the content of a setup without building it
+        project.getTasks().register( "debPlan", SetupPlan.class, task -> task.setSetupTask( (Deb)project.getTasks().getByName( "deb" ) ) );
+        project.getTasks().register( "msiPlan", SetupPlan.class, task -> task.setSetupTask( (Msi)project.getTasks().getByName( "msi" ) ) );
+        project.getTasks().register( "rpmPlan", SetupPlan.class, task -> task.setSetupTask( (Rpm)project.getTasks().getByName( "rpm" ) ) );
+        //// endif
     }
 
 }
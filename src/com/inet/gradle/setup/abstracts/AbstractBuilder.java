@@ -23,7 +23,10 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.initialization.DefaultBuildCancellationToken;
@@ -31,6 +34,7 @@ import org.gradle.internal.concurrent.DefaultExecutorFactory;
 import org.gradle.process.internal.DefaultExecAction;
 
 import com.inet.gradle.setup.util.IndentationOutputStream;
+import com.inet.gradle.setup.util.JarNormalizer;
 
 /**
  * Some basic builder functionally.
@@ -152,7 +156,7 @@ public abstract class AbstractBuilder<T extends AbstractTask, S extends Abstract
         for( String para : parameters ) {
 
             if ( para == null ) {
-                task.getProject().getLogger().lifecycle( "Parameter not set. This will fail now:" + log.toString() );
+                task.getLogger().lifecycle( "Parameter not set. This will fail now:" + log.toString() );
             } else {
                 log.append( '\"' ).append( para );
                 if( para.endsWith( "\\" ) ) {
@@ -161,7 +165,7 @@ public abstract class AbstractBuilder<T extends AbstractTask, S extends Abstract
                 log.append( "\" " );
             }
         }
-        task.getProject().getLogger().lifecycle( log.toString() );
+        task.getLogger().lifecycle( log.toString() );
 
         /*// if gradleVersion < 4.5
         DefaultExecAction action = new DefaultExecAction( fileResolver );
@@ -174,6 +178,12 @@ public abstract class AbstractBuilder<T extends AbstractTask, S extends Abstract
         action.setIgnoreExitValue( ignoreExitValue );
         action.setWorkingDir( buildDir );
 
+        Long sourceDateEpoch = task.getAbstractSetupBuilder().getSourceDateEpoch();
+        if( sourceDateEpoch != null ) {
+            // dpkg-deb, rpmbuild and many other tools use it for the timestamps in the archive headers
+            action.environment( "SOURCE_DATE_EPOCH", sourceDateEpoch.toString() );
+        }
+
         if( input != null ) {
             action.setStandardInput( input );
         }
@@ -196,11 +206,30 @@ public abstract class AbstractBuilder<T extends AbstractTask, S extends Abstract
             try {
                 output.flush();
             } catch( IOException e ) {
-                task.getProject().getLogger().error( e.getLocalizedMessage() );
+                task.getLogger().error( e.getLocalizedMessage() );
             }
         }
     }
 
+    /**
+     * Run the package tools in a worker after the task action, so that other tasks of the project can run at the same
+     * time. The worker checks that the tools create the setup file.
+     *
+     * @param setupFile the setup file
+     * @param resultFile the file that the tools create, it is moved to the setup file if it differs
+     * @param commands the commands, called in the order of the list in the temporary directory of the task
+     * @param jarNormalizer the normalizer of the jar files or null, to log the package size
+     */
+    protected void submit( File setupFile, File resultFile, List<ToolWorker.Command> commands, JarNormalizer jarNormalizer ) {
+        Map<String, String> environment = new HashMap<>();
+        Long sourceDateEpoch = task.getAbstractSetupBuilder().getSourceDateEpoch();
+        if( sourceDateEpoch != null ) {
+            environment.put( "SOURCE_DATE_EPOCH", sourceDateEpoch.toString() );
+        }
+        long savedBytes = jarNormalizer != null && jarNormalizer.hasNormalized() ? jarNormalizer.getSavedBytes() : -1;
+        task.submitTools( new ToolWorker.Work( setupFile, resultFile, buildDir, environment, commands, savedBytes ) );
+    }
+
     /**
      * Returns the concrete task
      * @return the task
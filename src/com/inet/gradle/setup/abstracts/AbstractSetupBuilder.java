@@ -18,8 +18,15 @@ package com.inet.gradle.setup.abstracts;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
 
+import org.gradle.api.GradleException;
 import org.gradle.api.Project;
 import org.gradle.api.file.CopySpec;
 import org.gradle.api.file.FileTree;
@@ -28,9 +35,15 @@ import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
-import org.gradle.api.tasks.OutputDirectories;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+//// if gradleVersion >= 4.0
+import org.gradle.api.provider.Provider;
+//// endif
 
 import com.inet.gradle.setup.image.ImageFactory;
+import com.inet.gradle.setup.util.TempSpace;
 
 import groovy.lang.Closure;
 
@@ -40,21 +53,31 @@ import groovy.lang.Closure;
  */
 public class AbstractSetupBuilder implements SetupSources {
 
-    protected final Project        project;
+    /** The project, only while configuring. The configuration cache does not store it. */
+    protected final transient Project project;
+
+    private final String           projectName;
+
+    private final File             projectDir;
+
+    // the lazy values of the project, a Provider or a Callable
+    private final Object           buildDir, projectVersion, archivesBaseName;
+
+    private final TempSpace.Reference tempSpace;
 
     private final CopySpecInternal rootSpec;
 
     private Object                 destinationDir;
 
-    private String                 vendor;
+    private Object                 vendor;
 
-    private String                 application;
+    private Object                 application;
 
-    private String                 version;
+    private Object                 version;
 
-    private String                 appIdentifier;
+    private Object                 appIdentifier;
 
-    private String                 archiveName;
+    private Object                 archiveName;
 
     private Object                 icons;
 
@@ -62,12 +85,24 @@ public class AbstractSetupBuilder implements SetupSources {
 
     private String                 bundleJreTarget;
 
+    private boolean                bundleJreMinimal;
+
+    private List<String>           bundleJreModules = new ArrayList<>();
+
+    private boolean                normalizeJars;
+
+    private int                    normalizeJarsLevel;
+
     private String                 mainClass;
 
     private String                 mainJar;
 
     private boolean                failOnEmptyFrom = true;
 
+    private long                   tempSpaceQuota  = TempSpace.DEFAULT_QUOTA / (1024 * 1024);
+
+    private Long                   sourceDateEpoch;
+
     private String                 description;
 
     private String                 copyright;
@@ -78,6 +113,18 @@ public class AbstractSetupBuilder implements SetupSources {
      */
     public AbstractSetupBuilder( Project project ) {
         this.project = project;
+        this.projectName = project.getName();
+        this.projectDir = project.getProjectDir();
+        //// if gradleVersion >= 4.0
+        this.buildDir = project.provider( project::getBuildDir );
+        this.projectVersion = project.provider( () -> project.getProperties().get( "version" ) );
+        this.archivesBaseName = project.provider( () -> project.getProperties().get( "archivesBaseName" ) );
+        /*// else
+        this.buildDir = (Callable<File>)project::getBuildDir;
+        this.projectVersion = (Callable<Object>)() -> project.getProperties().get( "version" );
+        this.archivesBaseName = (Callable<Object>)() -> project.getProperties().get( "archivesBaseName" );
+        */// endif
+        this.tempSpace = TempSpace.reference( project );
         this.rootSpec = (CopySpecInternal)project.copySpec( (Closure<CopySpec>)null );
 
         //init default location
@@ -85,6 +132,72 @@ public class AbstractSetupBuilder implements SetupSources {
         project.getLogger().lifecycle( "setting default Destination to: " + getDestinationDir() );
     }
 
+    /**
+     * Get the string value of a property that can be set with a lazy value like a Provider or a Closure. The value is
+     * resolved on every call so that the tasks see the final configuration and nothing is evaluated while configuring.
+     *
+     * @param value the value, can be null
+     * @return the string or null
+     */
+    protected static String resolve( Object value ) {
+        //// if gradleVersion >= 4.0
+        if( value instanceof Provider ) {
+            value = ((Provider<?>)value).getOrNull();
+        }
+        //// endif
+        if( value instanceof Closure ) {
+            value = ((Closure<?>)value).call();
+        }
+        if( value instanceof Callable ) {
+            try {
+                value = ((Callable<?>)value).call();
+            } catch( Exception ex ) {
+                throw new GradleException( "Can't resolve the value: " + ex.getMessage(), ex );
+            }
+        }
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Resolve a file relative to the project directory like {@link Project#file(Object)}. This does not need the
+     * project and can be used while a task is executing.
+     *
+     * @param path the path, a File, Path, URI, String or a lazy value of it
+     * @return the file
+     */
+    public File resolveFile( Object path ) {
+        File file;
+        if( path instanceof File ) {
+            file = (File)path;
+        } else if( path instanceof Path ) {
+            file = ((Path)path).toFile();
+        } else if( path instanceof URI ) {
+            file = new File( (URI)path );
+        } else {
+            file = new File( resolve( path ) );
+        }
+        return file.isAbsolute() ? file : new File( projectDir, file.getPath() );
+    }
+
+    /**
+     * Resolve a single path or an Iterable of paths relative to the project directory.
+     *
+     * @param paths the paths, can be null
+     * @return the files, never null
+     * @see #resolveFile(Object)
+     */
+    public List<File> resolveFiles( Object paths ) {
+        List<File> files = new ArrayList<>();
+        if( paths instanceof Iterable ) {
+            for( Object path : (Iterable<?>)paths ) {
+                files.add( resolveFile( path ) );
+            }
+        } else if( paths != null ) {
+            files.add( resolveFile( paths ) );
+        }
+        return files;
+    }
+
     @Internal
     @Override
     public CopySpecInternal getRootSpec() {
@@ -92,7 +205,8 @@ public class AbstractSetupBuilder implements SetupSources {
     }
 
     /**
-     * Get the current project.
+     * Get the current project. This is only available while configuring, not while a task is executing from the
+     * configuration cache.
      *
      * @return the project
      */
@@ -102,18 +216,41 @@ public class AbstractSetupBuilder implements SetupSources {
     }
 
     /**
-     * Override to remove the annotation OutputDirectories in the Copy task. {@inheritDoc}
+     * Get the name of the project.
+     *
+     * @return the name
+     */
+    @Internal
+    public String getProjectName() {
+        return projectName;
+    }
+
+    /**
+     * Get the build directory of the project.
+     *
+     * @return the directory
      */
-    @OutputDirectories
+    @Internal
+    public File getBuildDir() {
+        return new File( resolve( buildDir ) );
+    }
+
+    /**
+     * The directory of the setup files. It is not an output of the tasks because every task declares only its own setup
+     * file. A shared output directory would disable the caching of the tasks.
+     *
+     * @return the directory
+     */
+    @Internal
     public File getDestinationDir() {
-        return new File( project.getBuildDir(), String.valueOf( destinationDir ) );
+        return new File( getBuildDir(), String.valueOf( resolve( destinationDir ) ) );
     }
 
     /**
-     * All the inputs
+     * All the inputs. The tasks declare this as their setupSource input.
      * @return FileTree
      */
-    @InputFiles
+    @Internal
     @Override
     public FileTree getSource() {
         FileTree allSource = rootSpec.buildRootResolver().getAllSource();
@@ -138,6 +275,7 @@ public class AbstractSetupBuilder implements SetupSources {
      */
     @Input
     public String getVendor() {
+        String vendor = resolve( this.vendor );
         if( vendor != null ) {
             return vendor;
         }
@@ -152,16 +290,28 @@ public class AbstractSetupBuilder implements SetupSources {
         this.vendor = vendor;
     }
 
+    //// if gradleVersion >= 4.0
+    /**
+     * Set the vendor with a lazy value. The provider is queried on every access.
+     *
+     * @param vendor the provider of the value, for example <code>project.provider { ... }</code>
+     */
+    public void setVendor( Provider<String> vendor ) {
+        this.vendor = vendor;
+    }
+    //// endif
+
     /**
      * Return the name of the application
      * @return name of the application
      */
     @Input
     public String getApplication() {
+        String application = resolve( this.application );
         if( application != null ) {
             return application;
         }
-        return project.getName();
+        return projectName;
     }
 
     /**
@@ -172,21 +322,30 @@ public class AbstractSetupBuilder implements SetupSources {
         this.application = application;
     }
 
+    //// if gradleVersion >= 4.0
+    /**
+     * Set the name of the application with a lazy value. The provider is queried on every access.
+     *
+     * @param application the provider of the value, for example <code>project.provider { ... }</code>
+     */
+    public void setApplication( Provider<String> application ) {
+        this.application = application;
+    }
+    //// endif
+
     /**
      * Get the version of the setup. If not set a version of 1.0 is returned
      * @return the version
      */
     @Input
     public String getVersion() {
-        if( version != null ) {
-            return version;
+        String setupVersion = resolve( this.version );
+        if( setupVersion != null ) {
+            return setupVersion;
         }
-        Object version = project.getProperties().get( "version" );
-        if( version != null ) {
-            String strVersion = version.toString();
-            if( !"unspecified".equalsIgnoreCase( strVersion ) ) {
-                return strVersion;
-            }
+        String strVersion = resolve( projectVersion );
+        if( strVersion != null && !"unspecified".equalsIgnoreCase( strVersion ) ) {
+            return strVersion;
         }
         return "1.0";
     }
@@ -199,6 +358,18 @@ public class AbstractSetupBuilder implements SetupSources {
         this.version = version;
     }
 
+    //// if gradleVersion >= 4.0
+    /**
+     * Set the version of the setup with a lazy value, for example a version that is calculated from the VCS. The
+     * provider is queried on every access.
+     *
+     * @param version the provider of the value, for example <code>project.provider { ... }</code>
+     */
+    public void setVersion( Provider<String> version ) {
+        this.version = version;
+    }
+    //// endif
+
     /**
      * Get the short application identifier of the setup file. If not set then the project.archivesBaseName is used.
      * Should not contain spaces if possible.
@@ -207,14 +378,15 @@ public class AbstractSetupBuilder implements SetupSources {
      */
     @Input
     public String getAppIdentifier() {
+        String appIdentifier = resolve( this.appIdentifier );
         if( appIdentifier != null ) {
             return appIdentifier;
         }
-        Object name = project.getProperties().get( "archivesBaseName" );
+        String name = resolve( archivesBaseName );
         if( name != null ) {
-            return name.toString();
+            return name;
         }
-        return project.getName();
+        return projectName;
     }
 
     /**
@@ -225,6 +397,17 @@ public class AbstractSetupBuilder implements SetupSources {
         this.appIdentifier = identifier;
     }
 
+    //// if gradleVersion >= 4.0
+    /**
+     * Set the short application identifier with a lazy value. The provider is queried on every access.
+     *
+     * @param appIdentifier the provider of the value, for example <code>project.provider { ... }</code>
+     */
+    public void setAppIdentifier( Provider<String> appIdentifier ) {
+        this.appIdentifier = appIdentifier;
+    }
+    //// endif
+
     /**
      * Get the name of the setup file without extension. If not set then baseName-version is used.
      *
@@ -232,6 +415,7 @@ public class AbstractSetupBuilder implements SetupSources {
      */
     @Input
     public String getArchiveName() {
+        String archiveName = resolve( this.archiveName );
         if( archiveName != null ) {
             return archiveName;
         }
@@ -246,16 +430,37 @@ public class AbstractSetupBuilder implements SetupSources {
         this.archiveName = setupName;
     }
 
+    //// if gradleVersion >= 4.0
+    /**
+     * Set the name of the setup file with a lazy value. The provider is queried on every access.
+     *
+     * @param archiveName the provider of the value, for example <code>project.provider { ... }</code>
+     */
+    public void setArchiveName( Provider<String> archiveName ) {
+        this.archiveName = archiveName;
+    }
+    //// endif
+
     /**
      * Get the icons for the setup.
      * @return the icons
      */
-    @Input
-    @Optional
+    @Internal
     public Object getIcons() {
         return icons;
     }
 
+    /**
+     * The icon files as input of the tasks, so that a changed image is detected.
+     *
+     * @return the icon files, can be empty
+     */
+    @InputFiles
+    @PathSensitive( PathSensitivity.RELATIVE )
+    public List<File> getIconFiles() {
+        return resolveFiles( icons );
+    }
+
     /**
      * Retrieve a specific icon from the icons set for the setup
      * @param buildDir directory in which to put the icon
@@ -265,7 +470,7 @@ public class AbstractSetupBuilder implements SetupSources {
      */
     @Internal
     public File getIconForType( File buildDir, String type ) throws IOException {
-        return ImageFactory.getImageFile( project, getIcons(), buildDir, type);
+        return ImageFactory.getImageFile( resolveFiles( getIcons() ), buildDir, type );
     }
 
     /**
@@ -283,12 +488,53 @@ public class AbstractSetupBuilder implements SetupSources {
      *
      * @return the value
      */
-    @Input
-    @Optional
+    @Internal
     public Object getBundleJre() {
         return bundleJre;
     }
 
+    /**
+     * Get the bundle JRE value if it is a version and not a file.
+     *
+     * @return the version or null
+     */
+    @Input
+    @Optional
+    public String getBundleJreVersion() {
+        return bundleJre != null && getBundleJreFile() == null ? resolve( bundleJre ) : null;
+    }
+
+    /**
+     * Get the bundle JRE if it is a directory or an archive. The content is an input of the tasks, so that a changed
+     * JRE in the same location is detected.
+     *
+     * @return the files of the JRE or null
+     */
+    @InputFiles
+    @PathSensitive( PathSensitivity.RELATIVE )
+    @Optional
+    public List<File> getBundleJreFiles() {
+        File file = getBundleJreFile();
+        return file != null ? Collections.singletonList( file ) : null;
+    }
+
+    /**
+     * Resolve the bundle JRE value to an existing file.
+     *
+     * @return the directory or archive, null if the value is not a file
+     */
+    private File getBundleJreFile() {
+        Object jre = bundleJre;
+        if( jre instanceof File ) {
+            return (File)jre;
+        }
+        if( !(jre instanceof CharSequence) ) {
+            return null;
+        }
+        File file = resolveFile( jre );
+        return file.exists() ? file : null;
+    }
+
     /**
      * Add a Java VM into your setup. The resulting behavior depends on the platform. This can be a version or a
      * directory to a installed Java VM.
@@ -329,6 +575,95 @@ public class AbstractSetupBuilder implements SetupSources {
         this.bundleJreTarget = bundleJreTarget;
     }
 
+    /**
+     * If a minimal runtime is bundled instead of the complete JRE.
+     *
+     * @return true, if enabled
+     */
+    @Input
+    public boolean isBundleJreMinimal() {
+        return bundleJreMinimal;
+    }
+
+    /**
+     * Bundle a minimal runtime that is created with jlink. The required modules are calculated with jdeps from the jar
+     * files of the setup. The bundleJre must be a JDK 11 or newer with jmods. If bundleJre is not set then the JDK that
+     * runs Gradle is used. The runtime is cached by its module set. Supported for deb, rpm and msi.
+     *
+     * @param bundleJreMinimal true, create a minimal runtime
+     * @see #setBundleJreModules(List)
+     */
+    public void setBundleJreMinimal( boolean bundleJreMinimal ) {
+        this.bundleJreMinimal = bundleJreMinimal;
+    }
+
+    /**
+     * Get the additional modules of a minimal runtime.
+     *
+     * @return the module names
+     */
+    @Input
+    public List<String> getBundleJreModules() {
+        return bundleJreModules;
+    }
+
+    /**
+     * Additional modules for the minimal runtime that jdeps can not find, for example modules that are only loaded with
+     * reflection or as service like "jdk.crypto.ec" or "jdk.localedata".
+     *
+     * @param bundleJreModules the module names
+     * @see #setBundleJreMinimal(boolean)
+     */
+    public void setBundleJreModules( List<String> bundleJreModules ) {
+        this.bundleJreModules = bundleJreModules;
+    }
+
+    /**
+     * If the jar files of the setup are normalized before packaging.
+     *
+     * @return true, if enabled
+     */
+    @Input
+    public boolean isNormalizeJars() {
+        return normalizeJars;
+    }
+
+    /**
+     * Rewrite the jar files of the setup before packaging. The entries are stored uncompressed, sorted and with a constant
+     * time. A stored jar is larger on disk but the compression of the package can compress it. The resulting package is
+     * smaller in most cases. The content of the entries is not changed. Supported for deb, rpm and msi.
+     *
+     * @param normalizeJars true, normalize the jar files
+     * @see #setNormalizeJarsLevel(int)
+     */
+    public void setNormalizeJars( boolean normalizeJars ) {
+        this.normalizeJars = normalizeJars;
+    }
+
+    /**
+     * Get the deflate level of the normalized jar entries.
+     *
+     * @return the level, 0 for stored entries
+     */
+    @Input
+    public int getNormalizeJarsLevel() {
+        return normalizeJarsLevel;
+    }
+
+    /**
+     * Set the deflate level of the entries of normalized jar files. The default is 0, the entries are stored. A level of 1
+     * is a compromise between the size of the installed files and the size of the package.
+     *
+     * @param normalizeJarsLevel the level from 0 to 9
+     * @see #setNormalizeJars(boolean)
+     */
+    public void setNormalizeJarsLevel( int normalizeJarsLevel ) {
+        if( normalizeJarsLevel < 0 || normalizeJarsLevel > 9 ) {
+            throw new IllegalArgumentException( "The level must be between 0 and 9: " + normalizeJarsLevel );
+        }
+        this.normalizeJarsLevel = normalizeJarsLevel;
+    }
+
     /**
      * Get the main class.
      *
@@ -389,6 +724,94 @@ public class AbstractSetupBuilder implements SetupSources {
         this.failOnEmptyFrom = failOnEmptyFrom;
     }
 
+    /**
+     * Get the quota for leftover temporary directories in megabytes.
+     *
+     * @return the quota
+     */
+    @Internal
+    public long getTempSpaceQuota() {
+        return tempSpaceQuota;
+    }
+
+    /**
+     * Set the quota for leftover temporary directories in megabytes. Temporary directories are deleted in the
+     * background after the build. If the leftovers exceed the quota then the next build waits for the pending deletes.
+     * A value of 0 disable the check.
+     *
+     * @param tempSpaceQuota the quota in megabytes
+     */
+    public void setTempSpaceQuota( long tempSpaceQuota ) {
+        this.tempSpaceQuota = tempSpaceQuota;
+    }
+
+    /**
+     * Get the fixed build time for reproducible builds in seconds since 1970. If not set then the environment variable
+     * SOURCE_DATE_EPOCH is used.
+     *
+     * @return the time or null if the build is not reproducible
+     */
+    @Input
+    @Optional
+    public Long getSourceDateEpoch() {
+        if( sourceDateEpoch != null ) {
+            return sourceDateEpoch;
+        }
+        String env = System.getenv( "SOURCE_DATE_EPOCH" );
+        if( env != null && !env.trim().isEmpty() ) {
+            try {
+                return Long.valueOf( env.trim() );
+            } catch( NumberFormatException ex ) {
+                throw new IllegalArgumentException( "Invalid value of SOURCE_DATE_EPOCH: " + env, ex );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Set a fixed build time for reproducible builds. All timestamps in the setups and the modification times of the
+     * packaged files are limited to this time and generated ids are derived from the settings. Two builds with the same
+     * inputs then produce identical deb and rpm files.
+     *
+     * @param sourceDateEpoch the time in seconds since 1970
+     */
+    public void setSourceDateEpoch( Long sourceDateEpoch ) {
+        this.sourceDateEpoch = sourceDateEpoch;
+    }
+
+    /**
+     * If the build should be reproducible.
+     *
+     * @return true, if a source date epoch is set
+     */
+    @Internal
+    public boolean isReproducible() {
+        return getSourceDateEpoch() != null;
+    }
+
+    /**
+     * Get the time that should be written into the setups.
+     *
+     * @return the source date epoch in milliseconds or the current time if the build is not reproducible
+     */
+    @Internal
+    public long getBuildTime() {
+        Long epoch = getSourceDateEpoch();
+        return epoch != null ? epoch * 1000 : System.currentTimeMillis();
+    }
+
+    /**
+     * Get the temporary space of the current build, configured with the quota of this setup.
+     *
+     * @return the temp space
+     */
+    @Internal
+    public TempSpace getTempSpace() {
+        TempSpace space = tempSpace.get();
+        space.setQuota( tempSpaceQuota * 1024 * 1024 );
+        return space;
+    }
+
     /**
      * Get a global description. Never null.
      * @return the description
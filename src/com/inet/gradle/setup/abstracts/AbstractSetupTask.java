@@ -19,7 +19,7 @@ import java.util.ArrayList;
 
 import com.inet.gradle.setup.SetupBuilder;
 import org.gradle.api.tasks.Input;
-import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
 
 /**
  * Base task for all setup builder tasks.
@@ -43,14 +43,17 @@ public abstract class AbstractSetupTask extends AbstractTask {
      */
     public AbstractSetupTask( String extension ) {
         super( extension, SetupBuilder.class );
+
+        // register the artifact while configuring, the task action should not access the project
+        getProject().getConfigurations().getByName( "archives" ).getArtifacts().add( new SetupArtifact( this ) );
     }
 
     /**
-     * Get the setup builder extension.
+     * Get the setup builder extension. Its configuration is a nested input of the task.
      * 
      * @return the instance of the SetupBuilder
      */
-    @Internal
+    @Nested
     public SetupBuilder getSetupBuilder() {
         return (SetupBuilder)super.getAbstractSetupBuilder();
     }
@@ -17,20 +17,19 @@ package com.inet.gradle.setup.abstracts;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
 
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
-import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.file.CopySpec;
 import org.gradle.api.file.FileTree;
-import org.gradle.api.internal.artifacts.publish.DefaultPublishArtifact;
 import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
 import org.gradle.api.internal.file.FileLookup;
 import org.gradle.api.internal.file.FileResolver;
@@ -38,15 +37,15 @@ import org.gradle.api.internal.file.copy.CopyAction;
 import org.gradle.api.internal.file.copy.CopyActionExecuter;
 import org.gradle.api.internal.file.copy.CopyActionProcessingStream;
 import org.gradle.api.internal.file.copy.CopySpecInternal;
-import org.gradle.api.internal.file.copy.CopySpecResolver;
 import org.gradle.api.internal.file.copy.DefaultCopySpec;
-import org.gradle.api.internal.file.copy.FileCopyDetailsInternal;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.WorkResult;
 /*// if gradleVersion < 4.2
@@ -57,8 +56,10 @@ import org.gradle.api.tasks.WorkResults;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 //// endif
 import org.gradle.internal.reflect.Instantiator;
+import org.gradle.workers.WorkerExecutor;
 
-import com.inet.gradle.setup.util.TempPath;
+import com.inet.gradle.setup.util.IncrementalCopy;
+import com.inet.gradle.setup.util.ResourceUtils;
 
 import groovy.lang.Closure;
 
@@ -74,12 +75,16 @@ import org.gradle.api.model.ObjectFactory;
  */
 public abstract class AbstractTask extends DefaultTask implements SetupSources {
 
-    private final CopySpecInternal rootSpec;
+    private CopySpecInternal       rootSpec;
 
     private AbstractSetupBuilder   setupBuilder;
 
     private String                 extension, classifier, version;
 
+    private FileSnapshot           fileSnapshot;
+
+    private List<ToolWorker.Work>  toolWork;
+
     /**
      * Constructor with indication to artifact result
      * Runs with the default SetupBuilder for dmg, msi ...
@@ -88,17 +93,18 @@ public abstract class AbstractTask extends DefaultTask implements SetupSources {
      */
     public AbstractTask( String extension, Class<? extends AbstractSetupBuilder> setupType ) {
         this.extension = extension;
-        this.rootSpec = (CopySpecInternal)getProject().copySpec( (Closure<CopySpec>)null );
 
         ProjectInternal project = (ProjectInternal)getProject();
         setupBuilder = project.getExtensions().getByType( setupType );
         setGroup( "build" ); // for displaying in buildship
 
-        try {
-            TempPath.clearTemporaryFolder( getTemporaryDir().toPath() );
-        } catch( Exception e ) {
-            // Ignore
-        }
+        // remove leftovers of a previous run in the background, but only if this task will run
+        project.getGradle().getTaskGraph().whenReady( graph -> {
+            if( graph.hasTask( this ) ) {
+                getRootSpec(); // create the spec while configuring, the task action must not access the project
+                setupBuilder.getTempSpace().release( getTemporaryDir().toPath() );
+            }
+        } );
     }
 
     /**
@@ -106,13 +112,40 @@ public abstract class AbstractTask extends DefaultTask implements SetupSources {
      */
     @TaskAction
     public void action() {
-        build();
+        // the snapshot is valid only for one execution
+        fileSnapshot = null;
+        List<ToolWorker.Work> work = Collections.synchronizedList( new ArrayList<>() );
+        toolWork = work;
+        try {
+            build();
+        } finally {
+            fileSnapshot = null;
+            toolWork = null;
+        }
+        if( !work.isEmpty() ) {
+            // the package tools run after the action, the worker checks the setup files
+            for( ToolWorker.Work packageWork : work ) {
+                ToolWorker.submit( getWorkerExecutor(), "Package " + getPath(), packageWork );
+            }
+            return;
+        }
         File setupFile = getSetupFile();
         if( !setupFile.exists() ) {
             throw new GradleException( "Setup file was not created: " + setupFile );
         }
-        Configuration archives = getProject().getConfigurations().getByName( "archives" );
-        archives.getArtifacts().add( new DefaultPublishArtifact( setupBuilder.getAppIdentifier(), extension, extension, classifier, new Date(setupFile.lastModified()), setupFile, this ) );
+    }
+
+    /**
+     * Add the package tools of a setup file. They are submitted to a worker after the build of the task action. Can be
+     * called from multiple threads, for example for variants.
+     *
+     * @param work the commands and files
+     */
+    void submitTools( ToolWorker.Work work ) {
+        if( toolWork == null ) {
+            throw new IllegalStateException( "Package tools can only be submitted from the task action." );
+        }
+        toolWork.add( work );
     }
 
     /**
@@ -120,28 +153,137 @@ public abstract class AbstractTask extends DefaultTask implements SetupSources {
      * @param target the target directory
      */
     public void copyTo( File target ) {
-        processFiles( new CopyActionProcessingStreamAction() {
-            @Override
-            public void processFile( FileCopyDetailsInternal details ) {
-//                details.copyTo( details.getRelativePath().getFile( target ) ); // didn't work with mounted smb devices under Unix
-                if( !details.isDirectory() ) {
-                    try {
-                        File f = details.getRelativePath().getFile( target );
-                        if(!f.getParentFile().exists()) {
-                            f.getParentFile().mkdirs(); // the parent directory must be created, else the copy fails
-                        }
-                        try( InputStream input = details.open() ) {
-                            Files.copy( input, f.toPath(), StandardCopyOption.REPLACE_EXISTING );
-                            Files.setPosixFilePermissions(
-                                    f.toPath(),
-                                    Files.getPosixFilePermissions(details.getFile().toPath()));
-                        }
-                    } catch (IOException ex) {
-                        throw new RuntimeException(ex);
+        copyTo( target, null );
+    }
+
+    /**
+     * Copy all files of this task to the given target.
+     * @param target the target directory
+     * @param bundleCopy an incremental copy of the target tree or null. Unchanged files are skipped and all files are
+     *            registered, so that they are not removed as stale files.
+     */
+    public void copyTo( File target, IncrementalCopy bundleCopy ) {
+        copyEntries( getFileSnapshot().getEntries(), target, bundleCopy );
+    }
+
+    /**
+     * Copy only the files of the given CopySpec to the given target, for example only the files of the SetupBuilder
+     * extension or only the files of this task.
+     *
+     * @param spec the CopySpec, {@link AbstractSetupBuilder#getRootSpec()} or {@link #getRootSpec()}
+     * @param target the target directory
+     */
+    public void copySpecTo( CopySpecInternal spec, File target ) {
+        List<FileSnapshot.Entry> entries;
+        if( spec == setupBuilder.getRootSpec() ) {
+            entries = getFileSnapshot().getEntries( true );
+        } else if( spec == getRootSpec() ) {
+            entries = getFileSnapshot().getEntries( false );
+        } else {
+            // an own directory for every target, the filtered files of the task snapshot or of another target are in use
+            File filteredDir = new File( getFilteredDir().getPath() + "-" + Integer.toHexString( target.getAbsolutePath().hashCode() ) );
+            try {
+                if( filteredDir.exists() ) {
+                    ResourceUtils.deleteDirectory( filteredDir.toPath() );
+                }
+            } catch( IOException ex ) {
+                throw new GradleException( "Can't delete the directory: " + filteredDir, ex );
+            }
+            FileSnapshot snapshot = new FileSnapshot( filteredDir );
+            processFiles( details -> snapshot.add( details, false ), spec );
+            entries = snapshot.getEntries();
+        }
+        copyEntries( entries, target, null );
+    }
+
+    /**
+     * Get the resolved files of this task. The snapshot is created on first access while the task is executing and
+     * shared by all consumers of the build, so the CopySpecs are walked only once.
+     *
+     * @return the snapshot
+     */
+    @Internal
+    public synchronized FileSnapshot getFileSnapshot() {
+        if( fileSnapshot == null ) {
+            File filteredDir = getFilteredDir();
+            try {
+                if( filteredDir.exists() ) {
+                    ResourceUtils.deleteDirectory( filteredDir.toPath() );
+                }
+            } catch( IOException ex ) {
+                throw new GradleException( "Can't delete the directory: " + filteredDir, ex );
+            }
+            FileSnapshot snapshot = new FileSnapshot( filteredDir );
+            processFiles( details -> snapshot.add( details, true ), setupBuilder.getRootSpec() );
+            processFiles( details -> snapshot.add( details, false ), getRootSpec() );
+            fileSnapshot = snapshot;
+        }
+        return fileSnapshot;
+    }
+
+    /**
+     * Get the directory for the filtered content of the snapshot. It is next to the temporary directory, because some
+     * builders package the complete temporary directory.
+     *
+     * @return the directory
+     */
+    private File getFilteredDir() {
+        File tempDir = getTemporaryDir();
+        return new File( tempDir.getParentFile(), tempDir.getName() + "-filtered" );
+    }
+
+    /**
+     * Copy the files of the snapshot to the target.
+     *
+     * @param entries the files
+     * @param target the target directory
+     * @param bundleCopy an incremental copy of the target tree or null
+     */
+    private static void copyEntries( List<FileSnapshot.Entry> entries, File target, IncrementalCopy bundleCopy ) {
+        for( FileSnapshot.Entry entry : entries ) {
+            try {
+                File f = entry.getRelativePath().getFile( target );
+                if( bundleCopy != null ) {
+                    bundleCopy.retain( f );
+                    if( !bundleCopy.isUnchanged( entry.getSize(), entry.getLastModified(), f ) ) {
+                        // the changed files are copied in parallel, the caller must wait with bundleCopy.await()
+                        bundleCopy.copy( entry.getSource(), f, entry.getLastModified(), entry.getPermissions() );
                     }
+                    continue;
+                }
+                if(!f.getParentFile().exists()) {
+                    f.getParentFile().mkdirs(); // the parent directory must be created, else the copy fails
+                }
+                ResourceUtils.copyFile( entry.getSource().toPath(), f.toPath() );
+                if( entry.getPermissions() != null ) {
+                    Files.setPosixFilePermissions( f.toPath(), entry.getPermissions() );
                 }
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
             }
-        } );
+        }
+    }
+
+    /**
+     * Compute the content of the setup without building it, called from the {@link SetupPlan} task. The default lists
+     * the files of the CopySpecs relative to the root of the setup. The tasks add the generated files.
+     *
+     * @param manifest receives the planned files
+     */
+    protected void plan( PlanManifest manifest ) {
+        planFiles( manifest, "" );
+    }
+
+    /**
+     * Add all files of this task to the plan. The CopySpecs are resolved once, the files are not copied.
+     *
+     * @param manifest receives the planned files
+     * @param root the prefix of the installed paths, for example the installation root
+     */
+    protected void planFiles( PlanManifest manifest, String root ) {
+        for( FileSnapshot.Entry entry : getFileSnapshot().getEntries() ) {
+            manifest.addFile( root + entry.getRelativePath().getPathString(), entry.getSize() );
+        }
     }
 
     /**
@@ -150,23 +292,34 @@ public abstract class AbstractTask extends DefaultTask implements SetupSources {
      */
     protected void processFiles( CopyActionProcessingStreamAction action ) {
         processFiles( action, setupBuilder.getRootSpec() );
-        processFiles( action, rootSpec );
+        processFiles( action, getRootSpec() );
     }
 
     /**
-     * Handle all files of the CopySpec.
+     * Handle all files of the CopySpec. With failOnEmptyFrom every child spec must select files.
      * @param action the action that should be process for every file
+     * @param copySpec the CopySpec
      */
     private void processFiles( CopyActionProcessingStreamAction action, CopySpecInternal copySpec ) {
-        if( setupBuilder.isFailOnEmptyFrom() ) {
-            for( CopySpecInternal cs : copySpec.getChildren() ) {
-                CopySpecResolver rootResolver = cs.buildRootResolver();
-                Set<File> files = rootResolver.getAllSource().getFiles();
-                if( files.size() == 0 ) {
-                    throw new IllegalArgumentException( "No files selected by: " + ((DefaultCopySpec)cs).getSourcePaths() + " --> " + rootResolver.getDestPath() + ". This means that there are files missing or your 'from' method in your gradle script is wrong. If an empty 'from' is valid then disable the check with 'setupBuilder.failOnEmptyFrom = false'" );
+        // the files of every child spec are counted while the stream is processed, so the file trees are walked only once
+        Map<CopySpecInternal, int[]> selected = setupBuilder.isFailOnEmptyFrom() ? FromFileCounter.start( copySpec ) : null;
+        try {
+            executeCopyAction( action, copySpec );
+        } finally {
+            FromFileCounter.stop();
+        }
+
+        if( selected != null ) {
+            for( Map.Entry<CopySpecInternal, int[]> entry : selected.entrySet() ) {
+                CopySpecInternal cs = entry.getKey();
+                int count = entry.getValue()[0];
+                if( count == 0 ) {
+                    throw new IllegalArgumentException( "No files selected by: " + ((DefaultCopySpec)cs).getSourcePaths() + " --> " + cs.buildRootResolver().getDestPath() + ". This means that there are files missing or your 'from' method in your gradle script is wrong. If an empty 'from' is valid then disable the check with 'setupBuilder.failOnEmptyFrom = false'" );
                 }
                 int includeCount = cs.getIncludes().size();
-                if( files.size() < includeCount ) {
+                if( count < includeCount ) {
+                    // only on failure the file list is required for the message
+                    Set<File> files = cs.buildRootResolver().getAllSource().getFiles();
                     StringBuilder msg = new StringBuilder( "Not every 'include' match a file by: " );
                     msg.append( ((DefaultCopySpec)cs).getSourcePaths() );
                     msg.append( "\n\tDeclared includes:");
@@ -181,7 +334,14 @@ public abstract class AbstractTask extends DefaultTask implements SetupSources {
                 }
             }
         }
+    }
 
+    /**
+     * Process all files of the CopySpec with the action.
+     * @param action the action that should be process for every file
+     * @param copySpec the CopySpec
+     */
+    private void executeCopyAction( CopyActionProcessingStreamAction action, CopySpecInternal copySpec ) {
         /*// if gradleVersion < 3.4
         CopyActionExecuter copyActionExecuter = new CopyActionExecuter( getInstantiator(), getFileSystem() );
         */// elif gradleVersion < 7.2
@@ -204,6 +364,17 @@ public abstract class AbstractTask extends DefaultTask implements SetupSources {
         copyActionExecuter.execute( copySpec, copyAction );
     }
 
+    /**
+     * Resolve a file relative to the project directory like {@link org.gradle.api.Project#file(Object)}. This can be
+     * used while the task is executing because it does not need the project.
+     *
+     * @param path the path, a File, String or anything that Gradle can resolve to a file
+     * @return the file
+     */
+    public File resolveFile( Object path ) {
+        return getFileResolver().resolve( path );
+    }
+
     @Inject
     protected Instantiator getInstantiator() {
         throw new UnsupportedOperationException();
@@ -224,6 +395,11 @@ public abstract class AbstractTask extends DefaultTask implements SetupSources {
         throw new UnsupportedOperationException();
     }
 
+    @Inject
+    protected WorkerExecutor getWorkerExecutor() {
+        throw new UnsupportedOperationException();
+    }
+
     /*// if gradleVersion >= 7.0
     @Inject
     protected DocumentationRegistry getDocumentationRegistry() {
@@ -250,9 +426,15 @@ public abstract class AbstractTask extends DefaultTask implements SetupSources {
         return setupBuilder;
     }
 
+    /**
+     * {@inheritDoc} The spec is created on first access, a task without own sources does not need it.
+     */
     @Override
     @Internal
     public CopySpecInternal getRootSpec() {
+        if( rootSpec == null ) {
+            rootSpec = (CopySpecInternal)getProject().copySpec( (Closure<CopySpec>)null );
+        }
         return rootSpec;
     }
 
@@ -260,6 +442,7 @@ public abstract class AbstractTask extends DefaultTask implements SetupSources {
      * Overridden for annotation. {@inheritDoc}
      */
     @InputFiles
+    @PathSensitive( PathSensitivity.RELATIVE )
     @Override
     public FileTree getSource() {
         return SetupSources.super.getSource();
@@ -270,6 +453,7 @@ public abstract class AbstractTask extends DefaultTask implements SetupSources {
      * @return FileTree
      */
     @InputFiles
+    @PathSensitive( PathSensitivity.RELATIVE )
     public FileTree getSetupSource() {
         try {
             return setupBuilder.getSource();
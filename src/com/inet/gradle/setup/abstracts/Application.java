@@ -19,6 +19,14 @@ package com.inet.gradle.setup.abstracts;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 
 import com.inet.gradle.setup.image.ImageFactory;
 
@@ -50,6 +58,8 @@ public class Application {
      *
      * @return the display name
      */
+    @Input
+    @Optional
     public String getDisplayName() {
         if( displayName != null ) {
             return displayName;
@@ -71,6 +81,8 @@ public class Application {
      *
      * @return the description
      */
+    @Input
+    @Optional
     public String getDescription() {
         if( description != null ) {
             return description;
@@ -92,6 +104,8 @@ public class Application {
      *
      * @return the executable
      */
+    @Input
+    @Optional
     public String getExecutable() {
         return executable;
     }
@@ -110,6 +124,8 @@ public class Application {
      *
      * @return the main jar
      */
+    @Input
+    @Optional
     public String getMainJar() {
         if( mainJar != null ) {
             return mainJar;
@@ -131,6 +147,8 @@ public class Application {
      *
      * @return the class name
      */
+    @Input
+    @Optional
     public String getMainClass() {
         if( mainClass != null ) {
             return mainClass;
@@ -152,6 +170,7 @@ public class Application {
      *
      * @return the icons
      */
+    @Internal
     public Object getIcons() {
         if( icons != null ) {
             return icons;
@@ -159,6 +178,17 @@ public class Application {
         return setup.getIcons();
     }
 
+    /**
+     * Get the files of the icons, used to detect changed images.
+     *
+     * @return the icon files, can be empty
+     */
+    @InputFiles
+    @PathSensitive( PathSensitivity.RELATIVE )
+    public List<File> getIconFiles() {
+        return setup.resolveFiles( getIcons() );
+    }
+
     /**
      * Retrieve a specific icon from the icons set for the setup
      *
@@ -168,7 +198,7 @@ public class Application {
      * @throws IOException if an error occurs on reading the image files
      */
     public File getIconForType( File buildDir, String type ) throws IOException {
-        return ImageFactory.getImageFile( setup.getProject(), getIcons(), buildDir, type );
+        return ImageFactory.getImageFile( setup.resolveFiles( getIcons() ), buildDir, type );
     }
 
     /**
@@ -186,6 +216,8 @@ public class Application {
      *
      * @return the working directory
      */
+    @Input
+    @Optional
     public String getWorkDir() {
         return workDir;
     }
@@ -204,6 +236,8 @@ public class Application {
      *
      * @return the command-line arguments for starting
      */
+    @Input
+    @Optional
     public String getStartArguments() {
         if( startArguments == null ) {
             return "";
@@ -225,6 +259,7 @@ public class Application {
      *
      * @return the Java VM Arguments for starting java
      */
+    @Input
     public ArrayList<String> getJavaVMArguments() {
         return javaVMArguments;
     }
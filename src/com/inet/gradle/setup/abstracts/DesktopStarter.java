@@ -21,6 +21,9 @@ import java.util.List;
 
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
 import org.gradle.util.ConfigureUtil;
 
 import groovy.lang.Closure;
@@ -60,6 +63,8 @@ public class DesktopStarter extends ProtocolHandler {
      *
      * @return the mime types or <code>null</code> if not set
      */
+    @Input
+    @Optional
     public String getMimeTypes() {
         return mimeTypes;
     }
@@ -80,6 +85,8 @@ public class DesktopStarter extends ProtocolHandler {
      *
      * @return the categories or <code>null</code> if not set
      */
+    @Input
+    @Optional
     public String getCategories() {
         return categories;
     }
@@ -89,6 +96,8 @@ public class DesktopStarter extends ProtocolHandler {
      *
      * @return the location
      */
+    @Input
+    @Optional
     public Location getLocation() {
         if( location != null ) {
             return location;
@@ -144,6 +153,7 @@ public class DesktopStarter extends ProtocolHandler {
      *
      * @return list of document types.
      */
+    @Nested
     public List<DocumentType> getDocumentType() {
         return documentTypes;
     }
@@ -15,9 +15,17 @@
  */
 package com.inet.gradle.setup.abstracts;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
 /**
  * This class contains content for registering file extensions.
  * 
@@ -77,6 +85,8 @@ public class DocumentType {
         fileExtension( extension );
     }
 
+    @Input
+    @Optional
     public List<String> getFileExtension() {
         return extensions;
     }
@@ -90,11 +100,13 @@ public class DocumentType {
         this.extensions = extensions;
     }
 
+    @Input
+    @Optional
     public String getName() {
         if( name != null && !name.isEmpty() ) {
             return name;
         }
-        return setup.getProject().getName() + " file";
+        return setup.getProjectName() + " file";
     }
 
     public void setName( String name ) {
@@ -105,6 +117,8 @@ public class DocumentType {
      * Returns the mime type for the document type. If none mime type was specified it will return 'application/&lt;the first extension&gt;'.
      * @return the mime type for the document type
      */
+    @Input
+    @Optional
     public String getMimetype() {
         if( mimetype != null && mimetype.trim().length() > 0) {
             return mimetype;            
@@ -122,6 +136,8 @@ public class DocumentType {
         this.mimetype = mimetype;
     }
 
+    @Input
+    @Optional
     public String getRole() {
         return role;
     }
@@ -135,6 +151,7 @@ public class DocumentType {
         this.role = role;
     }
 
+    @Internal
     public Object getIcons() {
         if( icons != null ) {
             return icons;
@@ -142,6 +159,17 @@ public class DocumentType {
         return setup.getIcons();
     }
 
+    /**
+     * Get the files of the document icons. Falls back to the icons of the setup.
+     *
+     * @return the icon files, can be empty
+     */
+    @InputFiles
+    @PathSensitive( PathSensitivity.RELATIVE )
+    public List<File> getIconFiles() {
+        return setup.resolveFiles( getIcons() );
+    }
+
     public void setIcons( Object icons ) {
         this.icons = icons;
     }
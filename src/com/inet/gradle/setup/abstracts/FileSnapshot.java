@@ -0,0 +1,231 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.abstracts;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.copy.FileCopyDetailsInternal;
+
+/**
+ * The resolved files of a setup task, created once per execution with {@link AbstractTask#getFileSnapshot()}. All
+ * consumers of the build, the staging, the installed size, the WXS file and the plan, use the same snapshot, so the
+ * CopySpecs are walked and the files are stat'ed only once.
+ * <p>
+ * Files with a filter have no source file. Their filtered content is written once to a directory next to the
+ * temporary directory of the task.
+ */
+public class FileSnapshot {
+
+    /**
+     * A resolved file of the setup.
+     */
+    public static class Entry {
+
+        private final RelativePath             relativePath;
+
+        private final File                     source;
+
+        private final long                     size;
+
+        private final long                     lastModified;
+
+        private final Set<PosixFilePermission> permissions;
+
+        private final boolean                  filtered;
+
+        private final boolean                  extension;
+
+        /**
+         * Create an entry.
+         *
+         * @param relativePath the path in the setup
+         * @param source the source file or the file with the filtered content
+         * @param lastModified the modification time of the source
+         * @param filtered true, if the content is filtered
+         * @param extension true, if the file is from the setupBuilder extension
+         * @throws IOException if an I/O error occurs
+         */
+        Entry( RelativePath relativePath, File source, long lastModified, boolean filtered, boolean extension ) throws IOException {
+            this.relativePath = relativePath;
+            this.source = source;
+            this.size = source.length();
+            this.lastModified = lastModified;
+            PosixFileAttributeView view = Files.getFileAttributeView( source.toPath(), PosixFileAttributeView.class );
+            this.permissions = view != null ? view.readAttributes().permissions() : null;
+            this.filtered = filtered;
+            this.extension = extension;
+        }
+
+        /**
+         * Get the path in the setup, relative to the installation root.
+         *
+         * @return the path
+         */
+        public RelativePath getRelativePath() {
+            return relativePath;
+        }
+
+        /**
+         * Get the file with the content. For a filtered file this is the copy with the filtered content.
+         *
+         * @return the file
+         */
+        public File getSource() {
+            return source;
+        }
+
+        /**
+         * Get the size of the content.
+         *
+         * @return the size in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Get the modification time of the source.
+         *
+         * @return the time in milliseconds
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Get the permissions of the source.
+         *
+         * @return the permissions or null if the file system does not support it
+         */
+        public Set<PosixFilePermission> getPermissions() {
+            return permissions;
+        }
+
+        /**
+         * If the content is filtered, for example with expand or filter of the CopySpec.
+         *
+         * @return true, if filtered
+         */
+        public boolean isFiltered() {
+            return filtered;
+        }
+
+        /**
+         * If the file is from the setupBuilder extension and not from the task.
+         *
+         * @return true, if from the extension
+         */
+        public boolean isExtension() {
+            return extension;
+        }
+    }
+
+    private final File        filteredDir;
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Create an empty snapshot.
+     *
+     * @param filteredDir the directory for the filtered content
+     */
+    FileSnapshot( File filteredDir ) {
+        this.filteredDir = filteredDir;
+    }
+
+    /**
+     * Add a file of the copy stream.
+     *
+     * @param details the file
+     * @param extension true, if the file is from the setupBuilder extension
+     */
+    void add( FileCopyDetailsInternal details, boolean extension ) {
+        if( details.isDirectory() ) {
+            return;
+        }
+        try {
+            File file;
+            boolean filtered = false;
+            try {
+                file = details.getFile();
+            } catch( UnsupportedOperationException ex ) {
+                // if there is set an filter then we need to copy it
+                filtered = true;
+                file = details.getRelativePath().getFile( filteredDir );
+                file.getParentFile().mkdirs();
+                details.copyTo( file );
+            }
+            entries.add( new Entry( details.getRelativePath(), file, details.getLastModified(), filtered, extension ) );
+        } catch( IOException ex ) {
+            throw new UncheckedIOException( ex );
+        }
+    }
+
+    /**
+     * Get all files in the order of the CopySpecs, first the files of the setupBuilder extension. If a path occurs
+     * multiple times, then the last entry wins like on copying.
+     *
+     * @return the entries
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList( entries );
+    }
+
+    /**
+     * Get the files of the setupBuilder extension or of the task.
+     *
+     * @param extension true, for the files of the extension
+     * @return the entries
+     */
+    public List<Entry> getEntries( boolean extension ) {
+        List<Entry> result = new ArrayList<>();
+        for( Entry entry : entries ) {
+            if( entry.isExtension() == extension ) {
+                result.add( entry );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the installed size of all files. A path that occurs multiple times is counted once.
+     *
+     * @return the size in bytes
+     */
+    public long getInstalledSize() {
+        Map<RelativePath, Long> sizes = new HashMap<>();
+        for( Entry entry : entries ) {
+            sizes.put( entry.getRelativePath(), entry.getSize() );
+        }
+        long size = 0;
+        for( long fileSize : sizes.values() ) {
+            size += fileSize;
+        }
+        return size;
+    }
+}
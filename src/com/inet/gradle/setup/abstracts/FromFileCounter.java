@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.abstracts;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.gradle.api.Action;
+import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.internal.file.copy.CopySpecInternal;
+
+/**
+ * Counts the selected files of every child CopySpec while the copy stream is processed, for the check of
+ * failOnEmptyFrom. So the file trees are walked only once. The action is registered once on every child spec and
+ * counts only while {@link #start(CopySpecInternal)} is active on the current thread, because the specs of the
+ * SetupBuilder extension are shared by tasks that run at the same time.
+ */
+class FromFileCounter implements Action<FileCopyDetails> {
+
+    private static final ThreadLocal<Map<CopySpecInternal, int[]>> CURRENT    = new ThreadLocal<>();
+
+    private static final Map<CopySpecInternal, Boolean>             REGISTERED = Collections.synchronizedMap( new WeakHashMap<>() );
+
+    private final CopySpecInternal                                  spec;
+
+    /**
+     * Create a counter for a spec.
+     *
+     * @param spec the child spec
+     */
+    private FromFileCounter( CopySpecInternal spec ) {
+        this.spec = spec;
+    }
+
+    /**
+     * Start the counting for the children of the spec on the current thread.
+     *
+     * @param copySpec the root spec
+     * @return the count of selected files of every child spec, updated while the stream is processed
+     */
+    static Map<CopySpecInternal, int[]> start( CopySpecInternal copySpec ) {
+        Map<CopySpecInternal, int[]> selected = new LinkedHashMap<>();
+        for( CopySpecInternal cs : copySpec.getChildren() ) {
+            if( REGISTERED.putIfAbsent( cs, Boolean.TRUE ) == null ) {
+                cs.eachFile( new FromFileCounter( cs ) );
+            }
+            selected.put( cs, new int[1] );
+        }
+        CURRENT.set( selected );
+        return selected;
+    }
+
+    /**
+     * Stop the counting on the current thread.
+     */
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute( FileCopyDetails details ) {
+        Map<CopySpecInternal, int[]> selected = CURRENT.get();
+        if( selected != null ) {
+            int[] count = selected.get( spec );
+            if( count != null ) {
+                count[0]++;
+            }
+        }
+    }
+}
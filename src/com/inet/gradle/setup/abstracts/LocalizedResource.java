@@ -5,6 +5,12 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.Locale;
 
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.util.ConfigureUtil;
 
 import com.inet.gradle.setup.SetupBuilder;
@@ -20,7 +26,7 @@ public class LocalizedResource implements Serializable {
 
     private Locale locale;
     private Object resource;
-    private transient SetupBuilder setup;
+    private SetupBuilder setup;
 
     /**
      * Stub Object for localized resources
@@ -34,10 +40,13 @@ public class LocalizedResource implements Serializable {
     /**
      * @return the resource as file
      */
+    @InputFile
+    @Optional
+    @PathSensitive( PathSensitivity.RELATIVE )
     public File getResource() {
 
         if ( resource != null ) {
-            return setup.getProject().file( resource );
+            return setup.resolveFile( resource );
         }
 
         return null;
@@ -46,6 +55,8 @@ public class LocalizedResource implements Serializable {
     /**
      * @return the locale
      */
+    @Input
+    @Optional
     public Locale getLocale() {
         return locale;
     }
@@ -53,6 +64,7 @@ public class LocalizedResource implements Serializable {
     /**
      * @return the language
      */
+    @Internal
     public String getLanguage() {
         return locale.getLanguage();
     }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.abstracts;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * The planned content of a setup, collected by {@link AbstractTask#plan(PlanManifest)}. The files of the CopySpecs are
+ * listed with their size, files that the builder generates are listed with a description, because their content is
+ * only known while building.
+ */
+public class PlanManifest {
+
+    private final Map<String, Long>   files     = new TreeMap<>();
+
+    private final Map<String, String> generated = new TreeMap<>();
+
+    /**
+     * Add a file that is copied into the setup. A later file with the same path replaces the earlier like on copying.
+     *
+     * @param path the installed path
+     * @param size the size in bytes
+     */
+    public void addFile( String path, long size ) {
+        files.put( path, size );
+    }
+
+    /**
+     * Add all files of a directory, for example a bundled JRE.
+     *
+     * @param path the installed path of the directory
+     * @param dir the source directory
+     */
+    public void addDirectory( String path, File dir ) {
+        Path base = dir.toPath();
+        try( Stream<Path> stream = Files.walk( base ) ) {
+            stream.filter( Files::isRegularFile ).forEach( file -> {
+                try {
+                    addFile( path + '/' + base.relativize( file ).toString().replace( File.separatorChar, '/' ), Files.size( file ) );
+                } catch( IOException ex ) {
+                    throw new UncheckedIOException( ex );
+                }
+            } );
+        } catch( UncheckedIOException ex ) {
+            throw new IllegalArgumentException( "Can't read the directory: " + dir, ex.getCause() );
+        } catch( IOException ex ) {
+            throw new IllegalArgumentException( "Can't read the directory: " + dir, ex );
+        }
+    }
+
+    /**
+     * Add a file that is generated while building, for example a service unit or a maintainer script.
+     *
+     * @param path the installed path or the name of the script
+     * @param description what the file is
+     */
+    public void addGenerated( String path, String description ) {
+        generated.put( path, description );
+    }
+
+    /**
+     * Get the count of the copied files.
+     *
+     * @return the count
+     */
+    public int getFileCount() {
+        return files.size();
+    }
+
+    /**
+     * Get the count of the generated files.
+     *
+     * @return the count
+     */
+    public int getGeneratedCount() {
+        return generated.size();
+    }
+
+    /**
+     * Get the installed size of the copied files. The generated files are not included.
+     *
+     * @return the size in bytes
+     */
+    public long getInstalledSize() {
+        long size = 0;
+        for( long fileSize : files.values() ) {
+            size += fileSize;
+        }
+        return size;
+    }
+
+    /**
+     * Write the manifest as text file, sorted by path.
+     *
+     * @param file the target file
+     * @param title the first line
+     * @throws IOException if an I/O error occurs
+     */
+    public void write( File file, String title ) throws IOException {
+        file.getParentFile().mkdirs();
+        try( PrintWriter writer = new PrintWriter( Files.newBufferedWriter( file.toPath(), StandardCharsets.UTF_8 ) ) ) {
+            writer.println( "# " + title );
+            writer.println( "# " + getFileCount() + " files, installed size " + getInstalledSize() + " bytes, " + getGeneratedCount() + " generated files" );
+            writer.println();
+            writer.println( "[files]" );
+            for( Map.Entry<String, Long> entry : files.entrySet() ) {
+                writer.println( entry.getValue() + "\t" + entry.getKey() );
+            }
+            writer.println();
+            writer.println( "[generated]" );
+            for( Map.Entry<String, String> entry : generated.entrySet() ) {
+                writer.println( entry.getKey() + "\t" + entry.getValue() );
+            }
+        }
+    }
+}
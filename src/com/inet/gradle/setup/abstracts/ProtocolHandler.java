@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.gradle.api.tasks.Input;
+
 /**
  * Custom Protocol handler. Will result in the registration of `scheme`
  * as a handler with the application as a starter.
@@ -26,6 +28,7 @@ public class ProtocolHandler extends Application {
      * Return the list of scheme. A scheme is a custom URL protocol like the standard scheme "http", "https" or "ftp".
      * @return the list of scheme
      */
+    @Input
     public List<String> getSchemes() {
         return scheme;
     }
@@ -16,6 +16,9 @@
 
 package com.inet.gradle.setup.abstracts;
 
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+
 import com.inet.gradle.setup.SetupBuilder;
 
 /**
@@ -40,6 +43,7 @@ public class Service extends Application {
      *
      * @return boolean flag indicating whether the service is started when the system is booted
      */
+    @Input
     public boolean isStartOnBoot() {
         return startOnBoot;
     }
@@ -58,6 +62,8 @@ public class Service extends Application {
      *
      * @return the serviceID
      */
+    @Input
+    @Optional
     public String getId() {
         if( id == null ) {
             return setup.getAppIdentifier();
@@ -81,6 +87,8 @@ public class Service extends Application {
      *
      * @return daemon wrapper
      */
+    @Input
+    @Optional
     public String getWrapper() {
         String newWrapper = wrapper;
         if( newWrapper == null ) {
@@ -104,6 +112,7 @@ public class Service extends Application {
      *
      * @return true the job should always be running
      */
+    @Input
     public boolean isKeepAlive() {
         return keepAlive;
     }
@@ -121,6 +130,8 @@ public class Service extends Application {
      * Returns the path to write the daemon logs to.
      * @return the path to write the daemon logs to.
      */
+    @Input
+    @Optional
     public String getLogPath() {
         return logPath;
     }
@@ -137,6 +148,8 @@ public class Service extends Application {
      * Returns the daemon log file name prefix.
      * @return the daemon log file name prefix.
      */
+    @Input
+    @Optional
     public String getLogPrefix() {
         return logPrefix;
     }
@@ -153,6 +166,8 @@ public class Service extends Application {
      * Returns the daemon log level.
      * @return the daemon log level.
      */
+    @Input
+    @Optional
     public String getLogLevel() {
         return logLevel;
     }
@@ -169,6 +184,8 @@ public class Service extends Application {
      * Returns the file name for storing the running process id. Actual file is created in the LogPath directory.
      * @return the file name for storing the running process id. Actual file is created in the LogPath directory.
      */
+    @Input
+    @Optional
     public String getPidFile() {
         return pidFile;
     }
@@ -186,6 +203,8 @@ public class Service extends Application {
      * {@code service-stderr.YEAR-MONTH-DAY.log}.
      * @return the redirected stderr filename.
      */
+    @Input
+    @Optional
     public String getStdError() {
         return stdError;
     }
@@ -204,6 +223,8 @@ public class Service extends Application {
      * {@code service-stdout.YEAR-MONTH-DAY.log}.
      * @return the redirected stdout filename.
      */
+    @Input
+    @Optional
     public String getStdOutput() {
         return stdOutput;
     }
@@ -222,6 +243,8 @@ public class Service extends Application {
      * in front of the PATH environment variable and as a parameter to the SetDLLDirectory function.
      * @return the directory added to the search path used to locate the DLLs for the JVM
      */
+    @Input
+    @Optional
     public String getLibraryPath() {
         return libraryPath;
     }
@@ -239,6 +262,8 @@ public class Service extends Application {
      * Returns the JAVA_HOME used by the service.
      * @return the JAVA_HOME used by the service.
      */
+    @Input
+    @Optional
     public String getJavaHome() {
         return javaHome;
     }
@@ -256,6 +281,8 @@ public class Service extends Application {
      * @see #setJvm(String)
      * @return the configured jvm.
      */
+    @Input
+    @Optional
     public String getJvm() {
         return jvm;
     }
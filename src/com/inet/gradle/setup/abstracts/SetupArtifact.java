@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.abstracts;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Date;
+
+import org.gradle.api.artifacts.PublishArtifact;
+import org.gradle.api.tasks.TaskDependency;
+
+/**
+ * The setup file of a task as artifact of the "archives" configuration. It is registered while configuring and all
+ * values are read from the task on access. So the task action does not need to touch the project. The artifact has no
+ * build dependencies, so that assemble and build do not run the setup tasks of all platforms.
+ */
+class SetupArtifact implements PublishArtifact {
+
+    private final AbstractTask task;
+
+    /**
+     * Create the artifact.
+     *
+     * @param task the task that creates the setup file
+     */
+    SetupArtifact( AbstractTask task ) {
+        this.task = task;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return task.getAbstractSetupBuilder().getAppIdentifier();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getExtension() {
+        return task.getExtension();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getType() {
+        return task.getExtension();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getClassifier() {
+        return task.getClassifier();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public File getFile() {
+        return task.getSetupFile();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Date getDate() {
+        File file = getFile();
+        return file.exists() ? new Date( file.lastModified() ) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TaskDependency getBuildDependencies() {
+        return dependent -> Collections.emptySet();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.abstracts;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Lists the content of a setup without building it. The CopySpecs of the setup task are resolved once, with the same
+ * installation root and bundled JRE like the build. Nothing is staged and no packaging tool is called. The manifest is
+ * written to "build/setupPlan/&lt;task&gt;.txt".
+ * <p>
+ * The plugin registers the tasks "debPlan", "rpmPlan" and "msiPlan". Only the tasks that produce the sources of the
+ * setup, for example the jar task, run before.
+ */
+public class SetupPlan extends DefaultTask {
+
+    private AbstractTask setupTask;
+
+    private File         planFile;
+
+    /**
+     * Create the task. It runs every time, because the plan should show the current configuration.
+     */
+    public SetupPlan() {
+        setGroup( "help" );
+        getOutputs().upToDateWhen( task -> false );
+    }
+
+    /**
+     * Compute the plan and write the manifest.
+     */
+    @TaskAction
+    public void action() {
+        AbstractTask task = getSetupTask();
+        PlanManifest manifest = new PlanManifest();
+        task.plan( manifest );
+
+        File file = getPlanFile();
+        try {
+            manifest.write( file, "Plan of " + task.getSetupFile().getName() );
+        } catch( IOException ex ) {
+            throw new GradleException( "Can't write the plan: " + file, ex );
+        }
+        getLogger().lifecycle( "\t" + manifest.getFileCount() + " files with " + manifest.getInstalledSize() + " bytes, " + manifest.getGeneratedCount() + " generated files" );
+        getLogger().lifecycle( "\tPlan written to: " + file );
+    }
+
+    /**
+     * Get the setup task.
+     *
+     * @return the task
+     */
+    @Internal
+    public AbstractTask getSetupTask() {
+        if( setupTask == null ) {
+            throw new GradleException( "The setupTask of the task " + getName() + " is not set" );
+        }
+        return setupTask;
+    }
+
+    /**
+     * Set the setup task that should be planned. The tasks that produce its sources are dependencies of this task.
+     *
+     * @param setupTask the task
+     */
+    public void setSetupTask( AbstractTask setupTask ) {
+        this.setupTask = setupTask;
+        setDescription( "Lists the content of the " + setupTask.getName() + " setup without building it." );
+        planFile = new File( getProject().getBuildDir(), "setupPlan/" + setupTask.getName() + ".txt" );
+        dependsOn( setupTask.getSetupSource(), setupTask.getSource() );
+    }
+
+    /**
+     * Get the manifest file.
+     *
+     * @return the file
+     */
+    @Internal
+    public File getPlanFile() {
+        return planFile;
+    }
+
+    /**
+     * Set the manifest file.
+     *
+     * @param planFile the file
+     */
+    public void setPlanFile( File planFile ) {
+        this.planFile = planFile;
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.abstracts;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.workers.WorkerExecutor;
+//// if gradleVersion < 6.0
+import org.gradle.workers.IsolationMode;
+/*// else
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+*/// endif
+
+import com.inet.gradle.setup.util.IndentationOutputStream;
+import com.inet.gradle.setup.util.JarNormalizer;
+
+/**
+ * Runs the package tools of a setup task, for example dpkg-deb, rpmbuild or candle and light, with the Gradle worker
+ * API. The task action stages the files and submits the tools, so that Gradle can start other tasks of the same
+ * project, for example "deb" and "rpm" build at the same time.
+ * <p>
+ * All parameters are serializable: the command lines, the staged directory, the environment and the setup file. The
+ * worker does not access the task or the project.
+ */
+//// if gradleVersion < 6.0
+public class ToolWorker implements Runnable {
+/*// else
+public abstract class ToolWorker implements WorkAction<ToolWorker.Parameters> {
+*/// endif
+
+    private static final Logger LOGGER = Logging.getLogger( ToolWorker.class );
+
+    //// if gradleVersion < 6.0
+    private final File                    setupFile;
+
+    private final File                    resultFile;
+
+    private final File                    workingDir;
+
+    private final Map<String, String>     environment;
+
+    private final List<Command>           commands;
+
+    private final long                    savedBytes;
+
+    /**
+     * Create the worker. Called from Gradle.
+     *
+     * @param setupFile the setup file that the tools must create
+     * @param resultFile the file that the tools create, it is moved to the setup file if it differs
+     * @param workingDir the staged directory, the working directory of the tools
+     * @param environment additional environment variables of the tools
+     * @param commands the commands, called in the order of the list
+     * @param savedBytes the bytes that the jar normalization saves or -1
+     */
+    @Inject
+    public ToolWorker( File setupFile, File resultFile, File workingDir, HashMap<String, String> environment, ArrayList<Command> commands, Long savedBytes ) {
+        this.setupFile = setupFile;
+        this.resultFile = resultFile;
+        this.workingDir = workingDir;
+        this.environment = environment;
+        this.commands = commands;
+        this.savedBytes = savedBytes;
+    }
+    /*// else
+    // The parameters of the worker, see the fields of Work.
+    public interface Parameters extends WorkParameters {
+        Property<File> getSetupFile();
+
+        Property<File> getResultFile();
+
+        Property<File> getWorkingDir();
+
+        MapProperty<String, String> getEnvironment();
+
+        ListProperty<Command> getCommands();
+
+        Property<Long> getSavedBytes();
+    }
+
+    @Inject
+    public ToolWorker() {
+    }
+    */// endif
+
+    /**
+     * Submit the tools of a task to the worker.
+     *
+     * @param executor the worker executor of the task
+     * @param displayName the name of the work in the build log
+     * @param work the commands and files
+     */
+    static void submit( WorkerExecutor executor, String displayName, Work work ) {
+        //// if gradleVersion < 6.0
+        executor.submit( ToolWorker.class, config -> {
+            config.setIsolationMode( IsolationMode.NONE );
+            config.setDisplayName( displayName );
+            config.setParams( work.setupFile, work.resultFile, work.workingDir, work.environment, work.commands, work.savedBytes );
+        } );
+        /*// else
+        executor.noIsolation().submit( ToolWorker.class, parameters -> {
+            parameters.getSetupFile().set( work.setupFile );
+            parameters.getResultFile().set( work.resultFile );
+            parameters.getWorkingDir().set( work.workingDir );
+            parameters.getEnvironment().putAll( work.environment );
+            parameters.getCommands().addAll( work.commands );
+            parameters.getSavedBytes().set( work.savedBytes );
+        } );
+        */// endif
+    }
+
+    /**
+     * Call the tools and check the setup file.
+     */
+    //// if gradleVersion < 6.0
+    @Override
+    public void run() {
+    /*// else
+    @Override
+    public void execute() {
+        File setupFile = getParameters().getSetupFile().get();
+        File resultFile = getParameters().getResultFile().get();
+        File workingDir = getParameters().getWorkingDir().get();
+        Map<String, String> environment = getParameters().getEnvironment().get();
+        List<Command> commands = getParameters().getCommands().get();
+        long savedBytes = getParameters().getSavedBytes().get();
+    */// endif
+        for( Command command : commands ) {
+            command.execute( workingDir, environment );
+        }
+        try {
+            if( !resultFile.equals( setupFile ) ) {
+                Files.move( resultFile.toPath(), setupFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+            }
+        } catch( IOException ex ) {
+            throw new GradleException( "Can't move " + resultFile + " to " + setupFile, ex );
+        }
+        if( !setupFile.exists() ) {
+            throw new GradleException( "Setup file was not created: " + setupFile );
+        }
+        if( savedBytes >= 0 ) {
+            LOGGER.lifecycle( "\t" + JarNormalizer.getPackageReport( setupFile.length(), savedBytes ) + ": " + setupFile.getName() );
+        }
+    }
+
+    /**
+     * The work of one package: the commands and the files. Collected by the builders while the task action is running
+     * and submitted after the action.
+     */
+    static class Work implements Serializable {
+
+        private final File                    setupFile;
+
+        private final File                    resultFile;
+
+        private final File                    workingDir;
+
+        private final HashMap<String, String> environment;
+
+        private final ArrayList<Command>      commands;
+
+        private final long                    savedBytes;
+
+        /**
+         * Create the work of a package.
+         *
+         * @param setupFile the setup file that the tools must create
+         * @param resultFile the file that the tools create, it is moved to the setup file if it differs
+         * @param workingDir the staged directory, the working directory of the tools
+         * @param environment additional environment variables of the tools
+         * @param commands the commands, called in the order of the list
+         * @param savedBytes the bytes that the jar normalization saves or -1, to log the package size
+         */
+        Work( File setupFile, File resultFile, File workingDir, Map<String, String> environment, List<Command> commands, long savedBytes ) {
+            this.setupFile = setupFile;
+            this.resultFile = resultFile;
+            this.workingDir = workingDir;
+            this.environment = new HashMap<>( environment );
+            this.commands = new ArrayList<>( commands );
+            this.savedBytes = savedBytes;
+        }
+    }
+
+    /**
+     * A command of a tool. If alternatives are added then the command lines are called in order until one succeeds,
+     * for example the timestamp servers of the signing.
+     */
+    public static class Command implements Serializable {
+
+        private final List<List<String>> commandLines = new ArrayList<>();
+
+        private File                     errorFile;
+
+        /**
+         * Create a command.
+         *
+         * @param commandLine the program and its parameters
+         */
+        public Command( List<String> commandLine ) {
+            orElse( commandLine );
+        }
+
+        /**
+         * Add an alternative command line that is called if the previous fails.
+         *
+         * @param commandLine the program and its parameters
+         * @return this
+         */
+        public Command orElse( List<String> commandLine ) {
+            commandLines.add( new ArrayList<>( commandLine ) );
+            return this;
+        }
+
+        /**
+         * Set a file that is printed if the command fails, for example the control file of a package.
+         *
+         * @param errorFile the file
+         * @return this
+         */
+        public Command printOnError( File errorFile ) {
+            this.errorFile = errorFile;
+            return this;
+        }
+
+        /**
+         * Get the command line and the alternatives.
+         *
+         * @return the command lines
+         */
+        public List<List<String>> getCommandLines() {
+            return commandLines;
+        }
+
+        /**
+         * Call the command lines until one succeeds.
+         *
+         * @param workingDir the working directory
+         * @param environment additional environment variables
+         */
+        private void execute( File workingDir, Map<String, String> environment ) {
+            RuntimeException allEx = null;
+            for( List<String> commandLine : commandLines ) {
+                try {
+                    execute( commandLine, workingDir, environment );
+                    return;
+                } catch( RuntimeException ex ) {
+                    if( allEx == null ) {
+                        allEx = ex;
+                    } else {
+                        allEx.addSuppressed( ex );
+                    }
+                    if( commandLines.size() > 1 ) {
+                        LOGGER.lifecycle( "Command failed: " + ex );
+                    }
+                }
+            }
+            if( errorFile != null && errorFile.isFile() ) {
+                try {
+                    LOGGER.error( "Error. " + errorFile.getName() + " was:\n" + String.join( "\n", Files.readAllLines( errorFile.toPath() ) ) );
+                } catch( IOException ex ) {
+                    allEx.addSuppressed( ex );
+                }
+            }
+            throw allEx;
+        }
+
+        /**
+         * Call a single command line.
+         *
+         * @param commandLine the program and its parameters
+         * @param workingDir the working directory
+         * @param environment additional environment variables
+         */
+        @SuppressWarnings( "resource" )
+        private static void execute( List<String> commandLine, File workingDir, Map<String, String> environment ) {
+            StringBuilder log = new StringBuilder( "\tCommand: " );
+            for( String para : commandLine ) {
+                log.append( '\"' ).append( para );
+                if( para.endsWith( "\\" ) ) {
+                    log.append( '\\' );
+                }
+                log.append( "\" " );
+            }
+            LOGGER.lifecycle( log.toString() );
+
+            ProcessBuilder builder = new ProcessBuilder( commandLine );
+            builder.directory( workingDir );
+            builder.environment().putAll( environment );
+            builder.redirectErrorStream( true );
+            OutputStream output = new IndentationOutputStream( System.out );
+            int exitValue;
+            try {
+                Process process = builder.start();
+                process.getOutputStream().close();
+                try( InputStream input = process.getInputStream() ) {
+                    byte[] buffer = new byte[8192];
+                    int count;
+                    while( (count = input.read( buffer )) > 0 ) {
+                        output.write( buffer, 0, count );
+                    }
+                }
+                exitValue = process.waitFor();
+                output.flush();
+            } catch( IOException ex ) {
+                throw new GradleException( "A problem occurred starting process '" + commandLine.get( 0 ) + "'", ex );
+            } catch( InterruptedException ex ) {
+                Thread.currentThread().interrupt();
+                throw new GradleException( "Process '" + commandLine.get( 0 ) + "' was interrupted", ex );
+            }
+            if( exitValue != 0 ) {
+                throw new GradleException( "Process '" + commandLine.get( 0 ) + "' finished with non-zero exit value " + exitValue );
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.delta;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the file contents in an uncompressed payload, a tar archive of a deb or a cpio archive of a rpm. Only the
+ * position of the content is read, the headers are part of the gaps between the entries.
+ */
+class ArchiveEntries {
+
+    /**
+     * The content of a file in the archive.
+     */
+    static class Entry {
+
+        final String path;
+
+        final long   offset;
+
+        final long   length;
+
+        /** The SHA-256 of the content, set by the caller */
+        String       hash;
+
+        /**
+         * Create an entry.
+         *
+         * @param path the path in the archive
+         * @param offset the start of the content
+         * @param length the length of the content
+         */
+        Entry( String path, long offset, long length ) {
+            this.path = path;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * No instance.
+     */
+    private ArchiveEntries() {
+    }
+
+    /**
+     * Read the entries of a tar or cpio archive.
+     *
+     * @param channel the archive
+     * @return the entries in file order or null if the format is not supported
+     * @throws IOException if an I/O error occurs
+     */
+    static List<Entry> read( FileChannel channel ) throws IOException {
+        byte[] head = read( channel, 0, 512 );
+        if( head.length >= 6 && new String( head, 0, 6, StandardCharsets.US_ASCII ).matches( "07070[12]" ) ) {
+            return readCpio( channel );
+        }
+        if( head.length >= 262 && new String( head, 257, 5, StandardCharsets.US_ASCII ).equals( "ustar" ) ) {
+            return readTar( channel );
+        }
+        return null;
+    }
+
+    /**
+     * Read the entries of a tar archive.
+     *
+     * @param channel the archive
+     * @return the entries or null if the archive is invalid
+     * @throws IOException if an I/O error occurs
+     */
+    private static List<Entry> readTar( FileChannel channel ) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long size = channel.size();
+        String longName = null;
+        for( long pos = 0; pos + 512 <= size; ) {
+            byte[] header = read( channel, pos, 512 );
+            if( header[0] == 0 ) {
+                break; // end of archive
+            }
+            long length = parseTarNumber( header, 124, 12 );
+            if( length < 0 ) {
+                return null;
+            }
+            char type = (char)header[156];
+            long offset = pos + 512;
+            if( type == 'L' ) {
+                // GNU long name of the next entry
+                longName = trim( read( channel, offset, (int)Math.min( length, 65536 ) ) );
+            } else {
+                if( type == '0' || type == 0 || type == '7' ) {
+                    String name = longName;
+                    if( name == null ) {
+                        name = trim( header, 0, 100 );
+                        String prefix = trim( header, 345, 155 );
+                        if( !prefix.isEmpty() ) {
+                            name = prefix + '/' + name;
+                        }
+                    }
+                    entries.add( new Entry( normalize( name ), offset, length ) );
+                }
+                longName = null;
+            }
+            pos = offset + (length + 511) / 512 * 512;
+        }
+        return entries;
+    }
+
+    /**
+     * Read the entries of a cpio archive in the "newc" format, that rpm uses.
+     *
+     * @param channel the archive
+     * @return the entries or null if the archive is invalid
+     * @throws IOException if an I/O error occurs
+     */
+    private static List<Entry> readCpio( FileChannel channel ) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long size = channel.size();
+        for( long pos = 0; pos + 110 <= size; ) {
+            byte[] header = read( channel, pos, 110 );
+            if( !new String( header, 0, 6, StandardCharsets.US_ASCII ).matches( "07070[12]" ) ) {
+                return null;
+            }
+            long mode;
+            long length;
+            int nameSize;
+            try {
+                mode = Long.parseLong( new String( header, 14, 8, StandardCharsets.US_ASCII ), 16 );
+                length = Long.parseLong( new String( header, 54, 8, StandardCharsets.US_ASCII ), 16 );
+                nameSize = Integer.parseInt( new String( header, 94, 8, StandardCharsets.US_ASCII ), 16 );
+            } catch( NumberFormatException ex ) {
+                return null;
+            }
+            String name = trim( read( channel, pos + 110, nameSize ) );
+            if( name.equals( "TRAILER!!!" ) ) {
+                break;
+            }
+            long offset = (pos + 110 + nameSize + 3) / 4 * 4;
+            if( (mode & 0170000) == 0100000 && length > 0 ) {
+                entries.add( new Entry( normalize( name ), offset, length ) );
+            }
+            pos = (offset + length + 3) / 4 * 4;
+        }
+        return entries;
+    }
+
+    /**
+     * Parse a numeric field of a tar header, octal or base-256.
+     *
+     * @param header the header
+     * @param offset the start of the field
+     * @param length the length of the field
+     * @return the value or -1 if invalid
+     */
+    private static long parseTarNumber( byte[] header, int offset, int length ) {
+        long value = 0;
+        if( (header[offset] & 0x80) != 0 ) {
+            for( int i = 1; i < length; i++ ) {
+                value = (value << 8) | (header[offset + i] & 0xFF);
+            }
+            return value;
+        }
+        String text = trim( header, offset, length ).trim();
+        if( text.isEmpty() ) {
+            return 0;
+        }
+        try {
+            return Long.parseLong( text, 8 );
+        } catch( NumberFormatException ex ) {
+            return -1;
+        }
+    }
+
+    /**
+     * Remove a leading "./" or "/" from a path.
+     *
+     * @param name the path in the archive
+     * @return the normalized path
+     */
+    private static String normalize( String name ) {
+        if( name.startsWith( "./" ) ) {
+            name = name.substring( 2 );
+        }
+        if( name.startsWith( "/" ) ) {
+            name = name.substring( 1 );
+        }
+        return name;
+    }
+
+    /**
+     * Get a null terminated string.
+     *
+     * @param bytes the bytes
+     * @return the string
+     */
+    private static String trim( byte[] bytes ) {
+        return trim( bytes, 0, bytes.length );
+    }
+
+    /**
+     * Get a null terminated string.
+     *
+     * @param bytes the bytes
+     * @param offset the start of the string
+     * @param length the maximum length
+     * @return the string
+     */
+    private static String trim( byte[] bytes, int offset, int length ) {
+        int end = offset;
+        while( end < offset + length && bytes[end] != 0 ) {
+            end++;
+        }
+        return new String( bytes, offset, end - offset, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Read bytes of the archive.
+     *
+     * @param channel the archive
+     * @param offset the start
+     * @param length the count of bytes
+     * @return the bytes, less at the end of the file
+     * @throws IOException if an I/O error occurs
+     */
+    private static byte[] read( FileChannel channel, long offset, int length ) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate( (int)Math.max( 0, Math.min( length, channel.size() - offset ) ) );
+        while( buffer.hasRemaining() && channel.read( buffer, offset + buffer.position() ) > 0 ) {
+            // read until full
+        }
+        return buffer.array();
+    }
+}
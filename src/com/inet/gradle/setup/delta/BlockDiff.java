@@ -0,0 +1,210 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.delta;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * A binary diff in the style of xdelta. The old data is indexed by a hash of fixed size blocks. The new data is scanned
+ * with a rolling hash; matching blocks are verified and extended in both directions. The result is a list of copy
+ * operations from the old data and literal ranges of the new data.
+ * <p>
+ * Both ranges are memory mapped, the index has at most about one million blocks. So the memory does not depend on the
+ * size of the files.
+ */
+class BlockDiff {
+
+    /** The smallest block size */
+    private static final int  MIN_BLOCK  = 64;
+
+    /** The maximum count of indexed blocks */
+    private static final long MAX_BLOCKS = 1 << 20;
+
+    private static final int  PRIME      = 0x01000193;
+
+    /**
+     * A delta operation.
+     */
+    static class Op {
+
+        /** true: copy from the old data, false: literal range of the new data */
+        final boolean copy;
+
+        /** The offset in the old data for a copy, the offset in the new data for a literal */
+        final long    offset;
+
+        final long    length;
+
+        /**
+         * Create an operation.
+         *
+         * @param copy true for a copy, false for a literal
+         * @param offset the offset in the old or new data
+         * @param length the length
+         */
+        Op( boolean copy, long offset, long length ) {
+            this.copy = copy;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * No instance.
+     */
+    private BlockDiff() {
+    }
+
+    /**
+     * Create the operations that produce the new range from the old range.
+     *
+     * @param oldChannel the old data
+     * @param oldStart the start of the old range
+     * @param oldLength the length of the old range
+     * @param newChannel the new data
+     * @param newStart the start of the new range
+     * @param newLength the length of the new range
+     * @param ops receives the operations, the offsets are absolute in the channels
+     * @throws IOException if an I/O error occurs
+     */
+    static void diff( FileChannel oldChannel, long oldStart, long oldLength, FileChannel newChannel, long newStart, long newLength, List<Op> ops ) throws IOException {
+        int block = (int)Math.max( MIN_BLOCK, (oldLength + MAX_BLOCKS - 1) / MAX_BLOCKS );
+        if( oldLength < block || newLength < block || oldLength > Integer.MAX_VALUE || newLength > Integer.MAX_VALUE ) {
+            add( ops, false, newStart, newLength );
+            return;
+        }
+        MappedByteBuffer oldData = oldChannel.map( FileChannel.MapMode.READ_ONLY, oldStart, oldLength );
+        MappedByteBuffer newData = newChannel.map( FileChannel.MapMode.READ_ONLY, newStart, newLength );
+        int oldSize = (int)oldLength;
+        int newSize = (int)newLength;
+
+        // index of the old blocks, a later block with the same hash replaces an earlier
+        int blocks = oldSize / block;
+        int bits = 32 - Integer.numberOfLeadingZeros( blocks * 2 - 1 );
+        int[] table = new int[1 << bits];
+        for( int i = 0; i < blocks; i++ ) {
+            table[slot( hash( oldData, i * block, block ), bits )] = i + 1;
+        }
+
+        int power = 1;
+        for( int i = 1; i < block; i++ ) {
+            power *= PRIME;
+        }
+
+        int pos = 0;
+        int literalStart = 0;
+        int hash = hash( newData, 0, block );
+        while( pos + block <= newSize ) {
+            int candidate = table[slot( hash, bits )] - 1;
+            if( candidate >= 0 && equals( oldData, candidate * block, newData, pos, block ) ) {
+                int oldPos = candidate * block;
+                // extend backward into the pending literal and forward
+                while( pos > literalStart && oldPos > 0 && oldData.get( oldPos - 1 ) == newData.get( pos - 1 ) ) {
+                    pos--;
+                    oldPos--;
+                }
+                int length = 0;
+                while( oldPos + length < oldSize && pos + length < newSize && oldData.get( oldPos + length ) == newData.get( pos + length ) ) {
+                    length++;
+                }
+                add( ops, false, newStart + literalStart, pos - literalStart );
+                add( ops, true, oldStart + oldPos, length );
+                pos += length;
+                literalStart = pos;
+                if( pos + block <= newSize ) {
+                    hash = hash( newData, pos, block );
+                }
+            } else {
+                if( pos + block < newSize ) {
+                    hash = (hash - newData.get( pos ) * power) * PRIME + newData.get( pos + block );
+                }
+                pos++;
+            }
+        }
+        add( ops, false, newStart + literalStart, newSize - literalStart );
+    }
+
+    /**
+     * Add an operation and merge it with the previous operation if possible.
+     *
+     * @param ops the operations
+     * @param copy true for a copy, false for a literal
+     * @param offset the offset
+     * @param length the length
+     */
+    static void add( List<Op> ops, boolean copy, long offset, long length ) {
+        if( length <= 0 ) {
+            return;
+        }
+        if( !ops.isEmpty() ) {
+            Op last = ops.get( ops.size() - 1 );
+            if( last.copy == copy && last.offset + last.length == offset ) {
+                ops.set( ops.size() - 1, new Op( copy, last.offset, last.length + length ) );
+                return;
+            }
+        }
+        ops.add( new Op( copy, offset, length ) );
+    }
+
+    /**
+     * Calculate the hash of a block.
+     *
+     * @param data the data
+     * @param offset the start of the block
+     * @param length the block size
+     * @return the hash
+     */
+    private static int hash( MappedByteBuffer data, int offset, int length ) {
+        int hash = 0;
+        for( int i = 0; i < length; i++ ) {
+            hash = hash * PRIME + data.get( offset + i );
+        }
+        return hash;
+    }
+
+    /**
+     * Get the slot of a hash in the index.
+     *
+     * @param hash the hash
+     * @param bits the size of the index as power of two
+     * @return the slot
+     */
+    private static int slot( int hash, int bits ) {
+        return (hash * 0x9E3779B9) >>> (32 - bits);
+    }
+
+    /**
+     * Compare two blocks.
+     *
+     * @param a the first data
+     * @param aOffset the start in the first data
+     * @param b the second data
+     * @param bOffset the start in the second data
+     * @param length the length
+     * @return true, if equals
+     */
+    private static boolean equals( MappedByteBuffer a, int aOffset, MappedByteBuffer b, int bOffset, int length ) {
+        for( int i = 0; i < length; i++ ) {
+            if( a.get( aOffset + i ) != b.get( bOffset + i ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
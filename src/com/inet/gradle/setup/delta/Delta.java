@@ -0,0 +1,253 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.delta;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.internal.file.FileResolver;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import com.inet.gradle.setup.abstracts.AbstractTask;
+
+/**
+ * Creates a binary delta between a previous and the current deb or rpm package. Unchanged files are copied from the
+ * previous package, changed files are stored as binary diff. On the target host the apply tool rebuilds the complete
+ * package and verifies it with the SHA-256 of the original package.
+ *
+ * <pre>
+ * tasks.register( 'debDelta', com.inet.gradle.setup.delta.Delta ) {
+ *     previousPackage = 'releases/myapp-1.0.deb'
+ *     currentPackage = tasks.deb
+ * }
+ * </pre>
+ *
+ * On the target host: <tt>java -jar delta-apply.jar myapp-1.0.deb myapp-1.1.deb.delta myapp-1.1.deb</tt>
+ */
+public class Delta extends DefaultTask {
+
+    private Object  previousPackage;
+
+    private Object  currentPackage;
+
+    private Object  deltaFile;
+
+    private boolean verify    = true;
+
+    private boolean applyTool = true;
+
+    /**
+     * Create the delta file.
+     */
+    @TaskAction
+    public void action() {
+        File previous = getPreviousPackage();
+        File current = getCurrentPackage();
+        File delta = getDeltaFile();
+        try {
+            delta.getParentFile().mkdirs();
+            DeltaBuilder builder = new DeltaBuilder( previous, current, getTemporaryDir() );
+            builder.write( delta );
+            String command = builder.getCompressCommand();
+            getLogger().lifecycle( "\tDelta " + delta.getName() + ": " + delta.length() + " bytes for a package of " + current.length() + " bytes, " + builder.getCopiedBytes()
+                            + " bytes copied from the previous package, " + builder.getLiteralBytes() + " bytes stored"
+                            + (command == null ? ", the payload was diffed as binary" : command.isEmpty() ? "" : ", the payload is compressed with '" + command + "'") );
+
+            if( verify ) {
+                File test = new File( getTemporaryDir(), current.getName() );
+                DeltaApply.apply( previous, delta, test );
+                Files.delete( test.toPath() );
+                getLogger().lifecycle( "\tThe delta was applied and verified" );
+            }
+            if( applyTool ) {
+                writeApplyTool( getApplyToolFile() );
+            }
+        } catch( IOException ex ) {
+            throw new GradleException( "Can't create the delta of " + current + ": " + ex.getMessage(), ex );
+        }
+    }
+
+    /**
+     * Write the standalone apply tool. It contains only the classes that are required to apply a delta.
+     *
+     * @param file the jar file
+     * @throws IOException if an I/O error occurs
+     */
+    private static void writeApplyTool( File file ) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        manifest.getMainAttributes().put( Attributes.Name.MAIN_CLASS, DeltaApply.class.getName() );
+        try( JarOutputStream jar = new JarOutputStream( new FileOutputStream( file ), manifest ) ) {
+            for( Class<?> clazz : new Class<?>[] { DeltaApply.class, DeltaFormat.class } ) {
+                String name = clazz.getName().replace( '.', '/' ) + ".class";
+                jar.putNextEntry( new JarEntry( name ) );
+                try( InputStream input = clazz.getClassLoader().getResourceAsStream( name ) ) {
+                    byte[] buffer = new byte[8192];
+                    for( int count; (count = input.read( buffer )) > 0; ) {
+                        jar.write( buffer, 0, count );
+                    }
+                }
+                jar.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Get the previous package.
+     *
+     * @return the file
+     */
+    @InputFile
+    @PathSensitive( PathSensitivity.NONE )
+    public File getPreviousPackage() {
+        if( previousPackage == null ) {
+            throw new GradleException( "The previousPackage of the task " + getName() + " is not set" );
+        }
+        return getFileResolver().resolve( previousPackage );
+    }
+
+    /**
+     * Set the package of the previous release, that is installed on the target hosts.
+     *
+     * @param previousPackage the file, anything that Gradle can resolve to a file
+     */
+    public void setPreviousPackage( Object previousPackage ) {
+        this.previousPackage = previousPackage;
+    }
+
+    /**
+     * Get the current package.
+     *
+     * @return the file
+     */
+    @InputFile
+    @PathSensitive( PathSensitivity.NONE )
+    public File getCurrentPackage() {
+        if( currentPackage instanceof AbstractTask ) {
+            return ((AbstractTask)currentPackage).getSetupFile();
+        }
+        if( currentPackage == null ) {
+            throw new GradleException( "The currentPackage of the task " + getName() + " is not set" );
+        }
+        return getFileResolver().resolve( currentPackage );
+    }
+
+    /**
+     * Set the current package. This can be a deb or rpm task, then this task depends on it.
+     *
+     * @param currentPackage the file, anything that Gradle can resolve to a file or a setup task
+     */
+    public void setCurrentPackage( Object currentPackage ) {
+        this.currentPackage = currentPackage;
+        if( currentPackage instanceof AbstractTask ) {
+            dependsOn( currentPackage );
+        }
+    }
+
+    /**
+     * Get the delta file.
+     *
+     * @return the file
+     */
+    @OutputFile
+    public File getDeltaFile() {
+        if( deltaFile == null ) {
+            File current = getCurrentPackage();
+            return new File( current.getParentFile(), current.getName() + ".delta" );
+        }
+        return getFileResolver().resolve( deltaFile );
+    }
+
+    /**
+     * Set the delta file. The default is the current package with the additional extension ".delta".
+     *
+     * @param deltaFile the file, anything that Gradle can resolve to a file
+     */
+    public void setDeltaFile( Object deltaFile ) {
+        this.deltaFile = deltaFile;
+    }
+
+    /**
+     * If the delta is applied after creation.
+     *
+     * @return true, if verified
+     */
+    @Input
+    public boolean isVerify() {
+        return verify;
+    }
+
+    /**
+     * Apply the delta after creation and compare the result with the current package. The default is true.
+     *
+     * @param verify false, to skip the verification
+     */
+    public void setVerify( boolean verify ) {
+        this.verify = verify;
+    }
+
+    /**
+     * If the apply tool is written.
+     *
+     * @return true, if written
+     */
+    @Input
+    public boolean isApplyTool() {
+        return applyTool;
+    }
+
+    /**
+     * Write the standalone apply tool "delta-apply.jar" next to the delta file. The default is true.
+     *
+     * @param applyTool false, to omit the tool
+     */
+    public void setApplyTool( boolean applyTool ) {
+        this.applyTool = applyTool;
+    }
+
+    /**
+     * Get the apply tool.
+     *
+     * @return the jar file or null if not written
+     */
+    @OutputFile
+    @Optional
+    public File getApplyToolFile() {
+        return applyTool ? new File( getDeltaFile().getParentFile(), "delta-apply.jar" ) : null;
+    }
+
+    @Inject
+    protected FileResolver getFileResolver() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.delta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reconstructs a package from the previous package and a delta file that was created with the {@link Delta} task. The
+ * result is verified with the SHA-256 of the new package, a package is never written partially.
+ * <p>
+ * This class is also the main class of the standalone apply tool, that the task writes next to the delta file:
+ *
+ * <pre>
+ * java -jar delta-apply.jar previous.deb package.delta new.deb
+ * </pre>
+ *
+ * The payload is recompressed with the same compressor like on the build host, the built-in zlib or an external tool
+ * like xz. If the compressor produces different bytes, the verification fails and the full package must be used.
+ */
+public final class DeltaApply {
+
+    /**
+     * No instance.
+     */
+    private DeltaApply() {
+    }
+
+    /**
+     * The entry point of the apply tool.
+     *
+     * @param args the previous package, the delta file and the new package
+     */
+    public static void main( String[] args ) {
+        if( args.length != 3 ) {
+            System.err.println( "Usage: java -jar delta-apply.jar <previous package> <delta file> <new package>" );
+            System.exit( 2 );
+        }
+        try {
+            apply( new File( args[0] ), new File( args[1] ), new File( args[2] ) );
+            System.out.println( "Created and verified: " + args[2] );
+        } catch( IOException ex ) {
+            System.err.println( ex.getMessage() );
+            System.exit( 1 );
+        }
+    }
+
+    /**
+     * Reconstruct the new package.
+     *
+     * @param previous the previous package
+     * @param delta the delta file
+     * @param target the new package
+     * @throws IOException if an I/O error occurs or the delta does not match
+     */
+    public static void apply( File previous, File delta, File target ) throws IOException {
+        File part = new File( target.getPath() + ".part" );
+        Files.deleteIfExists( part.toPath() );
+        try( DataInputStream input = new DataInputStream( new BufferedInputStream( new GZIPInputStream( new FileInputStream( delta ), 65536 ) ) ) ) {
+            byte[] magic = new byte[DeltaFormat.MAGIC.length];
+            input.readFully( magic );
+            if( !Arrays.equals( magic, DeltaFormat.MAGIC ) ) {
+                throw new IOException( "Not a delta file: " + delta );
+            }
+            byte[] previousHash = new byte[32];
+            input.readFully( previousHash );
+            byte[] targetHash = new byte[32];
+            input.readFully( targetHash );
+            long targetSize = input.readLong();
+            if( !MessageDigest.isEqual( previousHash, DeltaFormat.sha256( previous ) ) ) {
+                throw new IOException( "The delta file " + delta + " was not created for the package " + previous );
+            }
+
+            // append mode, because the compressors append the payload to the same file
+            try( FileChannel source = FileChannel.open( previous.toPath(), StandardOpenOption.READ );
+                            OutputStream output = new BufferedOutputStream( new FileOutputStream( part, true ), 65536 ) ) {
+                byte[] buffer = new byte[65536];
+                for( int op; (op = input.readUnsignedByte()) != DeltaFormat.OP_END; ) {
+                    switch( op ) {
+                        case DeltaFormat.OP_PAYLOAD:
+                            output.flush();
+                            applyPayload( input, previous, part, output, buffer );
+                            break;
+                        default:
+                            applyOperation( op, input, source, output, buffer );
+                    }
+                }
+            }
+
+            if( part.length() != targetSize || !MessageDigest.isEqual( targetHash, DeltaFormat.sha256( part ) ) ) {
+                throw new IOException( "The reconstructed package does not match the original package. The compressor on this host creates other data." );
+            }
+            Files.move( part.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        } finally {
+            Files.deleteIfExists( part.toPath() );
+        }
+    }
+
+    /**
+     * Execute a literal or a copy operation.
+     *
+     * @param op the operation code
+     * @param input the delta stream
+     * @param source the source of the copy operation
+     * @param output the target
+     * @param buffer a buffer
+     * @throws IOException if an I/O error occurs
+     */
+    private static void applyOperation( int op, DataInputStream input, FileChannel source, OutputStream output, byte[] buffer ) throws IOException {
+        switch( op ) {
+            case DeltaFormat.OP_ADD:
+                int length = input.readInt();
+                while( length > 0 ) {
+                    int count = Math.min( length, buffer.length );
+                    input.readFully( buffer, 0, count );
+                    output.write( buffer, 0, count );
+                    length -= count;
+                }
+                break;
+            case DeltaFormat.OP_COPY:
+                DeltaFormat.copy( source, input.readLong(), input.readLong(), output, buffer );
+                break;
+            default:
+                throw new IOException( "Invalid delta file, unknown operation: " + op );
+        }
+    }
+
+    /**
+     * Rebuild a compressed payload. The payload of the previous package is decompressed into a temporary file, the
+     * uncompressed new payload is written into a second temporary file and compressed to the end of the package.
+     *
+     * @param input the delta stream
+     * @param previous the previous package
+     * @param part the new package, that is written
+     * @param output the stream of the new package
+     * @param buffer a buffer
+     * @throws IOException if an I/O error occurs
+     */
+    private static void applyPayload( DataInputStream input, File previous, File part, OutputStream output, byte[] buffer ) throws IOException {
+        long offset = input.readLong();
+        long length = input.readLong();
+        String format = input.readUTF();
+        String command = input.readUTF();
+
+        File dir = part.getAbsoluteFile().getParentFile();
+        File compressed = File.createTempFile( "previous", ".payload", dir );
+        File uncompressed = null;
+        File payload = null;
+        try {
+            DeltaFormat.copy( previous, offset, length, compressed );
+            String[] decompress = DeltaFormat.getDecompressCommand( format );
+            if( decompress != null ) {
+                uncompressed = File.createTempFile( "previous", ".tar", dir );
+                DeltaFormat.run( decompress, compressed, uncompressed, false );
+            } else {
+                uncompressed = compressed;
+            }
+
+            if( command.isEmpty() ) {
+                // uncompressed payload, write directly into the package
+                try( FileChannel source = FileChannel.open( uncompressed.toPath(), StandardOpenOption.READ ) ) {
+                    for( int op; (op = input.readUnsignedByte()) != DeltaFormat.OP_END; ) {
+                        applyOperation( op, input, source, output, buffer );
+                    }
+                }
+                return;
+            }
+
+            payload = File.createTempFile( "new", ".tar", dir );
+            try( FileChannel source = FileChannel.open( uncompressed.toPath(), StandardOpenOption.READ );
+                            OutputStream payloadOutput = new BufferedOutputStream( new FileOutputStream( payload ), 65536 ) ) {
+                for( int op; (op = input.readUnsignedByte()) != DeltaFormat.OP_END; ) {
+                    applyOperation( op, input, source, payloadOutput, buffer );
+                }
+            }
+            DeltaFormat.compress( command, payload, part );
+        } finally {
+            Files.deleteIfExists( compressed.toPath() );
+            if( uncompressed != null ) {
+                Files.deleteIfExists( uncompressed.toPath() );
+            }
+            if( payload != null ) {
+                Files.deleteIfExists( payload.toPath() );
+            }
+        }
+    }
+}
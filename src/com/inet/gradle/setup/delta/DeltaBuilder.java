@@ -0,0 +1,437 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.delta;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import org.gradle.api.GradleException;
+
+import com.inet.gradle.setup.delta.ArchiveEntries.Entry;
+import com.inet.gradle.setup.delta.BlockDiff.Op;
+import com.inet.gradle.setup.util.Logging;
+
+/**
+ * Creates a delta file between two packages of the same format. The container (ar archive of a deb, lead and headers
+ * of a rpm) is diffed as binary. The compressed payload is decompressed and diffed per file: unchanged files are
+ * copied from the previous payload, changed files are diffed with {@link BlockDiff} against the previous version of the
+ * file with the same path.
+ * <p>
+ * The apply tool must compress the rebuilt payload to the same bytes. The compressor settings are found by
+ * compressing the new payload with the candidates of {@link #COMPRESS_COMMANDS}. If no candidate creates the same
+ * bytes, the compressed payload is diffed as binary, which is correct but creates a larger delta.
+ */
+class DeltaBuilder {
+
+    /** The compressor settings that the package tools use, the most likely first */
+    private static final Map<String, String[]> COMPRESS_COMMANDS = new HashMap<>();
+    static {
+        COMPRESS_COMMANDS.put( "gz", new String[] { "zlib -9", "zlib -6", "gzip -n -9 -c", "gzip -n -6 -c" } );
+        COMPRESS_COMMANDS.put( "xz", new String[] { "xz -6 -T0 -c", "xz -6 -T1 -c", "xz -9 -T0 -c", "xz -2 -T0 -c", "xz -9 -T1 -c", "xz -2 -T1 -c" } );
+        COMPRESS_COMMANDS.put( "zst", new String[] { "zstd -q -19 -T0 -c", "zstd -q -3 -T0 -c", "zstd -q -19 -c", "zstd -q -3 -c" } );
+        COMPRESS_COMMANDS.put( "bz2", new String[] { "bzip2 -9 -c" } );
+    }
+
+    private final File previous;
+
+    private final File current;
+
+    private final File tempDir;
+
+    private long       copiedBytes;
+
+    private long       literalBytes;
+
+    private String     compressCommand;
+
+    /**
+     * Create a new instance.
+     *
+     * @param previous the previous package
+     * @param current the new package
+     * @param tempDir a directory for the uncompressed payloads
+     */
+    DeltaBuilder( File previous, File current, File tempDir ) {
+        this.previous = previous;
+        this.current = current;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Write the delta file.
+     *
+     * @param delta the target file
+     * @throws IOException if an I/O error occurs
+     */
+    void write( File delta ) throws IOException {
+        long[] previousPayload = findPayload( previous );
+        long[] currentPayload = findPayload( current );
+
+        try( DataOutputStream output = new DataOutputStream( new BufferedOutputStream( new GZIPOutputStream( new FileOutputStream( delta ), 65536 ) ) );
+                        FileChannel previousChannel = FileChannel.open( previous.toPath(), StandardOpenOption.READ );
+                        FileChannel currentChannel = FileChannel.open( current.toPath(), StandardOpenOption.READ ) ) {
+            output.write( DeltaFormat.MAGIC );
+            output.write( DeltaFormat.sha256( previous ) );
+            output.write( DeltaFormat.sha256( current ) );
+            output.writeLong( current.length() );
+
+            // the container before the payload
+            List<Op> ops = new ArrayList<>();
+            BlockDiff.diff( previousChannel, 0, previousPayload[0], currentChannel, 0, currentPayload[0], ops );
+            writeOps( output, ops, currentChannel );
+
+            if( !writePayload( output, previousPayload, currentPayload ) ) {
+                ops.clear();
+                BlockDiff.diff( previousChannel, previousPayload[0], previousPayload[1], currentChannel, currentPayload[0], currentPayload[1], ops );
+                writeOps( output, ops, currentChannel );
+            }
+
+            // the container after the payload
+            long previousEnd = previousPayload[0] + previousPayload[1];
+            long currentEnd = currentPayload[0] + currentPayload[1];
+            ops.clear();
+            BlockDiff.diff( previousChannel, previousEnd, previousChannel.size() - previousEnd, currentChannel, currentEnd, currentChannel.size() - currentEnd, ops );
+            writeOps( output, ops, currentChannel );
+
+            output.write( DeltaFormat.OP_END );
+        }
+    }
+
+    /**
+     * The count of bytes of the new package, that are copied from the previous package.
+     *
+     * @return the bytes, uncompressed for the payload
+     */
+    long getCopiedBytes() {
+        return copiedBytes;
+    }
+
+    /**
+     * The count of bytes that are stored in the delta.
+     *
+     * @return the bytes, before the compression of the delta
+     */
+    long getLiteralBytes() {
+        return literalBytes;
+    }
+
+    /**
+     * The command that recompresses the payload.
+     *
+     * @return the command, an empty string for an uncompressed payload or null if the payload was diffed as binary
+     */
+    String getCompressCommand() {
+        return compressCommand;
+    }
+
+    /**
+     * Find the compressed payload of a deb or rpm package.
+     *
+     * @param file the package
+     * @return the offset and the length of the payload
+     * @throws IOException if an I/O error occurs
+     */
+    static long[] findPayload( File file ) throws IOException {
+        try( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            ByteBuffer buffer = ByteBuffer.allocate( 60 );
+            channel.read( buffer, 0 );
+            byte[] head = buffer.array();
+            if( new String( head, 0, 8, StandardCharsets.US_ASCII ).equals( "!<arch>\n" ) ) {
+                // ar archive of a deb, the payload is the member data.tar.*
+                for( long pos = 8; pos + 60 <= channel.size(); ) {
+                    buffer.clear();
+                    channel.read( buffer, pos );
+                    String name = new String( head, 0, 16, StandardCharsets.US_ASCII ).trim();
+                    long size = Long.parseLong( new String( head, 48, 10, StandardCharsets.US_ASCII ).trim() );
+                    if( name.startsWith( "data.tar" ) ) {
+                        return new long[] { pos + 60, size };
+                    }
+                    pos += 60 + size + (size & 1);
+                }
+            } else if( (head[0] & 0xFF) == 0xED && (head[1] & 0xFF) == 0xAB && (head[2] & 0xFF) == 0xEE && (head[3] & 0xFF) == 0xDB ) {
+                // rpm: lead, signature header aligned to 8 bytes, header, payload
+                long pos = 96;
+                pos += headerSize( channel, pos );
+                pos = (pos + 7) / 8 * 8;
+                pos += headerSize( channel, pos );
+                return new long[] { pos, channel.size() - pos };
+            }
+        }
+        throw new GradleException( "Only deb and rpm packages are supported: " + file );
+    }
+
+    /**
+     * Get the size of a rpm header structure.
+     *
+     * @param channel the package
+     * @param pos the start of the header
+     * @return the size in bytes
+     * @throws IOException if an I/O error occurs
+     */
+    private static long headerSize( FileChannel channel, long pos ) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate( 16 );
+        channel.read( buffer, pos );
+        if( buffer.getInt( 0 ) != 0x8EADE801 ) {
+            throw new GradleException( "Invalid rpm header at offset " + pos );
+        }
+        return 16 + 16L * buffer.getInt( 8 ) + buffer.getInt( 12 );
+    }
+
+    /**
+     * Write the operations of the compressed payload.
+     *
+     * @param output the delta
+     * @param previousPayload the position of the payload in the previous package
+     * @param currentPayload the position of the payload in the new package
+     * @return false, if the payload can not be rebuilt and must be diffed as binary
+     * @throws IOException if an I/O error occurs
+     */
+    private boolean writePayload( DataOutputStream output, long[] previousPayload, long[] currentPayload ) throws IOException {
+        String format = detectFormat( current, currentPayload );
+        if( format == null || !format.equals( detectFormat( previous, previousPayload ) ) ) {
+            Logging.sysout( "\tThe payload formats are different or unknown, the payload is diffed as binary" );
+            return false;
+        }
+
+        List<File> temps = new ArrayList<>();
+        try {
+            File previousTar = extract( previous, previousPayload, format, temps );
+            File currentTar = extract( current, currentPayload, format, temps );
+
+            String command = "";
+            if( !format.equals( DeltaFormat.NONE ) ) {
+                command = findCompressCommand( format, currentTar, DeltaFormat.sha256( current, currentPayload[0], currentPayload[1] ) );
+                if( command == null ) {
+                    Logging.sysout( "\tNo compressor creates the same payload, the payload is diffed as binary" );
+                    return false;
+                }
+            }
+            compressCommand = command;
+
+            output.write( DeltaFormat.OP_PAYLOAD );
+            output.writeLong( previousPayload[0] );
+            output.writeLong( previousPayload[1] );
+            output.writeUTF( format );
+            output.writeUTF( command );
+            try( FileChannel previousChannel = FileChannel.open( previousTar.toPath(), StandardOpenOption.READ );
+                            FileChannel currentChannel = FileChannel.open( currentTar.toPath(), StandardOpenOption.READ ) ) {
+                writeOps( output, diffPayload( previousChannel, currentChannel ), currentChannel );
+            }
+            output.write( DeltaFormat.OP_END );
+            return true;
+        } finally {
+            for( File temp : temps ) {
+                Files.deleteIfExists( temp.toPath() );
+            }
+        }
+    }
+
+    /**
+     * Detect the compression of a payload.
+     *
+     * @param file the package
+     * @param payload the position of the payload
+     * @return the format or null
+     * @throws IOException if an I/O error occurs
+     */
+    private static String detectFormat( File file, long[] payload ) throws IOException {
+        try( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            ByteBuffer buffer = ByteBuffer.allocate( (int)Math.min( 512, payload[1] ) );
+            channel.read( buffer, payload[0] );
+            return DeltaFormat.detectFormat( buffer.array() );
+        }
+    }
+
+    /**
+     * Extract and decompress the payload into a temporary file.
+     *
+     * @param file the package
+     * @param payload the position of the payload
+     * @param format the compression
+     * @param temps receives the created temporary files
+     * @return the uncompressed payload
+     * @throws IOException if an I/O error occurs
+     */
+    private File extract( File file, long[] payload, String format, List<File> temps ) throws IOException {
+        File compressed = File.createTempFile( "payload", "." + format, tempDir );
+        temps.add( compressed );
+        DeltaFormat.copy( file, payload[0], payload[1], compressed );
+        String[] command = DeltaFormat.getDecompressCommand( format );
+        if( command == null ) {
+            return compressed;
+        }
+        File uncompressed = File.createTempFile( "payload", ".tar", tempDir );
+        temps.add( uncompressed );
+        DeltaFormat.run( command, compressed, uncompressed, false );
+        return uncompressed;
+    }
+
+    /**
+     * Find the compressor settings that create the same compressed payload.
+     *
+     * @param format the compression
+     * @param payload the uncompressed payload
+     * @param expected the SHA-256 of the compressed payload
+     * @return the command or null if not found
+     * @throws IOException if an I/O error occurs
+     */
+    private String findCompressCommand( String format, File payload, byte[] expected ) throws IOException {
+        for( String command : COMPRESS_COMMANDS.get( format ) ) {
+            File test = File.createTempFile( "payload", "." + format, tempDir );
+            try {
+                DeltaFormat.compress( command, payload, test );
+                if( MessageDigest.isEqual( expected, DeltaFormat.sha256( test ) ) ) {
+                    return command;
+                }
+            } catch( IOException ex ) {
+                Logging.sysout( "\t" + ex.getMessage() ); // tool or option not available
+            } finally {
+                Files.deleteIfExists( test.toPath() );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Diff the uncompressed payloads per file. The files are hashed and diffed in parallel.
+     *
+     * @param previousChannel the previous payload
+     * @param currentChannel the new payload
+     * @return the operations
+     * @throws IOException if an I/O error occurs
+     */
+    private static List<Op> diffPayload( FileChannel previousChannel, FileChannel currentChannel ) throws IOException {
+        List<Op> ops = new ArrayList<>();
+        List<Entry> previousEntries = ArchiveEntries.read( previousChannel );
+        List<Entry> currentEntries = ArchiveEntries.read( currentChannel );
+        if( previousEntries == null || currentEntries == null ) {
+            BlockDiff.diff( previousChannel, 0, previousChannel.size(), currentChannel, 0, currentChannel.size(), ops );
+            return ops;
+        }
+
+        hashEntries( previousEntries, previousChannel );
+        hashEntries( currentEntries, currentChannel );
+
+        Map<String, Entry> byHash = new HashMap<>();
+        Map<String, Entry> byPath = new HashMap<>();
+        for( Entry entry : previousEntries ) {
+            byHash.putIfAbsent( entry.hash, entry );
+            byPath.put( entry.path, entry );
+        }
+
+        List<List<Op>> diffs;
+        try {
+            diffs = currentEntries.parallelStream().map( entry -> {
+                List<Op> entryOps = new ArrayList<>();
+                Entry old = byHash.get( entry.hash );
+                if( old != null ) {
+                    entryOps.add( new Op( true, old.offset, entry.length ) );
+                } else if( (old = byPath.get( entry.path )) != null ) {
+                    try {
+                        BlockDiff.diff( previousChannel, old.offset, old.length, currentChannel, entry.offset, entry.length, entryOps );
+                    } catch( IOException ex ) {
+                        throw new UncheckedIOException( ex );
+                    }
+                } else {
+                    entryOps.add( new Op( false, entry.offset, entry.length ) );
+                }
+                return entryOps;
+            } ).collect( Collectors.toList() );
+        } catch( UncheckedIOException ex ) {
+            throw ex.getCause();
+        }
+
+        // the headers between the file contents are literals
+        long pos = 0;
+        for( int i = 0; i < currentEntries.size(); i++ ) {
+            Entry entry = currentEntries.get( i );
+            BlockDiff.add( ops, false, pos, entry.offset - pos );
+            for( Op op : diffs.get( i ) ) {
+                BlockDiff.add( ops, op.copy, op.offset, op.length );
+            }
+            pos = entry.offset + entry.length;
+        }
+        BlockDiff.add( ops, false, pos, currentChannel.size() - pos );
+        return ops;
+    }
+
+    /**
+     * Calculate the SHA-256 of the file contents in parallel.
+     *
+     * @param entries the entries
+     * @param channel the payload
+     * @throws IOException if an I/O error occurs
+     */
+    private static void hashEntries( List<Entry> entries, FileChannel channel ) throws IOException {
+        try {
+            entries.parallelStream().forEach( entry -> {
+                try {
+                    entry.hash = Base64.getEncoder().encodeToString( DeltaFormat.sha256( channel, entry.offset, entry.length ) );
+                } catch( IOException ex ) {
+                    throw new UncheckedIOException( ex );
+                }
+            } );
+        } catch( UncheckedIOException ex ) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Write operations to the delta. The literal data is read from the new data.
+     *
+     * @param output the delta
+     * @param ops the operations
+     * @param source the new data
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeOps( DataOutputStream output, List<Op> ops, FileChannel source ) throws IOException {
+        byte[] buffer = new byte[65536];
+        for( Op op : ops ) {
+            if( op.copy ) {
+                output.write( DeltaFormat.OP_COPY );
+                output.writeLong( op.offset );
+                output.writeLong( op.length );
+                copiedBytes += op.length;
+            } else {
+                for( long offset = op.offset, end = op.offset + op.length; offset < end; ) {
+                    int length = (int)Math.min( DeltaFormat.MAX_ADD, end - offset );
+                    output.write( DeltaFormat.OP_ADD );
+                    output.writeInt( length );
+                    DeltaFormat.copy( source, offset, length, output, buffer );
+                    offset += length;
+                }
+                literalBytes += op.length;
+            }
+        }
+    }
+}
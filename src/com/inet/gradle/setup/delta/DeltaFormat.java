@@ -0,0 +1,319 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.delta;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * The constants and the shared helpers of the delta file format. This class and {@link DeltaApply} must not use any
+ * other class of the plugin or of Gradle, because both are packed into the standalone apply tool.
+ * <p>
+ * A delta file is a gzip compressed stream of:
+ * <ul>
+ * <li>the magic {@link #MAGIC}</li>
+ * <li>the SHA-256 of the previous package, the SHA-256 and the size of the new package</li>
+ * <li>a list of operations that write the new package, terminated with {@link #OP_END}</li>
+ * </ul>
+ * The payload operation decompresses the payload of the previous package, rebuilds the uncompressed payload of the new
+ * package from nested operations and compresses it with the recorded command.
+ */
+final class DeltaFormat {
+
+    /** The start of a delta file */
+    static final byte[] MAGIC      = "SBDELTA1".getBytes( StandardCharsets.US_ASCII );
+
+    /** End of the operation list */
+    static final int    OP_END     = 0;
+
+    /** Literal data: int length, bytes */
+    static final int    OP_ADD     = 1;
+
+    /** Data of the source: long offset, long length */
+    static final int    OP_COPY    = 2;
+
+    /**
+     * A compressed payload: long offset and long length of the payload in the previous package, UTF format, UTF
+     * compress command. Followed by nested operations, whose copy source is the uncompressed payload of the previous
+     * package.
+     */
+    static final int    OP_PAYLOAD = 3;
+
+    /** The maximum length of a single literal operation */
+    static final int    MAX_ADD    = 1024 * 1024;
+
+    /** Payload without compression, for example a data.tar in a deb */
+    static final String NONE       = "none";
+
+    /** The built-in gzip compressor with zlib like dpkg-deb and rpm, followed by the level, for example "zlib -9" */
+    static final String ZLIB       = "zlib";
+
+    /**
+     * No instance.
+     */
+    private DeltaFormat() {
+    }
+
+    /**
+     * Detect the compression format from the first bytes of a payload.
+     *
+     * @param head the first bytes
+     * @return the format, {@link #NONE} for an uncompressed tar or null if unknown
+     */
+    static String detectFormat( byte[] head ) {
+        if( startsWith( head, 0x1F, 0x8B ) ) {
+            return "gz";
+        }
+        if( startsWith( head, 0xFD, '7', 'z', 'X', 'Z', 0x00 ) ) {
+            return "xz";
+        }
+        if( startsWith( head, 0x28, 0xB5, 0x2F, 0xFD ) ) {
+            return "zst";
+        }
+        if( startsWith( head, 'B', 'Z', 'h' ) ) {
+            return "bz2";
+        }
+        if( head.length >= 262 && new String( head, 257, 5, StandardCharsets.US_ASCII ).equals( "ustar" ) ) {
+            return NONE;
+        }
+        return null;
+    }
+
+    /**
+     * Check the first bytes.
+     *
+     * @param head the bytes
+     * @param magic the expected values
+     * @return true, if equals
+     */
+    private static boolean startsWith( byte[] head, int... magic ) {
+        if( head.length < magic.length ) {
+            return false;
+        }
+        for( int i = 0; i < magic.length; i++ ) {
+            if( (head[i] & 0xFF) != magic[i] ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the command that decompresses a format from stdin to stdout.
+     *
+     * @param format the format
+     * @return the command or null for {@link #NONE} and unknown formats
+     */
+    static String[] getDecompressCommand( String format ) {
+        switch( String.valueOf( format ) ) {
+            case "gz":
+                return new String[] { "gzip", "-dc" };
+            case "xz":
+                return new String[] { "xz", "-dc" };
+            case "zst":
+                return new String[] { "zstd", "-dcq" };
+            case "bz2":
+                return new String[] { "bzip2", "-dc" };
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Compress a payload and append it to a file.
+     *
+     * @param command the built-in {@link #ZLIB} compressor or an external command that compresses stdin to stdout
+     * @param input the uncompressed payload
+     * @param output the target file
+     * @throws IOException if an I/O error occurs
+     */
+    static void compress( String command, File input, File output ) throws IOException {
+        String[] args = command.split( " " );
+        if( !args[0].equals( ZLIB ) ) {
+            run( args, input, output, true );
+            return;
+        }
+        int level = Integer.parseInt( args[1].substring( 1 ) );
+        Deflater deflater = new Deflater( level, true );
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try( InputStream in = new FileInputStream( input ); OutputStream out = new BufferedOutputStream( new FileOutputStream( output, true ), 65536 ) ) {
+            // the gzip header of zlib: no name, no time, the extra flags of the level, OS Unix
+            out.write( new byte[] { 0x1F, (byte)0x8B, 8, 0, 0, 0, 0, 0, (byte)(level == 9 ? 2 : level == 1 ? 4 : 0), 3 } );
+            DeflaterOutputStream deflate = new DeflaterOutputStream( out, deflater, 65536 );
+            byte[] buffer = new byte[65536];
+            for( int count; (count = in.read( buffer )) > 0; ) {
+                deflate.write( buffer, 0, count );
+                crc.update( buffer, 0, count );
+                size += count;
+            }
+            deflate.finish();
+            for( long value : new long[] { crc.getValue(), size } ) {
+                for( int i = 0; i < 4; i++ ) {
+                    out.write( (int)(value >> (8 * i)) );
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Run an external command with files as stdin and stdout.
+     *
+     * @param command the command line
+     * @param input the stdin
+     * @param output the stdout
+     * @param append true, append to the output file
+     * @throws IOException if the command fails
+     */
+    static void run( String[] command, File input, File output, boolean append ) throws IOException {
+        ProcessBuilder builder = new ProcessBuilder( command ).redirectInput( input ).redirectError( ProcessBuilder.Redirect.INHERIT );
+        builder.redirectOutput( append ? ProcessBuilder.Redirect.appendTo( output ) : ProcessBuilder.Redirect.to( output ) );
+        Process process = builder.start();
+        int exitValue;
+        try {
+            exitValue = process.waitFor();
+        } catch( InterruptedException ex ) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted: " + String.join( " ", command ), ex );
+        }
+        if( exitValue != 0 ) {
+            throw new IOException( "Command failed with exit value " + exitValue + ": " + String.join( " ", command ) );
+        }
+    }
+
+    /**
+     * Copy a range of a file to a stream.
+     *
+     * @param channel the file
+     * @param offset the start of the range
+     * @param length the length of the range
+     * @param output the target
+     * @param buffer a buffer
+     * @throws IOException if an I/O error occurs
+     */
+    static void copy( FileChannel channel, long offset, long length, OutputStream output, byte[] buffer ) throws IOException {
+        ByteBuffer wrapper = ByteBuffer.wrap( buffer );
+        while( length > 0 ) {
+            wrapper.clear();
+            wrapper.limit( (int)Math.min( buffer.length, length ) );
+            int count = channel.read( wrapper, offset );
+            if( count < 0 ) {
+                throw new IOException( "Unexpected end of file" );
+            }
+            output.write( buffer, 0, count );
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Copy a range of a file into a new file.
+     *
+     * @param file the source file
+     * @param offset the start of the range
+     * @param length the length of the range
+     * @param target the new file
+     * @throws IOException if an I/O error occurs
+     */
+    static void copy( File file, long offset, long length, File target ) throws IOException {
+        try( FileChannel source = FileChannel.open( file.toPath(), StandardOpenOption.READ );
+                        FileChannel output = FileChannel.open( target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+            while( length > 0 ) {
+                long count = source.transferTo( offset, length, output );
+                if( count <= 0 ) {
+                    throw new IOException( "Unexpected end of file: " + file );
+                }
+                offset += count;
+                length -= count;
+            }
+        }
+    }
+
+    /**
+     * Calculate the SHA-256 of a file.
+     *
+     * @param file the file
+     * @return the digest
+     * @throws IOException if an I/O error occurs
+     */
+    static byte[] sha256( File file ) throws IOException {
+        return sha256( file, 0, file.length() );
+    }
+
+    /**
+     * Calculate the SHA-256 of a range of a file.
+     *
+     * @param file the file
+     * @param offset the start of the range
+     * @param length the length of the range
+     * @return the digest
+     * @throws IOException if an I/O error occurs
+     */
+    static byte[] sha256( File file, long offset, long length ) throws IOException {
+        try( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            return sha256( channel, offset, length );
+        }
+    }
+
+    /**
+     * Calculate the SHA-256 of a range of a file.
+     *
+     * @param channel the file
+     * @param offset the start of the range
+     * @param length the length of the range
+     * @return the digest
+     * @throws IOException if an I/O error occurs
+     */
+    static byte[] sha256( FileChannel channel, long offset, long length ) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance( "SHA-256" );
+        } catch( NoSuchAlgorithmException ex ) {
+            throw new IOException( ex );
+        }
+        ByteBuffer buffer = ByteBuffer.allocate( 65536 );
+        while( length > 0 ) {
+            buffer.clear();
+            buffer.limit( (int)Math.min( buffer.capacity(), length ) );
+            int count = channel.read( buffer, offset );
+            if( count < 0 ) {
+                throw new IOException( "Unexpected end of file" );
+            }
+            buffer.flip();
+            digest.update( buffer );
+            offset += count;
+            length -= count;
+        }
+        return digest.digest();
+    }
+}
@@ -22,16 +22,22 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.codehaus.groovy.control.ConfigurationException;
 import org.gradle.api.GradleException;
 import org.gradle.api.internal.file.FileResolver;
 
+import com.inet.gradle.appbundler.AppBundler;
+import com.inet.gradle.appbundler.utils.xmlwise.Plist;
+import com.inet.gradle.appbundler.utils.xmlwise.XmlParseException;
 import com.inet.gradle.setup.abstracts.AbstractBuilder;
 import com.inet.gradle.setup.abstracts.AbstractSetupBuilder;
 import com.inet.gradle.setup.abstracts.AbstractTask;
 import com.inet.gradle.setup.abstracts.Application;
 import com.inet.gradle.setup.abstracts.DocumentType;
+import com.inet.gradle.setup.util.IncrementalCopy;
+import com.inet.gradle.setup.util.JreInspector;
 import com.oracle.appbundler.AppBundlerTask;
 import com.oracle.appbundler.Architecture;
 import com.oracle.appbundler.Argument;
@@ -53,6 +59,8 @@ public abstract class AbstractOSXApplicationBuilder<T extends AbstractTask, S ex
 
     private AppBundlerTask appBundler;
 
+    private boolean        compactInfoPlist;
+
     /**
      * Setup this builder.
      *
@@ -64,7 +72,12 @@ public abstract class AbstractOSXApplicationBuilder<T extends AbstractTask, S ex
         super( task, fileResolver );
         this.setup = setup;
         appBundler = new AppBundlerTask();
-        appBundler.setLogger( setup.getProject().getLogger() );
+        appBundler.setLogger( task.getLogger() );
+        appBundler.setTempSpace( setup.getTempSpace(), task.getTemporaryDir().getParentFile() );
+        if( setup instanceof AppBundler ) {
+            appBundler.setIncremental( ((AppBundler)setup).isIncremental() );
+            compactInfoPlist = ((AppBundler)setup).isCompactInfoPlist();
+        }
     }
 
     /**
@@ -78,7 +91,7 @@ public abstract class AbstractOSXApplicationBuilder<T extends AbstractTask, S ex
 
         String appName = application.getDisplayName();
 
-        task.getProject().getLogger().lifecycle( "\tBuildDir now: " + buildDir );
+        task.getLogger().lifecycle( "\tBuildDir now: " + buildDir );
         appBundler.setOutputDirectory( buildDir );
         appBundler.setName( appName );
         appBundler.setDisplayName( appName );
@@ -207,7 +220,7 @@ public abstract class AbstractOSXApplicationBuilder<T extends AbstractTask, S ex
         }
         File jreDir;
         try {
-            jreDir = task.getProject().file( jre );
+            jreDir = fileResolver.resolve( jre );
         } catch( Exception e ) {
             jreDir = null;
         }
@@ -225,7 +238,7 @@ public abstract class AbstractOSXApplicationBuilder<T extends AbstractTask, S ex
                                 + " can not be found in: " + jreDir );
             }
         }
-        task.getProject().getLogger().lifecycle( "\tbundle JRE: " + jreDir );
+        task.getLogger().lifecycle( "\tbundle JRE: " + jreDir + " (" + JreInspector.get( jreDir ) + ")" );
 
         Runtime runtime = new Runtime( jreDir );
         if ( task instanceof Dmg ) {
@@ -307,6 +320,48 @@ public abstract class AbstractOSXApplicationBuilder<T extends AbstractTask, S ex
         exec( "/usr/libexec/PlistBuddy", "-c", "Delete " + property, plist.getAbsolutePath() );
     }
 
+    /**
+     * Read a plist file. Binary and xml plist files are supported.
+     *
+     * @param plist file to read
+     * @return the content of the plist
+     * @throws IOException on errors
+     */
+    protected Map<String, Object> loadPlist( File plist ) throws IOException {
+        try {
+            return Plist.load( plist );
+        } catch( XmlParseException ex ) {
+            throw new IOException( "Invalid plist file: " + plist, ex );
+        }
+    }
+
+    /**
+     * Write a plist file.
+     *
+     * @param plist file to write
+     * @param data the content of the plist
+     * @param binary true, write the compact binary format; false, write xml
+     * @throws IOException on errors
+     */
+    protected void storePlist( File plist, Map<String, Object> data, boolean binary ) throws IOException {
+        if( binary ) {
+            Plist.storeBinary( data, plist );
+        } else {
+            Plist.store( data, plist );
+        }
+    }
+
+    /**
+     * Convert the Info.plist of an application bundle to the compact binary format.
+     *
+     * @param application the bundle root, the directory with the .app extension
+     * @throws IOException on errors
+     */
+    protected void compactInfoPlist( File application ) throws IOException {
+        File infoPlist = new File( application, "Contents/Info.plist" );
+        storePlist( infoPlist, loadPlist( infoPlist ), true );
+    }
+
     /**
      * Copy the files defined in the gradle script into their final destination
      *
@@ -315,7 +370,16 @@ public abstract class AbstractOSXApplicationBuilder<T extends AbstractTask, S ex
      */
     protected void copyBundleFiles( Application application ) throws IOException {
         File destination = new File( buildDir, application.getDisplayName() + ".app" );
-        getTask().copyTo( new File( destination, "Contents/Java" ) );
+        IncrementalCopy bundleCopy = appBundler.getBundleCopy();
+        getTask().copyTo( new File( destination, "Contents/Java" ), bundleCopy );
+        if( bundleCopy != null ) {
+            bundleCopy.await(); // the changed jars are copied in the background
+        }
+        appBundler.finishBundle();
+        if( compactInfoPlist ) {
+            // after the AppBundlerTask has written the Info.plist and before the bundle is signed
+            compactInfoPlist( destination );
+        }
 
         setApplicationFilePermissions( destination );
     }
@@ -24,10 +24,17 @@ import java.util.stream.Collectors;
 
 import org.apache.tools.ant.types.FileSet;
 import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.util.ConfigureUtil;
 
 import com.inet.gradle.appbundler.OSXCodeSign;
@@ -97,23 +104,38 @@ public class Dmg extends AbstractUnixSetupTask {
      */
     public Dmg() {
         super( "dmg" );
-        getProject().getLogger().lifecycle( "\tCreating afterEvaluate task."  );
-        getProject().afterEvaluate( ( project ) -> {
-            // if the "dmg" task should be executed then create some possible extra tasks on the end of the configuration phase
-            boolean isExecute = GradleUtils.isTaskExecute( Dmg.this, project );
-            if( isExecute ) {
-                SetupBuilder setup = getSetupBuilder();
-                project.getLogger().lifecycle( "\tPreparing " + setup.getServices().size() + " appBuilders."  );
-                for( Service service : setup.getServices() ) {
-                    ProjectInternal projInternal = (ProjectInternal)project;
-                    OSXApplicationBuilder builder = new OSXApplicationBuilder( Dmg.this, setup, projInternal.getFileResolver() );
-                    builder.configSubTasks( service );
-                    appBuilders.add( builder );
-                }
-            } else {
-                project.getLogger().lifecycle( "\tDMG is not marked for task execution."  );
+        /*// if gradleVersion >= 7.4
+        notCompatibleWithConfigurationCache( "The dmg task creates sub tasks for the services at the end of the configuration." );
+        */// endif
+        if( getProject().getState().getExecuted() ) {
+            // the task was registered lazily and is created after the evaluation of the project, for example while the task graph is built
+            configureAppBuilders( getProject() );
+        } else {
+            getProject().getLogger().lifecycle( "\tCreating afterEvaluate task."  );
+            getProject().afterEvaluate( this::configureAppBuilders );
+        }
+    }
+
+    /**
+     * Create the application builders for the services and their sub tasks if the "dmg" task should be executed. This
+     * must be called on the end of the configuration phase.
+     *
+     * @param project the project
+     */
+    private void configureAppBuilders( Project project ) {
+        boolean isExecute = GradleUtils.isTaskExecute( Dmg.this, project );
+        if( isExecute ) {
+            SetupBuilder setup = getSetupBuilder();
+            project.getLogger().lifecycle( "\tPreparing " + setup.getServices().size() + " appBuilders."  );
+            for( Service service : setup.getServices() ) {
+                ProjectInternal projInternal = (ProjectInternal)project;
+                OSXApplicationBuilder builder = new OSXApplicationBuilder( Dmg.this, setup, projInternal.getFileResolver() );
+                builder.configSubTasks( service );
+                appBuilders.add( builder );
             }
-        } );
+        } else {
+            project.getLogger().lifecycle( "\tDMG is not marked for task execution."  );
+        }
     }
 
     /**
@@ -121,9 +143,8 @@ public class Dmg extends AbstractUnixSetupTask {
      */
     @Override
     public void build() {
-        ProjectInternal project = (ProjectInternal)getProject();
-        getProject().getLogger().lifecycle( "\tStarting the build."  );
-        new DmgBuilder( this, getSetupBuilder(), project.getFileResolver() ).build();
+        getLogger().lifecycle( "\tStarting the build."  );
+        new DmgBuilder( this, getSetupBuilder(), getFileResolver() ).build();
     }
 
     /**
@@ -235,6 +256,7 @@ public class Dmg extends AbstractUnixSetupTask {
      * @return background Image for Finder View
      */
     @InputFile
+    @PathSensitive( PathSensitivity.RELATIVE )
     @Optional
     public File getBackgroundImage() {
         if( backgroundImage != null ) {
@@ -309,8 +331,7 @@ public class Dmg extends AbstractUnixSetupTask {
      *
      * @return welcome page
      */
-    @Input
-    @Optional
+    @Nested
     public List<LocalizedResource> getConclusionPages() {
         return conclusionPages;
     }
@@ -331,8 +352,7 @@ public class Dmg extends AbstractUnixSetupTask {
      *
      * @return welcome page
      */
-    @Input
-    @Optional
+    @Nested
     public List<LocalizedResource> getWelcomePages() {
         return welcomePages.size() > 0 ? welcomePages : getSetupBuilder().getLongDescriptions();
     }
@@ -353,6 +373,7 @@ public class Dmg extends AbstractUnixSetupTask {
      * @return background image
      */
     @InputFile
+    @PathSensitive( PathSensitivity.RELATIVE )
     @Optional
     public File getSetupBackgroundImage() {
         if( setupBackground != null ) {
@@ -376,6 +397,7 @@ public class Dmg extends AbstractUnixSetupTask {
      * @return a dark background image for the package installer
      */
     @InputFile
+    @PathSensitive( PathSensitivity.RELATIVE )
     @Optional
     public File getSetupDarkBackgroundImage() {
         if( setupDarkBackground != null ) {
@@ -572,11 +594,21 @@ public class Dmg extends AbstractUnixSetupTask {
         nativeLibraries.add( library );
     }
     
+    /**
+     * Returns the native library directories as input of the task.
+     * @return the native library directories
+     */
+    @InputFiles
+    @PathSensitive( PathSensitivity.RELATIVE )
+    public FileCollection getNativeLibraryFiles() {
+        return getProject().files( nativeLibraries );
+    }
+
     /**
      * Returns the list of native libraries set for the current project
      * @return the list of native libraries set for the current project
      */
-    @Input
+    @Internal
     public List<FileSet> getNativeLibraries() {
         return nativeLibraries.stream().map( e -> {
             FileSet set = new FileSet();
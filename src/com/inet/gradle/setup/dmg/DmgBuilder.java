@@ -79,15 +79,15 @@ public class DmgBuilder extends AbstractBuilder<Dmg, SetupBuilder> {
      */
     public void build() throws RuntimeException {
 
-        task.getProject().getLogger().lifecycle( "\tRunning the build."  );
-        tempPath = new TempPath( new File( setup.getProject().getBuildDir(), "tmp/SetupBuilder" ).toPath() );
+        task.getLogger().lifecycle( "\tRunning the build."  );
+        tempPath = setup.getTempSpace().createTempPath( new File( setup.getBuildDir(), "tmp/SetupBuilder" ).toPath() );
 
         try {
             if( setup.getServices().isEmpty() && setup.getDesktopStarters().isEmpty() ) {
                 throw new IllegalArgumentException( "No Services or DesktopStarters have been defined. Will stop now." );
             }
 
-            task.getProject().getLogger().lifecycle( "\tPreparing " + task.appBuilders.size() + " services."  );
+            task.getLogger().lifecycle( "\tPreparing " + task.appBuilders.size() + " services."  );
             
             // Build all services
             for( OSXApplicationBuilder builder : task.appBuilders ) {
@@ -553,13 +553,13 @@ public class DmgBuilder extends AbstractBuilder<Dmg, SetupBuilder> {
         ArrayList<String> command = new ArrayList<>();
         command.add( "/usr/bin/osascript" );
 
-        task.getProject().getLogger().lifecycle( "\tSetting DMG display options." );
-        task.getProject().getLogger().debug( applescript.toString() );
+        task.getLogger().lifecycle( "\tSetting DMG display options." );
+        task.getLogger().debug( applescript.toString() );
 
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         exec( command, new ByteArrayInputStream( applescript.toString().getBytes( StandardCharsets.UTF_8 ) ), baos, true );
-        task.getProject().getLogger().lifecycle( "\tDone Setting DMG display options. Ignoring errors if there were any" );
-        task.getProject().getLogger().lifecycle( "\t" + baos.toString() );
+        task.getLogger().lifecycle( "\tDone Setting DMG display options. Ignoring errors if there were any" );
+        task.getLogger().lifecycle( "\t" + baos.toString() );
     }
 
     /**
@@ -570,19 +570,19 @@ public class DmgBuilder extends AbstractBuilder<Dmg, SetupBuilder> {
     private void packageApplescript() throws IOException {
 
         Template applescript = new Template( "dmg/template/package.applescript.txt" );
-        applescript.setPlaceholder( "icon", ImageFactory.getImageFile( task.getProject(), task.getSetupIcon(), buildDir, "icns" ).getAbsolutePath() );
+        applescript.setPlaceholder( "icon", ImageFactory.getImageFile( setup.resolveFiles( task.getSetupIcon() ), buildDir, "icns" ).getAbsolutePath() );
         applescript.setPlaceholder( "package", new File( imageSourceRoot, setup.getApplication() + ".pkg" ).getAbsolutePath() );
 
         ArrayList<String> command = new ArrayList<>();
         command.add( "/usr/bin/osascript" );
 
-        task.getProject().getLogger().lifecycle( "\tSetting display options for package." );
-        task.getProject().getLogger().debug( applescript.toString() );
+        task.getLogger().lifecycle( "\tSetting display options for package." );
+        task.getLogger().debug( applescript.toString() );
 
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         exec( command, new ByteArrayInputStream( applescript.toString().getBytes( StandardCharsets.UTF_8 ) ), baos, true );
-        task.getProject().getLogger().lifecycle( "\tDone Setting DMG display options for package. Ignoring errors if there were any" );
-        task.getProject().getLogger().lifecycle( "\t" + baos.toString() );
+        task.getLogger().lifecycle( "\tDone Setting DMG display options for package. Ignoring errors if there were any" );
+        task.getLogger().lifecycle( "\t" + baos.toString() );
     }
 
     /**
@@ -77,7 +77,7 @@ public class OSXApplicationBuilder extends AbstractOSXApplicationBuilder<Dmg, Se
         if( task.getCodeSign() != null ) {
             task.getCodeSign().signApplication( new File( buildDir, service.getDisplayName() + ".app" ) );
         } else {
-            task.getProject().getLogger().info( "Not codesigning the Servce: not configured" );
+            task.getLogger().info( "Not codesigning the Servce: not configured" );
         }
     }
 
@@ -22,11 +22,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import javax.imageio.ImageIO;
 
 import org.gradle.api.GradleException;
 import org.gradle.api.Project;
+import org.gradle.api.logging.Logging;
 
 import com.inet.gradle.setup.image.icns.IcnsCodec;
 import com.inet.gradle.setup.image.icns.IconSuite;
@@ -63,6 +65,20 @@ public class ImageFactory {
         } else {
             files.add( project.file( data ) );
         }
+        return getImageFile( files, dir, format );
+    }
+
+    /**
+     * Get a file to an icon in the platform format. This does not need the project and can be used while a task is
+     * executing.
+     *
+     * @param files the resolved image files
+     * @param dir directory for temporary build files if the file(s) need converted
+     * @param format the platform format, currently "ico", "icns" and png&lt;size&gt;
+     * @return a file or null if there are no files
+     * @throws IOException if an error occur on reading the image files
+     */
+    public static File getImageFile( List<File> files, File dir, String format ) throws IOException {
         if( files.size() == 0 ) {
             return null;
         }
@@ -123,7 +139,7 @@ public class ImageFactory {
                                 suite.setThumbnailIcon( img );
                                 break;
                             default:
-                                project.getLogger().error( "Ignore icon size: " + img.getWidth() );
+                                Logging.getLogger( ImageFactory.class ).error( "Ignore icon size: " + img.getWidth() );
                         }
                     }
                     new IcnsCodec().encode( suite, fos );
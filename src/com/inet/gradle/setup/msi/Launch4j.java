@@ -2,6 +2,9 @@ package com.inet.gradle.setup.msi;
 
 import java.io.Serializable;
 
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+
 import com.inet.gradle.setup.abstracts.AbstractSetupBuilder;
 import com.inet.gradle.setup.abstracts.DesktopStarter;
 
@@ -32,6 +35,8 @@ public class Launch4j extends DesktopStarter implements Serializable {
      *
      * @return the requested execution level, <code>"requireAdministrator"</code> by default or <code>null</code> if unset
      */
+    @Input
+    @Optional
     public String getRequestedExecutionLevel() {
         return requestedExecutionLevel;
     }
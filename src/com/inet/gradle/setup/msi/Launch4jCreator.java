@@ -27,6 +27,7 @@ import org.gradle.api.GradleException;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.file.FileCollection;
 
 import com.inet.gradle.setup.SetupBuilder;
 import com.inet.gradle.setup.util.ResourceUtils;
@@ -54,7 +55,7 @@ public class Launch4jCreator {
         File outfile = config.build();
         config.save();
 
-        Class<?> clazz = Class.forName( "net.sf.launch4j.Main", true, getClassLoader( task.getProject(), task.getTemporaryDir() ) );
+        Class<?> clazz = Class.forName( "net.sf.launch4j.Main", true, getClassLoader( task.getLaunch4jClasspath(), task.getTemporaryDir() ) );
         String[] args = { config.xmlFile.getAbsolutePath() };
         clazz.getMethod( "main", String[].class ).invoke( null, (Object)args );
 
@@ -65,31 +66,41 @@ public class Launch4jCreator {
     }
 
     /**
-     * Download the lauch4j and create a classloader
+     * Get the configuration with the lauch4j dependencies. It must be created while configuring, the download runs on
+     * first use of the files.
      *
      * @param project current project
+     * @return the configuration
+     */
+    static Configuration getConfiguration( Project project ) {
+        String configName = "setupLaunch4j";
+        Configuration config = project.getConfigurations().findByName( configName );
+        if( config == null ) {
+            config = project.getConfigurations().create( configName );
+            config.setVisible( false );
+            config.setTransitive( false );
+            DependencyHandler dependencies = project.getDependencies();
+            dependencies.add( configName, "net.sf.launch4j:launch4j:3.12" );
+            dependencies.add( configName, "net.sf.launch4j:launch4j:3.12:workdir-win32" );
+            dependencies.add( configName, "com.thoughtworks.xstream:xstream:1.4.11.1" );
+        }
+        return config;
+    }
+
+    /**
+     * Download the lauch4j and create a classloader
+     *
+     * @param config the lauch4j dependencies
      * @param buildDir current temp directory
      * @return the ClassLoader for lauch4j
      * @throws IOException if any error occur
      */
-    private ClassLoader getClassLoader( Project project, File buildDir ) throws IOException {
+    private ClassLoader getClassLoader( FileCollection config, File buildDir ) throws IOException {
         if( lauch4jClassLoader == null ) {
-            String configName = "setupLaunch4j";
-            Configuration config = project.getConfigurations().findByName( configName );
-            if( config == null ) {
-                config = project.getConfigurations().create( configName );
-                config.setVisible( false );
-                config.setTransitive( false );
-                DependencyHandler dependencies = project.getDependencies();
-                dependencies.add( configName, "net.sf.launch4j:launch4j:3.12" );
-                dependencies.add( configName, "net.sf.launch4j:launch4j:3.12:workdir-win32" );
-                dependencies.add( configName, "com.thoughtworks.xstream:xstream:1.4.11.1" );
-            }
-
             ArrayList<URL> urls = new ArrayList<>();
             File libDir = new File( buildDir, "launch4jlib" );
             libDir.mkdirs();
-            for( File file : config.getFiles() ) {
+            for( File file : config ) {
                 String name = file.getName();
                 if( name.endsWith( ".jar" ) ) {
                     //https://github.com/TheBoegl/gradle-launch4j/blob/develop/src/main/groovy/edu/sc/seis/launch4j/Launch4jPlugin.groovy
@@ -27,14 +27,20 @@ import java.util.List;
 
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
-import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.util.ConfigureUtil;
 
+import com.inet.gradle.setup.SetupBuilder;
 import com.inet.gradle.setup.abstracts.AbstractSetupTask;
+import com.inet.gradle.setup.abstracts.PlanManifest;
+import com.inet.gradle.setup.abstracts.Service;
 import com.inet.gradle.setup.util.ResourceUtils;
 
 import groovy.lang.Closure;
@@ -61,6 +67,8 @@ public class Msi extends AbstractSetupTask {
 
     private List<Launch4j>             launch4j           = new ArrayList<>();
 
+    private FileCollection             launch4jClasspath;
+
     private int                        multiInstanceCount = 1;
 
     private InstallScope               installScope;
@@ -83,6 +91,8 @@ public class Msi extends AbstractSetupTask {
      */
     public Msi() {
         super( "msi" );
+        // only a reproducible setup is identical to a setup from the cache
+        getOutputs().cacheIf( "sourceDateEpoch is set", task -> getSetupBuilder().isReproducible() );
     }
 
     /**
@@ -91,6 +101,10 @@ public class Msi extends AbstractSetupTask {
     @Override
     public void build() {
 
+        // the setup is not stored with the serializable resources, for example by the configuration cache
+        for( MsiLocalizedResource resource : i18n ) {
+            resource.setSetup( getSetupBuilder() );
+        }
         try {
             // Extract default language Resources
             MsiLocalizedResource resource = new MsiLocalizedResource( getSetupBuilder(), getTemporaryDir() );
@@ -108,8 +122,7 @@ public class Msi extends AbstractSetupTask {
             throw new GradleException( "Could not extract required ressources.", e );
         }
 
-        ProjectInternal project = (ProjectInternal)getProject();
-        new MsiBuilder( this, getSetupBuilder(), project.getFileResolver() ).build();
+        new MsiBuilder( this, getSetupBuilder(), getFileResolver() ).build();
     }
 
     /**
@@ -120,6 +133,43 @@ public class Msi extends AbstractSetupTask {
         super.processFiles( action );
     }
 
+    /**
+     * {@inheritDoc} The files are installed below the INSTALLDIR. The bundled JRE, the service wrappers and the
+     * launch4j starters are added like the builder creates them.
+     */
+    @Override
+    protected void plan( PlanManifest manifest ) {
+        SetupBuilder setup = getSetupBuilder();
+        String root = "[INSTALLDIR]/";
+        planFiles( manifest, root );
+
+        Object jre = setup.getBundleJre();
+        String jreTarget = root + setup.getBundleJreTarget();
+        if( setup.isBundleJreMinimal() ) {
+            manifest.addGenerated( jreTarget, "minimal JRE, created with jlink while building" );
+        } else if( jre != null ) {
+            File jreDir = resolveFile( jre );
+            if( jreDir.isDirectory() ) {
+                manifest.addDirectory( jreTarget, jreDir );
+            } else {
+                manifest.addGenerated( jreTarget, "installed JRE of the version " + jre + ", searched while building" );
+            }
+        }
+
+        for( Service service : setup.getServices() ) {
+            String workDir = service.getWorkDir();
+            String dir = root + (workDir != null && !workDir.isEmpty() ? workDir.replace( '\\', '/' ) + '/' : "");
+            manifest.addGenerated( dir + service.getWrapper() + ".exe", "service wrapper of " + service.getId() );
+            manifest.addGenerated( dir + service.getId() + ".exe", "service manager of " + service.getId() );
+        }
+
+        for( Launch4j launch : getLaunch4js() ) {
+            String workDir = launch.getWorkDir();
+            String dir = root + (workDir != null && !workDir.isEmpty() ? workDir.replace( '\\', '/' ) + '/' : "");
+            manifest.addGenerated( dir + launch.getExecutable(), "launch4j starter" );
+        }
+    }
+
     /**
      * If this installer should run only on windows 32 bit versions.
      *
@@ -184,10 +234,11 @@ public class Msi extends AbstractSetupTask {
      * @return the file
      */
     @InputFile
+    @PathSensitive( PathSensitivity.RELATIVE )
     @Optional
     public File getBannerBmp() {
         if( bannerBmp != null ) {
-            return getProject().file( bannerBmp );
+            return resolveFile( bannerBmp );
         }
         return null;
     }
@@ -207,10 +258,11 @@ public class Msi extends AbstractSetupTask {
      * @return the BMP
      */
     @InputFile
+    @PathSensitive( PathSensitivity.RELATIVE )
     @Optional
     public File getDialogBmp() {
         if( dialogBmp != null ) {
-            return getProject().file( dialogBmp );
+            return resolveFile( dialogBmp );
         }
         return null;
     }
@@ -263,7 +315,7 @@ public class Msi extends AbstractSetupTask {
     @Input
     public URL getWxsTemplateURL() throws MalformedURLException {
         if( wxsTemplate != null ) {
-            return getProject().file( wxsTemplate ).toURI().toURL();
+            return resolveFile( wxsTemplate ).toURI().toURL();
         }
         return getClass().getResource( "template.wxs" );
     }
@@ -275,10 +327,11 @@ public class Msi extends AbstractSetupTask {
      * @throws MalformedURLException if any error occur
      */
     @InputFile
+    @PathSensitive( PathSensitivity.RELATIVE )
     @Optional
     public File getWxsTemplate() throws MalformedURLException {
         if( wxsTemplate != null ) {
-            return getProject().file( wxsTemplate );
+            return resolveFile( wxsTemplate );
         }
         return null;
     }
@@ -378,7 +431,7 @@ public class Msi extends AbstractSetupTask {
      */
     public void launch4j( Closure<Launch4j> closue ) {
         Launch4j service = ConfigureUtil.configure( closue, new Launch4j( getSetupBuilder() ) );
-        launch4j.add( service );
+        addLaunch4j( service );
     }
     
     /**
@@ -389,15 +442,36 @@ public class Msi extends AbstractSetupTask {
     public void launch4j( Action<Launch4j> action ) {
         Launch4j launcher = new Launch4j( getSetupBuilder() );
         action.execute(launcher);
+        addLaunch4j( launcher );
+    }
+
+    /**
+     * Add a launcher and create the configuration with the lauch4j dependencies while configuring.
+     *
+     * @param launcher the launcher
+     */
+    private void addLaunch4j( Launch4j launcher ) {
+        if( launch4jClasspath == null ) {
+            launch4jClasspath = Launch4jCreator.getConfiguration( getProject() );
+        }
         launch4j.add( launcher );
     }
 
+    /**
+     * Get the lauch4j dependencies.
+     *
+     * @return the files or null if there is no launcher
+     */
+    FileCollection getLaunch4jClasspath() {
+        return launch4jClasspath;
+    }
+
     /**
      * Returns the registered launcher.
      *
      * @return the registered launcher
      */
-    @Input
+    @Nested
     public List<Launch4j> getLaunch4js() {
         return launch4j;
     }
@@ -431,7 +505,7 @@ public class Msi extends AbstractSetupTask {
     @Input
     public URL getMultiInstanceScript() throws MalformedURLException {
         if( multiInstanceScript != null ) {
-            return getProject().file( multiInstanceScript ).toURI().toURL();
+            return resolveFile( multiInstanceScript ).toURI().toURL();
         }
         return getClass().getResource( "MultiInstance.vbs" );
     }
@@ -576,6 +650,7 @@ public class Msi extends AbstractSetupTask {
      * @return registered  external  wsx files
      */
     @InputFiles
+    @PathSensitive( PathSensitivity.RELATIVE )
     public List<File> getExternals() {
         return externals;
     }
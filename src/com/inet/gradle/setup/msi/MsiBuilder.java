@@ -18,8 +18,6 @@ package com.inet.gradle.setup.msi;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -31,10 +29,10 @@ import org.gradle.api.internal.file.FileResolver;
 
 import com.inet.gradle.setup.SetupBuilder;
 import com.inet.gradle.setup.abstracts.AbstractBuilder;
+import com.inet.gradle.setup.abstracts.ToolWorker;
+import com.inet.gradle.setup.util.JarNormalizer;
 import com.inet.gradle.setup.util.ResourceUtils;
 
-import groovy.lang.Closure;
-
 /**
  * Build a MSI setup for Windows.
  *
@@ -62,12 +60,14 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
     void build() {
         try {
 
+            // the launch4j starters are part of the file snapshot that both passes of the WXS file use
+            buildLauch4j();
+
             File wxsFile = getWxsFile();
             URL template = task.getWxsTemplateURL();
             new WxsFileBuilder( task, setup, wxsFile, buildDir, template, false ).build();
             template = wxsFile.toURI().toURL();
 
-            buildLauch4j();
             candle();
 
             ResourceUtils.extract( getClass(), "sdk/MsiTran.exe", buildDir );
@@ -88,23 +88,32 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
             }
 
             // Now create a msi with all files
-            new WxsFileBuilder( task, setup, wxsFile, buildDir, template, true ).build();
-            candle();
-            mui = light( languages.get( 0 ), languageResources );
+            WxsFileBuilder wxsBuilder = new WxsFileBuilder( task, setup, wxsFile, buildDir, template, true );
+            wxsBuilder.build();
+
+            // the tools of the final msi run in a worker after the task action
+            List<ToolWorker.Command> commands = new ArrayList<>();
+            commands.add( new ToolWorker.Command( candleCommand() ) );
+            mui = getLightFile( languages.get( 0 ) );
+            commands.add( new ToolWorker.Command( lightCommand( languages.get( 0 ), languageResources, mui ) ) );
 
             // Add the translations to the msi with all files
             StringBuilder langIDs = new StringBuilder( languages.get( 0 ).getLangID() );
             for( Entry<MsiLanguages, File> entry : translations.entrySet() ) {
                 MsiLanguages language = entry.getKey();
                 File mst = entry.getValue();
-                addTranslation( mui, mst, language );
+                commands.add( addTranslation( mui, mst, language ) );
                 langIDs.append( ',' ).append( language.getLangID() );
             }
-            patchLangID( mui, langIDs.toString() );
+            commands.add( patchLangID( mui, langIDs.toString() ) );
 
             // signing and moving the final msi file
-            signTool( mui );
-            Files.move( mui.toPath(), task.getSetupFile().toPath(), StandardCopyOption.REPLACE_EXISTING );
+            commands.addAll( signCommands( mui ) );
+            JarNormalizer jarNormalizer = wxsBuilder.getJarNormalizer();
+            if( jarNormalizer != null && jarNormalizer.hasNormalized() ) {
+                task.getLogger().lifecycle( "\t" + jarNormalizer.getReport( 0 ) );
+            }
+            submit( task.getSetupFile(), mui, commands, jarNormalizer );
         } catch( RuntimeException ex ) {
             throw ex;
         } catch( Exception ex ) {
@@ -143,8 +152,7 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
             for( Launch4j launch : task.getLaunch4js() ) {
                 File file = creator.create( launch, task, setup );
                 signTool( file );
-                CopySpec copySpec = task.getProject().copySpec( (Closure<CopySpec>)null );
-                task.with( copySpec );
+                CopySpec copySpec = task.getRootSpec().addChild();
                 copySpec.from( file );
                 String workDir = launch.getWorkDir();
                 if( workDir != null && !workDir.isEmpty() ) {
@@ -156,21 +164,20 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
     }
 
     /**
-     * Call a program from the WIX installation.
-     *
-     * @param tool the program name
-     * @param parameters the parameters
+     * Call the candle.exe tool.
      */
-    private void callWixTool( String tool, ArrayList<String> parameters ) {
-        parameters.add( 0, getToolPath( tool ) );
-        exec( parameters );
+    private void candle() {
+        exec( candleCommand() );
     }
 
     /**
-     * Call the candle.exe tool.
+     * Get the command line of the candle.exe tool.
+     *
+     * @return the command line
      */
-    private void candle() {
+    private ArrayList<String> candleCommand() {
         ArrayList<String> parameters = new ArrayList<>();
+        parameters.add( getToolPath( "candle.exe" ) );
         parameters.add( "-nologo" );
         parameters.add( "-arch" );
         parameters.add( task.getArch() );
@@ -186,8 +193,7 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
         }
         parameters.add( "-ext" );
         parameters.add( "WixUtilExtension" );
-
-        callWixTool( "candle.exe", parameters );
+        return parameters;
     }
 
     /**
@@ -198,8 +204,32 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
      * @return the generated msi file
      */
     private File light( MsiLanguages language, String[] languageResources ) {
-        File out = new File( buildDir, setup.getArchiveName() + '_' + language.getCulture() + ".msi" );
+        File out = getLightFile( language );
+        exec( lightCommand( language, languageResources, out ) );
+        return out;
+    }
+
+    /**
+     * Get the msi file that the light.exe tool creates for a language.
+     *
+     * @param language the target language
+     * @return the msi file
+     */
+    private File getLightFile( MsiLanguages language ) {
+        return new File( buildDir, setup.getArchiveName() + '_' + language.getCulture() + ".msi" );
+    }
+
+    /**
+     * Get the command line of the light.exe tool.
+     *
+     * @param language the target language
+     * @param languageResources the language resource files
+     * @param out the msi file to create
+     * @return the command line
+     */
+    private ArrayList<String> lightCommand( MsiLanguages language, String[] languageResources, File out ) {
         ArrayList<String> parameters = new ArrayList<>();
+        parameters.add( getToolPath( "light.exe" ) );
         parameters.add( "-nologo" );
         parameters.add( "-sice:ICE60" ); // accept *.ttf files to install in the install directory
         for(String extension : task.getWixExtensions()){
@@ -235,8 +265,7 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
         }
 
         parameters.add( "*.wixobj" );
-        callWixTool( "light.exe", parameters );
-        return out;
+        return parameters;
     }
 
     /**
@@ -261,8 +290,9 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
      *
      * @param mui the multilingual user interface (MUI) installer file
      * @param langIDs a comma separated list of languages IDs
+     * @return the command
      */
-    private void patchLangID( File mui, String langIDs ) {
+    private ToolWorker.Command patchLangID( File mui, String langIDs ) {
         ArrayList<String> parameters = new ArrayList<>();
         parameters.add( "cscript" );
         parameters.add( "//Nologo" );
@@ -270,7 +300,7 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
         parameters.add( mui.getAbsolutePath() );
         parameters.add( "Package" );
         parameters.add( langIDs );
-        exec( parameters );
+        return new ToolWorker.Command( parameters );
     }
 
     /**
@@ -299,8 +329,9 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
      * @param mui the multilingual user interface (MUI) installer file
      * @param mst the transform file
      * @param language current language
+     * @return the command
      */
-    private void addTranslation( File mui, File mst, MsiLanguages language ) {
+    private ToolWorker.Command addTranslation( File mui, File mst, MsiLanguages language ) {
         ArrayList<String> parameters = new ArrayList<>();
         parameters.add( "cscript" );
         parameters.add( "//Nologo" );
@@ -308,8 +339,7 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
         parameters.add( mui.getAbsolutePath() );
         parameters.add( mst.getAbsolutePath() );
         parameters.add( language.getLangID() );
-        exec( parameters );
-        mst.delete(); // after adding the mst file we does not need it anymore
+        return new ToolWorker.Command( parameters );
     }
 
     /**
@@ -319,9 +349,40 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
      * @throws IOException If any I/O error occur on loading of the sign tool
      */
     private void signTool( File file ) throws IOException {
+        for( ToolWorker.Command command : signCommands( file ) ) {
+            RuntimeException allEx = null;
+            for( List<String> commandLine : command.getCommandLines() ) {
+                try {
+                    exec( new ArrayList<>( commandLine ) );
+                    allEx = null;
+                    break; // the command is ok, if no exception occur
+                } catch( RuntimeException ex ) {
+                    if( allEx == null ) {
+                        allEx = ex;
+                    } else {
+                        allEx.addSuppressed( ex );
+                    }
+                    task.getLogger().lifecycle( "Command failed: " + ex );
+                }
+            }
+            if( allEx != null ) {
+                throw allEx;
+            }
+        }
+    }
+
+    /**
+     * Get the commands to sign a file if the needed information are set. The timestamp servers are alternatives.
+     *
+     * @param file file to sign
+     * @return the commands, empty if there are no sign information
+     * @throws IOException If any I/O error occur on loading of the sign tool
+     */
+    private List<ToolWorker.Command> signCommands( File file ) throws IOException {
+        List<ToolWorker.Command> commands = new ArrayList<>();
         SignTool sign = task.getSignTool();
         if( sign == null ) {
-            return; // no sign information set
+            return commands; // no sign information set
         }
         String tool = ResourceUtils.extract( getClass(), "sdk/signtool.exe", buildDir ).getAbsolutePath();
 
@@ -331,7 +392,7 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
         parameters.add( "sign" );
         if( sign.getCertificate() != null ) {
             parameters.add( "/f" );
-            parameters.add( task.getProject().file( sign.getCertificate() ).getAbsolutePath() );
+            parameters.add( fileResolver.resolve( sign.getCertificate() ).getAbsolutePath() );
         }
         if( sign.getPassword() != null ) {
             parameters.add( "/p" );
@@ -346,12 +407,12 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
         parameters.add( setup.getApplication() );
 
         parameters.add( file.getAbsolutePath() );
-        exec( parameters );
+        commands.add( new ToolWorker.Command( parameters ) );
 
-        // timestamp the signing
+        // timestamp the signing, the first server that works
         List<String> servers = sign.getTimestamp();
         if( servers != null ) {
-            RuntimeException allEx = null;
+            ToolWorker.Command timestamp = null;
             for( String server : servers ) {
                 parameters = new ArrayList<>();
                 parameters.add( tool );
@@ -359,23 +420,17 @@ class MsiBuilder extends AbstractBuilder<Msi,SetupBuilder> {
                 parameters.add( "/t" );
                 parameters.add( server );
                 parameters.add( file.getAbsolutePath() );
-                try {
-                    exec( parameters );
-                    allEx = null;
-                    break; // timestamp is ok, if no exception occur
-                } catch( RuntimeException ex ) {
-                    if( allEx == null ) {
-                        allEx = ex;
-                    } else {
-                        allEx.addSuppressed( ex );
-                    }
-                    task.getProject().getLogger().lifecycle( "Timestamp failed: " + ex );
+                if( timestamp == null ) {
+                    timestamp = new ToolWorker.Command( parameters );
+                } else {
+                    timestamp.orElse( parameters );
                 }
             }
-            if( allEx != null ) {
-                throw allEx;
+            if( timestamp != null ) {
+                commands.add( timestamp );
             }
         }
+        return commands;
     }
 
     /**
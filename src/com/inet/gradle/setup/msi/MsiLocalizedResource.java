@@ -57,7 +57,7 @@ public class MsiLocalizedResource implements Serializable {
 
         File input;
         if( !(resource instanceof File) ) {
-            input = setup.getProject().file( resource );
+            input = setup.resolveFile( resource );
         } else {
             input = (File)resource;
         }
@@ -123,6 +123,15 @@ public class MsiLocalizedResource implements Serializable {
         this.locale = MsiLanguages.getMsiLanguage( locale );
     }
 
+    /**
+     * Set the setup again after the resource was deserialized.
+     *
+     * @param setup the setup
+     */
+    void setSetup( SetupBuilder setup ) {
+        this.setup = setup;
+    }
+
     /**
      * @param resource the resource to set
      */
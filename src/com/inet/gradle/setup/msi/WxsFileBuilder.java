@@ -27,16 +27,23 @@ import java.io.StringReader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.UUID;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import javax.swing.JEditorPane;
@@ -48,16 +55,18 @@ import javax.xml.parsers.ParserConfigurationException;
 
 import com.inet.gradle.setup.util.Strings;
 import org.gradle.api.GradleException;
-import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
-import org.gradle.api.internal.file.copy.FileCopyDetailsInternal;
 import org.w3c.dom.Element;
 
 import com.inet.gradle.setup.SetupBuilder;
 import com.inet.gradle.setup.abstracts.DesktopStarter;
 import com.inet.gradle.setup.abstracts.DocumentType;
+import com.inet.gradle.setup.abstracts.FileSnapshot;
 import com.inet.gradle.setup.abstracts.LocalizedResource;
 import com.inet.gradle.setup.abstracts.ProtocolHandler;
 import com.inet.gradle.setup.abstracts.Service;
+import com.inet.gradle.setup.util.JarNormalizer;
+import com.inet.gradle.setup.util.JreInspector;
+import com.inet.gradle.setup.util.MinimalRuntime;
 import com.inet.gradle.setup.util.ResourceUtils;
 import com.inet.gradle.setup.util.XmlFileBuilder;
 
@@ -80,6 +89,21 @@ class WxsFileBuilder extends XmlFileBuilder<Msi> {
 
     private boolean                 isAddFiles;
 
+    /**
+     * Files of a size that was not hashed yet, with the ID of its File node
+     */
+    private HashMap<Long, List<SimpleEntry<File, String>>> unhashedFiles = new HashMap<>();
+
+    /**
+     * The IDs of the File nodes by the hash of the content
+     */
+    private HashMap<String, String> fileIdsByHash = new HashMap<>();
+
+    /**
+     * The normalizer of the jar files or null if disabled
+     */
+    private JarNormalizer           jarNormalizer;
+
     /**
      * The product node in the XML.
      */
@@ -119,7 +143,8 @@ class WxsFileBuilder extends XmlFileBuilder<Msi> {
 
         // Product node
         product = getOrCreateChild( wix, "Product" );
-        addAttributeIfNotExists( product, "Id", UUID.randomUUID().toString() ); // for multiple instances, every language transformation must have the same ProductCode
+        // for multiple instances, every language transformation must have the same ProductCode
+        addAttributeIfNotExists( product, "Id", setup.isReproducible() ? getGuid( "ProductCode" + task.getVersion() + task.getArch() ) : UUID.randomUUID().toString() );
         addAttributeIfNotExists( product, "Language", "1033" );
         addAttributeIfNotExists( product, "Manufacturer", setup.getVendor() );
         addAttributeIfNotExists( product, "Name", setup.getApplication() );
@@ -155,36 +180,29 @@ class WxsFileBuilder extends XmlFileBuilder<Msi> {
         Element appDirectory = getOrCreateChildById( programFiles, "Directory", "INSTALLDIR" );
         addAttributeIfNotExists( appDirectory, "Name", setup.getApplication() );
 
-        //Files
+        //Files, sorted by the target path so that the order of the components does not depend on the file system
         installDir = getOrCreateChildById( product, "DirectoryRef", "INSTALLDIR" );
-        task.processFiles( new CopyActionProcessingStreamAction() {
-            @Override
-            public void processFile( FileCopyDetailsInternal details ) {
-                try {
-                    if( !details.isDirectory() ) {
-                        String[] segments = details.getRelativePath().getSegments();
-                        File file;
-                        try {
-                            file = details.getFile();
-                        } catch( UnsupportedOperationException ex ) {
-                            // if there is set an filter then we need to copy it
-                            File buildDir = task.getTemporaryDir();
-                            file = new File( buildDir, details.getRelativePath().getPathString() );
-                            details.copyTo( file );
-                        }
-                        addFile( file, segments );
-                    }
-                } catch( Exception ex ) {
-                    throw new GradleException( "Can't add file: " + details, ex );
-                }
-            }
-        } );
+        List<SimpleEntry<String[], File>> files = new ArrayList<>();
+        // the snapshot is shared by both passes, the filtered content is already written
+        for( FileSnapshot.Entry entry : task.getFileSnapshot().getEntries() ) {
+            files.add( new SimpleEntry<>( entry.getRelativePath().getSegments(), entry.getSource() ) );
+        }
+        files.sort( Comparator.comparing( entry -> String.join( "/", entry.getKey() ) ) );
+        if( setup.isReproducible() ) {
+            addAttributeIfNotExists( packge, "Id", getPackageCode( files ) );
+        }
+        if( isAddFiles ) {
+            normalizeJars( files );
+        }
+        for( SimpleEntry<String[], File> entry : files ) {
+            addFile( entry.getValue(), entry.getKey(), true );
+        }
 
         setMinimumOsVersion();
         setOnly32BitCondition();
         saveLoadLastInstallDir();
         addMultiInstanceTransforms();
-        addBundleJre();
+        addBundleJre( files.stream().map( SimpleEntry::getValue ).filter( file -> file.getName().endsWith( ".jar" ) ).collect( Collectors.toList() ) );
         addGUI();
         addIcon();
         addServices();
@@ -383,8 +401,22 @@ class WxsFileBuilder extends XmlFileBuilder<Msi> {
      *
      * @param file the file to add.
      * @param segments the segments of the path in the target. The last segment contains the file name.
+     * @return the ID of the File node
      */
     private String addFile( File file, String[] segments ) {
+        return addFile( file, segments, false );
+    }
+
+    /**
+     * Add a file to the setup
+     *
+     * @param file the file to add.
+     * @param segments the segments of the path in the target. The last segment contains the file name.
+     * @param deduplicate true, if a byte identical copy of an already added file is added as CopyFile node. The cabinet
+     *            contains then the content only once. The ID of a copy can not be referenced as file.
+     * @return the ID of the File or CopyFile node
+     */
+    private String addFile( File file, String[] segments, boolean deduplicate ) {
         Element parent = getDirectory( segments );
 
         String pathID = id( segments, segments.length - 1 );
@@ -393,10 +425,21 @@ class WxsFileBuilder extends XmlFileBuilder<Msi> {
         Element component = getComponent( parent, compID );
 
         String name = segments[segments.length - 1];
-        String id = addFile( component, file, segments, isAddFiles );
+        String id = id( segments, segments.length );
+        String originalID = deduplicate && isAddFiles ? findIdenticalFile( file, id ) : null;
+        // the same target path can be added twice, then the existing File node is reused like without deduplication
+        if( originalID != null && !originalID.equals( id ) ) {
+            Element copyFile = getOrCreateChildById( component, "CopyFile", id );
+            addAttributeIfNotExists( copyFile, "FileId", originalID );
+            addAttributeIfNotExists( copyFile, "DestinationDirectory", parent.getAttribute( "Id" ) );
+            addAttributeIfNotExists( copyFile, "DestinationName", name );
+            getOrCreateChild( component, "CreateFolder" ); // key path of a component without File
+        } else {
+            addFile( component, file, segments, isAddFiles );
+        }
 
         // Debug Output of files that will be added
-        task.getProject().getLogger().debug( "\t\tadding file: '" +file.toString() + "' '" + name + "' '" + id + "' '" + pathID + "' '" + compID + "' '" + String.join( "%", segments ) + "'" );
+        task.getLogger().debug( "\t\tadding file: '" +file.toString() + "' '" + name + "' '" + id + "' '" + pathID + "' '" + compID + "' '" + String.join( "%", segments ) + "'" );
 
         // save the jvm.dll position
         if( name.equals( "jvm.dll" ) ) {
@@ -435,6 +478,94 @@ class WxsFileBuilder extends XmlFileBuilder<Msi> {
         return id;
     }
 
+    /**
+     * Replace the jar files with normalized copies in the temporary directory, if enabled. The original files are not
+     * modified.
+     *
+     * @param files the files of the setup with its target path
+     * @throws IOException if an I/O error occurs
+     */
+    private void normalizeJars( List<SimpleEntry<String[], File>> files ) throws IOException {
+        if( !setup.isNormalizeJars() ) {
+            return;
+        }
+        long time = setup.isReproducible() ? setup.getBuildTime() : JarNormalizer.DEFAULT_TIME;
+        jarNormalizer = new JarNormalizer( setup.getNormalizeJarsLevel(), time );
+        File normalizedDir = new File( task.getTemporaryDir(), "normalizedJars" );
+        Map<Path, Path> jars = new LinkedHashMap<>();
+        for( SimpleEntry<String[], File> entry : files ) {
+            if( entry.getValue().getName().endsWith( ".jar" ) ) {
+                File target = new File( normalizedDir, String.join( "/", entry.getKey() ) );
+                jars.put( entry.getValue().toPath(), target.toPath() );
+                entry.setValue( target );
+            }
+        }
+        jarNormalizer.normalize( jars );
+    }
+
+    /**
+     * Get the normalizer of the jar files.
+     *
+     * @return the normalizer or null if the jar files are not normalized
+     */
+    JarNormalizer getJarNormalizer() {
+        return jarNormalizer;
+    }
+
+    /**
+     * Find a byte identical file that was already added. Only files with the same size are hashed. If there is no such
+     * file then the new file is registered for the next search.
+     *
+     * @param file the new file
+     * @param id the ID for the File node of the new file
+     * @return the ID of the File node of the identical file or null
+     */
+    private String findIdenticalFile( File file, String id ) {
+        long size = file.length();
+        if( size == 0 ) {
+            return null;
+        }
+        List<SimpleEntry<File, String>> unhashed = unhashedFiles.get( size );
+        if( unhashed == null ) {
+            // first file of this size, hash it only if a second file of the size is added
+            unhashed = new ArrayList<>();
+            unhashed.add( new SimpleEntry<>( file, id ) );
+            unhashedFiles.put( size, unhashed );
+            return null;
+        }
+        for( SimpleEntry<File, String> entry : unhashed ) {
+            fileIdsByHash.putIfAbsent( hash( entry.getKey() ), entry.getValue() );
+        }
+        unhashed.clear();
+        String hash = hash( file );
+        String originalID = fileIdsByHash.get( hash );
+        if( originalID == null ) {
+            fileIdsByHash.put( hash, id );
+        }
+        return originalID;
+    }
+
+    /**
+     * Calculate the hash of a file content.
+     *
+     * @param file the file
+     * @return the hash
+     */
+    private static String hash( File file ) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance( "SHA-256" );
+            byte[] buffer = new byte[65536];
+            try( InputStream input = new FileInputStream( file ) ) {
+                for( int count; (count = input.read( buffer )) > 0; ) {
+                    digest.update( buffer, 0, count );
+                }
+            }
+            return Base64.getEncoder().encodeToString( digest.digest() );
+        } catch( IOException | NoSuchAlgorithmException ex ) {
+            throw new GradleException( "Can't read file: " + file, ex );
+        }
+    }
+
     /**
      * Add all files in a directory.
      *
@@ -448,27 +579,31 @@ class WxsFileBuilder extends XmlFileBuilder<Msi> {
                 addDirectory( file, baseLength, target );
             } else {
                 String name = file.getAbsolutePath().substring( baseLength );
-                addFile( file, segments( (target + name) ) );
+                addFile( file, segments( (target + name) ), true );
             }
         }
     }
 
     /**
      * Bundle a JRE if setup.
+     *
+     * @param jars the jar files of the setup, used for a minimal JRE
+     * @throws IOException if the minimal JRE can not be created
      */
-    private void addBundleJre() {
+    private void addBundleJre( List<File> jars ) throws IOException {
         Object jre = setup.getBundleJre();
-        if( jre == null ) {
+        boolean minimal = setup.isBundleJreMinimal();
+        if( jre == null && !minimal ) {
             return;
         }
         File jreDir;
         try {
-            jreDir = task.getProject().file( jre );
+            jreDir = jre == null ? null : task.resolveFile( jre );
         } catch( Exception e ) {
             jreDir = null;
         }
 
-        if( jreDir == null || !jreDir.isDirectory() ) {
+        if( jre != null && (jreDir == null || !jreDir.isDirectory()) ) {
             // bundleJRE is not a directory, we interpret it as a version number
             String programFiles = System.getenv( task.is64Bit() ? "ProgramW6432" : "ProgramFiles(x86)" );
             if( programFiles == null ) {
@@ -479,21 +614,28 @@ class WxsFileBuilder extends XmlFileBuilder<Msi> {
                 throw new GradleException( "No installed Java VMs found: " + java );
             }
 
-            List<File> versions = getMatchingJREs(java, jre.toString());
+            List<JreInspector> versions = getMatchingJREs( java, jre.toString(), minimal );
 
             if( versions.isEmpty() ) {
-                throw new GradleException( "bundleJre version " + jre + " can not be found in: '" + java + "' Its search for an folder that starts with: jre" + jre );
+                throw new GradleException( "bundleJre version " + jre + " can not be found in: '" + java + "' Its search for a runtime with the release version: " + jre );
             }
 
-            Collections.sort( versions );
-            jreDir = versions.get( versions.size() - 1 );
-            if ( jreDir.getName().startsWith( "jdk" ) ) {
-                // if this was a jdk, we have to use the jre subdirectory
-                jreDir = new File( jreDir, "jre" );
-            }
+            versions.sort( JreInspector::compareVersion );
+            // a JDK up to Java 8 is resolved to its jre subdirectory
+            jreDir = versions.get( versions.size() - 1 ).getHome();
         }
 
-        task.getProject().getLogger().lifecycle( "\tbundle jre: " + jreDir );
+        if( minimal ) {
+            // jdeps and jlink of the JDK, or of the JDK that runs the build if there is no bundleJre
+            jreDir = MinimalRuntime.create( jreDir, jars, setup.getBundleJreModules() );
+        }
+
+        JreInspector inspector = JreInspector.get( jreDir );
+        task.getLogger().lifecycle( "\tbundle jre: " + jreDir + " (" + inspector + ")" );
+        String arch = inspector.getArchitecture();
+        if( arch != null && task.is64Bit() != (arch.equals( "amd64" ) || arch.equals( "aarch64" ) || arch.equals( "ia64" )) ) {
+            task.getLogger().warn( "\tThe architecture of the bundled jre '" + arch + "' does not match the setup architecture '" + task.getArch() + "'" );
+        }
 
         int baseLength = jreDir.getAbsolutePath().length();
         javaDir = setup.getBundleJreTarget().replace( '/', '\\' );
@@ -505,35 +647,39 @@ class WxsFileBuilder extends XmlFileBuilder<Msi> {
     }
 
     /**
-     * Gets all matching jres in the specified folder
+     * Gets all matching jres in the specified folder. The version is read from the release file of the runtimes.
      * @param parent the folder to search in
-     * @param jre the jre string to match
-     * @return returns a list of matching jre folders
+     * @param jre the version prefix to match, for example "1.8" or "11"
+     * @param jdk true, search a jdk for a minimal runtime
+     * @return returns a list of matching runtimes
      */
-    private List<File> getMatchingJREs(File parent, String jre) {
-    	// Always remove "1." from the version number. It is optionally included in the pattern below
-        if (jre.length() > 2 && jre.startsWith( "1." )) {
-        	jre = jre.substring(2);
-        }
-        Pattern jreMatcher = Pattern.compile("\\Aj(re|dk)-?(1\\.)?"+Pattern.quote(jre));
-        List<File> versions = Arrays.asList(
-        	parent.listFiles(file->jreMatcher.matcher(file.getName()).find() && isValidJRE(file))
-        );
+    private List<JreInspector> getMatchingJREs( File parent, String jre, boolean jdk ) {
+        List<JreInspector> versions = new ArrayList<>();
+        File[] dirs = parent.listFiles( File::isDirectory );
+        if( dirs == null ) {
+            return versions;
+        }
+        for( File dir : dirs ) {
+            JreInspector inspector = JreInspector.get( dir );
+            if( inspector.matchesVersion( jre ) && (jdk ? inspector.isJdk() : isValidJRE( inspector )) ) {
+                versions.add( inspector );
+            }
+        }
         return versions;
     }
 
     /**
-     * Checks if a specific directory is valid as a jre.  if it's a jdk, make sure a jre exists.
-     * @param jreDir the jre directory that is being checked for validity
+     * Checks if a runtime is valid as a jre. A jdk is only valid if it has a jre subdirectory.
+     * @param jre the inspected runtime
      * @return returns true if there is a valid jre here
      */
-    private boolean isValidJRE( File jreDir ) {
-        if( !jreDir.isDirectory() ) {
+    private boolean isValidJRE( JreInspector jre ) {
+        if( !jre.isValid() ) {
             return false;
         }
-        if( jreDir.getName().startsWith( "jdk" ) && !new File( jreDir, "jre" ).isDirectory() ) {
+        if( jre.isJdk() ) {
             //starting with java 11, the jdk no longer has a subdirectory "jre"
-            task.getProject().getLogger().lifecycle( "JDK without JRE is skipped: " + jreDir + "\tIf you want embedded this JDK you must set the path directly." );
+            task.getLogger().lifecycle( "JDK without JRE is skipped: " + jre.getHome() + "\tIf you want embedded this JDK you must set the path directly." );
             return false;
         }
         return true;
@@ -1397,6 +1543,22 @@ class WxsFileBuilder extends XmlFileBuilder<Msi> {
         return UUID.nameUUIDFromBytes( (setup.getVendor() + setup.getApplication() + id).getBytes() ).toString();
     }
 
+    /**
+     * Create the package code of a reproducible setup. Windows Installer treats two packages with the same package code
+     * as identical. So that the code changes with the content, it is derived from the paths and the content hashes of
+     * the files.
+     *
+     * @param files the sorted files of the setup
+     * @return the GUID
+     */
+    private String getPackageCode( List<SimpleEntry<String[], File>> files ) {
+        StringBuilder content = new StringBuilder( "PackageCode" ).append( task.getVersion() ).append( task.getArch() );
+        for( SimpleEntry<String[], File> entry : files ) {
+            content.append( '\n' ).append( String.join( "/", entry.getKey() ) ).append( '\t' ).append( hash( entry.getValue() ) );
+        }
+        return getGuid( content.toString() );
+    }
+
     /**
      * Add the settings for multiple instances
      *
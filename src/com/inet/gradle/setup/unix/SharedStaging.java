@@ -0,0 +1,156 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.unix;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.inet.gradle.setup.SetupBuilder;
+import com.inet.gradle.setup.util.ContentCache;
+import com.inet.gradle.setup.util.ResourceUtils;
+
+/**
+ * A staging snapshot that is shared by the Unix package tasks of a project in a single build. The files of the
+ * setupBuilder extension and the bundled JREs are staged only once. The "deb" and "rpm" tasks link the snapshot into
+ * their own build directory and add only their format specific files.
+ * <p>
+ * The snapshot is immutable after it was created. The builders must replace files and never write into a staged file,
+ * because the file can be a hard link into the snapshot.
+ */
+class SharedStaging {
+
+    /**
+     * Create the content of a part of the snapshot.
+     */
+    @FunctionalInterface
+    interface Stager {
+        /**
+         * Write the content.
+         *
+         * @param target the empty target directory
+         * @throws IOException if an I/O error occurs
+         */
+        void stage( File target ) throws IOException;
+    }
+
+    private static final Map<SetupBuilder, SharedStaging> STAGINGS = new WeakHashMap<>();
+
+    private final SetupBuilder                           setup;
+
+    private final File                                   dir;
+
+    private File                                         files;
+
+    private final Map<File, File>                        jres = new HashMap<>();
+
+    /**
+     * Create a staging area.
+     *
+     * @param setup the extension
+     * @param dir the directory of the snapshot
+     */
+    private SharedStaging( SetupBuilder setup, File dir ) {
+        this.setup = setup;
+        this.dir = dir;
+    }
+
+    /**
+     * Get the staging area of the current build for the SetupBuilder extension of a project.
+     *
+     * @param setup the extension
+     * @param tempRoot the root of the temporary task directories of the project, for example "build/tmp"
+     * @return the staging area
+     */
+    static SharedStaging get( SetupBuilder setup, File tempRoot ) {
+        synchronized( STAGINGS ) {
+            SharedStaging staging = STAGINGS.get( setup );
+            if( staging == null ) {
+                staging = new SharedStaging( setup, new File( tempRoot, "setupStaging" ) );
+                STAGINGS.put( setup, staging );
+            }
+            return staging;
+        }
+    }
+
+    /**
+     * Get the staged files of the setupBuilder extension. On the first call the files are staged with the stager.
+     *
+     * @param stager copy the files of the extension
+     * @return the directory with the files, relative to the installation root
+     * @throws IOException if an I/O error occurs
+     */
+    synchronized File getFiles( Stager stager ) throws IOException {
+        if( files == null ) {
+            files = stage( "files", stager );
+        }
+        return files;
+    }
+
+    /**
+     * Get a staged JRE. On the first call for a JRE it is staged with the stager.
+     *
+     * @param source the JRE directory or archive
+     * @param stager copy or extract the JRE
+     * @return the directory with the JRE
+     * @throws IOException if an I/O error occurs
+     */
+    synchronized File getJre( File source, Stager stager ) throws IOException {
+        File jre = jres.get( source );
+        if( jre == null ) {
+            jre = stage( "jre" + jres.size(), stager );
+            jres.put( source, jre );
+        }
+        return jre;
+    }
+
+    /**
+     * Link or copy a part of the snapshot into the build directory of a task.
+     *
+     * @param staged the part of the snapshot
+     * @param target the target directory
+     * @throws IOException if an I/O error occurs
+     */
+    static void materialize( File staged, File target ) throws IOException {
+        ContentCache.materialize( staged, target, true );
+    }
+
+    /**
+     * Stage a part of the snapshot.
+     *
+     * @param name the name of the part
+     * @param stager creates the content
+     * @return the directory
+     * @throws IOException if an I/O error occurs
+     */
+    private File stage( String name, Stager stager ) throws IOException {
+        if( files == null && jres.isEmpty() ) {
+            // first part of this build, remove the snapshot of a previous build
+            setup.getTempSpace().release( dir.toPath() );
+            setup.getTempSpace().track( dir.toPath() );
+        }
+        File target = new File( dir, name );
+        if( target.exists() ) {
+            // leftover of a failed stager
+            ResourceUtils.deleteDirectory( target.toPath() );
+        }
+        target.mkdirs();
+        stager.stage( target );
+        return target;
+    }
+}
@@ -16,14 +16,30 @@
 package com.inet.gradle.setup.unix;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.gradle.api.Action;
 import org.gradle.api.tasks.Input;
-import org.gradle.api.tasks.InputDirectory;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.OutputFiles;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.util.ConfigureUtil;
 
+import com.inet.gradle.setup.SetupBuilder;
 import com.inet.gradle.setup.abstracts.AbstractUnixSetupTask;
+import com.inet.gradle.setup.abstracts.DesktopStarter;
+import com.inet.gradle.setup.abstracts.DocumentType;
+import com.inet.gradle.setup.abstracts.PlanManifest;
+import com.inet.gradle.setup.abstracts.Service;
+
+import groovy.lang.Closure;
 
 /**
  * The unix base implementation for SetupBuilder.
@@ -52,8 +68,20 @@ public abstract class Unix extends AbstractUnixSetupTask {
 
     private Object bundleJre;
 
+    private boolean appCds;
+
+    private String appCdsTrainingArguments;
+
+    private int appCdsTrainingTimeout = 60;
+
+    private boolean hardLinkDuplicates = true;
+
+    private final List<UnixVariant> variants = new ArrayList<>();
+
     public Unix( String format ) {
         super( format );
+        // only a reproducible package is identical to a package from the cache
+        getOutputs().cacheIf( "sourceDateEpoch is set", task -> getSetupBuilder().isReproducible() );
     }
 
     /**
@@ -190,10 +218,11 @@ public abstract class Unix extends AbstractUnixSetupTask {
      * @return the default service file
      */
     @InputFile
+    @PathSensitive( PathSensitivity.RELATIVE )
     @Optional
     public File getDefaultServiceFile() {
         if( defaultServiceFile != null ) {
-            return getProject().file( defaultServiceFile );
+            return resolveFile( defaultServiceFile );
         }
         return null;
     }
@@ -233,6 +262,15 @@ public abstract class Unix extends AbstractUnixSetupTask {
         return startDefaultService;
     }
 
+    /**
+     * Check if the default service should be started during the setup
+     * @return true if there is a default service an if it should be started
+     */
+    @Input
+    public boolean isStartDefaultService() {
+        return startDefaultService;
+    }
+
     /**
      * Determine if the default service should be started.
      * @param startDefaultService true by default, so only setting false makes sense here.
@@ -242,11 +280,12 @@ public abstract class Unix extends AbstractUnixSetupTask {
     }
 
     /**
-     * Get the bundle JRE directory.
+     * Get the bundle JRE directory or archive.
      *
      * @return the value
      */
-    @InputDirectory
+    @InputFiles
+    @PathSensitive( PathSensitivity.RELATIVE )
     @Optional
     public File getBundleJre() {
 
@@ -260,10 +299,10 @@ public abstract class Unix extends AbstractUnixSetupTask {
 
         File jreDir = null;
         try {
-            jreDir = getProject().file( jre );
+            jreDir = resolveFile( jre );
         } catch( Exception e ) {
             // Will keep going though!
-            getProject().getLogger().error( "bundleJre version '" + jre + "' can not be resolved to a Java Runtime Directory which is required for embedding!" );
+            getLogger().error( "bundleJre version '" + jre + "' can not be resolved to a Java Runtime Directory which is required for embedding!" );
         }
         return jreDir;
     }
@@ -277,4 +316,230 @@ public abstract class Unix extends AbstractUnixSetupTask {
     public void setBundleJre( Object bundleJre ) {
         this.bundleJre = bundleJre;
     }
+
+    /**
+     * If an AppCDS archive is created for the bundled JRE.
+     *
+     * @return true, if enabled
+     */
+    @Input
+    public boolean isAppCds() {
+        return appCds;
+    }
+
+    /**
+     * Create a class data sharing archive for the application to reduce the start time of the starters and services.
+     * The mainClass is started once with the bundled JRE while building and the loaded classes are written to a class
+     * list in the package. The archive is created from the class list while installing, because the archive is only
+     * valid for the installed paths of the jar files. Requires a bundled JRE of Java 11 or newer that can run on the
+     * build host.
+     *
+     * @param appCds true, create the archive
+     */
+    public void setAppCds( boolean appCds ) {
+        this.appCds = appCds;
+    }
+
+    /**
+     * The arguments of the training run.
+     *
+     * @return the arguments
+     */
+    @Input
+    @Optional
+    public String getAppCdsTrainingArguments() {
+        return appCdsTrainingArguments;
+    }
+
+    /**
+     * Set the arguments for the mainClass in the training run of the AppCDS archive. The application should exit by
+     * itself after its start, else it is stopped after the timeout.
+     *
+     * @param appCdsTrainingArguments the arguments, separated by white space
+     */
+    public void setAppCdsTrainingArguments( String appCdsTrainingArguments ) {
+        this.appCdsTrainingArguments = appCdsTrainingArguments;
+    }
+
+    /**
+     * The timeout of the training run in seconds.
+     *
+     * @return the timeout
+     */
+    @Input
+    public int getAppCdsTrainingTimeout() {
+        return appCdsTrainingTimeout;
+    }
+
+    /**
+     * Set the timeout of the training run in seconds. The default is 60 seconds. The classes that are loaded until then
+     * are used.
+     *
+     * @param appCdsTrainingTimeout the timeout
+     */
+    public void setAppCdsTrainingTimeout( int appCdsTrainingTimeout ) {
+        this.appCdsTrainingTimeout = appCdsTrainingTimeout;
+    }
+
+    /**
+     * If byte identical files in the package are replaced with hard links.
+     *
+     * @return true, if enabled
+     */
+    @Input
+    public boolean isHardLinkDuplicates() {
+        return hardLinkDuplicates;
+    }
+
+    /**
+     * Replace byte identical files in the package with hard links, so that they are stored only once in the payload.
+     * The default is true.
+     *
+     * @param hardLinkDuplicates false, to keep separate copies
+     */
+    public void setHardLinkDuplicates( boolean hardLinkDuplicates ) {
+        this.hardLinkDuplicates = hardLinkDuplicates;
+    }
+
+    /**
+     * Add an architecture variant. The task creates one package per variant from one shared staging, only the files and
+     * the JRE of the variant and the final packaging differ. The packages are created at the same time.
+     *
+     * @param architecture the architecture of the package
+     * @param closure the files and the bundled JRE of the variant
+     */
+    public void variant( String architecture, Closure<UnixVariant> closure ) {
+        variants.add( ConfigureUtil.configure( closure, createVariant( architecture ) ) );
+    }
+
+    /**
+     * Add an architecture variant. The task creates one package per variant from one shared staging, only the files and
+     * the JRE of the variant and the final packaging differ. The packages are created at the same time.
+     *
+     * @param architecture the architecture of the package
+     * @param action the files and the bundled JRE of the variant
+     */
+    public void variant( String architecture, Action<? super UnixVariant> action ) {
+        UnixVariant variant = createVariant( architecture );
+        action.execute( variant );
+        variants.add( variant );
+    }
+
+    /**
+     * Create a new variant and check that the architecture is unique.
+     *
+     * @param architecture the architecture of the package
+     * @return the variant
+     */
+    private UnixVariant createVariant( String architecture ) {
+        if( architecture == null || architecture.isEmpty() ) {
+            throw new IllegalArgumentException( "The architecture of a variant is required." );
+        }
+        for( UnixVariant variant : variants ) {
+            if( variant.getArchitecture().equals( architecture ) ) {
+                throw new IllegalArgumentException( "Duplicate variant for the architecture: " + architecture );
+            }
+        }
+        return new UnixVariant( this, architecture );
+    }
+
+    /**
+     * Get the architecture variants.
+     *
+     * @return the variants, empty if the task creates a single package for its architecture
+     */
+    @Nested
+    public List<UnixVariant> getVariants() {
+        return variants;
+    }
+
+    /**
+     * Get the package file of a variant. The architecture is added to the file name.
+     *
+     * @param variant the variant
+     * @return the file
+     */
+    public File getVariantFile( UnixVariant variant ) {
+        File setupFile = super.getSetupFile();
+        String name = setupFile.getName();
+        String suffix = "." + getExtension();
+        String baseName = name.endsWith( suffix ) ? name.substring( 0, name.length() - suffix.length() ) : name;
+        return new File( setupFile.getParentFile(), baseName + "-" + variant.getArchitecture() + suffix );
+    }
+
+    /**
+     * Get the package files of the variants without the first one. The package of the first variant is the
+     * {@link #getSetupFile() setup file}, so that every output is declared once.
+     *
+     * @return the files
+     */
+    @OutputFiles
+    public List<File> getVariantFiles() {
+        List<File> files = new ArrayList<>();
+        for( int i = 1; i < variants.size(); i++ ) {
+            files.add( getVariantFile( variants.get( i ) ) );
+        }
+        return files;
+    }
+
+    /**
+     * {@inheritDoc} If there are variants, then this is the package of the first variant.
+     */
+    @OutputFile
+    @Override
+    public File getSetupFile() {
+        if( !variants.isEmpty() ) {
+            return getVariantFile( variants.get( 0 ) );
+        }
+        return super.getSetupFile();
+    }
+
+    /**
+     * {@inheritDoc} The files are installed below the installation root. The bundled JRE, the services and the desktop
+     * starters are added like the builder creates them.
+     */
+    @Override
+    protected void plan( PlanManifest manifest ) {
+        SetupBuilder setup = getSetupBuilder();
+        String root = getInstallationRoot();
+        planFiles( manifest, root + "/" );
+
+        String jreTarget = root + "/" + setup.getBundleJreTarget();
+        File jre = getBundleJre();
+        if( setup.isBundleJreMinimal() ) {
+            manifest.addGenerated( jreTarget, "minimal JRE, created with jlink while building" );
+        } else if( jre != null && jre.isDirectory() ) {
+            manifest.addDirectory( jreTarget, jre );
+        } else if( jre != null ) {
+            manifest.addGenerated( jreTarget, "bundled JRE, extracted from " + jre );
+        }
+
+        for( Service service : setup.getServices() ) {
+            String id = service.getId();
+            if( isUseInitD() ) {
+                manifest.addGenerated( "/etc/init.d/" + id, "init script of the service " + id );
+            } else {
+                manifest.addGenerated( "/usr/lib/systemd/system/" + id + ".service", "systemd unit of the service " + id );
+            }
+        }
+
+        for( DesktopStarter starter : setup.getDesktopStarters() ) {
+            String unixName = starter.getDisplayName();
+            manifest.addGenerated( "/usr/bin/" + unixName, "console starter of " + unixName );
+            manifest.addGenerated( "/usr/share/applications/" + unixName + ".desktop", "desktop entry of " + unixName );
+            if( setup.getIcons() != null ) {
+                manifest.addGenerated( "/usr/share/icons/hicolor/", "icons of " + unixName + " in the sizes 16, 32, 48, 64 and 128" );
+            }
+            String simpleVendor = setup.getVendor().replaceAll( "\\W", "" );
+            for( DocumentType docType : starter.getDocumentType() ) {
+                for( String extension : docType.getFileExtension() ) {
+                    manifest.addGenerated( root + "/" + simpleVendor + "-" + extension + ".xml", "mime type of the extension " + extension );
+                }
+            }
+        }
+
+        for( UnixVariant variant : variants ) {
+            manifest.addGenerated( getVariantFile( variant ).getName(), "package of the architecture " + variant.getArchitecture() + " with its own files and JRE" );
+        }
+    }
 }
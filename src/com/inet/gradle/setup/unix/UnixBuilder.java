@@ -2,31 +2,57 @@ package com.inet.gradle.setup.unix;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.gradle.api.GradleException;
-import org.gradle.api.file.FileTree;
 import org.gradle.api.internal.file.FileResolver;
 
 import com.inet.gradle.setup.SetupBuilder;
 import com.inet.gradle.setup.abstracts.AbstractBuilder;
 import com.inet.gradle.setup.abstracts.AbstractSetupBuilder;
+import com.inet.gradle.setup.abstracts.Application;
+import com.inet.gradle.setup.abstracts.ToolWorker;
+import com.inet.gradle.setup.util.ArchiveExtractor;
+import com.inet.gradle.setup.util.ContentCache;
+import com.inet.gradle.setup.util.HardLinkDeduplicator;
+import com.inet.gradle.setup.util.JarNormalizer;
+import com.inet.gradle.setup.util.JreInspector;
+import com.inet.gradle.setup.util.MinimalRuntime;
 import com.inet.gradle.setup.util.ResourceUtils;
 
 public abstract class UnixBuilder<T extends Unix, S extends AbstractSetupBuilder> extends AbstractBuilder<T, S> {
 
+    private static final String APP_CDS_CLASSLIST = "lib/app-cds.classlist";
+
+    private static final String APP_CDS_ARCHIVE   = "lib/app-cds.jsa";
+
     protected SetupBuilder setup;
 
     private String         javaCommandSuffix  = "/bin/java";
 
     protected String       javaMainExecutable = "/usr" + javaCommandSuffix; // Default Java Location
 
+    private boolean        appCds;
+
+    private JarNormalizer  jarNormalizer;
+
     /**
      * Create a new instance
      *
@@ -40,20 +66,321 @@ public abstract class UnixBuilder<T extends Unix, S extends AbstractSetupBuilder
     }
 
     /**
-     * Check for the bundled JRE and add it
+     * Copy the files of the setupBuilder extension and of the task into the installation root. The files of the
+     * extension are staged only once per build and linked, because "deb" and "rpm" share them. The staged files have
+     * already the permissions of {@link #changeFilePermissionsTo644(File)}.
+     *
+     * @param filesPath the installation root in the build directory
+     * @throws IOException if an I/O error occurs
+     */
+    protected void copyFiles( File filesPath ) throws IOException {
+        SharedStaging staging = SharedStaging.get( setup, buildDir.getParentFile() );
+        File files = staging.getFiles( target -> {
+            task.copySpecTo( setup.getRootSpec(), target );
+            changeFilePermissionsTo644( target );
+        } );
+        SharedStaging.materialize( files, filesPath );
+        task.copySpecTo( task.getRootSpec(), filesPath );
+    }
+
+    /**
+     * Check for the bundled JRE and add it. The JRE is staged only once per build and linked. If the variants of the
+     * task have their own JRE, then only the path of the java executable is set and the variants add the JRE.
      * @param filesPath the destination to put the jre at
      * @throws IOException an exception
      */
     protected void addBundleJre( File filesPath ) throws IOException {
-        File jreDir = task.getBundleJre();
-        if( jreDir == null ) {
-            task.getProject().getLogger().lifecycle( "\tNo JRE for bundling set." );
+        if( hasVariantJres() ) {
+            updateJavaMainExecutable();
             return;
         }
+        addBundleJre( task.getBundleJre(), filesPath );
+    }
 
-        // Check if this is the JRE or JDK - usually the jdk has a jre folder
+    /**
+     * Add a bundled JRE. The JRE is staged only once per build and linked.
+     * @param jreDir the directory or archive of the JRE, can be null
+     * @param filesPath the destination to put the jre at
+     * @throws IOException an exception
+     */
+    private void addBundleJre( File jreDir, File filesPath ) throws IOException {
         File jreTarget = new File( filesPath, setup.getBundleJreTarget() ); // jre or something. This is the final destination
+        if( setup.isBundleJreMinimal() ) {
+            File jdk = jreDir != null && jreDir.isFile() ? extractJre( jreDir ) : jreDir;
+            File runtime = MinimalRuntime.create( jdk, findJars( filesPath ), setup.getBundleJreModules() );
+            task.getLogger().lifecycle( "\tMinimal JRE: " + JreInspector.get( runtime ) );
+            ContentCache.materialize( runtime, jreTarget, true );
+        } else {
+            if( jreDir == null ) {
+                task.getLogger().lifecycle( "\tNo JRE for bundling set." );
+                return;
+            }
+            File staged = SharedStaging.get( setup, buildDir.getParentFile() ).getJre( jreDir, target -> stageBundleJre( jreDir, target ) );
+            SharedStaging.materialize( staged, jreTarget );
+        }
 
+        updateJavaMainExecutable();
+    }
+
+    /**
+     * Set the java executable of the scripts to the bundled JRE.
+     */
+    private void updateJavaMainExecutable() {
+        javaMainExecutable = String.join( "/", task.getInstallationRoot(), setup.getBundleJreTarget(), javaCommandSuffix ).replaceAll( "\\/+", "\\/" );
+        task.getLogger().lifecycle( "\tUpdated the Java Executable Path to: '" + javaMainExecutable + "'" );
+    }
+
+    /**
+     * Run the mainClass with the bundled JRE and write the loaded classes to a class list for an AppCDS archive. The
+     * archive itself is created while installing with {@link #getAppCdsDumpCommand(String)}, because it is only valid
+     * for the jar files at the paths of the dump.
+     *
+     * @param filesPath the installation root in the build directory, with the bundled JRE
+     * @throws IOException if an I/O error occurs
+     */
+    protected void trainAppCds( File filesPath ) throws IOException {
+        if( !task.isAppCds() ) {
+            return;
+        }
+        if( !task.getVariants().isEmpty() ) {
+            task.getLogger().lifecycle( "\tAppCDS is not supported with architecture variants and is skipped." );
+            return;
+        }
+        if( task.getBundleJre() == null && !setup.isBundleJreMinimal() ) {
+            task.getLogger().lifecycle( "\tAppCDS requires a bundled JRE and is skipped." );
+            return;
+        }
+        File jreDir = new File( filesPath, setup.getBundleJreTarget() );
+        JreInspector jre = JreInspector.get( jreDir );
+        if( jre.getFeatureVersion() < 11 ) {
+            task.getLogger().lifecycle( "\tAppCDS requires a bundled JRE of Java 11 or newer and is skipped: " + jre.getVersion() );
+            return;
+        }
+        if( !System.getProperty( "os.arch" ).equals( jre.getArchitecture() ) ) {
+            task.getLogger().lifecycle( "\tAppCDS is skipped, because the bundled JRE '" + jre.getArchitecture() + "' can not run on this host." );
+            return;
+        }
+        String mainClass = setup.getMainClass();
+        String mainJar = setup.getMainJar();
+        if( mainClass == null || mainJar == null ) {
+            throw new GradleException( "AppCDS requires the mainClass and the mainJar of the setupBuilder." );
+        }
+
+        File classList = new File( jreDir, APP_CDS_CLASSLIST );
+        Files.deleteIfExists( classList.toPath() );
+        List<String> command = new ArrayList<>();
+        command.add( new File( jreDir, javaCommandSuffix ).getAbsolutePath() );
+        command.add( "-Xshare:off" );
+        command.add( "-XX:DumpLoadedClassList=" + classList.getAbsolutePath() );
+        command.add( "-cp" );
+        command.add( new File( filesPath, mainJar ).getAbsolutePath() );
+        command.add( mainClass );
+        String arguments = task.getAppCdsTrainingArguments();
+        if( arguments != null && !arguments.trim().isEmpty() ) {
+            command.addAll( Arrays.asList( arguments.trim().split( "\\s+" ) ) );
+        }
+
+        File log = new File( buildDir.getParentFile(), buildDir.getName() + "-appcds.log" );
+        task.getLogger().lifecycle( "\tAppCDS training run of " + mainClass + ", output: " + log );
+        Process process = new ProcessBuilder( command ).directory( filesPath ).redirectErrorStream( true ).redirectOutput( log ).start();
+        try {
+            if( !process.waitFor( task.getAppCdsTrainingTimeout(), TimeUnit.SECONDS ) ) {
+                task.getLogger().lifecycle( "\tAppCDS training run is stopped after " + task.getAppCdsTrainingTimeout() + " seconds." );
+                process.destroy();
+                if( !process.waitFor( 10, TimeUnit.SECONDS ) ) {
+                    process.destroyForcibly().waitFor();
+                }
+            }
+        } catch( InterruptedException ex ) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new GradleException( "AppCDS training run interrupted", ex );
+        }
+        if( !classList.isFile() || classList.length() == 0 ) {
+            throw new GradleException( "The AppCDS training run has not loaded any class, see: " + log );
+        }
+        appCds = true;
+    }
+
+    /**
+     * Get the shell command that creates the AppCDS archive from the class list, for the post install script.
+     *
+     * @param installationRoot the installation root in the script, for example with a variable of the package manager
+     * @return the command or null if there is no class list
+     */
+    protected String getAppCdsDumpCommand( String installationRoot ) {
+        if( !appCds ) {
+            return null;
+        }
+        String jre = installationRoot + "/" + setup.getBundleJreTarget() + "/";
+        return "\"" + jre + javaCommandSuffix.substring( 1 ) + "\" -Xshare:dump -XX:SharedClassListFile=\"" + jre + APP_CDS_CLASSLIST + "\" -XX:SharedArchiveFile=\"" + jre + APP_CDS_ARCHIVE
+                        + "\" -cp \"" + installationRoot + "/" + setup.getMainJar() + "\" >/dev/null 2>&1 || true";
+    }
+
+    /**
+     * Get the shell command that removes the AppCDS archive, for the pre remove script.
+     *
+     * @param installationRoot the installation root in the script
+     * @return the command or null if there is no class list
+     */
+    protected String getAppCdsRemoveCommand( String installationRoot ) {
+        if( !appCds ) {
+            return null;
+        }
+        return "rm -f \"" + installationRoot + "/" + setup.getBundleJreTarget() + "/" + APP_CDS_ARCHIVE + "\"";
+    }
+
+    /**
+     * Get the Java VM arguments of a starter or service. If there is an AppCDS archive then it is added. The JVM ignores
+     * the archive silently if it is missing or was created for other jar files.
+     *
+     * @param application the starter or service
+     * @return the arguments separated with a space
+     */
+    protected String getJavaVMArguments( Application application ) {
+        String arguments = String.join( " ", application.getJavaVMArguments() ).trim();
+        if( appCds ) {
+            String archive = String.join( "/", task.getInstallationRoot(), setup.getBundleJreTarget(), APP_CDS_ARCHIVE ).replaceAll( "\\/+", "\\/" );
+            arguments = ("-XX:SharedArchiveFile=" + archive + " " + arguments).trim();
+        }
+        return arguments;
+    }
+
+    /**
+     * Replace byte identical files of the installation root with hard links, if enabled. The package tools store a hard
+     * link only once in the payload.
+     *
+     * @param filesPath the installation root in the build directory
+     * @throws IOException if an I/O error occurs
+     */
+    protected void deduplicate( File filesPath ) throws IOException {
+        if( !task.isHardLinkDuplicates() ) {
+            return;
+        }
+        HardLinkDeduplicator deduplicator = new HardLinkDeduplicator( filesPath.toPath() );
+        deduplicator.run();
+        if( deduplicator.getLinkedFiles() > 0 ) {
+            task.getLogger().lifecycle( "\tReplaced " + deduplicator.getLinkedFiles() + " duplicate files with hard links, saved " + deduplicator.getSavedBytes() + " bytes" );
+        }
+    }
+
+    /**
+     * Rewrite the jar files of the installation root so that the compression of the package can compress them, if
+     * enabled. Must be called before the bundled JRE is added.
+     *
+     * @param filesPath the installation root in the build directory
+     * @throws IOException if an I/O error occurs
+     */
+    protected void normalizeJars( File filesPath ) throws IOException {
+        if( !setup.isNormalizeJars() ) {
+            return;
+        }
+        long time = setup.isReproducible() ? setup.getBuildTime() : JarNormalizer.DEFAULT_TIME;
+        jarNormalizer = new JarNormalizer( setup.getNormalizeJarsLevel(), time );
+        jarNormalizer.normalize( findJars( filesPath ).stream().map( File::toPath ).collect( Collectors.toList() ) );
+    }
+
+    /**
+     * Run the package tools in a worker after the task action.
+     *
+     * @param setupFile the package file that the tools create
+     * @param commands the commands, called in the order of the list
+     */
+    protected void submitPackage( File setupFile, List<ToolWorker.Command> commands ) {
+        submit( setupFile, setupFile, commands, jarNormalizer );
+    }
+
+    /**
+     * Log the summary of the jar normalization. The worker logs the size of the packages compared to the estimated size
+     * without the jar normalization.
+     */
+    protected void reportNormalizedJars() {
+        if( jarNormalizer != null && jarNormalizer.hasNormalized() ) {
+            task.getLogger().lifecycle( "\t" + jarNormalizer.getReport( 0 ) );
+        }
+    }
+
+    /**
+     * If the task has variants with their own bundled JRE.
+     *
+     * @return true, if all variants have a JRE; false, if the task has no variants or the variants have no JRE
+     */
+    private boolean hasVariantJres() {
+        List<UnixVariant> variants = task.getVariants();
+        long count = variants.stream().filter( variant -> variant.getBundleJre() != null ).count();
+        if( count > 0 && count < variants.size() ) {
+            throw new GradleException( "The bundleJre must be set for all variants or for none of them." );
+        }
+        return count > 0;
+    }
+
+    /**
+     * Create the package of an architecture variant.
+     */
+    @FunctionalInterface
+    protected interface VariantPackager {
+        /**
+         * Create the package.
+         *
+         * @param variant the variant
+         * @param dir the build directory of the variant, a linked copy of the build directory of the task
+         * @throws IOException if an I/O error occurs
+         */
+        void build( UnixVariant variant, File dir ) throws IOException;
+    }
+
+    /**
+     * Create the packages of the architecture variants from the shared build directory. Every variant gets a copy of
+     * the build directory with hard links, so the staged files, the scripts and the icons are shared. The files and the
+     * JRE of the variant are added one after the other, because they are resolved with the CopySpecs of the task. The
+     * packages are created at the same time.
+     *
+     * @param filesRoot the installation root, relative to the build directory
+     * @param packager creates the package of a variant
+     * @throws IOException if an I/O error occurs
+     */
+    protected void buildVariants( String filesRoot, VariantPackager packager ) throws IOException {
+        Map<UnixVariant, File> dirs = new LinkedHashMap<>();
+        for( UnixVariant variant : task.getVariants() ) {
+            task.getLogger().lifecycle( "\tPrepare the variant: " + variant.getArchitecture() );
+            File dir = new File( buildDir.getParentFile(), buildDir.getName() + "-" + variant.getArchitecture() );
+            if( dir.exists() ) {
+                ResourceUtils.deleteDirectory( dir.toPath() );
+            }
+            SharedStaging.materialize( buildDir, dir );
+
+            File filesPath = new File( dir, filesRoot );
+            task.copySpecTo( variant.getRootSpec(), filesPath );
+            changeFilePermissionsTo644( filesPath );
+            if( variant.getBundleJre() != null ) {
+                addBundleJre( variant.getBundleJre(), filesPath );
+            }
+            dirs.put( variant, dir );
+        }
+
+        try {
+            dirs.entrySet().parallelStream().forEach( entry -> {
+                try {
+                    packager.build( entry.getKey(), entry.getValue() );
+                } catch( IOException ex ) {
+                    throw new UncheckedIOException( "Can't create the variant: " + entry.getKey().getArchitecture(), ex );
+                }
+            } );
+        } catch( UncheckedIOException ex ) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Copy or extract the bundled JRE. The times of the staged JRE are clamped once, so that the tasks and variants that
+     * link the staged JRE find nothing to change and do not copy the linked files.
+     *
+     * @param jreDir the JRE directory or archive
+     * @param jreTarget the target directory
+     * @throws IOException an exception
+     */
+    private void stageBundleJre( File jreDir, File jreTarget ) throws IOException {
+        // Check if this is the JRE or JDK - usually the jdk has a jre folder
         if ( jreDir.isDirectory() ) {
 
             File jdkCheck = new File( jreDir, "jre" );
@@ -61,57 +388,116 @@ public abstract class UnixBuilder<T extends Unix, S extends AbstractSetupBuilder
                 jreDir = jdkCheck;
             }
 
-            checkForBinJava( jreDir);
-            task.getProject().getLogger().lifecycle( "\tJRE is set and will be copied from: '" + jreDir.getAbsolutePath() + "' to' " + jreTarget.getAbsolutePath() + "'" );
+            checkJre( jreDir );
+            task.getLogger().lifecycle( "\tJRE is set and will be copied from: '" + jreDir.getAbsolutePath() + "' to' " + jreTarget.getAbsolutePath() + "'" );
             ResourceUtils.copy( jreDir, jreTarget );
         } else if ( jreDir.isFile() ) {
-            // Check for Archive ... usually a tgz/tar.gz
-            FileTree tree = null;
-            if ( jreDir.getName().endsWith( ".zip" ) ) {
-                tree = setup.getProject().zipTree( jreDir );
-            } else if ( jreDir.getName().endsWith( ".tar.gz" ) || jreDir.getName().endsWith( ".tgz" ) ) {
-                tree = setup.getProject().tarTree( jreDir );
-            } else {
-                throw new GradleException( "Unsupported content set as Java Runtime, please use .zip, .tar.gz or .tgz - or a Directory '" + jreDir + "'" );
-            }
-
-            
-            FileTree sourceTree = tree;
-            File javaCopy = new File(setup.getProject().getBuildDir() + "/java_copy"); 
-            setup.getProject().copy( spec -> {
-                spec.from( sourceTree );
-                spec.into( javaCopy );
-            } );  
-            
-            File[] files = javaCopy.listFiles();
-            if (files != null && files.length == 1 ) { // only one directory! Move it up!
-                Files.move( files[0].toPath(), jreTarget.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
-            } else {
-                Files.move( javaCopy.toPath(), jreTarget.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
-            }
-            checkForBinJava( jreTarget );
-
+            // Archive ... usually a tgz/tar.gz
+            ContentCache.materialize( extractJre( jreDir ), jreTarget, true );
         } else {
             throw new GradleException( "Unsupported content set as Java Runtime '" + jreDir + "'" );
         }
+        // a newer file is copied out of the cache entry before its time changes
+        clampTimestamps( jreTarget );
+    }
 
-        javaMainExecutable = String.join( "/", task.getInstallationRoot(), setup.getBundleJreTarget(), javaCommandSuffix ).replaceAll( "\\/+", "\\/" );
-        task.getProject().getLogger().lifecycle( "\tUpdated the Java Executable Path to: '" + javaMainExecutable + "'" );
+    /**
+     * Extract a JRE archive. The extracted runtime is cached by the hash of the archive, a repeated build only links it.
+     *
+     * @param archive the .zip, .tar.gz or .tgz file
+     * @return the directory of the cache entry
+     * @throws IOException an exception
+     */
+    private File extractJre( File archive ) throws IOException {
+        if( !ArchiveExtractor.isSupported( archive ) ) {
+            throw new GradleException( "Unsupported content set as Java Runtime, please use .zip, .tar.gz or .tgz - or a Directory '" + archive + "'" );
+        }
+        String key = new ContentCache.Key( "jre" ).add( archive.getName() ).addContent( archive ).toString();
+        return ContentCache.getDefault( "jre" ).get( key, output -> {
+            task.getLogger().lifecycle( "\tExtracting the JRE archive: '" + archive.getAbsolutePath() + "'" );
+            ArchiveExtractor.extract( archive, output );
+            checkJre( output );
+        } );
+    }
+
+    /**
+     * Find the jar files of the application in the installation root.
+     *
+     * @param filesPath the installation root in the build directory
+     * @return the jar files
+     * @throws IOException an exception
+     */
+    private List<File> findJars( File filesPath ) throws IOException {
+        try( Stream<Path> paths = Files.walk( filesPath.toPath() ) ) {
+            return paths.filter( path -> path.getFileName().toString().endsWith( ".jar" ) && Files.isRegularFile( path ) ).map( Path::toFile ).collect( Collectors.toList() );
+        }
     }
 
     /**
+     * Check that the directory contains a Java runtime. The runtime is inspected without starting it, so that it can
+     * also be a runtime for another architecture than the build host.
      *
-     * @param jreDir
+     * @param jreDir the directory of the runtime
      */
-    private void checkForBinJava( File jreDir ) {
-        File javaCommand = new File( jreDir, javaCommandSuffix);
-        String javaVersion = exec( "sh", "-c", javaCommand.getAbsolutePath() + " -version 2>&1 | awk -F '\"' '/version/ {print $2}'" );
-        if( javaVersion.length() == 0 ) {
+    private void checkJre( File jreDir ) {
+        JreInspector jre = JreInspector.get( jreDir );
+        if( !jre.isValid() || !new File( jreDir, javaCommandSuffix ).isFile() ) {
             throw new GradleException( "Java - Command '" + javaCommandSuffix + "' not found in '" + jreDir + "'" );
         }
+        task.getLogger().lifecycle( "\tJRE: " + jre );
+    }
 
+
+    /**
+     * Limit the modification time of all files and directories to the source date epoch, if the build is reproducible.
+     * Newer files, for example copied or generated files, get the epoch as time. Older files keep their time. A file
+     * that is a hard link into the staging or a cache is replaced with a copy before its time is changed.
+     *
+     * @param path the root of the package files
+     * @throws IOException on I/O failures
+     */
+    protected void clampTimestamps( File path ) throws IOException {
+        if( !setup.isReproducible() ) {
+            return;
+        }
+        FileTime epoch = FileTime.fromMillis( setup.getBuildTime() );
+        try( Stream<Path> files = Files.walk( path.toPath() ) ) {
+            for( Path file : (Iterable<Path>)files::iterator ) {
+                if( Files.isSymbolicLink( file ) ) {
+                    continue;
+                }
+                if( Files.getLastModifiedTime( file ).compareTo( epoch ) > 0 ) {
+                    unlink( file );
+                    Files.setLastModifiedTime( file, epoch );
+                }
+            }
+        }
     }
 
+    /**
+     * Replace a hard link with a copy of the file. The files in the build directory can be hard links into the shared
+     * staging, into a {@link ContentCache} or into the build directory of another variant. A changed permission or time
+     * of the link would change all of them.
+     *
+     * @param file the file that will be changed
+     * @throws IOException on I/O failures
+     */
+    private static void unlink( Path file ) throws IOException {
+        if( !Files.isRegularFile( file, LinkOption.NOFOLLOW_LINKS ) ) {
+            return;
+        }
+        Object count;
+        try {
+            count = Files.getAttribute( file, "unix:nlink", LinkOption.NOFOLLOW_LINKS );
+        } catch( UnsupportedOperationException | IllegalArgumentException ex ) {
+            return; // no hard links on this file system
+        }
+        if( count instanceof Number && ((Number)count).intValue() > 1 ) {
+            Path temp = file.resolveSibling( file.getFileName() + ".unlink" );
+            Files.copy( file, temp, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES );
+            Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+    }
 
     /**
      * Changes the permissions of all directories recursively inside the specified path to 755.
@@ -156,7 +542,8 @@ public abstract class UnixBuilder<T extends Unix, S extends AbstractSetupBuilder
 
 
     /**
-     * Sets the permissions of the specified file, either to 644 (non-executable) or 755 (executable).
+     * Sets the permissions of the specified file, either to 644 (non-executable) or 755 (executable). A file that is a
+     * hard link is replaced with a copy before the permissions are changed.
      *
      * @param file the file
      * @param executable if set to <code>true</code> the executable bit will be set
@@ -186,6 +573,10 @@ public abstract class UnixBuilder<T extends Unix, S extends AbstractSetupBuilder
         	}
         }
         try {
+            if( perms.equals( Files.getPosixFilePermissions( file.toPath() ) ) ) {
+                return; // unchanged, a hard link is kept
+            }
+            unlink( file.toPath() );
             Files.setPosixFilePermissions( file.toPath(), perms );
         } catch ( NoSuchFileException e ) {
             // This might happen when a link was asked ... do not bother.
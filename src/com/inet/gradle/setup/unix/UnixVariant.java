@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.unix;
+
+import java.io.File;
+
+import org.gradle.api.file.CopySpec;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.internal.file.copy.CopySpecInternal;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+import groovy.lang.Closure;
+
+/**
+ * An architecture variant of a deb or rpm task. All variants share the staged files, the generated scripts and the
+ * icons of the task. A variant adds only its own files, for example native libraries, and its own bundled JRE to the
+ * installation root and gets its own package with the architecture in the file name.
+ *
+ * <pre>
+ * deb {
+ *     variant( 'amd64' ) {
+ *         bundleJre = 'jre/linux-x64'
+ *         from( 'native/linux-x64' ) { into 'lib' }
+ *     }
+ *     variant( 'arm64' ) {
+ *         bundleJre = 'jre/linux-aarch64'
+ *         from( 'native/linux-aarch64' ) { into 'lib' }
+ *     }
+ * }
+ * </pre>
+ */
+public class UnixVariant {
+
+    private final Unix             task;
+
+    private final String           architecture;
+
+    private final CopySpecInternal rootSpec;
+
+    private Object                 bundleJre;
+
+    /**
+     * Create a variant.
+     *
+     * @param task the task of the variant
+     * @param architecture the architecture of the package
+     */
+    UnixVariant( Unix task, String architecture ) {
+        this.task = task;
+        this.architecture = architecture;
+        this.rootSpec = (CopySpecInternal)task.getProject().copySpec( (Closure<CopySpec>)null );
+    }
+
+    /**
+     * Get the architecture of the package, for example "amd64" or "arm64" for deb and "x86_64" or "aarch64" for rpm.
+     *
+     * @return the architecture
+     */
+    @Input
+    public String getArchitecture() {
+        return architecture;
+    }
+
+    /**
+     * Add files of this variant to the installation root.
+     *
+     * @param sourcePaths the files
+     * @return the created CopySpec
+     */
+    public CopySpec from( Object... sourcePaths ) {
+        return rootSpec.from( sourcePaths );
+    }
+
+    /**
+     * Add files of this variant to the installation root.
+     *
+     * @param sourcePath the files
+     * @param configureClosure the configuration of the files, for example the target directory
+     * @return the created CopySpec
+     */
+    public CopySpec from( Object sourcePath, Closure<?> configureClosure ) {
+        return rootSpec.from( sourcePath, configureClosure );
+    }
+
+    /**
+     * Get the CopySpec with the files of this variant.
+     *
+     * @return the spec
+     */
+    @Internal
+    public CopySpecInternal getRootSpec() {
+        return rootSpec;
+    }
+
+    /**
+     * The files of this variant.
+     *
+     * @return the files
+     */
+    @InputFiles
+    @PathSensitive( PathSensitivity.RELATIVE )
+    public FileTree getSource() {
+        return rootSpec.buildRootResolver().getAllSource();
+    }
+
+    /**
+     * Get the bundled JRE of this variant.
+     *
+     * @return the directory or archive, null if the variant has no own JRE
+     */
+    @InputFiles
+    @PathSensitive( PathSensitivity.RELATIVE )
+    @Optional
+    public File getBundleJre() {
+        if( bundleJre == null ) {
+            return null;
+        }
+        return task.resolveFile( bundleJre );
+    }
+
+    /**
+     * Set the bundled JRE of this variant. If one variant has a JRE, then all variants must have one, and the bundleJre
+     * of the task is not used. A minimal runtime with bundleJreMinimal can only be created from a JDK of the build
+     * host architecture, because its jdeps and jlink are executed.
+     *
+     * @param bundleJre the directory of the JRE or a .zip, .tar.gz or .tgz archive
+     */
+    public void setBundleJre( Object bundleJre ) {
+        this.bundleJre = bundleJre;
+    }
+}
@@ -15,10 +15,13 @@
  */
 package com.inet.gradle.setup.unix.deb;
 
-import org.gradle.api.internal.project.ProjectInternal;
+import java.io.File;
+
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Optional;
 
+import com.inet.gradle.setup.abstracts.PlanManifest;
+import com.inet.gradle.setup.abstracts.Service;
 import com.inet.gradle.setup.unix.Unix;
 
 /**
@@ -42,6 +45,10 @@ public class Deb extends Unix {
 
     private String  changes;
 
+    private boolean md5sums = true;
+
+    private boolean md5sumsCache;
+
     public Deb() {
         super( "deb" );
     }
@@ -51,8 +58,7 @@ public class Deb extends Unix {
      */
     @Override
     public void build() {
-        ProjectInternal project = (ProjectInternal)getProject();
-        new DebBuilder( this, getSetupBuilder(), project.getFileResolver() ).build();
+        new DebBuilder( this, getSetupBuilder(), getFileResolver() ).build();
     }
 
     @Input
@@ -134,6 +140,42 @@ public class Deb extends Unix {
         this.changes = changes;
     }
 
+    /**
+     * If the DEBIAN/md5sums file is created.
+     * @return true, if created
+     */
+    @Input
+    public boolean isMd5sums() {
+        return md5sums;
+    }
+
+    /**
+     * Create the DEBIAN/md5sums file with the digests of the files, that is used by 'dpkg --verify' and 'debsums'.
+     * The default is true.
+     * @param md5sums false, to omit the file
+     */
+    public void setMd5sums( boolean md5sums ) {
+        this.md5sums = md5sums;
+    }
+
+    /**
+     * If the md5 digests of the previous build are reused.
+     * @return true, if reused
+     */
+    @Input
+    public boolean isMd5sumsCache() {
+        return md5sumsCache;
+    }
+
+    /**
+     * Reuse the md5 digest of the previous build for files with the same path, size and modification time. This
+     * speeds up repeated builds of large packages. The default is false, all files are hashed.
+     * @param md5sumsCache true, to reuse the digests
+     */
+    public void setMd5sumsCache( boolean md5sumsCache ) {
+        this.md5sumsCache = md5sumsCache;
+    }
+
     @Input
     @Override
     public String getArchitecture() {
@@ -143,4 +185,31 @@ public class Deb extends Unix {
         }
         return architecture;
     }
+
+    /**
+     * {@inheritDoc} Additional the control files and the documentation of the Debian package.
+     */
+    @Override
+    protected void plan( PlanManifest manifest ) {
+        super.plan( manifest );
+        File defaultServiceFile = getDefaultServiceFile();
+        if( defaultServiceFile != null ) {
+            for( Service service : getSetupBuilder().getServices() ) {
+                manifest.addFile( "/etc/default/" + service.getId(), defaultServiceFile.length() );
+            }
+        }
+        String docDir = "/usr/share/doc/" + getSetupBuilder().getAppIdentifier() + "/";
+        manifest.addGenerated( docDir + "copyright", "copyright of the package" );
+        manifest.addGenerated( docDir + "changelog.gz", "changelog of the package" );
+        manifest.addGenerated( "DEBIAN/control", "package description" );
+        for( String script : new String[] { "preinst", "postinst", "prerm", "postrm" } ) {
+            manifest.addGenerated( "DEBIAN/" + script, "maintainer script" );
+        }
+        if( getSetupBuilder().getLicenseFiles().size() > 0 ) {
+            manifest.addGenerated( "DEBIAN/templates", "debconf template of the license" );
+        }
+        if( md5sums ) {
+            manifest.addGenerated( "DEBIAN/md5sums", "md5 digests of the installed files" );
+        }
+    }
 }
@@ -31,9 +31,9 @@ import com.inet.gradle.setup.abstracts.DesktopStarter;
 import com.inet.gradle.setup.abstracts.DocumentType;
 import com.inet.gradle.setup.abstracts.LocalizedResource;
 import com.inet.gradle.setup.abstracts.Service;
+import com.inet.gradle.setup.abstracts.ToolWorker;
 import com.inet.gradle.setup.unix.UnixBuilder;
 import com.inet.gradle.setup.unix.deb.DebControlFileBuilder.Script;
-import com.inet.gradle.setup.util.Logging;
 
 public class DebBuilder extends UnixBuilder<Deb, SetupBuilder> {
 
@@ -61,18 +61,28 @@ public class DebBuilder extends UnixBuilder<Deb, SetupBuilder> {
     public void build() {
         try {
             File filesPath = new File( buildDir, task.getInstallationRoot() );
-            task.copyTo( filesPath );
+            copyFiles( filesPath );
 
             changeFilePermissionsTo644( filesPath );
 
+            normalizeJars( filesPath );
+
             // Add a bundled java vm if required. Will update the variable to indicate the java-main program
             addBundleJre( filesPath );
+            trainAppCds( filesPath );
 
             // create the package config files in the DEBIAN subfolder
             controlBuilder = new DebControlFileBuilder( super.task, setup, new File( buildDir, "DEBIAN" ) );
 
             addScriptsToControlFiles();
 
+            // the AppCDS archive is only valid for the installed jar files, create it before the services start
+            String appCdsDump = getAppCdsDumpCommand( task.getInstallationRoot() );
+            if( appCdsDump != null ) {
+                controlBuilder.addTailScriptFragment( Script.POSTINST, appCdsDump + "\n" );
+                controlBuilder.addTailScriptFragment( Script.PRERM, getAppCdsRemoveCommand( task.getInstallationRoot() ) + "\n" );
+            }
+
             for( Service service : setup.getServices() ) {
                 setupService( service );
             }
@@ -144,11 +154,16 @@ public class DebBuilder extends UnixBuilder<Deb, SetupBuilder> {
             documentBuilder = new DebDocumentFileBuilder( super.task, setup, new File( buildDir, "/usr/share/doc/" + setup.getAppIdentifier() ) );
             documentBuilder.build();
 
-            changeDirectoryPermissionsTo755( buildDir );
-
-            createDebianPackage();
-
-            checkDebianPackage();
+            if( task.getVariants().isEmpty() ) {
+                createPackage( buildDir, task.getSetupFile() );
+            } else {
+                // the DEBIAN directory and the documentation are shared, only the control file has another architecture
+                buildVariants( task.getInstallationRoot(), ( variant, dir ) -> {
+                    controlBuilder.createControlFile( new File( dir, "DEBIAN" ), variant.getArchitecture() );
+                    createPackage( dir, task.getVariantFile( variant ) );
+                } );
+            }
+            reportNormalizedJars();
 
         } catch( RuntimeException ex ) {
             throw ex;
@@ -157,6 +172,46 @@ public class DebBuilder extends UnixBuilder<Deb, SetupBuilder> {
         }
     }
 
+    /**
+     * Create and check the Debian package from a build directory.
+     *
+     * @param dir the build directory of the task or of a variant
+     * @param setupFile the package file
+     * @throws IOException if an I/O error occurs
+     */
+    private void createPackage( File dir, File setupFile ) throws IOException {
+        createMd5Sums( dir );
+        // the files get their time before the deduplication, else a clamped link would be copied again
+        clampTimestamps( dir );
+        deduplicate( new File( dir, task.getInstallationRoot() ) );
+        changeDirectoryPermissionsTo755( dir );
+        clampTimestamps( dir );
+
+        List<ToolWorker.Command> commands = new ArrayList<>();
+        commands.add( createDebianPackage( dir, setupFile ) );
+        if( task.shouldCheckPackage() ) {
+            commands.add( checkDebianPackage( setupFile ) );
+        }
+        submitPackage( setupFile, commands );
+    }
+
+    /**
+     * Create the DEBIAN/md5sums file, if enabled. The digest cache is stored next to the temporary directory, because
+     * the temporary directory is cleaned before every build.
+     *
+     * @param dir the build directory of the task or of a variant
+     * @throws IOException if an I/O error occurs
+     */
+    private void createMd5Sums( File dir ) throws IOException {
+        if( !task.isMd5sums() ) {
+            return;
+        }
+        File cacheFile = task.isMd5sumsCache() ? new File( dir.getParentFile(), dir.getName() + "-md5sums.cache" ) : null;
+        DebMd5SumsBuilder md5SumsBuilder = new DebMd5SumsBuilder( dir, cacheFile, controlBuilder.getConfFiles() );
+        md5SumsBuilder.build();
+        task.getLogger().lifecycle( "\tCreated md5sums, hashed " + md5SumsBuilder.getHashedFiles() + " files, reused " + md5SumsBuilder.getReusedFiles() + " digests" );
+    }
+
     /**
      * adds the pre and post step entries to the pre and post config files
      */
@@ -289,7 +344,7 @@ public class DebBuilder extends UnixBuilder<Deb, SetupBuilder> {
         	initScript.setPlaceholder( "workdir", workingDir );
         	initScript.setPlaceholder( "mainJar", mainJarPath );
         	initScript.setPlaceholder( "startArguments", (service.getStartArguments()).trim() );
-        	initScript.setPlaceholder( "javaVMArguments", (String.join( " ", service.getJavaVMArguments())).trim() );
+        	initScript.setPlaceholder( "javaVMArguments", getJavaVMArguments( service ) );
 
         	initScript.setPlaceholder( "mainClass", service.getMainClass() );
         	initScript.setPlaceholder( "daemonUser", task.getDaemonUser() );
@@ -313,7 +368,7 @@ public class DebBuilder extends UnixBuilder<Deb, SetupBuilder> {
     		systemdScript.setPlaceholder( "workdir", workingDir );
     		systemdScript.setPlaceholder( "mainJar", mainJarPath );
     		systemdScript.setPlaceholder( "startArguments", (service.getStartArguments()).trim() );
-    		systemdScript.setPlaceholder( "javaVMArguments", String.join( " ", service.getJavaVMArguments()).trim() );
+    		systemdScript.setPlaceholder( "javaVMArguments", getJavaVMArguments( service ) );
 
     		systemdScript.setPlaceholder( "mainClass", service.getMainClass() );
     		systemdScript.setPlaceholder( "daemonUser", task.getDaemonUser() );
@@ -366,7 +421,7 @@ public class DebBuilder extends UnixBuilder<Deb, SetupBuilder> {
             if( starter.getExecutable() != null ) {
                 fw.write( "\"" + task.getInstallationRoot() + "/" + starter.getExecutable() + "\" " + starter.getStartArguments() + " \"$@\"" );
             } else {
-                fw.write( "\"" + javaMainExecutable + "\" " + String.join( " ", starter.getJavaVMArguments()) + " -cp \"" + task.getInstallationRoot() + "/" + starter.getMainJar() + "\" " + starter.getMainClass() + " " + starter.getStartArguments() + " \"$@\"" );
+                fw.write( "\"" + javaMainExecutable + "\" " + getJavaVMArguments( starter ) + " -cp \"" + task.getInstallationRoot() + "/" + starter.getMainJar() + "\" " + starter.getMainClass() + " " + starter.getStartArguments() + " \"$@\"" );
             }
         }
         int[] iconSizes = { 16, 32, 48, 64, 128 };
@@ -517,6 +572,8 @@ public class DebBuilder extends UnixBuilder<Deb, SetupBuilder> {
         if( !file.getParentFile().exists() ) {
             file.getParentFile().mkdirs();
         }
+        // never write into an existing file, it can be a hard link into the shared staging
+        Files.deleteIfExists( file.toPath() );
         file.createNewFile();
 
         setPermissions( file, executable );
@@ -524,39 +581,34 @@ public class DebBuilder extends UnixBuilder<Deb, SetupBuilder> {
     }
 
     /**
-     * execute the lintian tool to check the Debian package This will only be executed if the task 'checkPackage'
+     * the command of the lintian tool to check the Debian package. This will only be used if the task 'checkPackage'
      * property is set to true
+     *
+     * @param setupFile the package file
+     * @return the command
      */
-    private void checkDebianPackage() {
-        if( task.shouldCheckPackage() ) {
-            ArrayList<String> command = new ArrayList<>();
-            command.add( "lintian" );
-            command.add( task.getLintianOptions() );
-            command.add( task.getSetupFile().getPath() );
-            exec( command );
-        }
+    private ToolWorker.Command checkDebianPackage( File setupFile ) {
+        ArrayList<String> command = new ArrayList<>();
+        command.add( "lintian" );
+        command.add( task.getLintianOptions() );
+        command.add( setupFile.getPath() );
+        return new ToolWorker.Command( command );
     }
 
     /**
-     * execute the command to generate the Debian package
+     * the command to generate the Debian package
+     *
+     * @param dir the build directory of the task or of a variant
+     * @param setupFile the package file
+     * @return the command
      */
-    private void createDebianPackage() {
-        try {
+    private ToolWorker.Command createDebianPackage( File dir, File setupFile ) {
         ArrayList<String> command = new ArrayList<>();
         command.add( "fakeroot" );
         command.add( "dpkg-deb" );
         command.add( "--build" );
-        command.add( buildDir.getAbsolutePath() );
-        command.add( task.getSetupFile().getPath() );
-        exec( command );
-        } catch( Throwable e ) {
-            Logging.syserr( "Error. Control File was:" );
-            try {
-                Logging.syserr( String.join( "\n", Files.readAllLines( new File(buildDir.getAbsolutePath(), "DEBIAN/control" ).toPath() ) ) );
-            } catch( IOException e1 ) {
-                e1.printStackTrace();
-            }
-            throw e;
-        }
+        command.add( dir.getAbsolutePath() );
+        command.add( setupFile.getPath() );
+        return new ToolWorker.Command( command ).printOnError( new File( dir, "DEBIAN/control" ) );
     }
 }
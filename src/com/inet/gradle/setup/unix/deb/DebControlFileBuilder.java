@@ -88,20 +88,23 @@ class DebControlFileBuilder {
      */
     void build() throws Exception {
 
-        createControlFile();
+        createControlFile( buildDir, deb.getArchitecture() );
         createConfFilesFile();
         createScripts();
     }
 
     /**
-     * Creates the 'control' file for the Debian package
+     * Creates the 'control' file for the Debian package. Also used for the variants of the task, with the DEBIAN
+     * directory of the variant.
      *
+     * @param dir the DEBIAN directory
+     * @param architecture the architecture of the package
      * @throws IOException if something could not be written to the file
      */
-    private void createControlFile() throws IOException {
-        if( !buildDir.exists() ) {
-            buildDir.mkdirs();
-        } else if( !buildDir.isDirectory() ) {
+    void createControlFile( File dir, String architecture ) throws IOException {
+        if( !dir.exists() ) {
+            dir.mkdirs();
+        } else if( !dir.isDirectory() ) {
             throw new IllegalArgumentException( "The buildDir parameter must be a directory!" );
         }
 
@@ -109,7 +112,9 @@ class DebControlFileBuilder {
         OutputStreamWriter controlWriter = null;
 
         try {
-            File control = new File( buildDir, "control" );
+            File control = new File( dir, "control" );
+            // never write into an existing file, in a variant it is a hard link to the file of the task
+            Files.deleteIfExists( control.toPath() );
             fileoutput = new FileOutputStream( control );
             controlWriter = new OutputStreamWriter( fileoutput, "UTF-8" );
 
@@ -117,7 +122,7 @@ class DebControlFileBuilder {
             putVersion( controlWriter );
             putSection( controlWriter );
             putPriority( controlWriter );
-            putArchitecture( controlWriter );
+            putArchitecture( controlWriter, architecture );
             putInstallSize( controlWriter );
             putRecommends( controlWriter );
             putPreDepends( controlWriter );
@@ -240,17 +245,7 @@ class DebControlFileBuilder {
 
         String installSize = deb.getInstallSize();
         if( installSize == null || installSize.length() == 0 ) {
-            long fileSize = 0;
-            for( File file : deb.getSetupSource().getFiles() ) {
-                if( file.isFile() ) {
-                    fileSize = fileSize + file.length();
-                }
-            }
-            for( File file : deb.getSource().getFiles() ) {
-                if( file.isFile() ) {
-                    fileSize = fileSize + file.length();
-                }
-            }
+            long fileSize = deb.getFileSnapshot().getInstalledSize();
 
             installSize = String.valueOf( fileSize / 1024 ); // Size wird in KB angegeben und nicht in Bytes
 
@@ -262,10 +257,11 @@ class DebControlFileBuilder {
      * Write the architecture to the file. If no architecture is specified then 'all' will be used.
      *
      * @param controlWriter the writer for the file
+     * @param architecture the architecture of the package
      * @throws IOException if the was an error while writing to the file
      */
-    private void putArchitecture( OutputStreamWriter controlWriter ) throws IOException {
-        controlWriter.write( "Architecture: " + deb.getArchitecture() + NEWLINE );
+    private void putArchitecture( OutputStreamWriter controlWriter, String architecture ) throws IOException {
+        controlWriter.write( "Architecture: " + architecture + NEWLINE );
     }
 
     /**
@@ -348,6 +344,15 @@ class DebControlFileBuilder {
         confFiles.add( file );
     }
 
+    /**
+     * Get the config files.
+     *
+     * @return the paths without leading slash
+     */
+    Collection<String> getConfFiles() {
+        return confFiles;
+    }
+
     /**
      * Creates the <tt>conffiles</tt> file with a listing of all created configuration files.
      *
@@ -22,7 +22,9 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Locale;
 import java.util.Scanner;
+import java.util.TimeZone;
 import java.util.zip.GZIPOutputStream;
 
 import com.inet.gradle.setup.SetupBuilder;
@@ -147,7 +149,15 @@ class DebDocumentFileBuilder {
                 controlWriter.write( "  * no changes" + NEWLINE );
             }
 
-            controlWriter.write( NEWLINE + " -- " + setup.getVendor() + " <" + deb.getMaintainerEmail() + ">  " + new SimpleDateFormat( "dd MMM yyyy HH:mm:ss Z" ).format( new Date( System.currentTimeMillis() ) ) + NEWLINE );
+            SimpleDateFormat dateFormat;
+            if( setup.isReproducible() ) {
+                // independent of the build machine
+                dateFormat = new SimpleDateFormat( "dd MMM yyyy HH:mm:ss Z", Locale.ENGLISH );
+                dateFormat.setTimeZone( TimeZone.getTimeZone( "UTC" ) );
+            } else {
+                dateFormat = new SimpleDateFormat( "dd MMM yyyy HH:mm:ss Z" );
+            }
+            controlWriter.write( NEWLINE + " -- " + setup.getVendor() + " <" + deb.getMaintainerEmail() + ">  " + dateFormat.format( new Date( setup.getBuildTime() ) ) + NEWLINE );
 
             controlWriter.flush();
 
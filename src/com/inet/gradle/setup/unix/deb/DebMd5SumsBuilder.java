@@ -0,0 +1,254 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.unix.deb;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builder for the <tt>DEBIAN/md5sums</tt> file, that is used by <tt>dpkg --verify</tt> and <tt>debsums</tt>. The
+ * files are hashed in parallel, large files are hashed from a memory mapped buffer. Hard links are hashed only once.
+ * <p>
+ * Optional the digests of a previous build are reused for files with the same path, size and modification time. The
+ * digests are stored in a cache file next to the temporary directory of the task, because the temporary directory is
+ * cleaned before every build.
+ */
+class DebMd5SumsBuilder {
+
+    /** Files from this size are memory mapped */
+    private static final long        MAP_SIZE   = 1024 * 1024;
+
+    /** The maximum size of a single mapped region */
+    private static final long        MAP_REGION = 64 * 1024 * 1024;
+
+    private final File               buildDir;
+
+    private final File               cacheFile;
+
+    private final Collection<String> confFiles;
+
+    private int                      hashedFiles;
+
+    private int                      reusedFiles;
+
+    /**
+     * Create a new instance.
+     *
+     * @param buildDir the root of the package, the parent of the DEBIAN folder
+     * @param cacheFile the file with the digests of the previous build or null to hash all files
+     * @param confFiles the configuration files, without leading slash. dpkg stores the digests of them separately.
+     */
+    DebMd5SumsBuilder( File buildDir, File cacheFile, Collection<String> confFiles ) {
+        this.buildDir = buildDir;
+        this.cacheFile = cacheFile;
+        this.confFiles = confFiles;
+    }
+
+    /**
+     * Create the md5sums file.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void build() throws IOException {
+        Path root = buildDir.toPath();
+        Map<String, BasicFileAttributes> files = new TreeMap<>();
+        Files.walkFileTree( root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attrs ) {
+                return dir.equals( root.resolve( "DEBIAN" ) ) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs ) {
+                if( attrs.isRegularFile() ) {
+                    String path = root.relativize( file ).toString().replace( File.separatorChar, '/' );
+                    if( !confFiles.contains( path ) ) {
+                        files.put( path, attrs );
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+
+        Map<String, String> cache = readCache();
+        Map<String, String> digests = new ConcurrentHashMap<>();
+        Map<Object, String> inodes = new ConcurrentHashMap<>();
+        List<Map.Entry<String, BasicFileAttributes>> unhashed = new ArrayList<>();
+        for( Map.Entry<String, BasicFileAttributes> entry : files.entrySet() ) {
+            String cached = cache.get( cacheKey( entry.getKey(), entry.getValue() ) );
+            if( cached != null ) {
+                digests.put( entry.getKey(), cached );
+                reusedFiles++;
+            } else {
+                unhashed.add( entry );
+            }
+        }
+
+        try {
+            unhashed.parallelStream().forEach( entry -> {
+                Object inode = entry.getValue().fileKey();
+                String digest = inode != null ? inodes.get( inode ) : null;
+                if( digest == null ) {
+                    digest = md5( root.resolve( entry.getKey() ), entry.getValue().size() );
+                    if( inode != null ) {
+                        inodes.put( inode, digest );
+                    }
+                }
+                digests.put( entry.getKey(), digest );
+            } );
+        } catch( UncheckedIOException ex ) {
+            throw ex.getCause();
+        }
+        hashedFiles = unhashed.size();
+
+        // sorted by path like dh_md5sums, so that the package is reproducible
+        File md5sums = new File( buildDir, "DEBIAN/md5sums" );
+        Files.deleteIfExists( md5sums.toPath() );
+        try( BufferedWriter writer = Files.newBufferedWriter( md5sums.toPath(), StandardCharsets.UTF_8 ) ) {
+            for( String path : files.keySet() ) {
+                writer.write( digests.get( path ) );
+                writer.write( "  " );
+                writer.write( path );
+                writer.write( '\n' );
+            }
+        }
+        Files.setPosixFilePermissions( md5sums.toPath(), PosixFilePermissions.fromString( "rw-r--r--" ) );
+
+        writeCache( files, digests );
+    }
+
+    /**
+     * The count of files that were hashed.
+     *
+     * @return the count
+     */
+    int getHashedFiles() {
+        return hashedFiles;
+    }
+
+    /**
+     * The count of files with a digest of the previous build.
+     *
+     * @return the count
+     */
+    int getReusedFiles() {
+        return reusedFiles;
+    }
+
+    /**
+     * Read the digests of the previous build.
+     *
+     * @return the digests by the cache key
+     * @throws IOException if an I/O error occurs
+     */
+    private Map<String, String> readCache() throws IOException {
+        Map<String, String> cache = new HashMap<>();
+        if( cacheFile != null && cacheFile.isFile() ) {
+            for( String line : Files.readAllLines( cacheFile.toPath(), StandardCharsets.UTF_8 ) ) {
+                int idx = line.indexOf( ' ' );
+                if( idx == 32 ) {
+                    cache.put( line.substring( idx + 1 ), line.substring( 0, idx ) );
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Write the digests for the next build.
+     *
+     * @param files the files with its attributes
+     * @param digests the digests by path
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeCache( Map<String, BasicFileAttributes> files, Map<String, String> digests ) throws IOException {
+        if( cacheFile == null ) {
+            return;
+        }
+        try( BufferedWriter writer = Files.newBufferedWriter( cacheFile.toPath(), StandardCharsets.UTF_8 ) ) {
+            for( Map.Entry<String, BasicFileAttributes> entry : files.entrySet() ) {
+                writer.write( digests.get( entry.getKey() ) );
+                writer.write( ' ' );
+                writer.write( cacheKey( entry.getKey(), entry.getValue() ) );
+                writer.write( '\n' );
+            }
+        }
+    }
+
+    /**
+     * The key of a file in the cache. A changed file has in most cases a different size or modification time.
+     *
+     * @param path the relative path
+     * @param attrs the attributes of the file
+     * @return the key
+     */
+    private static String cacheKey( String path, BasicFileAttributes attrs ) {
+        return attrs.size() + " " + attrs.lastModifiedTime().toMillis() + " " + path;
+    }
+
+    /**
+     * Calculate the MD5 digest of a file.
+     *
+     * @param file the file
+     * @param size the size of the file
+     * @return the digest as hex string
+     */
+    private static String md5( Path file, long size ) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance( "MD5" );
+            if( size < MAP_SIZE ) {
+                digest.update( Files.readAllBytes( file ) );
+            } else {
+                try( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+                    for( long position = 0; position < size; position += MAP_REGION ) {
+                        MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, position, Math.min( MAP_REGION, size - position ) );
+                        digest.update( buffer );
+                    }
+                }
+            }
+            StringBuilder builder = new StringBuilder();
+            for( byte b : digest.digest() ) {
+                builder.append( String.format( "%02x", b & 0xFF ) );
+            }
+            return builder.toString();
+        } catch( IOException ex ) {
+            throw new UncheckedIOException( "Can't hash: " + file, ex );
+        } catch( NoSuchAlgorithmException ex ) {
+            throw new RuntimeException( ex );
+        }
+    }
+}
@@ -15,12 +15,16 @@
  */
 package com.inet.gradle.setup.unix.rpm;
 
+import java.io.File;
 import java.util.ArrayList;
 
-import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Optional;
 
+import com.inet.gradle.setup.SetupBuilder;
+import com.inet.gradle.setup.abstracts.LocalizedResource;
+import com.inet.gradle.setup.abstracts.PlanManifest;
+import com.inet.gradle.setup.abstracts.Service;
 import com.inet.gradle.setup.unix.Unix;
 
 /**
@@ -61,8 +65,7 @@ public class Rpm extends Unix {
      */
     @Override
     public void build() {
-        ProjectInternal project = (ProjectInternal)getProject();
-        new RpmBuilder( this, getSetupBuilder(), project.getFileResolver() ).build();
+        new RpmBuilder( this, getSetupBuilder(), getFileResolver() ).build();
     }
 
     /**
@@ -264,4 +267,24 @@ public class Rpm extends Unix {
         }
         return architecture;
     }
+
+    /**
+     * {@inheritDoc} Additional the licenses and the spec file with the scriptlets.
+     */
+    @Override
+    protected void plan( PlanManifest manifest ) {
+        super.plan( manifest );
+        SetupBuilder setup = getSetupBuilder();
+        File defaultServiceFile = getDefaultServiceFile();
+        if( defaultServiceFile != null ) {
+            for( Service service : setup.getServices() ) {
+                manifest.addFile( "/etc/sysconfig/" + service.getId(), defaultServiceFile.length() );
+            }
+        }
+        for( LocalizedResource license : setup.getLicenseFiles() ) {
+            File file = license.getResource();
+            manifest.addFile( "/usr/share/licenses/" + setup.getApplication() + "/" + file.getName(), file.length() );
+        }
+        manifest.addGenerated( "SPECS/" + setup.getAppIdentifier() + ".spec", "package description with the scriptlets" );
+    }
 }
@@ -20,6 +20,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.function.BiConsumer;
 
 import org.gradle.api.internal.file.FileResolver;
@@ -30,7 +31,9 @@ import com.inet.gradle.setup.abstracts.DesktopStarter;
 import com.inet.gradle.setup.abstracts.DocumentType;
 import com.inet.gradle.setup.abstracts.LocalizedResource;
 import com.inet.gradle.setup.abstracts.Service;
+import com.inet.gradle.setup.abstracts.ToolWorker;
 import com.inet.gradle.setup.unix.UnixBuilder;
+import com.inet.gradle.setup.unix.UnixVariant;
 import com.inet.gradle.setup.util.Logging;
 
 public class RpmBuilder extends UnixBuilder<Rpm, SetupBuilder> {
@@ -73,11 +76,14 @@ public class RpmBuilder extends UnixBuilder<Rpm, SetupBuilder> {
                 release = "1";
             }
             File filesPath = new File( buildDir.getAbsolutePath() + "/BUILD" + task.getInstallationRoot() );
-            task.copyTo( filesPath );
+            copyFiles( filesPath );
             changeFilePermissionsTo644( filesPath );
 
+            normalizeJars( filesPath );
+
             // Add a bundled java vm if required. Will update the variable to indicate the java-main program
             addBundleJre( filesPath );
+            trainAppCds( filesPath );
 
             controlBuilder = new RpmControlFileBuilder( super.task, setup, new File( buildDir, "SPECS" ), javaMainExecutable );
 
@@ -86,6 +92,13 @@ public class RpmBuilder extends UnixBuilder<Rpm, SetupBuilder> {
                             + "\n\n"
                             );
 
+            // the AppCDS archive is only valid for the installed jar files, create it before the services start
+            String appCdsDump = getAppCdsDumpCommand( "${RPM_INSTALL_PREFIX}" );
+            if( appCdsDump != null ) {
+                controlBuilder.addScriptFragment( RpmControlFileBuilder.Script.POSTINSTTAIL, appCdsDump );
+                controlBuilder.addScriptFragment( RpmControlFileBuilder.Script.PRERMHEAD, getAppCdsRemoveCommand( "${RPM_INSTALL_PREFIX}" ) );
+            }
+
             String daemonuser = task.getDaemonUser();
             if( !daemonuser.equalsIgnoreCase( "root" ) ) {
                 controlBuilder.addScriptFragment( RpmControlFileBuilder.Script.POSTINSTHEAD, "useradd -r -m -U " + daemonuser + " 2> /dev/null || true\n"
@@ -116,9 +129,17 @@ public class RpmBuilder extends UnixBuilder<Rpm, SetupBuilder> {
 
             controlBuilder.build();
 
-            changeDirectoryPermissionsTo755( buildDir );
-
-            createRpmPackage();
+            if( task.getVariants().isEmpty() ) {
+                createPackage( buildDir, null, task.getSetupFile() );
+            } else {
+                // only the architecture and the target of the spec differ, only the first variant copies the source package
+                UnixVariant first = task.getVariants().get( 0 );
+                buildVariants( "BUILD" + task.getInstallationRoot(), ( variant, dir ) -> {
+                    controlBuilder.createControlFile( new File( dir, "SPECS" ), variant.getArchitecture(), task.getVariantFile( variant ), variant == first );
+                    createPackage( dir, variant.getArchitecture(), task.getVariantFile( variant ) );
+                } );
+            }
+            reportNormalizedJars();
 
         } catch( RuntimeException ex ) {
             throw ex;
@@ -152,7 +173,7 @@ public class RpmBuilder extends UnixBuilder<Rpm, SetupBuilder> {
     		initScript.setPlaceholder( "workdir", workingDir );
     		initScript.setPlaceholder( "mainJar", mainJarPath );
     		initScript.setPlaceholder( "startArguments", (service.getStartArguments()).trim() );
-    		initScript.setPlaceholder( "javaVMArguments", String.join( " ", service.getJavaVMArguments()).trim() );
+    		initScript.setPlaceholder( "javaVMArguments", getJavaVMArguments( service ) );
 
     		initScript.setPlaceholder( "mainClass", service.getMainClass() );
     		initScript.setPlaceholder( "daemonUser", task.getDaemonUser() );
@@ -185,7 +206,7 @@ public class RpmBuilder extends UnixBuilder<Rpm, SetupBuilder> {
     		systemdScript.setPlaceholder( "workdir", workingDir );
     		systemdScript.setPlaceholder( "mainJar", mainJarPath );
     		systemdScript.setPlaceholder( "startArguments", (service.getStartArguments()).trim() );
-    		systemdScript.setPlaceholder( "javaVMArguments", String.join( " ", service.getJavaVMArguments()).trim() );
+    		systemdScript.setPlaceholder( "javaVMArguments", getJavaVMArguments( service ) );
 
     		systemdScript.setPlaceholder( "mainClass", service.getMainClass() );
     		systemdScript.setPlaceholder( "daemonUser", task.getDaemonUser() );
@@ -234,7 +255,7 @@ public class RpmBuilder extends UnixBuilder<Rpm, SetupBuilder> {
             if( starter.getExecutable() != null ) {
                 fw.write( "\"" + task.getInstallationRoot() + "/" + starter.getExecutable() + "\" " + starter.getStartArguments() + " \"$@\"" );
             } else {
-                fw.write( "\"" + javaMainExecutable + "\" " + String.join( " ", starter.getJavaVMArguments()) + " -cp \"" + task.getInstallationRoot() + "/" + starter.getMainJar() + "\" " + starter.getMainClass() + " " + starter.getStartArguments() + " \"$@\"" );
+                fw.write( "\"" + javaMainExecutable + "\" " + getJavaVMArguments( starter ) + " -cp \"" + task.getInstallationRoot() + "/" + starter.getMainJar() + "\" " + starter.getMainClass() + " " + starter.getStartArguments() + " \"$@\"" );
             }
         }
 
@@ -386,6 +407,8 @@ public class RpmBuilder extends UnixBuilder<Rpm, SetupBuilder> {
         if( !file.getParentFile().exists() ) {
             file.getParentFile().mkdirs();
         }
+        // never write into an existing file, it can be a hard link into the shared staging
+        Files.deleteIfExists( file.toPath() );
         file.createNewFile();
 
         setPermissions( file, executable );
@@ -393,22 +416,55 @@ public class RpmBuilder extends UnixBuilder<Rpm, SetupBuilder> {
     }
 
     /**
-     * execute the command to generate the RPM package
+     * Create the RPM package from a build directory.
+     *
+     * @param dir the build directory of the task or of a variant
+     * @param target the architecture of the variant or null for the architecture of the task
+     * @param setupFile the package file that the spec file moves
+     * @throws IOException if an I/O error occurs
+     */
+    private void createPackage( File dir, String target, File setupFile ) throws IOException {
+        // the files get their time before the deduplication, else a clamped link would be copied again
+        clampTimestamps( dir );
+        deduplicate( new File( dir, "BUILD" + task.getInstallationRoot() ) );
+        changeDirectoryPermissionsTo755( dir );
+        clampTimestamps( dir );
+
+        List<ToolWorker.Command> commands = new ArrayList<>();
+        commands.add( createRpmPackage( dir, target ) );
+        submitPackage( setupFile, commands );
+    }
+
+    /**
+     * the command to generate the RPM package
      *
      * rpmbuild -ba -clean "--define=_topdir buildDir(rpm)" SPECS/basename.spec
      *
+     * @param dir the build directory of the task or of a variant
+     * @param target the architecture of the variant or null for the architecture of the task
+     * @return the command
      */
-    private void createRpmPackage() {
+    private ToolWorker.Command createRpmPackage( File dir, String target ) {
 
         ArrayList<String> command = new ArrayList<>();
         command.add( "rpmbuild" );
         command.add( "-ba" );
         command.add( "-v" );
         command.add( "--clean" );
-        command.add( "--define=_topdir " + buildDir.getAbsolutePath() );
+        if( target != null ) {
+            // BuildArchitectures of another architecture than the host requires the target
+            command.add( "--target=" + target );
+        }
+        command.add( "--define=_topdir " + dir.getAbsolutePath() );
         command.add( "--define=_build_id_links none" );
-        command.add( "SPECS/" + setup.getAppIdentifier() + ".spec" );
-        exec( command );
+        if( setup.isReproducible() ) {
+            // rpmbuild reads SOURCE_DATE_EPOCH from the environment, but only uses it with these macros
+            command.add( "--define=use_source_date_epoch_as_buildtime 1" );
+            command.add( "--define=clamp_mtime_to_source_date_epoch 1" );
+            command.add( "--define=_buildhost reproducible" );
+        }
+        command.add( new File( dir, "SPECS/" + setup.getAppIdentifier() + ".spec" ).getAbsolutePath() );
+        return new ToolWorker.Command( command );
     }
 
     /**
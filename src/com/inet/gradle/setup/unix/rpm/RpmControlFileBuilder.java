@@ -19,6 +19,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -80,18 +81,23 @@ class RpmControlFileBuilder {
      */
     void build() throws Exception {
 
-        createControlFile();
+        createControlFile( buildDir, rpm.getArchitecture(), rpm.getSetupFile(), true );
     }
 
     /**
-     * Creates the SPEC file for the package
+     * Creates the SPEC file for the package. Also used for the variants of the task, with the SPECS directory of the
+     * variant.
      *
+     * @param dir the SPECS directory
+     * @param architecture the architecture of the package
+     * @param setupFile the target of the package
+     * @param copySourcePackage true, if the source package should be copied to the destination directory
      * @throws IOException if something could not be written to the file
      */
-    private void createControlFile() throws IOException {
-        if( !buildDir.exists() ) {
-            buildDir.mkdirs();
-        } else if( !buildDir.isDirectory() ) {
+    void createControlFile( File dir, String architecture, File setupFile, boolean copySourcePackage ) throws IOException {
+        if( !dir.exists() ) {
+            dir.mkdirs();
+        } else if( !dir.isDirectory() ) {
             throw new IllegalArgumentException( "The buildDir parameter must be a directory!" );
         }
 
@@ -99,7 +105,9 @@ class RpmControlFileBuilder {
         OutputStreamWriter controlWriter = null;
 
         try {
-            File spec = new File( buildDir, setup.getAppIdentifier() + ".spec" );
+            File spec = new File( dir, setup.getAppIdentifier() + ".spec" );
+            // never write into an existing file, in a variant it is a hard link to the file of the task
+            Files.deleteIfExists( spec.toPath() );
             fileoutput = new FileOutputStream( spec );
             controlWriter = new OutputStreamWriter( fileoutput, "UTF-8" );
 
@@ -115,7 +123,7 @@ class RpmControlFileBuilder {
             putPackager( controlWriter );
             putPrefix( controlWriter );
             putDepends( controlWriter );
-            putArchitecture( controlWriter );
+            putArchitecture( controlWriter, architecture );
 
             putAdditionalHeaderInformation( controlWriter );
 
@@ -129,7 +137,7 @@ class RpmControlFileBuilder {
 
             putInstall( controlWriter );
 
-            putClean( controlWriter );
+            putClean( controlWriter, architecture, setupFile, copySourcePackage );
 
             putFiles( controlWriter );
 
@@ -354,17 +362,23 @@ class RpmControlFileBuilder {
      * During the clean step the created package will be copied to the distribution directory.
      *
      * @param controlWriter the writer for the file
+     * @param architecture the architecture of the package
+     * @param setupFile the target of the package
+     * @param copySourcePackage true, if the source package should be copied to the destination directory. All variants
+     *            create a source package with the same name, only one may copy it.
      * @throws IOException if the was an error while writing to the file
      */
-    private void putClean( OutputStreamWriter controlWriter ) throws IOException {
+    private void putClean( OutputStreamWriter controlWriter, String architecture, File setupFile, boolean copySourcePackage ) throws IOException {
         controlWriter.write( NEWLINE + "%clean" + NEWLINE );
         String release = rpm.getRelease();
         if( release == null || release.length() == 0 ) {
             release = "1";
         }
 
-        controlWriter.write( "cp ../SRPMS/" + setup.getAppIdentifier() + "-" + rpm.getVersion() + "-" + release + ".src.rpm '" + setup.getDestinationDir().getAbsolutePath() + "'" + NEWLINE );
-        controlWriter.write( "mv -f ../RPMS/" + rpm.getArchitecture() + "/" + setup.getAppIdentifier() + "-" + rpm.getVersion() + "-" + release + "." + rpm.getArchitecture() + ".rpm '" + rpm.getSetupFile() + "'" + NEWLINE );
+        if( copySourcePackage ) {
+            controlWriter.write( "cp ../SRPMS/" + setup.getAppIdentifier() + "-" + rpm.getVersion() + "-" + release + ".src.rpm '" + setup.getDestinationDir().getAbsolutePath() + "'" + NEWLINE );
+        }
+        controlWriter.write( "mv -f ../RPMS/" + architecture + "/" + setup.getAppIdentifier() + "-" + rpm.getVersion() + "-" + release + "." + architecture + ".rpm '" + setupFile + "'" + NEWLINE );
 
         //Set some variables to begin with
         controlWriter.write( rpm.getVariablesTemplate() + NEWLINE );
@@ -385,7 +399,7 @@ class RpmControlFileBuilder {
      */
     private void putInstall( OutputStreamWriter controlWriter ) throws IOException {
         controlWriter.write( NEWLINE + "%install" + NEWLINE );
-        controlWriter.write( "cp -R . '%{buildroot}'" + NEWLINE );
+        controlWriter.write( "cp -R --preserve=links . '%{buildroot}'" + NEWLINE ); // keep the hard links of duplicate files
         //        if(setup.getServices() != null && setup.getServices().size() > 0) {
         //            controlWriter.write("cp -R etc %{buildroot}" + NEWLINE);
         //        }
@@ -586,10 +600,11 @@ class RpmControlFileBuilder {
      * Write the architecture to the file. If no architecture is specified then 'noarch' will be used.
      *
      * @param controlWriter the writer for the file
+     * @param architecture the architecture of the package
      * @throws IOException if the was an error while writing to the file
      */
-    private void putArchitecture( OutputStreamWriter controlWriter ) throws IOException {
-        controlWriter.write( "BuildArchitectures: " + rpm.getArchitecture() + NEWLINE );
+    private void putArchitecture( OutputStreamWriter controlWriter, String architecture ) throws IOException {
+        controlWriter.write( "BuildArchitectures: " + architecture + NEWLINE );
     }
 
     /**
@@ -602,7 +617,7 @@ class RpmControlFileBuilder {
             try {
                 controlWriter.write( header + NEWLINE );
             } catch( IOException e ) {
-                setup.getProject().getLogger().error( e.getLocalizedMessage() );
+                rpm.getLogger().error( e.getLocalizedMessage() );
             }
         } );
     }
@@ -0,0 +1,438 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarInputStream;
+import org.apache.tools.zip.ZipEntry;
+import org.apache.tools.zip.ZipFile;
+
+/**
+ * Extract a .tar.gz, .tgz or .zip archive directly into a target directory, for example a bundled Java runtime. The
+ * unix modes, modification times, symbolic links and hard links of the archive are preserved. The gzip data is
+ * decompressed on a separate thread while the files are written.
+ * <p>
+ * If the archive contains a single top level directory, like most JDK and JRE downloads, then its content is moved up
+ * into the target directory.
+ */
+public class ArchiveExtractor {
+
+    private static final int     CHUNK_SIZE  = 64 * 1024;
+
+    private static final int     CHUNK_COUNT = 32;
+
+    private static final boolean POSIX       = FileSystems.getDefault().supportedFileAttributeViews().contains( "posix" );
+
+    private final Path           target;
+
+    private final Map<Path, Dir> directories = new LinkedHashMap<>();
+
+    /**
+     * Mode and time of a directory. They are set after all entries are written, else a read only directory or a new
+     * file would break it.
+     */
+    private static class Dir {
+        private final int  mode;
+
+        private final long time;
+
+        /**
+         * Create a new instance.
+         *
+         * @param mode the unix mode
+         * @param time the modification time
+         */
+        private Dir( int mode, long time ) {
+            this.mode = mode;
+            this.time = time;
+        }
+    }
+
+    /**
+     * Create an extractor.
+     *
+     * @param target the target directory
+     */
+    private ArchiveExtractor( File target ) {
+        this.target = target.toPath().toAbsolutePath().normalize();
+    }
+
+    /**
+     * Check if the file is a supported archive.
+     *
+     * @param archive the file
+     * @return true, if it can be extracted
+     */
+    public static boolean isSupported( File archive ) {
+        String name = archive.getName().toLowerCase();
+        return name.endsWith( ".zip" ) || name.endsWith( ".tar.gz" ) || name.endsWith( ".tgz" );
+    }
+
+    /**
+     * Extract an archive.
+     *
+     * @param archive the .tar.gz, .tgz or .zip file
+     * @param target the target directory, should be empty
+     * @throws IOException if the archive can not be read or a file can not be written
+     */
+    public static void extract( File archive, File target ) throws IOException {
+        if( !isSupported( archive ) ) {
+            throw new IOException( "Unsupported archive, please use .zip, .tar.gz or .tgz: " + archive );
+        }
+        Files.createDirectories( target.toPath() );
+        ArchiveExtractor extractor = new ArchiveExtractor( target );
+        if( archive.getName().toLowerCase().endsWith( ".zip" ) ) {
+            extractor.extractZip( archive );
+        } else {
+            extractor.extractTarGz( archive );
+        }
+        extractor.finishDirectories();
+        extractor.moveUpSingleRoot();
+    }
+
+    /**
+     * Extract a gzip compressed tar archive.
+     *
+     * @param archive the archive
+     * @throws IOException if an I/O error occurs
+     */
+    private void extractTarGz( File archive ) throws IOException {
+        try( InputStream input = new PrefetchInputStream( new GZIPInputStream( Files.newInputStream( archive.toPath() ), CHUNK_SIZE ), archive.getName() );
+                        TarInputStream tar = new TarInputStream( input ) ) {
+            for( TarEntry entry; (entry = tar.getNextEntry()) != null; ) {
+                Path path = resolve( entry.getName() );
+                long time = entry.getModTime().getTime();
+                if( entry.isDirectory() ) {
+                    Files.createDirectories( path );
+                    directories.put( path, new Dir( entry.getMode(), time ) );
+                } else if( entry.isSymbolicLink() ) {
+                    createParent( path );
+                    Files.deleteIfExists( path );
+                    Files.createSymbolicLink( path, Paths.get( entry.getLinkName() ) );
+                } else if( entry.isLink() ) {
+                    // the name of a hard link target is relative to the archive root
+                    createParent( path );
+                    Files.deleteIfExists( path );
+                    Files.createLink( path, resolve( entry.getLinkName() ) );
+                } else if( entry.isFile() ) {
+                    createParent( path );
+                    Files.copy( tar, path, StandardCopyOption.REPLACE_EXISTING );
+                    setAttributes( path, entry.getMode(), time );
+                }
+            }
+        }
+    }
+
+    /**
+     * Extract a zip archive.
+     *
+     * @param archive the archive
+     * @throws IOException if an I/O error occurs
+     */
+    private void extractZip( File archive ) throws IOException {
+        try( ZipFile zip = new ZipFile( archive, "UTF8" ) ) {
+            for( Enumeration<ZipEntry> entries = zip.getEntriesInPhysicalOrder(); entries.hasMoreElements(); ) {
+                ZipEntry entry = entries.nextElement();
+                Path path = resolve( entry.getName() );
+                int mode = entry.getUnixMode();
+                if( entry.isDirectory() ) {
+                    Files.createDirectories( path );
+                    directories.put( path, new Dir( mode, entry.getTime() ) );
+                    continue;
+                }
+                createParent( path );
+                Files.deleteIfExists( path );
+                try( InputStream input = zip.getInputStream( entry ) ) {
+                    if( (mode & 0170000) == 0120000 ) {
+                        // a symbolic link, the content is the link target
+                        byte[] link = readAll( input );
+                        Files.createSymbolicLink( path, Paths.get( new String( link, StandardCharsets.UTF_8 ) ) );
+                        continue;
+                    }
+                    Files.copy( input, path );
+                }
+                setAttributes( path, mode, entry.getTime() );
+            }
+        }
+    }
+
+    /**
+     * Resolve the name of an entry in the target directory.
+     *
+     * @param name the name of the entry
+     * @return the path
+     * @throws IOException if the entry is outside of the target
+     */
+    private Path resolve( String name ) throws IOException {
+        Path path = target.resolve( name ).normalize();
+        if( !path.startsWith( target ) ) {
+            throw new IOException( "Archive entry is outside of the target directory: " + name );
+        }
+        return path;
+    }
+
+    /**
+     * Create the parent directories of a file.
+     *
+     * @param path the file
+     * @throws IOException if an I/O error occurs
+     */
+    private static void createParent( Path path ) throws IOException {
+        Path parent = path.getParent();
+        if( !Files.isDirectory( parent ) ) {
+            Files.createDirectories( parent );
+        }
+    }
+
+    /**
+     * Set the permissions and modification time of a file.
+     *
+     * @param path the file
+     * @param mode the unix mode, 0 if unknown
+     * @param time the modification time in milliseconds, -1 if unknown
+     * @throws IOException if an I/O error occurs
+     */
+    private static void setAttributes( Path path, int mode, long time ) throws IOException {
+        if( POSIX && (mode & 0777) != 0 ) {
+            Files.setPosixFilePermissions( path, toPermissions( mode ) );
+        }
+        if( time >= 0 ) {
+            Files.setLastModifiedTime( path, FileTime.fromMillis( time ) );
+        }
+    }
+
+    /**
+     * Convert a unix mode to a set of permissions.
+     *
+     * @param mode the unix mode
+     * @return the permissions
+     */
+    private static Set<PosixFilePermission> toPermissions( int mode ) {
+        Set<PosixFilePermission> perms = new HashSet<>();
+        PosixFilePermission[] values = PosixFilePermission.values(); // OWNER_READ ... OTHERS_EXECUTE
+        for( int i = 0; i < 9; i++ ) {
+            if( (mode & (0400 >> i)) != 0 ) {
+                perms.add( values[i] );
+            }
+        }
+        return perms;
+    }
+
+    /**
+     * Set the mode and time of the directories, deepest first.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void finishDirectories() throws IOException {
+        List<Path> paths = new ArrayList<>( directories.keySet() );
+        paths.sort( ( a, b ) -> b.getNameCount() - a.getNameCount() );
+        for( Path path : paths ) {
+            Dir dir = directories.get( path );
+            if( POSIX && (dir.mode & 0777) != 0 ) {
+                // the owner needs always write access, else the tree can not be deleted
+                Files.setPosixFilePermissions( path, toPermissions( dir.mode | 0700 ) );
+            }
+            if( dir.time >= 0 ) {
+                Files.setLastModifiedTime( path, FileTime.fromMillis( dir.time ) );
+            }
+        }
+    }
+
+    /**
+     * If the target contains only a single directory then move its content up.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void moveUpSingleRoot() throws IOException {
+        File[] files = target.toFile().listFiles();
+        if( files == null || files.length != 1 || !Files.isDirectory( files[0].toPath(), LinkOption.NOFOLLOW_LINKS ) ) {
+            return;
+        }
+        Path root = files[0].toPath();
+        Path temp = target.resolveSibling( target.getFileName() + ".extract" );
+        Files.move( root, temp, StandardCopyOption.ATOMIC_MOVE );
+        Files.delete( target );
+        Files.move( temp, target, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    /**
+     * Read the rest of a stream.
+     *
+     * @param input the stream
+     * @return the bytes
+     * @throws IOException if an I/O error occurs
+     */
+    private static byte[] readAll( InputStream input ) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for( int count; (count = input.read( buffer )) > 0; ) {
+            output.write( buffer, 0, count );
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * An InputStream that reads its source on a background thread into a bounded queue of chunks. With a
+     * GZIPInputStream as source, the decompression runs in parallel to the consumer.
+     */
+    private static class PrefetchInputStream extends InputStream {
+
+        private static final byte[]         EOF   = new byte[0];
+
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>( CHUNK_COUNT );
+
+        private final Thread                thread;
+
+        private volatile IOException        error;
+
+        private volatile boolean            closed;
+
+        private byte[]                      chunk;
+
+        private int                         pos;
+
+        /**
+         * Start reading the source.
+         *
+         * @param source the source, will be closed
+         * @param name the name for the thread
+         */
+        private PrefetchInputStream( InputStream source, String name ) {
+            thread = new Thread( () -> {
+                try( InputStream input = source ) {
+                    while( !closed ) {
+                        byte[] buffer = new byte[CHUNK_SIZE];
+                        int count = 0;
+                        while( count < buffer.length ) {
+                            int n = input.read( buffer, count, buffer.length - count );
+                            if( n < 0 ) {
+                                break;
+                            }
+                            count += n;
+                        }
+                        if( count == 0 ) {
+                            break;
+                        }
+                        queue.put( count == buffer.length ? buffer : Arrays.copyOf( buffer, count ) );
+                        if( count < buffer.length ) {
+                            break;
+                        }
+                    }
+                } catch( IOException ex ) {
+                    error = ex;
+                } catch( InterruptedException ex ) {
+                    // closed
+                }
+                try {
+                    queue.put( EOF );
+                } catch( InterruptedException ex ) {
+                    // closed
+                }
+            }, "SetupBuilder decompress " + name );
+            thread.setDaemon( true );
+            thread.start();
+        }
+
+        /**
+         * Get the current chunk, wait for the next if the current is consumed.
+         *
+         * @return false on the end of the stream
+         * @throws IOException if the source could not be read
+         */
+        private boolean fill() throws IOException {
+            if( chunk == EOF ) {
+                return false;
+            }
+            if( chunk != null && pos < chunk.length ) {
+                return true;
+            }
+            try {
+                chunk = queue.take();
+                pos = 0;
+            } catch( InterruptedException ex ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if( chunk == EOF ) {
+                if( error != null ) {
+                    throw error;
+                }
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read() throws IOException {
+            return fill() ? chunk[pos++] & 0xFF : -1;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read( byte[] b, int off, int len ) throws IOException {
+            if( len == 0 ) {
+                return 0;
+            }
+            if( !fill() ) {
+                return -1;
+            }
+            int count = Math.min( len, chunk.length - pos );
+            System.arraycopy( chunk, pos, b, off, count );
+            pos += count;
+            return count;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() {
+            closed = true;
+            thread.interrupt();
+        }
+    }
+}
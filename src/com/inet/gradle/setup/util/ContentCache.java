@@ -0,0 +1,371 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A content addressed cache of directory trees that are expensive to create, for example jlink runtime images or
+ * extracted JRE archives. Every entry is a directory named by the hash of its inputs. Entries are created in a
+ * temporary directory and published with an atomic rename, so that parallel builds never see a partial entry. The
+ * least recently used entries are removed if the cache exceeds its size limit.
+ */
+public class ContentCache {
+
+    /** The default size limit: 4 GB */
+    public static final long DEFAULT_MAX_SIZE = 4L * 1024 * 1024 * 1024;
+
+    private static final String SIZE_SUFFIX      = ".size";
+
+    private static final String TEMP_PREFIX      = ".tmp-";
+
+    private final File          dir;
+
+    private final long          maxSize;
+
+    /**
+     * Create the producer of a cache entry.
+     */
+    @FunctionalInterface
+    public interface Producer {
+        /**
+         * Create the content of a new cache entry.
+         *
+         * @param output the empty directory that receives the content
+         * @throws IOException if the content can not be created
+         */
+        void produce( File output ) throws IOException;
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param dir the root directory of the cache
+     * @param maxSize the size limit in bytes, 0 or less for no limit
+     */
+    public ContentCache( File dir, long maxSize ) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the cache with the given name in the Gradle user home: GRADLE_USER_HOME/caches/setupbuilder/&lt;name&gt;
+     *
+     * @param name the name of the cache
+     * @return the cache with the default size limit
+     */
+    public static ContentCache getDefault( String name ) {
+        String gradleHome = System.getenv( "GRADLE_USER_HOME" );
+        File home = gradleHome != null ? new File( gradleHome ) : new File( System.getProperty( "user.home" ), ".gradle" );
+        return new ContentCache( new File( home, "caches/setupbuilder/" + name ), DEFAULT_MAX_SIZE );
+    }
+
+    /**
+     * Get the root directory of this cache.
+     *
+     * @return the directory
+     */
+    public File getDir() {
+        return dir;
+    }
+
+    /**
+     * Get an entry of the cache. If the entry does not exist then it is created with the producer.
+     *
+     * @param key the key of the entry, see {@link Key}
+     * @param producer creates the content on a cache miss
+     * @return the directory of the entry. The content must not be modified.
+     * @throws IOException if the entry can not be created
+     */
+    public File get( String key, Producer producer ) throws IOException {
+        File entry = new File( dir, key );
+        if( entry.isDirectory() ) {
+            Logging.sysout( "Cache hit: " + entry );
+            entry.setLastModified( System.currentTimeMillis() ); // LRU
+            return entry;
+        }
+
+        Files.createDirectories( dir.toPath() );
+        Path temp = Files.createTempDirectory( dir.toPath(), TEMP_PREFIX );
+        try {
+            producer.produce( temp.toFile() );
+            long size = sizeOf( temp );
+            try {
+                Files.move( temp, entry.toPath(), StandardCopyOption.ATOMIC_MOVE );
+            } catch( IOException ex ) {
+                // a parallel build was faster
+                if( !entry.isDirectory() ) {
+                    throw ex;
+                }
+            }
+            Files.write( new File( dir, key + SIZE_SUFFIX ).toPath(), Long.toString( size ).getBytes( StandardCharsets.US_ASCII ) );
+            Logging.sysout( "Cache entry created: " + entry + " (" + size + " bytes)" );
+        } finally {
+            if( Files.exists( temp ) ) {
+                ResourceUtils.deleteDirectory( temp );
+            }
+        }
+        evict( key );
+        return entry;
+    }
+
+    /**
+     * Create a copy of a cache entry. With hard links the files share the storage with the cache. This is fast but
+     * the files must never be modified in place.
+     *
+     * @param entry the entry of the cache
+     * @param target the target directory
+     * @param hardLinks true, try to create hard links; false, copy the files
+     * @throws IOException if the copy fails
+     */
+    public static void materialize( File entry, File target, boolean hardLinks ) throws IOException {
+        Path source = entry.toPath();
+        Path destination = target.toPath();
+        Files.walkFileTree( source, new SimpleFileVisitor<Path>() {
+            private boolean links = hardLinks;
+
+            @Override
+            public FileVisitResult preVisitDirectory( Path d, BasicFileAttributes attrs ) throws IOException {
+                Files.createDirectories( destination.resolve( source.relativize( d ).toString() ) );
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs ) throws IOException {
+                Path target = destination.resolve( source.relativize( file ).toString() );
+                Files.deleteIfExists( target );
+                if( links && attrs.isRegularFile() ) {
+                    try {
+                        Files.createLink( target, file );
+                        return FileVisitResult.CONTINUE;
+                    } catch( IOException | UnsupportedOperationException ex ) {
+                        // other file system or not supported, use a copy for the rest
+                        links = false;
+                    }
+                }
+                Files.copy( file, target, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.COPY_ATTRIBUTES );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+    }
+
+    /**
+     * Remove the least recently used entries until the cache is smaller than the size limit.
+     *
+     * @param keep the key of an entry that should never be removed
+     */
+    private void evict( String keep ) {
+        if( maxSize <= 0 ) {
+            return;
+        }
+        File[] entries = dir.listFiles( file -> file.isDirectory() && !file.getName().startsWith( TEMP_PREFIX ) );
+        if( entries == null ) {
+            return;
+        }
+        long total = 0;
+        long[] sizes = new long[entries.length];
+        for( int i = 0; i < entries.length; i++ ) {
+            sizes[i] = readSize( entries[i] );
+            total += sizes[i];
+        }
+        if( total <= maxSize ) {
+            return;
+        }
+        List<Integer> order = new ArrayList<>();
+        for( int i = 0; i < entries.length; i++ ) {
+            order.add( i );
+        }
+        long[] modified = Arrays.stream( entries ).mapToLong( File::lastModified ).toArray();
+        order.sort( Comparator.comparingLong( i -> modified[i] ) );
+        for( int i : order ) {
+            if( total <= maxSize ) {
+                break;
+            }
+            File entry = entries[i];
+            if( entry.getName().equals( keep ) ) {
+                continue;
+            }
+            try {
+                ResourceUtils.deleteDirectory( entry.toPath() );
+                Files.deleteIfExists( new File( dir, entry.getName() + SIZE_SUFFIX ).toPath() );
+                total -= sizes[i];
+                Logging.sysout( "Cache entry evicted: " + entry );
+            } catch( IOException ex ) {
+                Logging.syserr( "Could not evict cache entry: " + entry );
+            }
+        }
+    }
+
+    /**
+     * Read the size of an entry from its size file.
+     *
+     * @param entry the entry
+     * @return the size in bytes
+     */
+    private long readSize( File entry ) {
+        try {
+            return Long.parseLong( new String( Files.readAllBytes( new File( dir, entry.getName() + SIZE_SUFFIX ).toPath() ), StandardCharsets.US_ASCII ).trim() );
+        } catch( Exception ex ) {
+            return sizeOf( entry.toPath() );
+        }
+    }
+
+    /**
+     * Calculate the size of a directory tree.
+     *
+     * @param path the directory
+     * @return the size in bytes
+     */
+    private static long sizeOf( Path path ) {
+        long[] size = new long[1];
+        try {
+            Files.walkFileTree( path, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile( Path file, BasicFileAttributes attrs ) {
+                    size[0] += attrs.size();
+                    return FileVisitResult.CONTINUE;
+                }
+            } );
+        } catch( IOException ex ) {
+            // only an estimate
+        }
+        return size[0];
+    }
+
+    /**
+     * Builder for a cache key. The key is a SHA-256 hash of all added parts.
+     */
+    public static class Key {
+
+        private final MessageDigest digest;
+
+        /**
+         * Create a key.
+         *
+         * @param type the type of the entries, for example "jlink"
+         */
+        public Key( String type ) {
+            try {
+                digest = MessageDigest.getInstance( "SHA-256" );
+            } catch( NoSuchAlgorithmException ex ) {
+                throw new RuntimeException( ex );
+            }
+            add( type );
+        }
+
+        /**
+         * Add a string.
+         *
+         * @param value the value
+         * @return this
+         */
+        public Key add( String value ) {
+            digest.update( String.valueOf( value ).getBytes( StandardCharsets.UTF_8 ) );
+            digest.update( (byte)0 );
+            return this;
+        }
+
+        /**
+         * Add a list of strings. The order is significant.
+         *
+         * @param values the values
+         * @return this
+         */
+        public Key add( Collection<String> values ) {
+            add( Integer.toString( values.size() ) );
+            for( String value : values ) {
+                add( value );
+            }
+            return this;
+        }
+
+        /**
+         * Add the content of a file. A missing file is added as marker.
+         *
+         * @param file the file
+         * @return this
+         * @throws IOException if the file can not be read
+         */
+        public Key addContent( File file ) throws IOException {
+            if( !file.isFile() ) {
+                return add( "<missing>" );
+            }
+            byte[] buffer = new byte[65536];
+            try( InputStream input = Files.newInputStream( file.toPath() ) ) {
+                for( int count; (count = input.read( buffer )) > 0; ) {
+                    digest.update( buffer, 0, count );
+                }
+            }
+            digest.update( (byte)0 );
+            return this;
+        }
+
+        /**
+         * Add the names, sizes and modification times of all files in a directory, without reading the content.
+         *
+         * @param directory the directory, can be missing
+         * @return this
+         * @throws IOException if the directory can not be scanned
+         */
+        public Key addListing( File directory ) throws IOException {
+            if( !directory.isDirectory() ) {
+                return add( "<missing>" );
+            }
+            Path root = directory.toPath();
+            List<String> listing = new ArrayList<>();
+            Files.walkFileTree( root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile( Path file, BasicFileAttributes attrs ) {
+                    listing.add( root.relativize( file ) + ":" + attrs.size() + ":" + attrs.lastModifiedTime().toMillis() );
+                    return FileVisitResult.CONTINUE;
+                }
+            } );
+            listing.sort( null );
+            return add( listing );
+        }
+
+        /**
+         * Get the key as hex string. Can be called only once.
+         *
+         * @return the key
+         */
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for( byte b : digest.digest() ) {
+                builder.append( String.format( "%02x", b & 0xFF ) );
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces byte identical files in a directory tree with hard links to a single copy. The package tools dpkg-deb and
+ * rpmbuild store hard links only once in the payload. The files are grouped by size and permissions first, only files
+ * of a group with more than one entry are hashed. The hashing runs in parallel.
+ * <p>
+ * Files with different permissions are never linked, because hard links share the permissions.
+ */
+public class HardLinkDeduplicator {
+
+    private static final boolean POSIX    = FileSystems.getDefault().supportedFileAttributeViews().contains( "posix" );
+
+    /** Smaller files save less than the overhead of the link entry in the payload */
+    private static final long    MIN_SIZE = 1024;
+
+    private final Path           root;
+
+    private int                  linkedFiles;
+
+    private long                 savedBytes;
+
+    /**
+     * Create a new instance.
+     *
+     * @param root the root of the tree
+     */
+    public HardLinkDeduplicator( Path root ) {
+        this.root = root;
+    }
+
+    /**
+     * Replace the duplicates with hard links.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void run() throws IOException {
+        Map<String, List<Path>> candidates = new HashMap<>();
+        Set<Object> inodes = new HashSet<>();
+        Files.walkFileTree( root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs ) throws IOException {
+                if( attrs.isRegularFile() && attrs.size() >= MIN_SIZE ) {
+                    Object inode = attrs.fileKey();
+                    if( inode != null && !inodes.add( inode ) ) {
+                        return FileVisitResult.CONTINUE; // already a hard link of a visited file
+                    }
+                    String key = attrs.size() + ":" + (POSIX ? PosixFilePermissions.toString( Files.getPosixFilePermissions( file ) ) : "");
+                    candidates.computeIfAbsent( key, k -> new ArrayList<>() ).add( file );
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+
+        List<Path> hashed = new ArrayList<>();
+        for( List<Path> group : candidates.values() ) {
+            if( group.size() > 1 ) {
+                hashed.addAll( group );
+            }
+        }
+        if( hashed.isEmpty() ) {
+            return;
+        }
+
+        Map<Path, String> hashes = Collections.synchronizedMap( new HashMap<>() );
+        try {
+            hashed.parallelStream().forEach( file -> hashes.put( file, hash( file ) ) );
+        } catch( UncheckedIOException ex ) {
+            throw ex.getCause();
+        }
+
+        for( List<Path> group : candidates.values() ) {
+            if( group.size() < 2 ) {
+                continue;
+            }
+            // the sort makes the kept file independent of the walk order, for reproducible packages
+            Collections.sort( group );
+            Map<String, Path> originals = new HashMap<>();
+            for( Path file : group ) {
+                Path original = originals.putIfAbsent( hashes.get( file ), file );
+                if( original != null ) {
+                    long size = Files.size( file );
+                    if( !link( original, file ) ) {
+                        return; // hard links are not supported
+                    }
+                    linkedFiles++;
+                    savedBytes += size;
+                }
+            }
+        }
+    }
+
+    /**
+     * The count of files that was replaced with a hard link.
+     *
+     * @return the count
+     */
+    public int getLinkedFiles() {
+        return linkedFiles;
+    }
+
+    /**
+     * The uncompressed bytes that are saved in the payload.
+     *
+     * @return the bytes
+     */
+    public long getSavedBytes() {
+        return savedBytes;
+    }
+
+    /**
+     * Replace a file with a hard link. The link is created with a temporary name and moved over the file, so that the
+     * file is never missing.
+     *
+     * @param original the kept file
+     * @param duplicate the replaced file
+     * @return false, if the file system does not support hard links
+     * @throws IOException if an I/O error occurs
+     */
+    private static boolean link( Path original, Path duplicate ) throws IOException {
+        Path temp = duplicate.resolveSibling( duplicate.getFileName() + ".dedupe" );
+        try {
+            Files.deleteIfExists( temp );
+            Files.createLink( temp, original );
+        } catch( IOException | UnsupportedOperationException ex ) {
+            Logging.sysout( "Hard links are not supported: " + ex );
+            return false;
+        }
+        Files.move( temp, duplicate, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        return true;
+    }
+
+    /**
+     * Calculate the hash of a file.
+     *
+     * @param file the file
+     * @return the hash as hex string
+     */
+    private static String hash( Path file ) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance( "SHA-256" );
+            byte[] buffer = new byte[65536];
+            try( InputStream input = Files.newInputStream( file ) ) {
+                for( int count; (count = input.read( buffer )) > 0; ) {
+                    digest.update( buffer, 0, count );
+                }
+            }
+            StringBuilder builder = new StringBuilder();
+            for( byte b : digest.digest() ) {
+                builder.append( String.format( "%02x", b & 0xFF ) );
+            }
+            return builder.toString();
+        } catch( IOException ex ) {
+            throw new UncheckedIOException( ex );
+        } catch( NoSuchAlgorithmException ex ) {
+            throw new RuntimeException( ex );
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copy files into a target directory tree, for example an application bundle. The files are copied in parallel.
+ * <p>
+ * In incremental mode the existing tree is kept. A file is only copied if its size or modification time differs from
+ * the source. After all files are written, {@link #finish()} removes the files of the previous run that were not
+ * written again.
+ */
+public class IncrementalCopy {
+
+    private final Path                 root;
+
+    private final boolean              incremental;
+
+    private final Set<Path>            existing;
+
+    private final Set<Path>            retained  = ConcurrentHashMap.newKeySet();
+
+    private final List<Future<?>>      pending   = new ArrayList<>();
+
+    private final Map<Path, Future<?>> scheduled = new HashMap<>();
+
+    private final AtomicInteger        copied    = new AtomicInteger();
+
+    private final AtomicInteger        skipped   = new AtomicInteger();
+
+    private int                        removed;
+
+    private ExecutorService            executor;
+
+    /**
+     * Create a new instance.
+     *
+     * @param root the root of the target tree
+     * @param incremental true, keep the existing files and copy only the changed files
+     * @throws IOException if the existing tree can not be scanned
+     */
+    public IncrementalCopy( Path root, boolean incremental ) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.incremental = incremental;
+        this.existing = incremental ? scan( this.root ) : new HashSet<>();
+    }
+
+    /**
+     * If this is an incremental copy.
+     *
+     * @return true, if incremental
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Copy a file or a directory recursively. Symbolic links are copied as links. The copy of the files runs in the
+     * background, use {@link #await()} or {@link #finish()} to wait for it.
+     *
+     * @param source the source
+     * @param destination the destination
+     * @throws IOException if the directories can not be scanned
+     */
+    public void copy( File source, File destination ) throws IOException {
+        Path sourcePath = source.toPath();
+        Path destinationPath = destination.toPath().toAbsolutePath().normalize();
+        if( Files.isDirectory( sourcePath, LinkOption.NOFOLLOW_LINKS ) ) {
+            Files.walkFileTree( sourcePath, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attrs ) throws IOException {
+                    Path target = destinationPath.resolve( sourcePath.relativize( dir ).toString() );
+                    prepareDirectory( target );
+                    retain( target );
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile( Path file, BasicFileAttributes attrs ) {
+                    copyFile( file, destinationPath.resolve( sourcePath.relativize( file ).toString() ) );
+                    return FileVisitResult.CONTINUE;
+                }
+            } );
+        } else {
+            Files.createDirectories( destinationPath.getParent() );
+            copyFile( sourcePath, destinationPath );
+        }
+    }
+
+    /**
+     * Copy a single file in the background and set its modification time and permissions afterwards. The caller has
+     * already checked with {@link #isUnchanged(long, long, File)} that the destination must be written.
+     *
+     * @param source the source file
+     * @param destination the destination file
+     * @param lastModified the modification time for the destination in milliseconds
+     * @param permissions the permissions for the destination or null to keep the default
+     * @throws IOException if the parent directory can not be created
+     */
+    public void copy( File source, File destination, long lastModified, Set<PosixFilePermission> permissions ) throws IOException {
+        Path sourcePath = source.toPath();
+        Path destinationPath = destination.toPath().toAbsolutePath().normalize();
+        Files.createDirectories( destinationPath.getParent() );
+        schedule( destinationPath, () -> {
+            if( Files.isDirectory( destinationPath, LinkOption.NOFOLLOW_LINKS ) ) {
+                TempPath.deleteTree( destinationPath );
+            }
+            ResourceUtils.copyFile( sourcePath, destinationPath );
+            if( permissions != null ) {
+                Files.setPosixFilePermissions( destinationPath, permissions );
+            }
+            // required for the up-to-date check of the next incremental build
+            Files.setLastModifiedTime( destinationPath, FileTime.fromMillis( lastModified ) );
+            copied.incrementAndGet();
+            return null;
+        } );
+    }
+
+    /**
+     * Mark a file as written, so that it is not removed as stale file.
+     *
+     * @param file the file
+     */
+    public void retain( File file ) {
+        retain( file.toPath() );
+    }
+
+    /**
+     * Mark a file or directory and all its parents as written.
+     *
+     * @param file the file
+     */
+    private void retain( Path file ) {
+        Path path = file.toAbsolutePath().normalize();
+        while( path != null && path.startsWith( root ) && retained.add( path ) ) {
+            path = path.getParent();
+        }
+    }
+
+    /**
+     * Mark a directory with all its content as written, for example the output of an external tool.
+     *
+     * @param dir the directory
+     * @throws IOException if the directory can not be scanned
+     */
+    public void retainTree( File dir ) throws IOException {
+        for( Path path : scan( dir.toPath().toAbsolutePath().normalize() ) ) {
+            retain( path );
+        }
+        retain( dir );
+    }
+
+    /**
+     * Check if a destination file is up to date.
+     *
+     * @param size the size of the source
+     * @param lastModified the modification time of the source in milliseconds
+     * @param destination the destination file
+     * @return true, if the destination exists from a previous run with the same size and modification time
+     */
+    public boolean isUnchanged( long size, long lastModified, File destination ) {
+        if( !incremental || !existing.contains( destination.toPath().toAbsolutePath().normalize() ) ) {
+            return false;
+        }
+        try {
+            BasicFileAttributes attrs = Files.readAttributes( destination.toPath(), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS );
+            // the file systems have different precision for the modification time
+            return attrs.isRegularFile() && attrs.size() == size && attrs.lastModifiedTime().toMillis() / 1000 == lastModified / 1000;
+        } catch( IOException e ) {
+            return false;
+        }
+    }
+
+    /**
+     * Copy a single file or link in the background.
+     *
+     * @param source the source
+     * @param destination the normalized destination
+     */
+    private void copyFile( Path source, Path destination ) {
+        schedule( destination, () -> {
+            if( isUnchanged( source, destination ) ) {
+                skipped.incrementAndGet();
+                return null;
+            }
+            if( Files.isDirectory( destination, LinkOption.NOFOLLOW_LINKS ) ) {
+                TempPath.deleteTree( destination );
+            }
+            Files.copy( source, destination, StandardCopyOption.REPLACE_EXISTING, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.COPY_ATTRIBUTES );
+            copied.incrementAndGet();
+            return null;
+        } );
+    }
+
+    /**
+     * Run a write of the destination in the background. A previous write of the same destination is finished first.
+     *
+     * @param destination the normalized destination
+     * @param task the write
+     */
+    private void schedule( Path destination, Callable<Void> task ) {
+        retain( destination );
+        Future<?> previous = scheduled.get( destination );
+        if( previous != null ) {
+            // the same target twice, the last source wins like with a serial copy
+            try {
+                previous.get();
+            } catch( Exception e ) {
+                // reported in await()
+            }
+        }
+        if( executor == null ) {
+            executor = Executors.newFixedThreadPool( Math.max( 2, Runtime.getRuntime().availableProcessors() ), runnable -> {
+                Thread thread = new Thread( runnable, "SetupBuilder copy" );
+                thread.setDaemon( true );
+                return thread;
+            } );
+        }
+        Future<?> future = executor.submit( task );
+        pending.add( future );
+        scheduled.put( destination, future );
+    }
+
+    /**
+     * Check if the destination is up to date with the source.
+     *
+     * @param source the source
+     * @param destination the destination
+     * @return true, if nothing to copy
+     * @throws IOException if the attributes can not be read
+     */
+    private boolean isUnchanged( Path source, Path destination ) throws IOException {
+        if( !incremental || !existing.contains( destination ) ) {
+            return false;
+        }
+        if( Files.isSymbolicLink( source ) ) {
+            return Files.isSymbolicLink( destination ) && Files.readSymbolicLink( source ).equals( Files.readSymbolicLink( destination ) );
+        }
+        BasicFileAttributes attrs = Files.readAttributes( source, BasicFileAttributes.class );
+        return isUnchanged( attrs.size(), attrs.lastModifiedTime().toMillis(), destination.toFile() );
+    }
+
+    /**
+     * Make sure that the target is a directory. A file of a previous run with the same name is removed.
+     *
+     * @param target the directory
+     * @throws IOException if the directory can not be created
+     */
+    private void prepareDirectory( Path target ) throws IOException {
+        if( Files.exists( target, LinkOption.NOFOLLOW_LINKS ) && !Files.isDirectory( target, LinkOption.NOFOLLOW_LINKS ) ) {
+            Files.delete( target );
+        }
+        Files.createDirectories( target );
+    }
+
+    /**
+     * Wait until all background copies are finished.
+     *
+     * @throws IOException if a copy failed
+     */
+    public void await() throws IOException {
+        try {
+            for( Future<?> future : pending ) {
+                future.get();
+            }
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IOException( e );
+        } catch( ExecutionException e ) {
+            Throwable cause = e.getCause();
+            if( cause instanceof IOException ) {
+                throw (IOException)cause;
+            }
+            throw new IOException( cause );
+        } finally {
+            pending.clear();
+            scheduled.clear();
+        }
+    }
+
+    /**
+     * Wait for all copies and remove the stale files of the previous run.
+     *
+     * @throws IOException if a copy or delete failed
+     */
+    public void finish() throws IOException {
+        try {
+            await();
+        } finally {
+            if( executor != null ) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+        if( !incremental ) {
+            return;
+        }
+        for( Path path : existing ) {
+            if( retained.contains( path ) || !Files.exists( path, LinkOption.NOFOLLOW_LINKS ) ) {
+                continue;
+            }
+            if( Files.isDirectory( path, LinkOption.NOFOLLOW_LINKS ) ) {
+                TempPath.deleteTree( path );
+            } else {
+                Files.delete( path );
+            }
+            removed++;
+        }
+        existing.clear();
+    }
+
+    /**
+     * Get a short statistic of this copy.
+     *
+     * @return the statistic
+     */
+    @Override
+    public String toString() {
+        return copied + " copied, " + skipped + " unchanged, " + removed + " stale removed";
+    }
+
+    /**
+     * Scan all files and directories below a root.
+     *
+     * @param dir the root
+     * @return the normalized absolute paths, without the root itself
+     * @throws IOException if the tree can not be scanned
+     */
+    private static Set<Path> scan( Path dir ) throws IOException {
+        Set<Path> paths = new HashSet<>();
+        if( !Files.isDirectory( dir ) ) {
+            return paths;
+        }
+        Files.walkFileTree( dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory( Path d, BasicFileAttributes attrs ) {
+                if( !d.equals( dir ) ) {
+                    paths.add( d );
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs ) {
+                paths.add( file );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+        return paths;
+    }
+}
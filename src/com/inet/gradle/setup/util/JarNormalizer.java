@@ -0,0 +1,375 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Rewrites jar files so that the compression of the package compresses them well. The jar entries are stored
+ * uncompressed (or with a lower deflate level), sorted by name and with a constant time. A deflate compressed jar can not
+ * be compressed again by xz, gzip or the MSZIP of a cabinet, the stored jar can.
+ * <p>
+ * The content of the entries is not changed, so signatures stay valid. Entries that are stored in the original jar,
+ * like nested jars of a Spring Boot jar, stay stored. The jars are rewritten in parallel.
+ */
+public class JarNormalizer {
+
+    /** The entry time if the build is not reproducible, the earliest date of the zip format in any time zone */
+    public static final long DEFAULT_TIME   = 315532800000L + 31 * 24 * 60 * 60 * 1000L;
+
+    /** The deflate level of the outer compression for the size estimation, like gzip */
+    private static final int  ESTIMATE_LEVEL = 6;
+
+    private final int        level;
+
+    private final long       time;
+
+    private final AtomicLong originalBytes   = new AtomicLong();
+
+    private final AtomicLong normalizedBytes = new AtomicLong();
+
+    private final AtomicLong estimatedBytes  = new AtomicLong();
+
+    private final AtomicLong jarCount        = new AtomicLong();
+
+    /**
+     * Create a new instance.
+     *
+     * @param level the deflate level of the entries, 0 for stored entries
+     * @param time the time of all entries in milliseconds
+     */
+    public JarNormalizer( int level, long time ) {
+        this.level = level;
+        this.time = time;
+    }
+
+    /**
+     * Rewrite jar files in place. Every jar is written to a new file that replaces the original, so a hard link of the
+     * jar is never modified.
+     *
+     * @param jars the jar files
+     * @throws IOException if an I/O error occurs
+     */
+    public void normalize( Collection<Path> jars ) throws IOException {
+        Map<Path, Path> targets = new LinkedHashMap<>();
+        for( Path jar : jars ) {
+            targets.put( jar, jar );
+        }
+        normalize( targets );
+    }
+
+    /**
+     * Write normalized copies of jar files. The original files are not modified.
+     *
+     * @param jars the original jar files with its target file
+     * @throws IOException if an I/O error occurs
+     */
+    public void normalize( Map<Path, Path> jars ) throws IOException {
+        try {
+            jars.entrySet().parallelStream().forEach( entry -> {
+                try {
+                    normalize( entry.getKey(), entry.getValue() );
+                } catch( IOException ex ) {
+                    throw new UncheckedIOException( "Can't normalize: " + entry.getKey(), ex );
+                }
+            } );
+        } catch( UncheckedIOException ex ) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Rewrite a jar file.
+     *
+     * @param source the original jar
+     * @param target the normalized jar, can be the same file
+     * @throws IOException if an I/O error occurs
+     */
+    public void normalize( Path source, Path target ) throws IOException {
+        Files.createDirectories( target.toAbsolutePath().getParent() );
+        Path temp = target.resolveSibling( target.getFileName() + ".normalize" );
+        CountingOutputStream estimate = new CountingOutputStream();
+        try( ZipFile zip = new ZipFile( source.toFile() ) ) {
+            List<ZipEntry> entries = new ArrayList<>();
+            for( Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); ) {
+                entries.add( e.nextElement() );
+            }
+            Collections.sort( entries, Comparator.comparing( JarNormalizer::sortKey ) );
+
+            try( ZipOutputStream output = new ZipOutputStream( new TeeOutputStream( Files.newOutputStream( temp ), estimate ) ) ) {
+                output.setLevel( level );
+                output.setComment( zip.getComment() );
+                byte[] buffer = new byte[65536];
+                for( ZipEntry entry : entries ) {
+                    ZipEntry normalized = new ZipEntry( entry.getName() );
+                    normalized.setTime( time );
+                    byte[] data = null;
+                    if( entry.isDirectory() || level == 0 || entry.getMethod() == ZipEntry.STORED ) {
+                        data = read( zip, entry, buffer );
+                        CRC32 crc = new CRC32();
+                        crc.update( data );
+                        normalized.setMethod( ZipEntry.STORED );
+                        normalized.setSize( data.length );
+                        normalized.setCompressedSize( data.length );
+                        normalized.setCrc( crc.getValue() );
+                    } else {
+                        normalized.setMethod( ZipEntry.DEFLATED );
+                    }
+                    output.putNextEntry( normalized );
+                    if( data != null ) {
+                        output.write( data );
+                    } else {
+                        try( InputStream input = zip.getInputStream( entry ) ) {
+                            for( int count; (count = input.read( buffer )) > 0; ) {
+                                output.write( buffer, 0, count );
+                            }
+                        }
+                    }
+                    output.closeEntry();
+                }
+            }
+        } catch( IOException | RuntimeException ex ) {
+            Files.deleteIfExists( temp );
+            throw ex;
+        }
+
+        long originalSize = Files.size( source );
+        FileTime lastModified = Files.getLastModifiedTime( source );
+        if( source.equals( target ) && Files.getFileStore( source ).supportsFileAttributeView( "posix" ) ) {
+            Files.setPosixFilePermissions( temp, Files.getPosixFilePermissions( source, LinkOption.NOFOLLOW_LINKS ) );
+        }
+        Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        Files.setLastModifiedTime( target, lastModified );
+
+        jarCount.incrementAndGet();
+        originalBytes.addAndGet( originalSize );
+        normalizedBytes.addAndGet( Files.size( target ) );
+        estimatedBytes.addAndGet( estimate.count() );
+    }
+
+    /**
+     * Get the sort key of an entry. The manifest must be the first entries of a jar.
+     *
+     * @param entry the entry
+     * @return the key
+     */
+    private static String sortKey( ZipEntry entry ) {
+        String name = entry.getName();
+        if( name.equals( "META-INF/" ) ) {
+            return "0";
+        }
+        if( name.equalsIgnoreCase( "META-INF/MANIFEST.MF" ) ) {
+            return "1";
+        }
+        return "2" + name;
+    }
+
+    /**
+     * Read the data of an entry.
+     *
+     * @param zip the zip file
+     * @param entry the entry
+     * @param buffer a buffer
+     * @return the data
+     * @throws IOException if an I/O error occurs
+     */
+    private static byte[] read( ZipFile zip, ZipEntry entry, byte[] buffer ) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream( (int)Math.max( 0, Math.min( entry.getSize(), Integer.MAX_VALUE - 8 ) ) );
+        try( InputStream input = zip.getInputStream( entry ) ) {
+            for( int count; (count = input.read( buffer )) > 0; ) {
+                data.write( buffer, 0, count );
+            }
+        }
+        return data.toByteArray();
+    }
+
+    /**
+     * Get a summary for the log. The original jars are already compressed, so the package compression does not reduce
+     * them. For the normalized jars the compressed size is estimated with deflate.
+     *
+     * @param packageSize the size of the created package or 0 if not known
+     * @return the summary
+     */
+    public String getReport( long packageSize ) {
+        long original = originalBytes.get();
+        long estimated = estimatedBytes.get();
+        StringBuilder report = new StringBuilder();
+        report.append( "Normalized " ).append( jarCount.get() ).append( " jar files: " ).append( original ).append( " bytes before, " );
+        report.append( normalizedBytes.get() ).append( " bytes after, about " ).append( estimated ).append( " bytes compressed" );
+        if( packageSize > 0 ) {
+            report.append( ". " ).append( getPackageReport( packageSize, original - estimated ) );
+        }
+        return report.toString();
+    }
+
+    /**
+     * Get the summary of the package size.
+     *
+     * @param packageSize the size of the created package
+     * @param savedBytes the estimated bytes that the normalization saves
+     * @return the summary
+     */
+    public static String getPackageReport( long packageSize, long savedBytes ) {
+        return "Package size " + packageSize + " bytes, without normalization about " + (packageSize + savedBytes) + " bytes";
+    }
+
+    /**
+     * Get the estimated bytes that the normalization saves in a compressed package.
+     *
+     * @return the saved bytes
+     */
+    public long getSavedBytes() {
+        return originalBytes.get() - estimatedBytes.get();
+    }
+
+    /**
+     * If jar files were normalized.
+     *
+     * @return true, if any
+     */
+    public boolean hasNormalized() {
+        return jarCount.get() > 0;
+    }
+
+    /**
+     * Write to two streams.
+     */
+    private static class TeeOutputStream extends FilterOutputStream {
+
+        private final OutputStream second;
+
+        /**
+         * Create a new instance.
+         *
+         * @param first the first stream
+         * @param second the second stream
+         */
+        TeeOutputStream( OutputStream first, OutputStream second ) {
+            super( first );
+            this.second = second;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write( int b ) throws IOException {
+            out.write( b );
+            second.write( b );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write( byte[] b, int off, int len ) throws IOException {
+            out.write( b, off, len );
+            second.write( b, off, len );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                second.close();
+            }
+        }
+    }
+
+    /**
+     * Compress the written data and count the compressed bytes.
+     */
+    private static class CountingOutputStream extends DeflaterOutputStream {
+
+        /**
+         * Create a new instance.
+         */
+        CountingOutputStream() {
+            super( new Counter(), new Deflater( ESTIMATE_LEVEL, true ), 65536 );
+        }
+
+        /**
+         * The compressed size. Valid after close.
+         *
+         * @return the size
+         */
+        long count() {
+            return ((Counter)out).count;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() throws IOException {
+            super.close();
+            def.end();
+        }
+    }
+
+    /**
+     * Count the written bytes and discard the data.
+     */
+    private static class Counter extends OutputStream {
+
+        private long count;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write( int b ) {
+            count++;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write( byte[] b, int off, int len ) {
+            count += len;
+        }
+    }
+}
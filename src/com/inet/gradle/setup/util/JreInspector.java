@@ -0,0 +1,573 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inspects a Java runtime directory without starting it. The version is read from the "release" file, the
+ * architecture from the ELF, PE or Mach-O header of the java executable and the modules from the "lib/modules" image.
+ * This works also for a runtime of another platform that can not be executed on the build host.
+ * <p>
+ * The results are cached per directory for the lifetime of the build JVM, so every builder can ask again without cost.
+ */
+public class JreInspector {
+
+    private static final Map<File, JreInspector> CACHE         = new ConcurrentHashMap<>();
+
+    private static final int                     JIMAGE_MAGIC  = 0xCAFEDADA;
+
+    private static final int                     JIMAGE_HEADER = 7 * 4;
+
+    private final File                           home;
+
+    private final File                           javaExecutable;
+
+    private final long                           stamp;
+
+    private final String                         version;
+
+    private final String                         architecture;
+
+    private final List<String>                   modules;
+
+    private final boolean                        jdk;
+
+    /**
+     * Inspect a directory.
+     *
+     * @param dir the directory of the JRE or JDK
+     * @param stamp the modification stamp of the directory
+     */
+    private JreInspector( File dir, long stamp ) {
+        this.stamp = stamp;
+        this.home = findHome( dir );
+        this.javaExecutable = findJava( home );
+
+        Properties release = readRelease( home );
+        String version = release.getProperty( "JAVA_VERSION" );
+        this.version = version == null || version.isEmpty() ? null : version;
+
+        String architecture = null;
+        if( javaExecutable != null ) {
+            try {
+                architecture = readArchitecture( javaExecutable );
+            } catch( IOException ex ) {
+                Logging.syserr( "Can not read the header of '" + javaExecutable + "': " + ex );
+            }
+        }
+        this.architecture = architecture;
+
+        List<String> modules = Collections.emptyList();
+        File image = new File( home, "lib/modules" );
+        try {
+            if( image.isFile() ) {
+                modules = readModules( image );
+            } else {
+                String names = release.getProperty( "MODULES" );
+                if( names != null && !names.trim().isEmpty() ) {
+                    modules = Arrays.asList( names.trim().split( "\\s+" ) );
+                }
+            }
+        } catch( IOException ex ) {
+            Logging.syserr( "Can not read the modules of '" + image + "': " + ex );
+        }
+        this.modules = Collections.unmodifiableList( modules );
+
+        this.jdk = new File( home, "bin/javac" ).isFile() || new File( home, "bin/javac.exe" ).isFile();
+    }
+
+    /**
+     * Get the inspection result of a runtime directory. It is inspected on the first call and again only if the java
+     * executable or the release file was changed.
+     *
+     * @param dir the directory of the JRE or JDK. A JDK 8 with a "jre" sub directory and a macOS bundle with
+     *            "Contents/Home" are resolved.
+     * @return the result, never null
+     */
+    public static JreInspector get( File dir ) {
+        File key = dir.getAbsoluteFile();
+        try {
+            key = dir.getCanonicalFile();
+        } catch( IOException ex ) {
+            // use the absolute file
+        }
+        long stamp = stampOf( findHome( key ) );
+        JreInspector inspector = CACHE.get( key );
+        if( inspector == null || inspector.stamp != stamp ) {
+            inspector = new JreInspector( key, stamp );
+            CACHE.put( key, inspector );
+        }
+        return inspector;
+    }
+
+    /**
+     * The directory of the runtime. This can be a sub directory of the inspected directory.
+     *
+     * @return the directory
+     */
+    public File getHome() {
+        return home;
+    }
+
+    /**
+     * The java executable: bin/java or bin/java.exe
+     *
+     * @return the file or null if there is none
+     */
+    public File getJavaExecutable() {
+        return javaExecutable;
+    }
+
+    /**
+     * The value of JAVA_VERSION from the release file, for example "11.0.2" or "1.8.0_202"
+     *
+     * @return the version or null if there is no release file
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * The feature release number of the version, for example 8 for "1.8.0_202" or 17 for "17.0.9"
+     *
+     * @return the number or 0 if the version is unknown
+     */
+    public int getFeatureVersion() {
+        if( version == null ) {
+            return 0;
+        }
+        String feature = stripLegacyPrefix( version ).split( "\\D", 2 )[0];
+        return feature.isEmpty() ? 0 : Integer.parseInt( feature );
+    }
+
+    /**
+     * The architecture of the java executable with the names of the system property "os.arch", for example "amd64",
+     * "x86", "aarch64" or "ppc64le". A universal macOS binary returns all names separated with a "+".
+     *
+     * @return the architecture or null if the executable has no known format
+     */
+    public String getArchitecture() {
+        return architecture;
+    }
+
+    /**
+     * The names of the modules in the runtime image, sorted.
+     *
+     * @return the modules, empty for a Java 8 runtime
+     */
+    public List<String> getModules() {
+        return modules;
+    }
+
+    /**
+     * If the runtime contains the compiler, for example a JDK 11 without "jre" sub directory.
+     *
+     * @return true, if it is a JDK
+     */
+    public boolean isJdk() {
+        return jdk;
+    }
+
+    /**
+     * If the directory contains a java executable of a known binary format.
+     *
+     * @return true, if valid
+     */
+    public boolean isValid() {
+        return architecture != null;
+    }
+
+    /**
+     * Check if the version matches a version prefix. A leading "1." is ignored on both sides, so that "8" and "1.8"
+     * match "1.8.0_202". The prefix must end on a version boundary, "1" does not match "11.0.2".
+     *
+     * @param prefix the version prefix
+     * @return true, if the version starts with the prefix
+     */
+    public boolean matchesVersion( String prefix ) {
+        if( version == null ) {
+            return false;
+        }
+        String current = stripLegacyPrefix( version );
+        prefix = stripLegacyPrefix( prefix );
+        if( !current.startsWith( prefix ) ) {
+            return false;
+        }
+        return current.length() == prefix.length() || !Character.isDigit( current.charAt( prefix.length() ) );
+    }
+
+    /**
+     * Compare the versions of two runtimes by its numeric parts.
+     *
+     * @param a the first runtime
+     * @param b the second runtime
+     * @return negative, zero or positive like a comparator
+     */
+    public static int compareVersion( JreInspector a, JreInspector b ) {
+        String[] x = stripLegacyPrefix( String.valueOf( a.version ) ).split( "\\D+" );
+        String[] y = stripLegacyPrefix( String.valueOf( b.version ) ).split( "\\D+" );
+        for( int i = 0; i < Math.max( x.length, y.length ); i++ ) {
+            long p = i < x.length && !x[i].isEmpty() ? Long.parseLong( x[i] ) : 0;
+            long q = i < y.length && !y[i].isEmpty() ? Long.parseLong( y[i] ) : 0;
+            if( p != q ) {
+                return Long.compare( p, q );
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "version " + version + ", " + architecture + ( modules.isEmpty() ? "" : ", " + modules.size() + " modules" );
+    }
+
+    /**
+     * Remove the "1." of versions before Java 9.
+     *
+     * @param version the version
+     * @return the version without the prefix
+     */
+    private static String stripLegacyPrefix( String version ) {
+        return version.length() > 2 && version.startsWith( "1." ) ? version.substring( 2 ) : version;
+    }
+
+    /**
+     * Resolve the directory of the runtime.
+     *
+     * @param dir the inspected directory
+     * @return the home directory
+     */
+    private static File findHome( File dir ) {
+        File macHome = new File( dir, "Contents/Home" );
+        if( macHome.isDirectory() ) {
+            dir = macHome;
+        }
+        File jre = new File( dir, "jre" );
+        if( findJava( jre ) != null ) {
+            // JDK up to Java 8
+            return jre;
+        }
+        return dir;
+    }
+
+    /**
+     * Find the java executable.
+     *
+     * @param home the home directory
+     * @return the executable or null
+     */
+    private static File findJava( File home ) {
+        for( String name : new String[] { "bin/java", "bin/java.exe" } ) {
+            File file = new File( home, name );
+            if( file.isFile() ) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Calculate a stamp of the files that are inspected.
+     *
+     * @param home the home directory
+     * @return the stamp
+     */
+    private static long stampOf( File home ) {
+        File java = findJava( home );
+        return 31 * (java == null ? 0 : java.lastModified()) + new File( home, "release" ).lastModified() + new File( home, "lib/modules" ).lastModified();
+    }
+
+    /**
+     * Read the release file. A JDK 8 has it only in the parent of the "jre" directory.
+     *
+     * @param home the home directory
+     * @return the properties with the quotes removed, empty if there is no release file
+     */
+    private static Properties readRelease( File home ) {
+        Properties properties = new Properties();
+        File release = new File( home, "release" );
+        if( !release.isFile() && home.getName().equals( "jre" ) ) {
+            release = new File( home.getParentFile(), "release" );
+        }
+        if( release.isFile() ) {
+            try( InputStream input = Files.newInputStream( release.toPath() ) ) {
+                properties.load( input );
+            } catch( IOException ex ) {
+                Logging.syserr( "Can not read '" + release + "': " + ex );
+            }
+            for( String name : properties.stringPropertyNames() ) {
+                String value = properties.getProperty( name ).trim();
+                if( value.length() >= 2 && value.startsWith( "\"" ) && value.endsWith( "\"" ) ) {
+                    properties.setProperty( name, value.substring( 1, value.length() - 1 ) );
+                }
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Read the architecture from the header of an executable.
+     *
+     * @param executable the ELF, PE or Mach-O file
+     * @return the architecture or null if the format is unknown
+     * @throws IOException if an I/O error occurs
+     */
+    static String readArchitecture( File executable ) throws IOException {
+        try( RandomAccessFile file = new RandomAccessFile( executable, "r" ) ) {
+            ByteBuffer header = ByteBuffer.allocate( 64 );
+            file.getChannel().read( header, 0 );
+            header.flip();
+            if( header.remaining() < 20 ) {
+                return null;
+            }
+            int magic = header.getInt( 0 );
+
+            if( magic == 0x7F454C46 ) { // \u007FELF
+                header.order( header.get( 5 ) == 2 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN );
+                return elfMachine( header.getShort( 18 ) & 0xFFFF, header.order() == ByteOrder.LITTLE_ENDIAN );
+            }
+
+            if( (magic >>> 16) == 0x4D5A ) { // MZ
+                header.order( ByteOrder.LITTLE_ENDIAN );
+                if( header.remaining() < 0x40 ) {
+                    return null;
+                }
+                long offset = header.getInt( 0x3C ) & 0xFFFFFFFFL;
+                ByteBuffer pe = ByteBuffer.allocate( 6 ).order( ByteOrder.LITTLE_ENDIAN );
+                file.getChannel().read( pe, offset );
+                if( pe.position() < 6 || pe.getInt( 0 ) != 0x00004550 ) { // PE\0\0
+                    return null;
+                }
+                return peMachine( pe.getShort( 4 ) & 0xFFFF );
+            }
+
+            if( magic == 0xCAFEBABE ) { // universal binary, always big endian
+                int count = header.getInt( 4 );
+                List<String> archs = new ArrayList<>();
+                ByteBuffer entries = ByteBuffer.allocate( count * 20 );
+                file.getChannel().read( entries, 8 );
+                for( int i = 0; i < count && (i + 1) * 20 <= entries.position(); i++ ) {
+                    String arch = machoCpu( entries.getInt( i * 20 ) );
+                    if( arch != null ) {
+                        archs.add( arch );
+                    }
+                }
+                return archs.isEmpty() ? null : String.join( "+", archs );
+            }
+
+            header.order( ByteOrder.LITTLE_ENDIAN );
+            int le = header.getInt( 0 );
+            if( le == 0xFEEDFACE || le == 0xFEEDFACF ) {
+                return machoCpu( header.getInt( 4 ) );
+            }
+            if( magic == 0xFEEDFACE || magic == 0xFEEDFACF ) {
+                header.order( ByteOrder.BIG_ENDIAN );
+                return machoCpu( header.getInt( 4 ) );
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Map the e_machine value of an ELF header.
+     *
+     * @param machine the value
+     * @param littleEndian the byte order of the file
+     * @return the architecture
+     */
+    private static String elfMachine( int machine, boolean littleEndian ) {
+        switch( machine ) {
+            case 3:
+                return "x86";
+            case 62:
+                return "amd64";
+            case 40:
+                return "arm";
+            case 183:
+                return "aarch64";
+            case 20:
+                return "ppc";
+            case 21:
+                return littleEndian ? "ppc64le" : "ppc64";
+            case 22:
+                return "s390x";
+            case 243:
+                return "riscv64";
+            case 2:
+                return "sparc";
+            case 43:
+                return "sparcv9";
+            default:
+                return "elf-" + machine;
+        }
+    }
+
+    /**
+     * Map the machine value of a PE header.
+     *
+     * @param machine the value
+     * @return the architecture
+     */
+    private static String peMachine( int machine ) {
+        switch( machine ) {
+            case 0x014C:
+                return "x86";
+            case 0x8664:
+                return "amd64";
+            case 0xAA64:
+                return "aarch64";
+            case 0x01C4:
+                return "arm";
+            case 0x0200:
+                return "ia64";
+            default:
+                return "pe-" + Integer.toHexString( machine );
+        }
+    }
+
+    /**
+     * Map the cputype of a Mach-O header.
+     *
+     * @param cpu the value
+     * @return the architecture or null for an unknown type
+     */
+    private static String machoCpu( int cpu ) {
+        switch( cpu ) {
+            case 7:
+                return "x86";
+            case 0x01000007:
+                return "x86_64";
+            case 12:
+                return "arm";
+            case 0x0100000C:
+                return "aarch64";
+            case 18:
+                return "ppc";
+            case 0x01000012:
+                return "ppc64";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Read the module names from the index of a jimage file. Every module has a resource "/&lt;module&gt;/module-info.class".
+     * Only the index at the start of the file is mapped, the resources are not read.
+     *
+     * @param image the lib/modules file
+     * @return the sorted module names
+     * @throws IOException if an I/O error occurs or the file is not a jimage
+     */
+    static List<String> readModules( File image ) throws IOException {
+        try( RandomAccessFile file = new RandomAccessFile( image, "r" ); FileChannel channel = file.getChannel() ) {
+            ByteBuffer header = ByteBuffer.allocate( JIMAGE_HEADER ).order( ByteOrder.LITTLE_ENDIAN );
+            channel.read( header, 0 );
+            if( header.position() < JIMAGE_HEADER ) {
+                throw new IOException( "Invalid jimage header" );
+            }
+            if( header.getInt( 0 ) != JIMAGE_MAGIC ) {
+                header.order( ByteOrder.BIG_ENDIAN );
+                if( header.getInt( 0 ) != JIMAGE_MAGIC ) {
+                    throw new IOException( "Invalid jimage magic" );
+                }
+            }
+            int tableLength = header.getInt( 16 );
+            int locationsSize = header.getInt( 20 );
+            int stringsSize = header.getInt( 24 );
+            long indexSize = JIMAGE_HEADER + 8L * tableLength + locationsSize + stringsSize;
+            if( tableLength < 0 || locationsSize < 0 || stringsSize < 0 || indexSize > channel.size() ) {
+                throw new IOException( "Invalid jimage index" );
+            }
+
+            ByteBuffer index = channel.map( FileChannel.MapMode.READ_ONLY, 0, indexSize ).order( header.order() );
+            int offsets = JIMAGE_HEADER + 4 * tableLength;
+            int locations = offsets + 4 * tableLength;
+            int strings = locations + locationsSize;
+
+            TreeSet<String> modules = new TreeSet<>();
+            long[] attributes = new long[8];
+            for( int i = 0; i < tableLength; i++ ) {
+                int pos = locations + index.getInt( offsets + 4 * i );
+                Arrays.fill( attributes, 0 );
+                while( pos < strings ) {
+                    int data = index.get( pos++ ) & 0xFF;
+                    int kind = data >>> 3;
+                    if( kind == 0 ) {
+                        break;
+                    }
+                    int length = (data & 7) + 1;
+                    long value = 0;
+                    for( int j = 0; j < length; j++ ) {
+                        value = (value << 8) | (index.get( pos++ ) & 0xFF);
+                    }
+                    if( kind < attributes.length ) {
+                        attributes[kind] = value;
+                    }
+                }
+                // attributes: 1 module, 2 parent, 3 base, 4 extension
+                if( attributes[2] == 0 && "module-info".equals( readString( index, strings, attributes[3] ) )
+                                && "class".equals( readString( index, strings, attributes[4] ) ) ) {
+                    String module = readString( index, strings, attributes[1] );
+                    if( !module.isEmpty() ) {
+                        modules.add( module );
+                    }
+                }
+            }
+            return new ArrayList<>( modules );
+        }
+    }
+
+    /**
+     * Read a zero terminated string of the jimage string table.
+     *
+     * @param index the mapped index
+     * @param strings the start of the string table
+     * @param offset the offset of the string
+     * @return the string
+     */
+    private static String readString( ByteBuffer index, int strings, long offset ) {
+        int start = strings + (int)offset;
+        int end = start;
+        while( end < index.limit() && index.get( end ) != 0 ) {
+            end++;
+        }
+        byte[] bytes = new byte[end - start];
+        for( int i = 0; i < bytes.length; i++ ) {
+            bytes[i] = index.get( start + i );
+        }
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.gradle.api.GradleException;
+
+/**
+ * Creates a minimal Java runtime for the jar files of a setup. The required modules are calculated with jdeps and the
+ * runtime is created with jlink. Both tools are executed from the source JDK, so the JDK must be executable on the build
+ * host. The runtime images are stored in a {@link ContentCache} by the JDK and the module set.
+ */
+public class MinimalRuntime {
+
+    /** The jlink options for a small runtime */
+    private static final List<String>        JLINK_OPTIONS = Arrays.asList( "--strip-debug", "--no-header-files", "--no-man-pages", "--compress=2" );
+
+    private static final Map<String, String> MODULES       = new ConcurrentHashMap<>();
+
+    private final JreInspector               jdk;
+
+    /**
+     * Create a new instance.
+     *
+     * @param jdk the source JDK
+     */
+    private MinimalRuntime( JreInspector jdk ) {
+        this.jdk = jdk;
+    }
+
+    /**
+     * Create or get from the cache a minimal runtime.
+     *
+     * @param source the source JDK or null for the JDK that runs the build
+     * @param jars the jar files of the application
+     * @param additionalModules modules that should be included additionally
+     * @return the directory of the runtime. The content must not be modified.
+     * @throws IOException if an I/O error occurs
+     */
+    public static File create( File source, Collection<File> jars, Collection<String> additionalModules ) throws IOException {
+        MinimalRuntime runtime = new MinimalRuntime( findJdk( source ) );
+        TreeSet<String> modules = runtime.findModules( jars );
+        if( additionalModules != null ) {
+            modules.addAll( additionalModules );
+        }
+        return runtime.link( modules );
+    }
+
+    /**
+     * Find the JDK with jlink and jmods.
+     *
+     * @param source the configured runtime or null
+     * @return the JDK
+     */
+    private static JreInspector findJdk( File source ) {
+        File dir = source;
+        if( dir == null ) {
+            dir = new File( System.getProperty( "java.home" ) );
+        }
+        if( !dir.isDirectory() ) {
+            throw new GradleException( "A minimal runtime requires a JDK directory as bundleJre: " + dir );
+        }
+        JreInspector jdk = JreInspector.get( dir );
+        if( jdk.getVersion() == null ) {
+            throw new GradleException( "The release file of the JDK is missing: " + dir );
+        }
+        if( getTool( jdk, "jlink" ) == null || !new File( jdk.getHome(), "jmods" ).isDirectory() ) {
+            throw new GradleException( "A minimal runtime requires a JDK 11 or newer with jlink and jmods: " + dir );
+        }
+        String architecture = jdk.getArchitecture();
+        if( architecture != null && !Arrays.asList( architecture.split( "\\+" ) ).contains( System.getProperty( "os.arch" ) ) ) {
+            // jdeps and jlink of the JDK are executed, a JDK of another architecture can not run
+            throw new GradleException( "A minimal runtime requires a JDK for the architecture of the build host (" + System.getProperty( "os.arch" ) + "), found '" + architecture + "': " + dir );
+        }
+        return jdk;
+    }
+
+    /**
+     * Get a tool of the JDK.
+     *
+     * @param jdk the JDK
+     * @param name the name of the tool
+     * @return the executable or null
+     */
+    private static File getTool( JreInspector jdk, String name ) {
+        for( String file : new String[] { name, name + ".exe" } ) {
+            File tool = new File( jdk.getHome(), "bin/" + file );
+            if( tool.isFile() ) {
+                return tool;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Calculate the required modules of the jar files with jdeps. The result is cached for the build, so that the
+     * second package of the same files does not run jdeps again.
+     *
+     * @param jars the jar files
+     * @return the module names
+     * @throws IOException if an I/O error occurs
+     */
+    private TreeSet<String> findModules( Collection<File> jars ) throws IOException {
+        TreeSet<String> modules = new TreeSet<>();
+        modules.add( "java.base" );
+        if( jars.isEmpty() ) {
+            return modules;
+        }
+
+        List<String> classPath = new ArrayList<>();
+        ContentCache.Key key = new ContentCache.Key( "jdeps" ).add( jdk.getHome().getAbsolutePath() );
+        for( File jar : jars ) {
+            classPath.add( jar.getAbsolutePath() );
+            key.add( jar.getName() + ':' + jar.length() + ':' + jar.lastModified() );
+        }
+        classPath.sort( null );
+        String cacheKey = key.toString();
+
+        String deps = MODULES.get( cacheKey );
+        if( deps == null ) {
+            List<String> command = new ArrayList<>();
+            command.add( getTool( jdk, "jdeps" ).getAbsolutePath() );
+            command.add( "--print-module-deps" );
+            command.add( "--ignore-missing-deps" );
+            command.add( "-q" );
+            command.add( "--multi-release" );
+            command.add( Integer.toString( jdk.getFeatureVersion() ) );
+            command.add( "--class-path" );
+            command.add( String.join( File.pathSeparator, classPath ) );
+            command.addAll( classPath );
+            deps = exec( command.toArray( new String[command.size()] ) );
+            MODULES.put( cacheKey, deps );
+        }
+        // the module list is the last line, warnings can be printed before
+        String[] lines = deps.trim().split( "\\R" );
+        for( String module : lines[lines.length - 1].split( "[,\\s]+" ) ) {
+            if( !module.isEmpty() ) {
+                modules.add( module );
+            }
+        }
+        return modules;
+    }
+
+    /**
+     * Create the runtime with jlink or get it from the cache.
+     *
+     * @param modules the modules of the runtime
+     * @return the directory of the runtime
+     * @throws IOException if an I/O error occurs
+     */
+    private File link( TreeSet<String> modules ) throws IOException {
+        String key = new ContentCache.Key( "jlink" ).add( jdk.getHome().getAbsolutePath() ).add( String.valueOf( jdk.getVersion() ) ) //
+                        .add( String.valueOf( jdk.getArchitecture() ) ).add( new ArrayList<>( modules ) ).add( JLINK_OPTIONS ).toString();
+        return ContentCache.getDefault( "jlink" ).get( key, output -> {
+            // jlink requires that the output directory does not exist
+            Files.delete( output.toPath() );
+            List<String> command = new ArrayList<>();
+            command.add( getTool( jdk, "jlink" ).getAbsolutePath() );
+            command.add( "--module-path" );
+            command.add( new File( jdk.getHome(), "jmods" ).getAbsolutePath() );
+            command.add( "--add-modules" );
+            command.add( String.join( ",", modules ) );
+            command.addAll( JLINK_OPTIONS );
+            command.add( "--output" );
+            command.add( output.getAbsolutePath() );
+            exec( command.toArray( new String[command.size()] ) );
+            setTimes( output );
+        } );
+    }
+
+    /**
+     * Set the time of all files of a created runtime to the time of the JDK. The entry is linked into the packages. A
+     * reproducible build clamps the newer files to the source date epoch and must copy them for it. With the time of
+     * the JDK the runtime is not newer than a source date epoch after the JDK release.
+     *
+     * @param runtime the directory of the runtime
+     * @throws IOException if an I/O error occurs
+     */
+    private void setTimes( File runtime ) throws IOException {
+        File release = new File( jdk.getHome(), "release" );
+        if( !release.isFile() ) {
+            return;
+        }
+        FileTime time = Files.getLastModifiedTime( release.toPath() );
+        try( Stream<Path> files = Files.walk( runtime.toPath() ) ) {
+            for( Path file : (Iterable<Path>)files::iterator ) {
+                if( !Files.isSymbolicLink( file ) ) {
+                    Files.setLastModifiedTime( file, time );
+                }
+            }
+        }
+    }
+
+    /**
+     * Execute a tool of the JDK.
+     *
+     * @param command the command line
+     * @return the output
+     * @throws IOException if the tool can not be started
+     */
+    private static String exec( String... command ) throws IOException {
+        Logging.sysout( "\tCommand: " + String.join( " ", command ) );
+        Process process = new ProcessBuilder( command ).redirectErrorStream( true ).start();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try( InputStream input = process.getInputStream() ) {
+            byte[] buffer = new byte[8192];
+            for( int count; (count = input.read( buffer )) > 0; ) {
+                output.write( buffer, 0, count );
+            }
+        }
+        int exitValue;
+        try {
+            exitValue = process.waitFor();
+        } catch( InterruptedException ex ) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new GradleException( "Interrupted: " + command[0], ex );
+        }
+        String result = new String( output.toByteArray(), Charset.defaultCharset() );
+        if( exitValue != 0 ) {
+            throw new GradleException( "Command failed with exit value " + exitValue + ": " + String.join( " ", command ) + "\n" + result );
+        }
+        return result;
+    }
+}
@@ -20,12 +20,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Enumeration;
 import java.util.function.Function;
@@ -39,6 +41,9 @@ import java.util.zip.ZipFile;
  */
 public class ResourceUtils {
 
+    /** Files from this size are copied with transferTo */
+    private static final long TRANSFER_MIN_SIZE = 1 << 20;
+
     /**
      * Extract a resource file and save it as file.
      *
@@ -231,4 +236,33 @@ public class ResourceUtils {
             }
         }
     }
+
+    /**
+     * Copy a file without a buffer in the Java heap. Small files are copied with
+     * {@link Files#copy(Path, Path, java.nio.file.CopyOption...)}, large files with
+     * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, so that the kernel can copy
+     * the data with copy_file_range or sendfile.
+     *
+     * @param source the source file
+     * @param target the target file, an existing file is replaced and not overwritten because it can be a hard link
+     * @throws IOException if an I/O error occurs
+     */
+    public static void copyFile( Path source, Path target ) throws IOException {
+        Files.deleteIfExists( target );
+        if( Files.size( source ) < TRANSFER_MIN_SIZE ) {
+            Files.copy( source, target );
+            return;
+        }
+        try( FileChannel input = FileChannel.open( source, StandardOpenOption.READ );
+                        FileChannel output = FileChannel.open( target, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW ) ) {
+            long size = input.size();
+            for( long pos = 0; pos < size; ) {
+                long count = input.transferTo( pos, size - pos, output );
+                if( count <= 0 ) {
+                    throw new IOException( "Can't copy " + source + " to " + target );
+                }
+                pos += count;
+            }
+        }
+    }
 }
@@ -9,7 +9,7 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 
 /**
- * Automatically create and tear down a temporary directory
+ * A temporary directory that is torn down by the {@link TempSpace} at the end of the build.
  * Also create additional directories when needed.
  *
  * @author gamma
@@ -20,37 +20,38 @@ public class TempPath {
     private Path tmp;
 
     /**
-     * Create a TempPath in a defined directory
+     * Create a TempPath in a defined directory. The directory is removed on shutdown of the JVM.
      * @param root the root path of the temporary directory. Should be used with the tasks temp dir.
+     * @deprecated use {@link TempSpace#createTempPath(Path)}, that releases the directory on the end of the build
      */
+    @Deprecated
     public TempPath( Path root ) {
-        tmp = root;
-        if ( !tmp.toFile().exists() ) {
-            tmp.toFile().mkdirs();
-        }
-
-        // Add a shutdown hook to kill the sub process faster
-        Runtime.getRuntime().addShutdownHook( new Thread( new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    clearTemporaryFolder();
-                } catch( Exception e ) {
-                    System.err.println( "Could not remove temporary Resources" );
-                    e.printStackTrace();
-                }
-            }
-        } ) );
+        this( TempSpace.getDefault(), root );
     }
 
     /**
-     * Create a TempPath in a temporary Directory
+     * Create a TempPath in a temporary Directory. The directory is removed on shutdown of the JVM.
      * @throws IOException in case of errors while creating the temporary directory
+     * @deprecated use {@link TempSpace#createTempPath(Path)}, that releases the directory on the end of the build
      */
+    @Deprecated
     public TempPath() throws IOException {
         this( Files.createTempDirectory( "SetupBuilder" ) );
     }
 
+    /**
+     * Create a TempPath in a defined directory, that is released with the temp space.
+     * @param space the temp space
+     * @param root the root path of the temporary directory
+     */
+    TempPath( TempSpace space, Path root ) {
+        tmp = root;
+        if ( !tmp.toFile().exists() ) {
+            tmp.toFile().mkdirs();
+        }
+        space.track( root );
+    }
+
     /**
      * Return the temporary root folder as string
      *
@@ -127,15 +128,6 @@ public class TempPath {
         return new File( get( directory ).toFile(), file ).toString();
     }
 
-    /**
-     * Clear up all the content from below the tmp directory.
-     *
-     * @throws Exception in case of fire.
-     */
-    private void clearTemporaryFolder() throws Exception {
-        clearTemporaryFolder( tmp );
-    }
-
     /**
      * Clear up all the content from below the given directory.
      * @param tmp the temporary file
@@ -148,7 +140,17 @@ public class TempPath {
             Logging.sysout( "Will not remove path due to debugging: " + tmp.toString() );
             return;
         }
-        
+
+        deleteTree( tmp );
+        Logging.sysout( "Removed the temporary content at: " + tmp.toString() );
+    }
+
+    /**
+     * Delete the given directory with all its content, also if debugging is enabled.
+     * @param tmp the directory
+     * @throws IOException if a file can not be deleted
+     */
+    static void deleteTree( Path tmp ) throws IOException {
         Files.walkFileTree( tmp, new SimpleFileVisitor<Path>() {
             @Override
             public FileVisitResult visitFile( Path file, BasicFileAttributes attrs ) throws IOException {
@@ -162,7 +164,5 @@ public class TempPath {
                 return FileVisitResult.CONTINUE;
             }
         } );
-
-        Logging.sysout( "Removed the temporary content at: " + tmp.toString() );
     }
 }
@@ -0,0 +1,456 @@
+/*
+ * Copyright 2026 i-net software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.inet.gradle.setup.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+//// if gradleVersion < 6.1
+import java.util.Map;
+import java.util.WeakHashMap;
+//// endif
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gradle.api.Project;
+/*// if gradleVersion >= 6.1
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+*/// else
+import org.gradle.api.invocation.Gradle;
+//// endif
+
+/**
+ * Manage the temporary directories of a single Gradle build. The directories are released when the build finished and
+ * not on shutdown of the JVM. This is important for a long living Gradle daemon. A released directory is renamed into a
+ * trash folder and deleted in the background, so that neither the build nor the daemon is blocked by large trees.
+ * Leftover directories (pending deletes or kept for debugging) are limited by a quota.
+ * <p>
+ * With Gradle 6.1 and newer the temp space is held by a build service, that Gradle closes on the end of the build, so
+ * no build listener is needed and the configuration cache can be used.
+ */
+public class TempSpace {
+
+    /*// if gradleVersion >= 6.1
+    // The build service that holds the temp space of a build. Gradle closes it if the build finished.
+    public abstract static class Lifetime implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+
+        private final TempSpace space = new TempSpace();
+
+        @Override
+        public void close() {
+            space.close();
+        }
+    }
+    */// endif
+
+    /** The name of the folder that holds the released directories until they are deleted. */
+    static final String                         TRASH         = ".setupbuilder-trash";
+
+    /** The default quota for leftover directories: 1 GB */
+    public static final long                    DEFAULT_QUOTA = 1024L * 1024 * 1024;
+
+    //// if gradleVersion < 6.1
+    private static final Map<Gradle, TempSpace> SPACES        = new WeakHashMap<>();
+    //// endif
+
+    private static final AtomicInteger          COUNTER       = new AtomicInteger();
+
+    private static final ExecutorService        DELETER       = Executors.newSingleThreadExecutor( runnable -> {
+                                                                  Thread thread = new Thread( runnable, "SetupBuilder temp cleanup" );
+                                                                  thread.setDaemon( true );
+                                                                  return thread;
+                                                              } );
+
+    private static TempSpace                    defaultSpace;
+
+    private final Set<Path>                     tracked       = new LinkedHashSet<>();
+
+    private final Set<Path>                     trashes       = new LinkedHashSet<>();
+
+    private final List<Future<?>>               pending       = new ArrayList<>();
+
+    private long                                quota         = DEFAULT_QUOTA;
+
+    /**
+     * Get the temp space of the current build. It is created on first access and released if the build finished.
+     *
+     * @param project any project of the build
+     * @return the temp space, never null
+     */
+    public static TempSpace get( Project project ) {
+        return reference( project ).get();
+    }
+
+    /**
+     * Get a reference to the temp space of the current build, that can be held by an extension or a task. The
+     * reference does not hold the project, so that the configuration cache can store it.
+     *
+     * @param project any project of the build
+     * @return the reference
+     */
+    public static Reference reference( Project project ) {
+        return new Reference( project );
+    }
+
+    /**
+     * A reference to the temp space of a build. With Gradle 6.1 and newer this is the provider of the build service.
+     */
+    public static class Reference {
+
+        /*// if gradleVersion >= 6.1
+        private final Provider<Lifetime> lifetime;
+        */// else
+        private final transient Gradle   gradle;
+        //// endif
+
+        /**
+         * Create the reference.
+         *
+         * @param project any project of the build
+         */
+        private Reference( Project project ) {
+            /*// if gradleVersion >= 6.1
+            lifetime = project.getGradle().getSharedServices().registerIfAbsent( "setupBuilderTempSpace", Lifetime.class, spec -> {} );
+            */// else
+            gradle = project.getGradle();
+            //// endif
+        }
+
+        /**
+         * Get the temp space. It is created on first access.
+         *
+         * @return the temp space, never null
+         */
+        public TempSpace get() {
+            /*// if gradleVersion >= 6.1
+            return lifetime.get().space;
+            */// else
+            return TempSpace.get( gradle );
+            //// endif
+        }
+    }
+
+    //// if gradleVersion < 6.1
+    /**
+     * Get the temp space of a build and release it if the build finished.
+     *
+     * @param gradle the build
+     * @return the temp space, never null
+     */
+    private static TempSpace get( Gradle gradle ) {
+        synchronized( SPACES ) {
+            TempSpace space = SPACES.get( gradle );
+            if( space == null ) {
+                TempSpace newSpace = new TempSpace();
+                gradle.buildFinished( result -> {
+                    synchronized( SPACES ) {
+                        SPACES.remove( gradle );
+                    }
+                    newSpace.close();
+                } );
+                SPACES.put( gradle, newSpace );
+                space = newSpace;
+            }
+            return space;
+        }
+    }
+    //// endif
+
+    /**
+     * Get the temp space for the deprecated constructors of {@link TempPath}, that have no build. Its directories are
+     * deleted on shutdown of the JVM.
+     *
+     * @return the temp space, never null
+     */
+    static synchronized TempSpace getDefault() {
+        if( defaultSpace == null ) {
+            TempSpace space = new TempSpace();
+            Runtime.getRuntime().addShutdownHook( new Thread( space::deleteTracked, "SetupBuilder temp cleanup" ) );
+            defaultSpace = space;
+        }
+        return defaultSpace;
+    }
+
+    /**
+     * Create a temp space. Use {@link #get(Project)}.
+     */
+    private TempSpace() {
+    }
+
+    /**
+     * Set the quota for leftover directories. If the quota is exceeded then new temporary directories wait for the
+     * pending deletes and directories that are kept for debugging are removed, oldest first.
+     *
+     * @param quota the quota in bytes, 0 or less disable the check
+     */
+    public void setQuota( long quota ) {
+        this.quota = quota;
+    }
+
+    /**
+     * Get the quota for leftover directories.
+     *
+     * @return the quota in bytes
+     */
+    public long getQuota() {
+        return quota;
+    }
+
+    /**
+     * Create a temporary directory that is released on the end of the build.
+     *
+     * @param root the root of the temporary directory
+     * @return the TempPath
+     */
+    public TempPath createTempPath( Path root ) {
+        TempPath tempPath = new TempPath( this, root );
+        enforceQuota();
+        return tempPath;
+    }
+
+    /**
+     * Register a directory that should be released on the end of the build. Leftovers of previous builds in the trash
+     * folder next to it are counted to the quota.
+     *
+     * @param dir the directory
+     */
+    public synchronized void track( Path dir ) {
+        dir = dir.toAbsolutePath();
+        tracked.add( dir );
+        Path trash = dir.resolveSibling( TRASH );
+        if( Files.isDirectory( trash ) ) {
+            trashes.add( trash );
+        }
+    }
+
+    /**
+     * Release a directory now. The directory is renamed into a trash folder and deleted in the background. If the
+     * rename fails then the directory is deleted synchronously.
+     *
+     * @param dir the directory to release
+     */
+    public void release( Path dir ) {
+        release( dir, dir.toAbsolutePath().getParent() );
+    }
+
+    /**
+     * Release a directory now. The directory is renamed into the trash folder of another directory and deleted in the
+     * background. This is used for an output directory, so that no trash folder is created next to the deliverables.
+     * If the rename fails then the directory is deleted synchronously.
+     *
+     * @param dir the directory to release
+     * @param trashParent the directory for the trash folder, should be on the same file system
+     */
+    public void release( Path dir, Path trashParent ) {
+        dir = dir.toAbsolutePath();
+        synchronized( this ) {
+            tracked.remove( dir );
+        }
+        if( !Files.exists( dir ) ) {
+            return;
+        }
+        Path trash = trashParent.toAbsolutePath().resolve( TRASH );
+        Path target = trash.resolve( dir.getFileName() + "-" + System.currentTimeMillis() + "-" + COUNTER.incrementAndGet() );
+        try {
+            Files.createDirectories( trash );
+            Files.move( dir, target, StandardCopyOption.ATOMIC_MOVE );
+        } catch( IOException e ) {
+            Logging.sysout( "Could not move to trash, delete synchronously: " + dir );
+            try {
+                TempPath.clearTemporaryFolder( dir );
+            } catch( Exception ex ) {
+                Logging.syserr( "Could not remove temporary Resources: " + dir );
+            }
+            return;
+        }
+        synchronized( this ) {
+            trashes.add( trash );
+            if( Logging.DEBUG_LOG ) {
+                Logging.sysout( "Will not remove path due to debugging: " + target );
+                return;
+            }
+            pending.add( DELETER.submit( () -> {
+                try {
+                    TempPath.clearTemporaryFolder( target );
+                } catch( Exception e ) {
+                    Logging.syserr( "Could not remove temporary Resources: " + target );
+                }
+            } ) );
+        }
+    }
+
+    /**
+     * Get the current disk usage of all tracked directories and the leftover directories in the trash.
+     *
+     * @return the usage in bytes
+     */
+    public long getUsage() {
+        List<Path> dirs;
+        synchronized( this ) {
+            dirs = new ArrayList<>( tracked );
+            dirs.addAll( trashes );
+        }
+        long usage = 0;
+        for( Path dir : dirs ) {
+            usage += sizeOf( dir );
+        }
+        return usage;
+    }
+
+    /**
+     * Release all tracked directories. Called if the build finished.
+     */
+    void close() {
+        List<Path> dirs;
+        synchronized( this ) {
+            dirs = new ArrayList<>( tracked );
+        }
+        for( Path dir : dirs ) {
+            release( dir );
+        }
+        if( Logging.DEBUG_LOG ) {
+            // the usage walks all trees, only for debugging
+            Logging.sysout( "Temporary space usage after build: " + getUsage() + " bytes" );
+        }
+    }
+
+    /**
+     * Delete all tracked directories synchronously. Used on shutdown of the JVM, where the background deletes would not
+     * finish.
+     */
+    private void deleteTracked() {
+        List<Path> dirs;
+        synchronized( this ) {
+            dirs = new ArrayList<>( tracked );
+            tracked.clear();
+        }
+        for( Path dir : dirs ) {
+            if( !Files.exists( dir ) ) {
+                continue;
+            }
+            try {
+                TempPath.clearTemporaryFolder( dir );
+            } catch( Exception e ) {
+                Logging.syserr( "Could not remove temporary Resources: " + dir );
+            }
+        }
+    }
+
+    /**
+     * Make sure that the leftover directories do not exceed the quota.
+     */
+    private void enforceQuota() {
+        if( quota <= 0 ) {
+            return;
+        }
+        List<Path> trashList;
+        synchronized( this ) {
+            trashList = new ArrayList<>( trashes );
+        }
+        long usage = 0;
+        for( Path trash : trashList ) {
+            usage += sizeOf( trash );
+        }
+        if( usage <= quota ) {
+            return;
+        }
+
+        // first wait for the running deletes
+        List<Future<?>> futures;
+        synchronized( this ) {
+            futures = new ArrayList<>( pending );
+            pending.clear();
+        }
+        for( Future<?> future : futures ) {
+            try {
+                future.get();
+            } catch( Exception e ) {
+                // was already logged
+            }
+        }
+
+        // then remove the kept directories, oldest first
+        usage = 0;
+        for( Path trash : trashList ) {
+            usage += sizeOf( trash );
+        }
+        for( Path trash : trashList ) {
+            File[] entries = trash.toFile().listFiles();
+            if( entries == null ) {
+                continue;
+            }
+            Arrays.sort( entries, Comparator.comparingLong( File::lastModified ) );
+            for( File entry : entries ) {
+                if( usage <= quota ) {
+                    return;
+                }
+                long size = sizeOf( entry.toPath() );
+                try {
+                    TempPath.deleteTree( entry.toPath() );
+                    usage -= size;
+                } catch( IOException e ) {
+                    Logging.syserr( "Could not remove temporary Resources: " + entry );
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculate the size of a directory tree.
+     *
+     * @param dir the directory
+     * @return the size in bytes
+     */
+    private static long sizeOf( Path dir ) {
+        if( !Files.exists( dir ) ) {
+            return 0;
+        }
+        long[] size = new long[1];
+        try {
+            Files.walkFileTree( dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile( Path file, BasicFileAttributes attrs ) {
+                    size[0] += attrs.size();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed( Path file, IOException exc ) {
+                    // a concurrent delete is running
+                    return FileVisitResult.CONTINUE;
+                }
+            } );
+        } catch( IOException e ) {
+            // ignore, the size is only an estimate
+        }
+        return size[0];
+    }
+}
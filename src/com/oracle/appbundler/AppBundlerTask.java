@@ -63,7 +63,9 @@ import org.apache.tools.ant.types.resources.FileResource;
 
 import org.gradle.api.logging.Logger;
 
+import com.inet.gradle.setup.util.IncrementalCopy;
 import com.inet.gradle.setup.util.ResourceUtils;
+import com.inet.gradle.setup.util.TempSpace;
 
 /**
  * App bundler Ant task.
@@ -140,6 +142,55 @@ public class AppBundlerTask extends Task {
     public void setLogger( Logger logger ) {
         this.logger = logger;
     }
+
+    private TempSpace tempSpace;
+
+    private File trashParent;
+
+    /**
+     * Set the temporary space that deletes the old bundle in the background.
+     *
+     * @param tempSpace the temporary space
+     * @param trashParent the directory for the trash of the old bundle, for example the temporary directory of the
+     *            Gradle tasks. The output directory would show the trash next to the bundle.
+     */
+    public void setTempSpace( TempSpace tempSpace, File trashParent ) {
+        this.tempSpace = tempSpace;
+        this.trashParent = trashParent;
+    }
+
+    private boolean incremental;
+
+    private IncrementalCopy bundleCopy;
+
+    /**
+     * Keep an existing bundle and copy only the changed files.
+     * @param incremental true, for an incremental bundle assembly
+     */
+    public void setIncremental( boolean incremental ) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * The copy of the current bundle. Files that are written into the bundle after {@link #execute()} must be
+     * registered here, else they are removed as stale files with {@link #finishBundle()}.
+     * @return the copy or null if not executed
+     */
+    public IncrementalCopy getBundleCopy() {
+        return bundleCopy;
+    }
+
+    /**
+     * Remove the stale files of a previous incremental build. Must be called after all files are written into the bundle.
+     * @throws IOException if a file can not be removed
+     */
+    public void finishBundle() throws IOException {
+        if (bundleCopy != null) {
+            bundleCopy.finish();
+            this.logger.lifecycle( "\tBundle files: " + bundleCopy );
+            bundleCopy = null;
+        }
+    }
     
     
     public void setOutputDirectory(File outputDirectory) {
@@ -432,7 +483,14 @@ public class AppBundlerTask extends Task {
 
             // Create directory structure
             File rootDirectory = new File(outputDirectory, name + ".app");
-            delete(rootDirectory);
+            if (!incremental) {
+                if (tempSpace != null) {
+                    // move the old bundle away and delete it in the background
+                    tempSpace.release(rootDirectory.toPath(), trashParent.toPath());
+                }
+                delete(rootDirectory);
+            }
+            bundleCopy = new IncrementalCopy(rootDirectory.toPath(), incremental);
             rootDirectory.mkdir();
 
             File contentsDirectory = new File(rootDirectory, "Contents");
@@ -450,14 +508,21 @@ public class AppBundlerTask extends Task {
             File resourcesDirectory = new File(contentsDirectory, "Resources");
             resourcesDirectory.mkdir();
 
+            bundleCopy.retain(javaDirectory);
+            bundleCopy.retain(plugInsDirectory);
+            bundleCopy.retain(resourcesDirectory);
+            bundleCopy.retain(macOSDirectory);
+
             // Generate Info.plist
             File infoPlistFile = new File(contentsDirectory, "Info.plist");
             infoPlistFile.createNewFile();
+            bundleCopy.retain(infoPlistFile);
             writeInfoPlist(infoPlistFile);
 
             // Generate PkgInfo
             File pkgInfoFile = new File(contentsDirectory, "PkgInfo");
             pkgInfoFile.createNewFile();
+            bundleCopy.retain(pkgInfoFile);
             writePkgInfo(pkgInfoFile);
 
             // Copy executable to MacOS folder
@@ -474,6 +539,7 @@ public class AppBundlerTask extends Task {
             
             this.logger.lifecycle( "Using executable from: " + executable.toString() );
             copy(executable, executableFile);
+            bundleCopy.retain(executableFile);
 
             executableFile.setExecutable(true, false);
 
@@ -500,6 +566,9 @@ public class AppBundlerTask extends Task {
             copyDocumentIcons(exportedTypeDeclarations, resourcesDirectory);
             copyDocumentIcons(importedTypeDeclarations, resourcesDirectory);
 
+            // Wait for the parallel copies, the stale files are removed with finishBundle()
+            bundleCopy.await();
+
         } catch (IOException exception) {
             throw new BuildException(exception);
         }
@@ -514,6 +583,7 @@ public class AppBundlerTask extends Task {
             ZipEntry zipEntry = zipInputStream.getNextEntry();
             while (zipEntry != null) {
                 File file = new File(resourcesDirectory, zipEntry.getName());
+                bundleCopy.retain(file);
 
                 if (zipEntry.isDirectory()) {
                     file.mkdirs();
@@ -544,9 +614,9 @@ public class AppBundlerTask extends Task {
 
     private void copyRuntime(File plugInsDirectory) throws IOException {
         if (runtime != null) {
-            runtime.copyTo(plugInsDirectory, getProject());
+            runtime.copyTo(plugInsDirectory, getProject(), bundleCopy);
         } else if (jlink != null) {
-            jlink.copyTo(plugInsDirectory);
+            jlink.copyTo(plugInsDirectory, bundleCopy);
         }
     }
 
@@ -561,7 +631,7 @@ public class AppBundlerTask extends Task {
               FileResource fileResource = (FileResource) resource;
               File source = fileResource.getFile();
               File destination = new File(javaDirectory, source.getName());
-              copy(source, destination);
+              bundleCopy.copy(source, destination);
             }
           }
         }
@@ -577,7 +647,7 @@ public class AppBundlerTask extends Task {
                 String includedFile = includedFiles[i];
                 File source = new File(classPathDirectory, includedFile);
                 File destination = new File(javaDirectory, new File(includedFile).getName());
-                copy(source, destination);
+                bundleCopy.copy(source, destination);
             }
         }
     }
@@ -592,16 +662,18 @@ public class AppBundlerTask extends Task {
                 String includedFile = includedFiles[i];
                 File source = new File(libraryPathDirectory, includedFile);
                 File destination = new File(macOSDirectory, new File(includedFile).getName());
-                copy(source, destination);
+                bundleCopy.copy(source, destination);
             }
         }
     }
 
     private void copyIcon(File resourcesDirectory) throws IOException {
         if (icon == null) {
-            copy(getClass().getResource(DEFAULT_ICON_NAME), new File(resourcesDirectory, DEFAULT_ICON_NAME));
+            File defaultIcon = new File(resourcesDirectory, DEFAULT_ICON_NAME);
+            copy(getClass().getResource(DEFAULT_ICON_NAME), defaultIcon);
+            bundleCopy.retain(defaultIcon);
         } else {
-            copy(icon, new File(resourcesDirectory, icon.getName()));
+            bundleCopy.copy(icon, new File(resourcesDirectory, icon.getName()));
         }
     }
 
@@ -621,7 +693,7 @@ public class AppBundlerTask extends Task {
         if (ifile == null) {
             return;
         } else {
-            copy(ifile, new File(resourcesDirectory, ifile.getName()));
+            bundleCopy.copy(ifile, new File(resourcesDirectory, ifile.getName()));
         }
     }
 
@@ -26,10 +26,16 @@ package com.oracle.appbundler;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.taskdefs.ExecTask;
 
+import com.inet.gradle.setup.util.ContentCache;
+import com.inet.gradle.setup.util.IncrementalCopy;
+import com.inet.gradle.setup.util.ResourceUtils;
+
 /**
  * Class representing a module that will be passed to jlink to build the bundled
  * JVM.
@@ -38,10 +44,13 @@ public class JLink {
     private String runtime = null;
     private ArrayList<String> jmods = new ArrayList<>();
     private ArrayList<String> arguments = new ArrayList<>();
-    private ExecTask exec = new ExecTask();
+    private AppBundlerTask owner;
+    private boolean cache = true;
+    private File cacheDir;
+    private long cacheMaxSize = ContentCache.DEFAULT_MAX_SIZE;
+    private boolean hardLinks = false;
 
     public JLink() {
-        exec.init();
     }
 
     public String getRuntime() {
@@ -53,7 +62,36 @@ public class JLink {
     }
 
     public void setTask(AppBundlerTask task) {
-        exec.bindToOwner(task);
+        this.owner = task;
+    }
+
+    /**
+     * Reuse the jlink output of previous builds with the same runtime, modules and arguments. Enabled by default.
+     */
+    public void setCache(boolean cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * The directory of the jlink cache. Default is GRADLE_USER_HOME/caches/setupbuilder/jlink
+     */
+    public void setCacheDir(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * The size limit of the jlink cache in bytes. The least recently used images are removed.
+     */
+    public void setCacheMaxSize(long cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+    }
+
+    /**
+     * Create hard links to the cached image instead of a copy. Only possible if the bundle is not modified
+     * in place afterwards, for example by code signing.
+     */
+    public void setHardLinks(boolean hardLinks) {
+        this.hardLinks = hardLinks;
     }
 
     /* Provide canonical path so that runtime can be specified via a
@@ -91,6 +129,12 @@ public class JLink {
     }
 
     public void copyTo(File targetDir) throws IOException {
+        IncrementalCopy bundleCopy = new IncrementalCopy(targetDir.toPath(), false);
+        copyTo(targetDir, bundleCopy);
+        bundleCopy.finish();
+    }
+
+    void copyTo(File targetDir, IncrementalCopy bundleCopy) throws IOException {
         File runtimeHomeDirectory = getDir();
         File runtimeContentsDirectory = runtimeHomeDirectory.getParentFile();
         File runtimeDirectory = runtimeContentsDirectory.getParentFile();
@@ -105,30 +149,85 @@ public class JLink {
 
         // Copy MacOS directory
         File runtimeMacOSDirectory = new File(runtimeContentsDirectory, "MacOS");
-        AppBundlerTask.copy(runtimeMacOSDirectory, new File(pluginContentsDirectory, runtimeMacOSDirectory.getName()));
+        bundleCopy.copy(runtimeMacOSDirectory, new File(pluginContentsDirectory, runtimeMacOSDirectory.getName()));
 
 
         // Copy Info.plist file
         File runtimeInfoPlistFile = new File(runtimeContentsDirectory, "Info.plist");
-        AppBundlerTask.copy(runtimeInfoPlistFile, new File(pluginContentsDirectory, runtimeInfoPlistFile.getName()));
+        bundleCopy.copy(runtimeInfoPlistFile, new File(pluginContentsDirectory, runtimeInfoPlistFile.getName()));
 
         // Copy included contents of Home directory
         File pluginHomeDirectory = new File(pluginContentsDirectory, runtimeHomeDirectory.getName());
+        ArrayList<String> args = getJLinkArguments();
+
+        if (!cache) {
+            if (pluginHomeDirectory.exists()) {
+                // jlink does not write into an existing directory, for example from an incremental build
+                ResourceUtils.deleteDirectory(pluginHomeDirectory.toPath());
+            }
+            runJLink(runtimeHomeDirectory, args, pluginHomeDirectory);
+            bundleCopy.retainTree(pluginHomeDirectory);
+            return;
+        }
+
+        List<String> modules = new ArrayList<>(jmods);
+        Collections.sort(modules);
+        String key = new ContentCache.Key("jlink")
+                        .addContent(new File(runtimeHomeDirectory, "release"))
+                        .add(runtimeHomeDirectory.getAbsolutePath())
+                        .add(modules)
+                        .addListing(new File(runtimeHomeDirectory, "jmods"))
+                        .add(args)
+                        .toString();
+        ContentCache jlinkCache = cacheDir != null ? new ContentCache(cacheDir, cacheMaxSize) : ContentCache.getDefault("jlink");
+        File entry = jlinkCache.get(key, output -> runJLink(runtimeHomeDirectory, args, new File(output, "image")));
+        File image = new File(entry, "image");
+
+        if (hardLinks) {
+            if (pluginHomeDirectory.exists()) {
+                ResourceUtils.deleteDirectory(pluginHomeDirectory.toPath());
+            }
+            ContentCache.materialize(image, pluginHomeDirectory, true);
+            bundleCopy.retainTree(pluginHomeDirectory);
+        } else {
+            bundleCopy.copy(image, pluginHomeDirectory);
+        }
+    }
 
+    /**
+     * The arguments of jlink without the modules and the output
+     */
+    private ArrayList<String> getJLinkArguments() {
+        ArrayList<String> args = new ArrayList<>(this.arguments);
+        args.add("--no-man-pages");
+        args.add("--no-header-files");
+        args.add("--strip-native-commands");    /* no bin directory */
+        return args;
+    }
+
+    /**
+     * Run jlink of the runtime
+     * @param runtimeHomeDirectory the home of the runtime with bin/jlink
+     * @param args the arguments
+     * @param output the not existing output directory
+     */
+    private void runJLink(File runtimeHomeDirectory, List<String> args, File output) {
+        ExecTask exec = new ExecTask();
+        exec.init();
+        if (owner != null) {
+            exec.bindToOwner(owner);
+        }
         exec.setExecutable(runtimeHomeDirectory.getAbsolutePath() + "/bin/jlink");
         exec.setFailIfExecutionFails(true);
         exec.setFailonerror(true);
-        for(String s : this.arguments) {
+        for(String s : args) {
             exec.createArg().setValue(s);
         }
 
-        exec.createArg().setValue("--no-man-pages");
-        exec.createArg().setValue("--no-header-files");
-        exec.createArg().setValue("--strip-native-commands");    /* no bin directory */
         exec.createArg().setValue("--add-modules");
         exec.createArg().setValue(String.join(",", jmods));
         exec.createArg().setValue("--output");
-        exec.createArg().setValue(pluginHomeDirectory.getAbsolutePath());
+        exec.createArg().setValue(output.getAbsolutePath());
 
         exec.execute();
     }
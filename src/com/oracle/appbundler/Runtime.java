@@ -33,6 +33,8 @@ import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.types.FileSet;
 
+import com.inet.gradle.setup.util.IncrementalCopy;
+
 public class Runtime extends FileSet {
 
     /**
@@ -96,9 +98,10 @@ public class Runtime extends FileSet {
      * Finally copy the files of the jre
      * @param targetDir where to copy
      * @param project the project we're working on
+     * @param bundleCopy the copy of the bundle
      * @throws IOException in case of errors
      */
-    void copyTo(File targetDir, Project project) throws IOException {
+    void copyTo(File targetDir, Project project, IncrementalCopy bundleCopy) throws IOException {
 
         File runtimeHomeDirectory = getDir();
         File runtimeContentsDirectory = runtimeHomeDirectory.getParentFile();
@@ -114,11 +117,11 @@ public class Runtime extends FileSet {
 
         // Copy MacOS directory
         File runtimeMacOSDirectory = new File(runtimeContentsDirectory, "MacOS");
-        AppBundlerTask.copy(runtimeMacOSDirectory, new File(pluginContentsDirectory, runtimeMacOSDirectory.getName()));
+        bundleCopy.copy(runtimeMacOSDirectory, new File(pluginContentsDirectory, runtimeMacOSDirectory.getName()));
 
         // Copy Info.plist file
         File runtimeInfoPlistFile = new File(runtimeContentsDirectory, "Info.plist");
-        AppBundlerTask.copy(runtimeInfoPlistFile, new File(pluginContentsDirectory, runtimeInfoPlistFile.getName()));
+        bundleCopy.copy(runtimeInfoPlistFile, new File(pluginContentsDirectory, runtimeInfoPlistFile.getName()));
 
         // Copy included contents of Home directory
         File pluginHomeDirectory = new File(pluginContentsDirectory, runtimeHomeDirectory.getName());
@@ -130,7 +133,7 @@ public class Runtime extends FileSet {
             String includedFile = includedFiles[i];
             File source = new File(runtimeHomeDirectory, includedFile);
             File destination = new File(pluginHomeDirectory, includedFile);
-            AppBundlerTask.copy(source, destination);
+            bundleCopy.copy(source, destination);
         }
     }
 
@@ -0,0 +1,34 @@
+package com.inet.testapplication.appcds;
+
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.logging.Logger;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * Minimal application for the AppCDS sample. It loads some classes of the JDK like a real application on its start. With
+ * the argument "--exit" it exits after the start, for the training run while building.
+ */
+public class AppCdsSample {
+
+    /**
+     * Start of the application.
+     * 
+     * @param args "--exit" to exit after the start
+     * @throws Exception if any error occur
+     */
+    public static void main( String[] args ) throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse( new InputSource( new StringReader( "<config><name>AppCDS Sample</name></config>" ) ) );
+        String name = doc.getDocumentElement().getTextContent();
+        Logger.getLogger( "appCds" ).info( name + " started at " + LocalDateTime.now().format( DateTimeFormatter.ISO_LOCAL_DATE_TIME ) );
+        if( args.length > 0 && "--exit".equals( args[0] ) ) {
+            return;
+        }
+        Thread.sleep( Long.MAX_VALUE );
+    }
+}